@@ -0,0 +1,10 @@
+package nemethi.pdfmerge.cli;
+
+// Filtered at build time, so the version still comes from one place: the POM.
+public final class Version {
+
+    public static final String VERSION = "${project.version}";
+
+    private Version() {
+    }
+}
@@ -1,10 +1,24 @@
 package nemethi.pdfmerge;
 
-import nemethi.pdfmerge.cli.ExceptionHandler;
+import nemethi.pdfmerge.archive.ArchiveExpander;
+import nemethi.pdfmerge.archive.ArchiveOrder;
+import nemethi.pdfmerge.archive.Archives;
+import nemethi.pdfmerge.cli.ArchiveOrderConverter;
+import nemethi.pdfmerge.cli.DocumentStructureConverter;
+import nemethi.pdfmerge.cli.DurationConverter;
+import nemethi.pdfmerge.cli.ProgressFormatConsumer;
+import nemethi.pdfmerge.cli.SizeConverter;
+import nemethi.pdfmerge.cli.StaticHelp;
 import nemethi.pdfmerge.cli.VersionProvider;
+import nemethi.pdfmerge.gc.CollectionReport;
+import nemethi.pdfmerge.metrics.MergeMetrics;
+import nemethi.pdfmerge.progress.ProgressFormat;
+import nemethi.pdfmerge.progress.ProgressReporter;
+import nemethi.pdfmerge.scratch.OffHeapScratch;
+import nemethi.pdfmerge.server.MergeClient;
+import nemethi.pdfmerge.streaming.MergeListener;
+import nemethi.pdfmerge.structure.DocumentStructure;
 import nemethi.pdfmerge.util.FileChecker;
-import org.apache.pdfbox.multipdf.PDFMergerUtility;
-import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
@@ -12,47 +26,119 @@ import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Parameters;
 import picocli.CommandLine.Spec;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Command(name = "pdfmerge", description = "Merge multiple PDF FILEs into OUTFILE.%n",
+        customSynopsis = {"pdfmerge [OPTIONS] FILE...", "   or: pdfmerge [OPTIONS] COMMAND [COMMAND OPTIONS]"},
+        commandListHeading = "%nCommands:%n",
+        footer = {"%nMerge options given before COMMAND apply to the merges it runs.",
+                "Run 'pdfmerge COMMAND --help' for the options of COMMAND."},
         mixinStandardHelpOptions = true, versionProvider = VersionProvider.class)
 public class Application implements Callable<Integer> {
 
+    private static final List<String> COMMAND_NAMES =
+            Arrays.asList(WatchCommand.NAME, BatchCommand.NAME, ServerCommand.NAME);
+
     private final PdfMerger pdfMerger;
     private Path outputFile;
     private List<Path> inputFiles;
     private FileChecker fileChecker;
+    private ArchiveExpander archiveExpander;
     private CommandSpec spec;
     private boolean isForced;
+    private boolean isCollecting;
+    private Path metricsFile;
+    private MergeMetrics metrics;
+    private ProgressFormat progressFormat;
+    private final AtomicReference<CollectionReport> collected = new AtomicReference<>(CollectionReport.EMPTY);
 
     public Application(PdfMerger pdfMerger) {
         this.pdfMerger = pdfMerger;
         this.fileChecker = new FileChecker();
+        this.archiveExpander = new ArchiveExpander();
     }
 
     public static void main(String[] args) {
-        Application application = new Application(new PdfMerger(new PDFMergerUtility()));
-        ExceptionHandler exceptionHandler = new ExceptionHandler();
-        int exitCode = new CommandLine(application)
-                .setParameterExceptionHandler(exceptionHandler)
-                .setExecutionExceptionHandler(exceptionHandler)
-                .execute(args);
-        System.exit(exitCode);
+        String answer = StaticHelp.answer(args);
+        if (answer != null) {
+            System.out.print(answer);
+            System.exit(0);
+        }
+        // Only plain merges are forwarded, whatever options precede a command name.
+        if (Collections.disjoint(Arrays.asList(args), COMMAND_NAMES)) {
+            // Before any PDFBox class is loaded, which the server has done already.
+            MergeClient client = MergeClient.fromEnvironment();
+            if (client != null) {
+                Integer exitCode = client.run(args);
+                if (exitCode != null) {
+                    System.exit(exitCode);
+                }
+            }
+        }
+        System.exit(CommandLineFactory.create(new PdfMerger()).execute(args));
     }
 
     @Override
     public Integer call() throws Exception {
-        if (isForced) {
-            pdfMerger.forceMerge(inputFiles, outputFile);
-        } else {
-            pdfMerger.merge(inputFiles, outputFile);
+        checkRequired();
+        ProgressReporter progress = null;
+        Throwable failure = null;
+        try {
+            List<Path> inputs = expandArchives();
+            if (progressFormat != null) {
+                progress = startProgress(inputs);
+            }
+            MergeListener listener = progress == null ? MergeListener.NONE : progress;
+            if (isForced) {
+                pdfMerger.forceMerge(inputs, outputFile, listener);
+            } else {
+                pdfMerger.merge(inputs, outputFile, listener);
+            }
+            if (progress != null) {
+                progress.finish();
+            }
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            if (progress != null) {
+                progress.close();
+            }
+            // Failed runs are written too, since that is when the failure counters matter.
+            if (metricsFile != null) {
+                writeMetrics(failure);
+            }
+        }
+        if (isCollecting) {
+            CollectionReport report = collected.get();
+            spec.commandLine().getOut().printf("Found %d unreachable objects in the inputs (%d bytes).%n",
+                    report.getObjects(), report.getBytes());
         }
         return 0;
     }
 
-    @Option(names = {"-o", "--output"}, paramLabel = "OUTFILE", required = true, description = "Path to the output file.")
+    // A failed write must not hide why the merge failed, so it is only thrown on its own after a successful merge.
+    private void writeMetrics(Throwable failure) throws IOException {
+        try {
+            metrics.getRegistry().writeTo(metricsFile);
+        } catch (IOException e) {
+            if (failure == null) {
+                throw e;
+            }
+            failure.addSuppressed(e);
+        }
+    }
+
+    @Option(names = {"-o", "--output"}, paramLabel = "OUTFILE", description = "Path to the output file.")
     public void setOutputFile(Path outputFile) {
         if (fileChecker.isDirectory(outputFile)) {
             throw new ParameterException(spec.commandLine(), "Invalid path: OUTFILE must point to a file.");
@@ -60,9 +146,12 @@ public class Application implements Callable<Integer> {
         this.outputFile = outputFile;
     }
 
-    @Parameters(paramLabel = "FILE", arity = "2..*", description = "Path to the files to be merged.")
+    @Parameters(paramLabel = "FILE...", hideParamSyntax = true, arity = "0..*",
+            description = "Path to the files to be merged. A ZIP or TAR archive stands for the PDFs in it, ARCHIVE!/GLOB for its entries matching GLOB.")
     public void setInputFiles(List<Path> inputFiles) {
-        for (Path inputFile : inputFiles) {
+        for (Path input : inputFiles) {
+            // The entries of an archive are only listed when merging, once the order to list them in is known.
+            Path inputFile = Archives.isEntry(input) ? Archives.archiveOf(input) : input;
             if (fileChecker.notExists(inputFile)) {
                 throw new ParameterException(spec.commandLine(), String.format("Invalid path: %s does not exist.", inputFile));
             } else if (fileChecker.isDirectory(inputFile)) {
@@ -77,6 +166,205 @@ public class Application implements Callable<Integer> {
         isForced = forced;
     }
 
+    @Option(names = "--timeout", paramLabel = "DURATION", converter = DurationConverter.class,
+            description = "Abort the merge after DURATION (e.g. 90s, 15m or 2h) with exit code 124.")
+    public void setTimeout(Duration timeout) {
+        if (timeout.isZero()) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: DURATION must be positive.");
+        }
+        pdfMerger.setTimeout(timeout);
+    }
+
+    @Option(names = "--archive-order", paramLabel = "ORDER", converter = ArchiveOrderConverter.class,
+            description = "Order of the PDFs taken from an archive: archive (as stored, the default) or natural (by name).")
+    public void setArchiveOrder(ArchiveOrder archiveOrder) {
+        archiveExpander.setOrder(archiveOrder);
+    }
+
+    @Option(names = "--metrics-file", paramLabel = "METRICSFILE",
+            description = "Write metrics of the run to METRICSFILE in the Prometheus text format.")
+    public void setMetricsFile(Path metricsFile) {
+        if (fileChecker.isDirectory(metricsFile)) {
+            throw new ParameterException(spec.commandLine(), "Invalid path: METRICSFILE must point to a file.");
+        }
+        this.metricsFile = metricsFile;
+        metrics = new MergeMetrics();
+        pdfMerger.setMetrics(metrics);
+    }
+
+    @Option(names = "--progress", paramLabel = "FORMAT", arity = "0..1",
+            parameterConsumer = ProgressFormatConsumer.class,
+            description = "Report progress on stderr every second, as text (the default) or json lines.")
+    public void setProgressFormat(ProgressFormat progressFormat) {
+        this.progressFormat = progressFormat;
+    }
+
+    @Option(names = "--raw-copy", description = "Import pages without cloning their objects.")
+    public void setRawCopy(boolean rawCopy) {
+        pdfMerger.setRawCopy(rawCopy);
+    }
+
+    @Option(names = "--prefetch", paramLabel = "N", description = "Read the next N inputs ahead in the background.")
+    public void setPrefetchCount(int prefetchCount) {
+        if (prefetchCount < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: N must be a positive number.");
+        }
+        pdfMerger.setPrefetchCount(prefetchCount);
+    }
+
+    @Option(names = "--prefetch-buffer", paramLabel = "SIZE", converter = SizeConverter.class,
+            description = "Memory for inputs read ahead (default: 64M).")
+    public void setPrefetchBufferSize(long prefetchBufferSize) {
+        if (prefetchBufferSize < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: SIZE must be a positive number.");
+        }
+        pdfMerger.setPrefetchBufferSize(prefetchBufferSize);
+    }
+
+    @Option(names = "--linearize", description = "Write a linearized (Fast Web View) OUTFILE.")
+    public void setLinearized(boolean linearized) {
+        pdfMerger.setLinearized(linearized);
+    }
+
+    @Option(names = "--max-dpi", paramLabel = "DPI", description = "Downsample images displayed above DPI resolution.")
+    public void setMaxImageDpi(int maxImageDpi) {
+        if (maxImageDpi < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: DPI must be a positive number.");
+        }
+        pdfMerger.setMaxImageDpi(maxImageDpi);
+    }
+
+    @Option(names = "--jpeg-quality", paramLabel = "QUALITY",
+            description = "Recompress images as JPEG with QUALITY (1-100).")
+    public void setJpegQuality(int jpegQuality) {
+        if (jpegQuality < 1 || jpegQuality > 100) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: QUALITY must be between 1 and 100.");
+        }
+        pdfMerger.setJpegQuality(jpegQuality);
+    }
+
+    @Option(names = "--image-threads", paramLabel = "N", description = "Number of threads processing images.")
+    public void setImageThreads(int imageThreads) {
+        if (imageThreads < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: N must be a positive number.");
+        }
+        pdfMerger.setImageThreads(imageThreads);
+    }
+
+    @Option(names = "--compress", description = "Flate-compress uncompressed streams.")
+    public void setCompressStreams(boolean compressStreams) {
+        pdfMerger.setCompressStreams(compressStreams);
+    }
+
+    @Option(names = "--compression-level", paramLabel = "LEVEL",
+            description = "Compress streams and recompress Flate streams at LEVEL (1-9).")
+    public void setCompressionLevel(int compressionLevel) {
+        if (compressionLevel < 1 || compressionLevel > 9) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: LEVEL must be between 1 and 9.");
+        }
+        pdfMerger.setCompressionLevel(compressionLevel);
+    }
+
+    @Option(names = "--compress-threads", paramLabel = "N", description = "Number of threads compressing streams.")
+    public void setCompressThreads(int compressThreads) {
+        if (compressThreads < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: N must be a positive number.");
+        }
+        pdfMerger.setCompressThreads(compressThreads);
+    }
+
+    @Option(names = "--dedupe", description = "Store identical streams and objects only once.")
+    public void setDeduplicated(boolean deduplicated) {
+        pdfMerger.setDeduplicated(deduplicated);
+    }
+
+    @Option(names = "--gc", description = "Drop unreachable objects of the inputs and report how many were found.")
+    public void setCollecting(boolean collecting) {
+        isCollecting = collecting;
+        pdfMerger.setCollectingUnreachable(collecting);
+        pdfMerger.setCollectionListener(report -> collected.accumulateAndGet(report, CollectionReport::plus));
+    }
+
+    @Option(names = "--deterministic",
+            description = "Write the same bytes for the same inputs, with a document ID derived from their content.")
+    public void setDeterministic(boolean deterministic) {
+        pdfMerger.setDeterministic(deterministic);
+    }
+
+    @Option(names = "--drop-timestamps", description = "Remove the creation and modification dates from OUTFILE.")
+    public void setDroppingTimestamps(boolean droppingTimestamps) {
+        pdfMerger.setDroppingTimestamps(droppingTimestamps);
+    }
+
+    @Option(names = "--checkpoint-dir", paramLabel = "DIR",
+            description = "Keep finished chunks of the merge in DIR and resume from them when run again.")
+    public void setCheckpointDirectory(Path checkpointDirectory) {
+        if (fileChecker.exists(checkpointDirectory) && !fileChecker.isDirectory(checkpointDirectory)) {
+            throw new ParameterException(spec.commandLine(), "Invalid path: DIR must point to a directory.");
+        }
+        pdfMerger.setCheckpointDirectory(checkpointDirectory);
+    }
+
+    @Option(names = "--checkpoint-every", paramLabel = "N",
+            description = "Write a chunk after every N inputs (default: 500).")
+    public void setCheckpointInterval(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: N must be a positive number.");
+        }
+        pdfMerger.setCheckpointInterval(checkpointInterval);
+    }
+
+    @Option(names = "--memory-budget", paramLabel = "SIZE", converter = SizeConverter.class,
+            description = "Use scratch files if the merge would need more than SIZE of heap or the heap runs low.")
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: SIZE must be a positive number.");
+        }
+        pdfMerger.setMemoryBudget(memoryBudget);
+    }
+
+    @Option(names = "--off-heap-scratch", paramLabel = "SIZE", converter = SizeConverter.class,
+            description = "Keep scratch buffers in up to SIZE of direct memory instead of the heap.")
+    public void setOffHeapScratch(long capacity) {
+        if (capacity < OffHeapScratch.MIN_CAPACITY) {
+            throw new ParameterException(spec.commandLine(),
+                    "Invalid value: SIZE must be at least " + OffHeapScratch.MIN_CAPACITY + " bytes.");
+        }
+        pdfMerger.setOffHeapScratch(new OffHeapScratch(capacity));
+    }
+
+    @Option(names = "--max-output-pages", paramLabel = "N",
+            description = "Split OUTFILE into volumes of at most N pages.")
+    public void setMaxOutputPages(int maxOutputPages) {
+        if (maxOutputPages < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: N must be a positive number.");
+        }
+        pdfMerger.setMaxOutputPages(maxOutputPages);
+    }
+
+    @Option(names = "--max-output-size", paramLabel = "SIZE", converter = SizeConverter.class,
+            description = "Split OUTFILE into volumes of at most SIZE bytes (K, M and G suffixes are allowed).")
+    public void setMaxOutputSize(long maxOutputSize) {
+        if (maxOutputSize < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: SIZE must be a positive number.");
+        }
+        pdfMerger.setMaxOutputSize(maxOutputSize);
+    }
+
+    @Option(names = "--lean", description = "Merge only the pages and their resources.")
+    public void setLean(boolean lean) {
+        pdfMerger.setLean(lean);
+    }
+
+    // Structures are only dropped in lean mode, so naming the ones to keep turns it on.
+    @Option(names = "--keep", paramLabel = "STRUCTURE", split = ",", converter = DocumentStructureConverter.class,
+            description = "Merge in lean mode, keeping these document structures: outlines, forms, tags, "
+                    + "destinations, labels, metadata.")
+    public void setKeptStructures(List<DocumentStructure> keptStructures) {
+        pdfMerger.setLean(true);
+        pdfMerger.setKeptStructures(EnumSet.copyOf(keptStructures));
+    }
+
     @Spec
     public void setSpec(CommandSpec spec) {
         this.spec = spec;
@@ -93,4 +381,57 @@ public class Application implements Callable<Integer> {
     public void setFileChecker(FileChecker fileChecker) {
         this.fileChecker = fileChecker;
     }
+
+    public void setArchiveExpander(ArchiveExpander archiveExpander) {
+        this.archiveExpander = archiveExpander;
+    }
+
+    private ProgressReporter startProgress(List<Path> inputs) throws IOException {
+        List<Long> inputSizes = new ArrayList<>();
+        for (Path input : inputs) {
+            inputSizes.add(fileChecker.size(input));
+        }
+        ProgressReporter progress = new ProgressReporter(inputSizes, progressFormat, spec.commandLine().getErr());
+        progress.start();
+        return progress;
+    }
+
+    // Not required to picocli, which would demand them before a command name as well.
+    private void checkRequired() {
+        List<String> missing = new ArrayList<>();
+        if (outputFile == null) {
+            missing.add("'--output=OUTFILE'");
+        }
+        if (inputFiles == null || inputFiles.isEmpty()) {
+            missing.add("'FILE'");
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+        String message;
+        if (outputFile != null) {
+            message = "Missing required parameter: ";
+        } else if (missing.size() == 1) {
+            message = "Missing required option: ";
+        } else {
+            message = "Missing required options and parameters: ";
+        }
+        throw new ParameterException(spec.commandLine(), message + String.join(", ", missing));
+    }
+
+    private List<Path> expandArchives() throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        for (Path inputFile : inputFiles) {
+            List<Path> expanded = archiveExpander.expand(inputFile);
+            if (expanded.isEmpty()) {
+                throw new ParameterException(spec.commandLine(),
+                        String.format("Invalid path: %s matches no PDF files.", inputFile));
+            }
+            inputs.addAll(expanded);
+        }
+        if (inputs.size() < 2) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: FILE must name at least two PDF files.");
+        }
+        return inputs;
+    }
 }
@@ -0,0 +1,182 @@
+package nemethi.pdfmerge;
+
+import nemethi.pdfmerge.batch.BatchReport;
+import nemethi.pdfmerge.batch.JobFile;
+import nemethi.pdfmerge.batch.JobResult;
+import nemethi.pdfmerge.batch.JobScheduler;
+import nemethi.pdfmerge.batch.MergeJob;
+import nemethi.pdfmerge.batch.SchedulingPolicy;
+import nemethi.pdfmerge.cli.SchedulingPolicyConverter;
+import nemethi.pdfmerge.cli.SizeConverter;
+import nemethi.pdfmerge.cli.VersionProvider;
+import nemethi.pdfmerge.scratch.OffHeapScratch;
+import nemethi.pdfmerge.util.FileChecker;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+@Command(name = "batch", description = "Run the merges listed in JOBFILE on a pool of workers.",
+        optionListHeading = "%n", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+        abbreviateSynopsis = true)
+public class BatchCommand implements Callable<Integer> {
+
+    static final String NAME = "batch";
+
+    private final PdfMerger pdfMerger;
+    private Path jobFile;
+    private boolean isForced;
+    private JobFile jobFileReader;
+    private JobScheduler scheduler;
+    private FileChecker fileChecker;
+    private CommandSpec spec;
+
+    public BatchCommand(PdfMerger pdfMerger) {
+        this.pdfMerger = pdfMerger;
+        jobFileReader = new JobFile();
+        scheduler = new JobScheduler();
+        fileChecker = new FileChecker();
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        List<MergeJob> jobs = jobFileReader.read(jobFile);
+        List<JobResult> results;
+        // With virtual workers the job count no longer bounds the threads parsing at once, so a pool does.
+        ExecutorService parsers = null;
+        if (scheduler.usesVirtualThreads()) {
+            parsers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+            pdfMerger.setParseExecutor(parsers);
+        }
+        try {
+            results = runJobs(jobs);
+        } finally {
+            if (parsers != null) {
+                pdfMerger.setParseExecutor(null);
+                parsers.shutdown();
+            }
+        }
+        PrintWriter err = spec.commandLine().getErr();
+        for (JobResult result : results) {
+            if (!result.isSuccessful()) {
+                err.printf("Merging into %s failed: %s%n", result.getJob().getOutputPath(),
+                        result.getFailure().getMessage());
+            }
+        }
+        err.flush();
+        BatchReport report = new BatchReport(results);
+        spec.commandLine().getOut().printf("Merged %d of %d jobs; latency p50 %d ms, p99 %d ms.%n",
+                report.getJobs() - report.getFailures(), report.getJobs(),
+                TimeUnit.NANOSECONDS.toMillis(report.percentileNanos(50)),
+                TimeUnit.NANOSECONDS.toMillis(report.percentileNanos(99)));
+        return report.getFailures() == 0 ? 0 : spec.exitCodeOnExecutionException();
+    }
+
+    private List<JobResult> runJobs(List<MergeJob> jobs) throws IOException {
+        return scheduler.run(jobs, job -> {
+            // Checked up front like the inputs of a single merge, so that a failed job leaves no empty output.
+            for (Path inputPath : job.getInputPaths()) {
+                if (fileChecker.notExists(inputPath) || fileChecker.isDirectory(inputPath)) {
+                    throw new FileNotFoundException(inputPath + " does not exist.");
+                }
+            }
+            if (isForced) {
+                pdfMerger.forceMerge(job.getInputPaths(), job.getOutputPath());
+            } else {
+                pdfMerger.merge(job.getInputPaths(), job.getOutputPath());
+            }
+        });
+    }
+
+    @Option(names = "--jobs", paramLabel = "JOBFILE", required = true,
+            description = "File with one merge per line: [priority=N] OUTFILE FILE...")
+    public void setJobFile(Path jobFile) {
+        if (!fileChecker.exists(jobFile) || fileChecker.isDirectory(jobFile)) {
+            throw new ParameterException(spec.commandLine(), "Invalid path: JOBFILE must point to a file.");
+        }
+        this.jobFile = jobFile;
+    }
+
+    @Option(names = "--policy", paramLabel = "POLICY", converter = SchedulingPolicyConverter.class,
+            description = "Order of the jobs: fifo (default), sjf (smallest inputs first) or priority.")
+    public void setPolicy(SchedulingPolicy policy) {
+        scheduler.setPolicy(policy);
+    }
+
+    @Option(names = "--workers", paramLabel = "N", description = "Run N merges at once (default: number of CPUs).")
+    public void setWorkers(int workers) {
+        if (workers < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: N must be a positive number.");
+        }
+        scheduler.setWorkers(workers);
+    }
+
+    @Option(names = "--max-overtakes", paramLabel = "N",
+            description = "Start no job more than N places later than in JOBFILE order (default: 1000).")
+    public void setMaxOvertakes(int maxOvertakes) {
+        if (maxOvertakes < 0) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: N must not be negative.");
+        }
+        scheduler.setMaxOvertakes(maxOvertakes);
+    }
+
+    @Option(names = "--memory-budget", paramLabel = "SIZE", converter = SizeConverter.class,
+            description = "Hold back merges whose estimated heap would exceed SIZE together.")
+    public void setMemoryBudget(long memoryBudget) {
+        if (memoryBudget < 1) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: SIZE must be a positive number.");
+        }
+        pdfMerger.setMemoryBudget(memoryBudget);
+    }
+
+    @Option(names = "--off-heap-scratch", paramLabel = "SIZE", converter = SizeConverter.class,
+            description = "Keep scratch buffers in up to SIZE of direct memory instead of the heap.")
+    public void setOffHeapScratch(long capacity) {
+        if (capacity < OffHeapScratch.MIN_CAPACITY) {
+            throw new ParameterException(spec.commandLine(),
+                    "Invalid value: SIZE must be at least " + OffHeapScratch.MIN_CAPACITY + " bytes.");
+        }
+        pdfMerger.setOffHeapScratch(new OffHeapScratch(capacity));
+    }
+
+    @Option(names = {"-f", "--force"}, description = "Overwrite existing output files.")
+    public void setForced(boolean forced) {
+        isForced = forced;
+    }
+
+    @Spec
+    public void setSpec(CommandSpec spec) {
+        this.spec = spec;
+    }
+
+    public Path getJobFile() {
+        return jobFile;
+    }
+
+    public boolean isForced() {
+        return isForced;
+    }
+
+    public void setJobFileReader(JobFile jobFileReader) {
+        this.jobFileReader = jobFileReader;
+    }
+
+    public void setScheduler(JobScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void setFileChecker(FileChecker fileChecker) {
+        this.fileChecker = fileChecker;
+    }
+}
@@ -0,0 +1,26 @@
+package nemethi.pdfmerge;
+
+import nemethi.pdfmerge.cli.ExceptionHandler;
+import picocli.CommandLine;
+
+/**
+ * Builds the command line of the merge command and its subcommands. It is kept out of {@link Application}, since the
+ * launcher resolves the types of every public method of the main class, and {@code --help} and {@code --version} are
+ * answered without loading picocli's command line.
+ */
+public final class CommandLineFactory {
+
+    private CommandLineFactory() {
+    }
+
+    // The commands share the merger, so the merge options given before a command name apply to its merges too.
+    public static CommandLine create(PdfMerger pdfMerger) {
+        ExceptionHandler exceptionHandler = new ExceptionHandler();
+        return new CommandLine(new Application(pdfMerger))
+                .addSubcommand(new WatchCommand(pdfMerger))
+                .addSubcommand(new BatchCommand(pdfMerger))
+                .addSubcommand(new ServerCommand())
+                .setParameterExceptionHandler(exceptionHandler)
+                .setExecutionExceptionHandler(exceptionHandler);
+    }
+}
@@ -0,0 +1,40 @@
+package nemethi.pdfmerge;
+
+import nemethi.pdfmerge.cancel.MergeCancelledException;
+import nemethi.pdfmerge.cancel.MergeTimeoutException;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+
+// The kinds of failed merges that callers handle differently, shared by the exit codes and the metrics.
+public enum FailureType {
+
+    OUTPUT_EXISTS("output_exists"),
+    TIMEOUT("timeout"),
+    CANCELLED("cancelled"),
+    IO("io"),
+    OTHER("other");
+
+    private final String label;
+
+    FailureType(String label) {
+        this.label = label;
+    }
+
+    public static FailureType of(Throwable failure) {
+        if (failure instanceof FileAlreadyExistsException) {
+            return OUTPUT_EXISTS;
+        } else if (failure instanceof MergeTimeoutException) {
+            return TIMEOUT;
+        } else if (failure instanceof MergeCancelledException) {
+            return CANCELLED;
+        } else if (failure instanceof IOException) {
+            return IO;
+        }
+        return OTHER;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
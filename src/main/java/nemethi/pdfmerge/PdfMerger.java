@@ -1,54 +1,657 @@
 package nemethi.pdfmerge;
 
+import nemethi.pdfmerge.admission.Admission;
+import nemethi.pdfmerge.admission.AdmissionController;
+import nemethi.pdfmerge.archive.RandomAccessSource;
+import nemethi.pdfmerge.cache.DocumentCache;
+import nemethi.pdfmerge.cancel.CancellableInputStream;
+import nemethi.pdfmerge.cancel.CancellableOutputStream;
+import nemethi.pdfmerge.cancel.Cancellation;
+import nemethi.pdfmerge.cancel.MergeCancelledException;
+import nemethi.pdfmerge.checkpoint.Checkpoint;
+import nemethi.pdfmerge.compression.StreamCompressor;
+import nemethi.pdfmerge.dedupe.ObjectDeduplicator;
+import nemethi.pdfmerge.engine.MergeEngine;
+import nemethi.pdfmerge.engine.PdfBoxMergeEngine;
+import nemethi.pdfmerge.engine.RawCopyMergeEngine;
+import nemethi.pdfmerge.gc.CollectionReport;
+import nemethi.pdfmerge.gc.UnreachableObjectCollector;
+import nemethi.pdfmerge.image.ImageOptimizer;
+import nemethi.pdfmerge.metrics.MergeMetrics;
+import nemethi.pdfmerge.metrics.MergePhase;
+import nemethi.pdfmerge.metrics.MeteredOutputStream;
+import nemethi.pdfmerge.reproducible.ReproducibleOutput;
+import nemethi.pdfmerge.reproducible.TrackedInputs;
+import nemethi.pdfmerge.scratch.OffHeapScratch;
+import nemethi.pdfmerge.streaming.ChannelOutputStream;
+import nemethi.pdfmerge.streaming.MergeListener;
+import nemethi.pdfmerge.streaming.MergeSource;
+import nemethi.pdfmerge.structure.DocumentStructure;
+import nemethi.pdfmerge.structure.StructureFilter;
+import nemethi.pdfmerge.util.DocumentLoader;
 import nemethi.pdfmerge.util.FileChecker;
 import nemethi.pdfmerge.util.OutputStreamSupplier;
+import nemethi.pdfmerge.util.PageCounter;
 import nemethi.pdfmerge.util.PathToStreamConverter;
+import nemethi.pdfmerge.util.WorkerPool;
+import nemethi.pdfmerge.volume.Segment;
+import nemethi.pdfmerge.volume.Volume;
+import nemethi.pdfmerge.volume.VolumePlanner;
+import nemethi.pdfmerge.volume.VolumeWriter;
+import nemethi.pdfmerge.writer.LinearizedWriter;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.ScratchFile;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * Merges PDF files. All state of a merge is local to the call, so a configured instance can be shared and used
+ * by several threads at once. Configure it before sharing it; the setters are not meant to be called during merges.
+ */
 public class PdfMerger {
 
-    private final PDFMergerUtility mergerUtility;
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 500;
+
+    private final Supplier<PDFMergerUtility> mergerUtilityFactory;
+    private MergeEngine mergeEngine;
     private PathToStreamConverter converter;
     private FileChecker fileChecker;
     private OutputStreamSupplier streamSupplier;
+    private DocumentLoader documentLoader;
+    private PageCounter pageCounter;
+    private LinearizedWriter linearizedWriter;
+    private ImageOptimizer imageOptimizer;
+    private StructureFilter structureFilter;
+    private VolumePlanner volumePlanner;
+    private VolumeWriter volumeWriter;
+    private StreamCompressor streamCompressor;
+    private ObjectDeduplicator objectDeduplicator;
+    private UnreachableObjectCollector objectCollector;
+    private ReproducibleOutput reproducibleOutput;
+    private AdmissionController admissionController;
+    private OffHeapScratch offHeapScratch;
+    private Executor parseExecutor;
+    private Consumer<CollectionReport> collectionListener;
+    private final StructureFilter partialInputFilter;
+    private Executor executor;
+    private MergeMetrics metrics;
+    private Duration timeout;
+    private Path checkpointDirectory;
+    private int checkpointInterval = DEFAULT_CHECKPOINT_INTERVAL;
+    private boolean linearized;
+
+    public PdfMerger() {
+        // A lambda rather than a constructor reference: linking the latter loads PDFBox before any merge runs.
+        this(() -> new PDFMergerUtility());
+    }
 
-    public PdfMerger(PDFMergerUtility mergerUtility) {
-        this.mergerUtility = mergerUtility;
+    public PdfMerger(Supplier<PDFMergerUtility> mergerUtilityFactory) {
+        this.mergerUtilityFactory = mergerUtilityFactory;
+        mergeEngine = new PdfBoxMergeEngine(mergerUtilityFactory);
         converter = new PathToStreamConverter();
         fileChecker = new FileChecker();
         streamSupplier = new OutputStreamSupplier();
+        documentLoader = new DocumentLoader();
+        pageCounter = new PageCounter();
+        linearizedWriter = new LinearizedWriter();
+        imageOptimizer = new ImageOptimizer();
+        structureFilter = new StructureFilter();
+        volumePlanner = new VolumePlanner();
+        volumeWriter = new VolumeWriter();
+        streamCompressor = new StreamCompressor();
+        objectDeduplicator = new ObjectDeduplicator();
+        objectCollector = new UnreachableObjectCollector();
+        reproducibleOutput = new ReproducibleOutput();
+        admissionController = new AdmissionController();
+        collectionListener = report -> {
+        };
+        partialInputFilter = new StructureFilter();
+        // Merges block on I/O for long, so they are kept off the common fork-join pool that others rely on.
+        executor = new WorkerPool("pdfmerge-merge", "Merging", Runtime.getRuntime().availableProcessors());
     }
 
     public void merge(List<Path> inputPaths, Path outputPath) throws IOException {
-        if (fileChecker.exists(outputPath)) {
+        merge(inputPaths, outputPath, MergeListener.NONE);
+    }
+
+    // The listener only hears about this merge, so concurrent merges of a shared instance can each have their own.
+    public void merge(List<Path> inputPaths, Path outputPath, MergeListener listener) throws IOException {
+        merge(inputPaths, outputPath, false, timeout == null ? null : new Cancellation(timeout), listener, null);
+    }
+
+    public void forceMerge(List<Path> inputPaths, Path outputPath) throws IOException {
+        forceMerge(inputPaths, outputPath, MergeListener.NONE);
+    }
+
+    public void forceMerge(List<Path> inputPaths, Path outputPath, MergeListener listener) throws IOException {
+        forceMerge(inputPaths, outputPath, listener, null);
+    }
+
+    /**
+     * Takes the inputs the cache still holds from it, and hands the ones it loads over to it. Merges into volumes,
+     * with checkpoints or with deterministic output load every input afresh: they split, chunk or digest the inputs
+     * as they read them. So do raw copies, whose pages are moved into the output rather than cloned.
+     */
+    public void forceMerge(List<Path> inputPaths, Path outputPath, MergeListener listener, DocumentCache cache)
+            throws IOException {
+        merge(inputPaths, outputPath, true, timeout == null ? null : new Cancellation(timeout), listener, cache);
+    }
+
+    /**
+     * Merges sources as the iterator produces them and writes the result to the channel, which is left open.
+     * Each source is opened when the merge reaches it, so a blocking iterator such as a
+     * {@link nemethi.pdfmerge.streaming.SourceQueue} holds producers back to the pace of the merge. The output is
+     * written once the iterator is exhausted.
+     *
+     * <p>That backpressure only bounds the sources that have not been opened yet: every opened source stays loaded
+     * until the output is saved, so the memory of the merge still grows with all of its inputs. The channel must be
+     * in blocking mode.
+     */
+    public void merge(Iterator<? extends MergeSource> sources, WritableByteChannel output, MergeListener listener)
+            throws IOException {
+        Cancellation cancellation = timeout == null ? null : new Cancellation(timeout);
+        Iterator<InputStream> inputStreams = new Iterator<InputStream>() {
+            @Override
+            public boolean hasNext() {
+                return sources.hasNext();
+            }
+
+            @Override
+            public InputStream next() {
+                try {
+                    InputStream inputStream = sources.next().open();
+                    return cancellation == null ? inputStream : new CancellableInputStream(inputStream, cancellation);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        OutputStream outputStream = wrapOutput(new ChannelOutputStream(output), cancellation, null);
+        try {
+            mergeStreams(inputStreams, Collections.emptyList(), outputStream, cancellation, null, null, linearized,
+                    listener);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // The stream is consumed lazily, in order; closing it is left to the caller.
+    public void merge(Stream<? extends MergeSource> sources, WritableByteChannel output, MergeListener listener)
+            throws IOException {
+        merge(sources.iterator(), output, listener);
+    }
+
+    public CompletableFuture<Void> mergeAsync(List<Path> inputPaths, Path outputPath) {
+        return runAsync(cancellation -> merge(inputPaths, outputPath, false, cancellation, MergeListener.NONE, null));
+    }
+
+    public CompletableFuture<Void> forceMergeAsync(List<Path> inputPaths, Path outputPath) {
+        return runAsync(cancellation -> merge(inputPaths, outputPath, true, cancellation, MergeListener.NONE, null));
+    }
+
+    // Cancelling the returned future stops the merge at its next check; the timeout counts from submission.
+    private CompletableFuture<Void> runAsync(MergeTask task) {
+        Cancellation cancellation = new Cancellation(timeout);
+        MergeMetrics queueMetrics = metrics;
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        result.whenComplete((ignored, e) -> {
+            if (result.isCancelled()) {
+                cancellation.cancel();
+            }
+        });
+        try {
+            if (queueMetrics != null) {
+                queueMetrics.mergeQueued();
+            }
+            executor.execute(() -> {
+                if (queueMetrics != null) {
+                    queueMetrics.mergeDequeued();
+                }
+                try {
+                    task.run(cancellation);
+                    result.complete(null);
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (queueMetrics != null) {
+                queueMetrics.mergeDequeued();
+            }
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private void merge(List<Path> inputPaths, Path outputPath, boolean overwrite, Cancellation cancellation,
+                       MergeListener listener, DocumentCache cache) throws IOException {
+        if (!admissionController.isEnabled()) {
+            meteredMerge(inputPaths, outputPath, overwrite, cancellation, null, listener, cache);
+            return;
+        }
+        // Like waiting for a thread, waiting for memory is not counted as part of the merge.
+        try (Admission admission = admissionController.admit(inputSize(inputPaths), cancellation)) {
+            meteredMerge(inputPaths, outputPath, overwrite, cancellation, admission, listener, cache);
+        }
+    }
+
+    private void meteredMerge(List<Path> inputPaths, Path outputPath, boolean overwrite, Cancellation cancellation,
+                              Admission admission, MergeListener listener, DocumentCache cache) throws IOException {
+        MergeMetrics mergeMetrics = metrics;
+        if (mergeMetrics == null) {
+            mergeFiles(inputPaths, outputPath, overwrite, cancellation, null, admission, listener, cache);
+            return;
+        }
+        long start = System.nanoTime();
+        mergeMetrics.mergeStarted(inputSize(inputPaths));
+        try {
+            mergeFiles(inputPaths, outputPath, overwrite, cancellation, mergeMetrics, admission, listener, cache);
+        } catch (IOException | RuntimeException e) {
+            mergeMetrics.mergeFailed(e, System.nanoTime() - start);
+            throw e;
+        }
+        mergeMetrics.mergeSucceeded(System.nanoTime() - start);
+    }
+
+    // Missing inputs are reported by the merge itself.
+    private long inputSize(List<Path> inputPaths) throws IOException {
+        long inputSize = 0;
+        for (Path inputPath : inputPaths) {
+            inputSize += fileChecker.exists(inputPath) ? fileChecker.size(inputPath) : 0;
+        }
+        return inputSize;
+    }
+
+    private void mergeFiles(List<Path> inputPaths, Path outputPath, boolean overwrite, Cancellation cancellation,
+                            MergeMetrics metrics, Admission admission, MergeListener listener, DocumentCache cache)
+            throws IOException {
+        if (!overwrite && !volumePlanner.isEnabled() && fileChecker.exists(outputPath)) {
             throw new FileAlreadyExistsException("The output file already exists.");
         }
-        doMerge(inputPaths, outputPath);
+        checkCancellation(cancellation);
+        if (checkpointDirectory != null) {
+            Checkpoint checkpoint = Checkpoint.open(checkpointDirectory, inputPaths, outputPath, chunkOptions());
+            writeChunks(checkpoint, inputPaths, cancellation, admission, listener);
+            writeOutput(checkpoint.getChunkPaths(), outputPath, overwrite, cancellation, metrics, admission,
+                    MergeListener.NONE, null);
+            checkpoint.delete();
+        } else {
+            writeOutput(inputPaths, outputPath, overwrite, cancellation, metrics, admission, listener, cache);
+        }
     }
 
-    public void forceMerge(List<Path> inputPaths, Path outputPath) throws IOException {
-        doMerge(inputPaths, outputPath);
+    // Chunks are intermediate files, so they are neither linearized nor counted as output.
+    private void writeChunks(Checkpoint checkpoint, List<Path> inputPaths, Cancellation cancellation,
+                             Admission admission, MergeListener listener) throws IOException {
+        for (int start = checkpoint.getResumeIndex(); start < inputPaths.size(); start += checkpointInterval) {
+            int end = Math.min(inputPaths.size(), start + checkpointInterval);
+            Path partPath = checkpoint.getPartPath();
+            try {
+                List<InputStream> inputStreams = openInputs(inputPaths.subList(start, end), cancellation);
+                inputStreams.replaceAll(checkpoint::track);
+                try (OutputStream outputStream = openOutput(partPath, cancellation, null)) {
+                    mergeSources(inputStreams, Collections.emptyList(), outputStream, cancellation, null, admission,
+                            false, offset(listener, start));
+                }
+                checkpoint.commit(end);
+            } finally {
+                streamSupplier.delete(partPath);
+            }
+        }
+    }
+
+    // The settings that change the content of a chunk. Linearization and volumes only apply to the final output.
+    private String chunkOptions() {
+        return "engine=" + mergeEngine.getClass().getName()
+                + " structures=" + (structureFilter.isEnabled() ? structureFilter.getKeptStructures() : "all")
+                + " images=" + imageOptimizer.getMaxDpi() + "/" + imageOptimizer.getJpegQuality()
+                + " compression=" + streamCompressor.isEnabled() + "/" + streamCompressor.getLevel()
+                + " dedupe=" + objectDeduplicator.isEnabled()
+                + " deterministic=" + reproducibleOutput.isDeterministic()
+                + " timestamps=" + !reproducibleOutput.isDroppingTimestamps();
+    }
+
+    // Volumes are written in parallel and may be written again when split, so they report no progress.
+    private void writeOutput(List<Path> inputPaths, Path outputPath, boolean overwrite, Cancellation cancellation,
+                             MergeMetrics metrics, Admission admission, MergeListener listener, DocumentCache cache)
+            throws IOException {
+        if (volumePlanner.isEnabled()) {
+            List<Volume> volumes = volumePlanner.plan(describeInputs(inputPaths, cancellation, admission));
+            volumeWriter.write(volumes, outputPath, overwrite,
+                    (volume, outputStream) -> mergeVolume(volume, outputStream, cancellation, metrics, admission));
+            return;
+        }
+        try (OutputStream outputStream = openOutput(outputPath, cancellation, metrics)) {
+            if (cache != null && !reproducibleOutput.isDeterministic()
+                    && !(mergeEngine instanceof RawCopyMergeEngine)) {
+                mergeCached(inputPaths, cache, outputStream, cancellation, metrics, admission, listener);
+            } else if (linearized || imageOptimizer.isEnabled() || structureFilter.isEnabled()
+                    || streamCompressor.isEnabled() || objectDeduplicator.isEnabled() || objectCollector.isEnabled()
+                    || reproducibleOutput.isEnabled() || offHeapScratch != null || parseExecutor != null
+                    || cancellation != null || metrics != null || admission != null || listener != MergeListener.NONE) {
+                // Only documents loaded by the merger itself are parsed through a cancellable source.
+                mergeSources(openInputs(inputPaths, cancellation), Collections.emptyList(), outputStream,
+                        cancellation, metrics, admission, linearized, listener);
+            } else {
+                mergeEngine.mergeDocuments(converter.convertPathsToStreams(inputPaths), outputStream);
+            }
+        } catch (MergeCancelledException e) {
+            streamSupplier.delete(outputPath);
+            throw e;
+        }
+    }
+
+    private List<InputStream> openInputs(List<Path> inputPaths, Cancellation cancellation) throws IOException {
+        List<InputStream> inputStreams = converter.convertPathsToStreams(inputPaths);
+        if (cancellation == null) {
+            return inputStreams;
+        }
+        List<InputStream> cancellableStreams = new ArrayList<>();
+        for (InputStream inputStream : inputStreams) {
+            // Sources parsed in place are checked by the loader, which needs to see them unwrapped.
+            cancellableStreams.add(inputStream instanceof RandomAccessSource ? inputStream
+                    : new CancellableInputStream(inputStream, cancellation));
+        }
+        return cancellableStreams;
+    }
+
+    private OutputStream openOutput(Path outputPath, Cancellation cancellation, MergeMetrics metrics)
+            throws IOException {
+        return wrapOutput(streamSupplier.getFileStream(outputPath), cancellation, metrics);
+    }
+
+    private static OutputStream wrapOutput(OutputStream outputStream, Cancellation cancellation,
+                                           MergeMetrics metrics) {
+        OutputStream wrapped = outputStream;
+        if (metrics != null) {
+            wrapped = new MeteredOutputStream(wrapped, metrics.getOutputBytes());
+        }
+        return cancellation == null ? wrapped : new CancellableOutputStream(wrapped, cancellation);
+    }
+
+    private PDDocument load(InputStream inputStream, MemoryUsageSetting memoryUsageSetting,
+                            Cancellation cancellation) throws IOException {
+        if (offHeapScratch != null || parseExecutor != null) {
+            ScratchFile scratchFile = offHeapScratch == null ? new ScratchFile(memoryUsageSetting)
+                    : offHeapScratch.createScratchFile(memoryUsageSetting);
+            return documentLoader.load(inputStream, scratchFile, cancellation, parseExecutor);
+        }
+        if (cancellation == null) {
+            return documentLoader.load(inputStream, memoryUsageSetting);
+        }
+        return documentLoader.load(inputStream, memoryUsageSetting, cancellation);
+    }
+
+    private PDDocument createDestination(Admission admission) throws IOException {
+        if (offHeapScratch != null) {
+            return offHeapScratch.createDocument(memoryUsageSetting(admission));
+        }
+        return new PDDocument(memoryUsageSetting(admission));
+    }
+
+    private static MemoryUsageSetting memoryUsageSetting(Admission admission) {
+        return admission == null ? MemoryUsageSetting.setupMainMemoryOnly() : admission.getMemoryUsageSetting();
+    }
+
+    private static void checkCancellation(Cancellation cancellation) throws MergeCancelledException {
+        if (cancellation != null) {
+            cancellation.check();
+        }
+    }
+
+    // Volumes are planned from the page count in the page tree, so only inputs it cannot be read from are loaded.
+    private List<Segment> describeInputs(List<Path> inputPaths, Cancellation cancellation, Admission admission)
+            throws IOException {
+        List<Segment> inputs = new ArrayList<>();
+        for (Path inputPath : inputPaths) {
+            checkCancellation(cancellation);
+            int pages = pageCounter.count(inputPath, memoryUsageSetting(admission), cancellation);
+            if (pages < 0) {
+                pages = loadPageCount(inputPath, cancellation, admission);
+            }
+            inputs.add(new Segment(inputPath, pages, fileChecker.size(inputPath)));
+        }
+        return inputs;
+    }
+
+    private int loadPageCount(Path inputPath, Cancellation cancellation, Admission admission) throws IOException {
+        InputStream inputStream = openInputs(Collections.singletonList(inputPath), cancellation).get(0);
+        try (PDDocument document = load(inputStream, memoryUsageSetting(admission), cancellation)) {
+            return document.getNumberOfPages();
+        } finally {
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    private void mergeVolume(Volume volume, OutputStream outputStream, Cancellation cancellation,
+                             MergeMetrics metrics, Admission admission) throws IOException {
+        List<Path> inputPaths = new ArrayList<>();
+        for (Segment segment : volume.getSegments()) {
+            inputPaths.add(segment.getPath());
+        }
+        mergeSources(openInputs(inputPaths, cancellation), volume.getSegments(),
+                wrapOutput(outputStream, cancellation, metrics), cancellation, metrics, admission, linearized,
+                MergeListener.NONE);
+    }
+
+    private void mergeSources(List<InputStream> inputStreams, List<Segment> segments, OutputStream outputStream,
+                              Cancellation cancellation, MergeMetrics metrics, Admission admission,
+                              boolean linearize, MergeListener listener) throws IOException {
+        Iterator<InputStream> remaining = inputStreams.iterator();
+        try {
+            mergeStreams(remaining, segments, outputStream, cancellation, metrics, admission, linearize, listener);
+        } finally {
+            // The streams taken by the merge are closed by it.
+            remaining.forEachRemaining(IOUtils::closeQuietly);
+        }
+    }
+
+    private void mergeStreams(Iterator<InputStream> inputStreams, List<Segment> segments, OutputStream outputStream,
+                              Cancellation cancellation, MergeMetrics metrics, Admission admission,
+                              boolean linearize, MergeListener listener) throws IOException {
+        List<PDDocument> sources = new ArrayList<>();
+        List<InputStream> openedStreams = new ArrayList<>();
+        TrackedInputs inputs = reproducibleOutput.track();
+        try (PDDocument destination = createDestination(admission)) {
+            for (int i = 0; inputStreams.hasNext(); i++) {
+                checkCancellation(cancellation);
+                InputStream inputStream = inputStreams.next();
+                openedStreams.add(inputStream);
+                listener.inputStarted(i);
+                long mark = System.nanoTime();
+                PDDocument source = load(inputs.add(inputStream), memoryUsageSetting(admission), cancellation);
+                sources.add(source);
+                mark = lap(metrics, MergePhase.LOAD, mark);
+                if (i < segments.size()) {
+                    keepSegment(source, segments.get(i));
+                }
+                prepare(source);
+                mark = lap(metrics, MergePhase.PREPARE, mark);
+                append(destination, source, i, cancellation, metrics, listener, mark);
+            }
+            save(destination, outputStream, inputs, segments, cancellation, metrics, linearize);
+        } finally {
+            sources.forEach(IOUtils::closeQuietly);
+            openedStreams.forEach(IOUtils::closeQuietly);
+        }
+    }
+
+    // Cached sources outlive the merge, so the cache closes them, and they are parsed without its cancellation,
+    // which the stream they are read from still checks.
+    private void mergeCached(List<Path> inputPaths, DocumentCache cache, OutputStream outputStream,
+                             Cancellation cancellation, MergeMetrics metrics, Admission admission,
+                             MergeListener listener) throws IOException {
+        try (PDDocument destination = createDestination(admission)) {
+            for (int i = 0; i < inputPaths.size(); i++) {
+                checkCancellation(cancellation);
+                listener.inputStarted(i);
+                long mark = System.nanoTime();
+                PDDocument source = cache.get(inputPaths.get(i));
+                if (source == null) {
+                    InputStream inputStream = openInputs(inputPaths.subList(i, i + 1), cancellation).get(0);
+                    try {
+                        source = load(inputStream, memoryUsageSetting(admission), null);
+                        mark = lap(metrics, MergePhase.LOAD, mark);
+                        prepare(source);
+                        mark = lap(metrics, MergePhase.PREPARE, mark);
+                    } catch (IOException | RuntimeException e) {
+                        IOUtils.closeQuietly(source);
+                        IOUtils.closeQuietly(inputStream);
+                        throw e;
+                    }
+                    cache.put(inputPaths.get(i), source, inputStream);
+                }
+                append(destination, source, i, cancellation, metrics, listener, mark);
+            }
+            save(destination, outputStream, reproducibleOutput.track(), Collections.emptyList(), cancellation,
+                    metrics, linearized);
+        }
+    }
+
+    private void prepare(PDDocument source) throws IOException {
+        if (structureFilter.isEnabled()) {
+            structureFilter.strip(source);
+        }
+        if (imageOptimizer.isEnabled()) {
+            imageOptimizer.optimize(source);
+        }
+        if (objectCollector.isEnabled()) {
+            collectionListener.accept(objectCollector.collect(source));
+        }
+    }
+
+    private void append(PDDocument destination, PDDocument source, int input, Cancellation cancellation,
+                        MergeMetrics metrics, MergeListener listener, long mark) throws IOException {
+        checkCancellation(cancellation);
+        int firstOutputPage = destination.getNumberOfPages();
+        mergeEngine.appendDocument(destination, source);
+        lap(metrics, MergePhase.APPEND, mark);
+        int pages = destination.getNumberOfPages() - firstOutputPage;
+        for (int page = 0; page < pages; page++) {
+            listener.pageMerged(input, page, firstOutputPage + page);
+        }
+        listener.inputMerged(input, pages);
+    }
+
+    private void save(PDDocument destination, OutputStream outputStream, TrackedInputs inputs,
+                      List<Segment> segments, Cancellation cancellation, MergeMetrics metrics, boolean linearize)
+            throws IOException {
+        checkCancellation(cancellation);
+        long mark = System.nanoTime();
+        // Duplicates are dropped first so that only one copy of each stream gets compressed.
+        if (objectDeduplicator.isEnabled()) {
+            objectDeduplicator.deduplicate(destination);
+            mark = lap(metrics, MergePhase.DEDUPE, mark);
+        }
+        if (streamCompressor.isEnabled()) {
+            streamCompressor.compress(destination);
+            mark = lap(metrics, MergePhase.COMPRESS, mark);
+        }
+        if (reproducibleOutput.isEnabled()) {
+            reproducibleOutput.apply(destination, inputs, segments);
+        }
+        if (linearize) {
+            linearizedWriter.write(destination, outputStream);
+        } else {
+            destination.save(outputStream);
+        }
+        lap(metrics, MergePhase.SAVE, mark);
+        if (metrics != null) {
+            metrics.pagesWritten(destination.getNumberOfPages());
+        }
     }
 
-    private void doMerge(List<Path> inputPaths, Path outputPath) throws IOException {
-        try (OutputStream outputStream = streamSupplier.getFileStream(outputPath)) {
-            mergerUtility.addSources(converter.convertPathsToStreams(inputPaths));
-            mergerUtility.setDestinationStream(outputStream);
-            mergerUtility.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
+    // Numbers the inputs of a chunk as inputs of the whole merge. Output pages are still counted within the chunk.
+    private static MergeListener offset(MergeListener listener, int firstInput) {
+        if (listener == MergeListener.NONE) {
+            return listener;
+        }
+        return new MergeListener() {
+            @Override
+            public void inputStarted(int input) {
+                listener.inputStarted(firstInput + input);
+            }
+
+            @Override
+            public void pageMerged(int input, int page, int outputPage) {
+                listener.pageMerged(firstInput + input, page, outputPage);
+            }
+
+            @Override
+            public void inputMerged(int input, int pages) {
+                listener.inputMerged(firstInput + input, pages);
+            }
+        };
+    }
+
+    // Records a phase that started at the given time and returns its end, which is where the next phase starts.
+    private static long lap(MergeMetrics metrics, MergePhase phase, long start) {
+        long end = System.nanoTime();
+        if (metrics != null) {
+            metrics.phaseFinished(phase, end - start);
+        }
+        return end;
+    }
+
+    // Document-level structures refer to pages across the whole input, so they are dropped when an input is split.
+    private void keepSegment(PDDocument source, Segment segment) {
+        if (segment.isWholeInput()) {
+            return;
+        }
+        int lastPage = segment.getFirstPage() + segment.getPageCount();
+        for (int i = source.getNumberOfPages() - 1; i >= 0; i--) {
+            if (i < segment.getFirstPage() || i >= lastPage) {
+                source.removePage(i);
+            }
         }
+        partialInputFilter.strip(source);
+    }
+
+    public void setMergeEngine(MergeEngine mergeEngine) {
+        this.mergeEngine = mergeEngine;
+    }
+
+    // Switches back as well, since watch mode and the server reuse one merger.
+    public void setRawCopy(boolean rawCopy) {
+        mergeEngine = rawCopy ? new RawCopyMergeEngine() : new PdfBoxMergeEngine(mergerUtilityFactory);
+    }
+
+    MergeEngine getMergeEngine() {
+        return mergeEngine;
     }
 
     public void setConverter(PathToStreamConverter converter) {
         this.converter = converter;
     }
 
+    public void setPrefetchCount(int prefetchCount) {
+        converter.setPrefetchCount(prefetchCount);
+    }
+
+    public void setPrefetchBufferSize(long prefetchBufferSize) {
+        converter.setPrefetchBufferSize(prefetchBufferSize);
+    }
+
     public void setFileChecker(FileChecker fileChecker) {
         this.fileChecker = fileChecker;
     }
@@ -56,4 +659,161 @@ public class PdfMerger {
     public void setStreamSupplier(OutputStreamSupplier streamSupplier) {
         this.streamSupplier = streamSupplier;
     }
+
+    public void setDocumentLoader(DocumentLoader documentLoader) {
+        this.documentLoader = documentLoader;
+    }
+
+    public void setPageCounter(PageCounter pageCounter) {
+        this.pageCounter = pageCounter;
+    }
+
+    public void setLinearizedWriter(LinearizedWriter linearizedWriter) {
+        this.linearizedWriter = linearizedWriter;
+    }
+
+    public void setImageOptimizer(ImageOptimizer imageOptimizer) {
+        this.imageOptimizer = imageOptimizer;
+    }
+
+    public void setMaxImageDpi(int maxImageDpi) {
+        imageOptimizer.setMaxDpi(maxImageDpi);
+    }
+
+    public void setJpegQuality(int jpegQuality) {
+        imageOptimizer.setJpegQuality(jpegQuality);
+    }
+
+    public void setImageThreads(int imageThreads) {
+        imageOptimizer.setThreads(imageThreads);
+    }
+
+    public void setStructureFilter(StructureFilter structureFilter) {
+        this.structureFilter = structureFilter;
+    }
+
+    public void setLean(boolean lean) {
+        structureFilter.setEnabled(lean);
+    }
+
+    public void setKeptStructures(Set<DocumentStructure> keptStructures) {
+        structureFilter.setKeptStructures(keptStructures);
+    }
+
+    public void setVolumePlanner(VolumePlanner volumePlanner) {
+        this.volumePlanner = volumePlanner;
+    }
+
+    public void setVolumeWriter(VolumeWriter volumeWriter) {
+        this.volumeWriter = volumeWriter;
+    }
+
+    public void setMaxOutputPages(int maxOutputPages) {
+        volumePlanner.setMaxPages(maxOutputPages);
+    }
+
+    public void setMaxOutputSize(long maxOutputSize) {
+        volumePlanner.setMaxSize(maxOutputSize);
+        volumeWriter.setMaxSize(maxOutputSize);
+    }
+
+    public void setStreamCompressor(StreamCompressor streamCompressor) {
+        this.streamCompressor = streamCompressor;
+    }
+
+    public void setCompressStreams(boolean compressStreams) {
+        streamCompressor.setEnabled(compressStreams);
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        streamCompressor.setLevel(compressionLevel);
+    }
+
+    public void setCompressThreads(int compressThreads) {
+        streamCompressor.setThreads(compressThreads);
+    }
+
+    public void setObjectDeduplicator(ObjectDeduplicator objectDeduplicator) {
+        this.objectDeduplicator = objectDeduplicator;
+    }
+
+    public void setDeduplicated(boolean deduplicated) {
+        objectDeduplicator.setEnabled(deduplicated);
+    }
+
+    public void setObjectCollector(UnreachableObjectCollector objectCollector) {
+        this.objectCollector = objectCollector;
+    }
+
+    public void setCollectingUnreachable(boolean collectingUnreachable) {
+        objectCollector.setEnabled(collectingUnreachable);
+    }
+
+    public void setReproducibleOutput(ReproducibleOutput reproducibleOutput) {
+        this.reproducibleOutput = reproducibleOutput;
+    }
+
+    public void setDeterministic(boolean deterministic) {
+        reproducibleOutput.setDeterministic(deterministic);
+    }
+
+    public void setDroppingTimestamps(boolean droppingTimestamps) {
+        reproducibleOutput.setDroppingTimestamps(droppingTimestamps);
+    }
+
+    // Called once per input with what was dropped from it; volumes are merged in parallel, so it may be called
+    // from several threads at once.
+    public void setCollectionListener(Consumer<CollectionReport> collectionListener) {
+        this.collectionListener = collectionListener;
+    }
+
+    public void setAdmissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+    }
+
+    // Concurrent merges wait while their estimated memory would exceed the budget; 0 admits every merge at once.
+    public void setMemoryBudget(long memoryBudget) {
+        admissionController.setBudget(memoryBudget);
+    }
+
+    // Scratch buffers of the documents of every merge are taken from this pool; one pool can serve many mergers.
+    public void setOffHeapScratch(OffHeapScratch offHeapScratch) {
+        this.offHeapScratch = offHeapScratch;
+    }
+
+    // Merges read their inputs on their own thread but parse them here, so that merges running on many virtual
+    // threads share a bounded number of platform threads for the CPU-heavy part.
+    public void setParseExecutor(Executor parseExecutor) {
+        this.parseExecutor = parseExecutor;
+    }
+
+    public void setMetrics(MergeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void setLinearized(boolean linearized) {
+        this.linearized = linearized;
+    }
+
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public void setTimeout(Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    // Merges write chunks of checkpointInterval inputs to this directory and resume from them when run again. The
+    // directory holds the chunks of one merge at a time, so concurrent merges need merger instances of their own.
+    public void setCheckpointDirectory(Path checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    private interface MergeTask {
+        void run(Cancellation cancellation) throws IOException;
+    }
 }
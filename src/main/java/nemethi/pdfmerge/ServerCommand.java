@@ -0,0 +1,90 @@
+package nemethi.pdfmerge;
+
+import nemethi.pdfmerge.cli.DurationConverter;
+import nemethi.pdfmerge.cli.VersionProvider;
+import nemethi.pdfmerge.server.CommandLineHandler;
+import nemethi.pdfmerge.server.MergeClient;
+import nemethi.pdfmerge.server.MergeServer;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+
+@Command(name = "server",
+        description = "Run the merges of pdfmerge calls made with PDFMERGE_SERVER=auto in this JVM, which those calls "
+                + "start on their own when none is running.",
+        optionListHeading = "%n", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+        abbreviateSynopsis = true)
+public class ServerCommand implements Callable<Integer> {
+
+    static final String NAME = "server";
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(10);
+
+    private Path socket = MergeClient.defaultEndpoint();
+    private Duration idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private boolean isStopping;
+    private CommandSpec spec;
+
+    @Override
+    public Integer call() throws Exception {
+        PrintWriter out = spec.commandLine().getOut();
+        if (isStopping) {
+            boolean isStopped = new MergeClient(socket).stop();
+            out.println(isStopped ? "Stopped the merge server." : "No merge server is running.");
+            return 0;
+        }
+        try (MergeServer server = new MergeServer(socket, idleTimeout, new CommandLineHandler())) {
+            if (!server.bind()) {
+                out.printf("A merge server is already running at %s.%n", socket);
+                return 0;
+            }
+            out.printf("Listening at %s.%n", socket);
+            out.flush();
+            server.serve();
+        }
+        return 0;
+    }
+
+    @Option(names = "--socket", paramLabel = "PATH",
+            description = "Listen at PATH, which PDFMERGE_SOCKET has to name for the calls (default: a directory in the temporary directory only you can read).")
+    public void setSocket(Path socket) {
+        this.socket = socket;
+    }
+
+    @Option(names = "--idle-timeout", paramLabel = "DURATION", converter = DurationConverter.class,
+            description = "Exit once no merge has been asked for in DURATION (default: 10m).")
+    public void setIdleTimeout(Duration idleTimeout) {
+        if (idleTimeout.isZero()) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: DURATION must be positive.");
+        }
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Option(names = "--stop", description = "Stop the server running at PATH once its merges are done.")
+    public void setStopping(boolean isStopping) {
+        this.isStopping = isStopping;
+    }
+
+    @Spec
+    public void setSpec(CommandSpec spec) {
+        this.spec = spec;
+    }
+
+    public Path getSocket() {
+        return socket;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public boolean isStopping() {
+        return isStopping;
+    }
+}
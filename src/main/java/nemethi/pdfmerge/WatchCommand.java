@@ -0,0 +1,122 @@
+package nemethi.pdfmerge;
+
+import nemethi.pdfmerge.cli.VersionProvider;
+import nemethi.pdfmerge.metrics.MergeMetrics;
+import nemethi.pdfmerge.metrics.MetricsServer;
+import nemethi.pdfmerge.util.FileChecker;
+import nemethi.pdfmerge.watch.FolderMerger;
+import nemethi.pdfmerge.watch.FolderWatcher;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.concurrent.Callable;
+
+@Command(name = "watch", description = "Rebuild OUTFILE whenever the PDF files in DIR change.",
+        optionListHeading = "%n", mixinStandardHelpOptions = true, versionProvider = VersionProvider.class,
+        abbreviateSynopsis = true)
+public class WatchCommand implements Callable<Integer> {
+
+    static final String NAME = "watch";
+    private static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+    private static final int MAX_PORT = 65535;
+
+    private final PdfMerger pdfMerger;
+    private Path directory;
+    private Path outputFile;
+    private long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+    private Integer metricsPort;
+    private FileChecker fileChecker;
+    private CommandSpec spec;
+
+    public WatchCommand(PdfMerger pdfMerger) {
+        this.pdfMerger = pdfMerger;
+        fileChecker = new FileChecker();
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        FolderMerger folderMerger = new FolderMerger(directory, outputFile, pdfMerger);
+        PrintWriter out = spec.commandLine().getOut();
+        MetricsServer metricsServer = null;
+        if (metricsPort != null) {
+            MergeMetrics metrics = new MergeMetrics();
+            pdfMerger.setMetrics(metrics);
+            metricsServer = new MetricsServer(metrics.getRegistry(), metricsPort);
+            out.printf("Serving metrics at http://127.0.0.1:%d%s.%n", metricsServer.getPort(), MetricsServer.PATH);
+            out.flush();
+        }
+        try {
+            new FolderWatcher(folderMerger, directory, debounceMillis, out, spec.commandLine().getErr()).run();
+        } finally {
+            folderMerger.close();
+            if (metricsServer != null) {
+                metricsServer.close();
+            }
+        }
+        return 0;
+    }
+
+    @Option(names = "--dir", paramLabel = "DIR", required = true, description = "Directory of the PDF files to be merged.")
+    public void setDirectory(Path directory) {
+        if (!fileChecker.isDirectory(directory)) {
+            throw new ParameterException(spec.commandLine(), "Invalid path: DIR must point to a directory.");
+        }
+        this.directory = directory;
+    }
+
+    @Option(names = {"-o", "--output"}, paramLabel = "OUTFILE", required = true, description = "Path to the output file.")
+    public void setOutputFile(Path outputFile) {
+        if (fileChecker.isDirectory(outputFile)) {
+            throw new ParameterException(spec.commandLine(), "Invalid path: OUTFILE must point to a file.");
+        }
+        this.outputFile = outputFile;
+    }
+
+    @Option(names = "--debounce", paramLabel = "MILLIS",
+            description = "Rebuild once no file has changed for MILLIS milliseconds (default: 500).")
+    public void setDebounceMillis(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: MILLIS must not be negative.");
+        }
+        this.debounceMillis = debounceMillis;
+    }
+
+    @Option(names = "--metrics-port", paramLabel = "PORT",
+            description = "Serve Prometheus metrics at http://127.0.0.1:PORT/metrics (0 picks a free port).")
+    public void setMetricsPort(int metricsPort) {
+        if (metricsPort < 0 || metricsPort > MAX_PORT) {
+            throw new ParameterException(spec.commandLine(), "Invalid value: PORT must be between 0 and 65535.");
+        }
+        this.metricsPort = metricsPort;
+    }
+
+    @Spec
+    public void setSpec(CommandSpec spec) {
+        this.spec = spec;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    public long getDebounceMillis() {
+        return debounceMillis;
+    }
+
+    public Integer getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setFileChecker(FileChecker fileChecker) {
+        this.fileChecker = fileChecker;
+    }
+}
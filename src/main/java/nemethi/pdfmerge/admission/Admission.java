@@ -0,0 +1,43 @@
+package nemethi.pdfmerge.admission;
+
+import nemethi.pdfmerge.scratch.ScratchDirectory;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+
+// The memory reserved for one merge. Closing it returns the memory to the budget.
+public class Admission implements AutoCloseable {
+
+    private final AdmissionController controller;
+    private final long reservedBytes;
+    private final boolean scratchBacked;
+    private boolean closed;
+
+    Admission(AdmissionController controller, long reservedBytes, boolean scratchBacked) {
+        this.controller = controller;
+        this.reservedBytes = reservedBytes;
+        this.scratchBacked = scratchBacked;
+    }
+
+    // Asked for every document the merge opens, so documents opened under heap pressure buffer their streams on disk.
+    public MemoryUsageSetting getMemoryUsageSetting() {
+        if (scratchBacked || controller.isUnderPressure()) {
+            return MemoryUsageSetting.setupTempFileOnly().setTempDir(ScratchDirectory.get());
+        }
+        return MemoryUsageSetting.setupMainMemoryOnly();
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public boolean isScratchBacked() {
+        return scratchBacked;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            controller.release(this);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package nemethi.pdfmerge.admission;
+
+import nemethi.pdfmerge.cancel.Cancellation;
+import nemethi.pdfmerge.cancel.MergeCancelledException;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Admits concurrent merges within a heap budget. Every merge reserves an estimate of the memory its inputs take
+ * once parsed and waits while the budget is used up or the heap is under pressure. A merge is never refused: when
+ * nothing else runs it is admitted anyway, buffering its streams in scratch files if it would not fit in memory.
+ */
+public class AdmissionController {
+
+    // Parsed documents take a few times the size of their files on the heap, plus the destination and the writer.
+    static final int HEAP_BYTES_PER_INPUT_BYTE = 4;
+    static final long BASE_HEAP_BYTES = 8L << 20;
+    // Pressure clearing is not announced, so waiting merges look again after this long.
+    private static final long RECHECK_MILLIS = 100;
+
+    private final Object lock = new Object();
+    private HeapPressureMonitor pressureMonitor;
+    private long budget;
+    private long reservedBytes;
+    private int admitted;
+
+    public AdmissionController() {
+        pressureMonitor = new HeapPressureMonitor();
+    }
+
+    public boolean isEnabled() {
+        return budget > 0;
+    }
+
+    public Admission admit(long inputBytes, Cancellation cancellation) throws InterruptedIOException {
+        long estimate = estimate(inputBytes);
+        synchronized (lock) {
+            while (true) {
+                if (cancellation != null) {
+                    cancellation.check();
+                }
+                boolean underPressure = pressureMonitor.isUnderPressure();
+                if (admitted == 0) {
+                    return reserve(estimate, underPressure || estimate > budget);
+                }
+                if (!underPressure && estimate <= budget - reservedBytes) {
+                    return reserve(estimate, false);
+                }
+                try {
+                    lock.wait(RECHECK_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new MergeCancelledException("The merge was interrupted while waiting for memory.");
+                }
+            }
+        }
+    }
+
+    static long estimate(long inputBytes) {
+        if (inputBytes > (Long.MAX_VALUE - BASE_HEAP_BYTES) / HEAP_BYTES_PER_INPUT_BYTE) {
+            return Long.MAX_VALUE;
+        }
+        return BASE_HEAP_BYTES + inputBytes * HEAP_BYTES_PER_INPUT_BYTE;
+    }
+
+    public long getReservedBytes() {
+        synchronized (lock) {
+            return reservedBytes;
+        }
+    }
+
+    boolean isUnderPressure() {
+        return pressureMonitor.isUnderPressure();
+    }
+
+    void release(Admission admission) {
+        synchronized (lock) {
+            reservedBytes -= admission.getReservedBytes();
+            admitted--;
+            lock.notifyAll();
+        }
+    }
+
+    private Admission reserve(long estimate, boolean scratchBacked) {
+        reservedBytes += estimate;
+        admitted++;
+        return new Admission(this, estimate, scratchBacked);
+    }
+
+    public void setBudget(long budget) {
+        this.budget = budget;
+    }
+
+    public void setPressureMonitor(HeapPressureMonitor pressureMonitor) {
+        this.pressureMonitor = pressureMonitor;
+    }
+}
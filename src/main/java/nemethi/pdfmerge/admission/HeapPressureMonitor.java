@@ -0,0 +1,61 @@
+package nemethi.pdfmerge.admission;
+
+import javax.management.NotificationEmitter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tells whether the heap is nearly full. The thresholds are set on the heap pools whose usage is measured after
+ * collections, so garbage that is about to be collected does not count; a JVM whose collector offers no such pool
+ * is never under pressure.
+ */
+public class HeapPressureMonitor {
+
+    // The share of a pool that may stay in use after a collection before new work is held back.
+    static final double THRESHOLD = 0.85;
+
+    public boolean isUnderPressure() {
+        return Pools.INSTANCE.isUnderPressure();
+    }
+
+    // The thresholds and the listener belong to the JVM, so they are installed only once, on first use.
+    private static final class Pools {
+
+        private static final Pools INSTANCE = new Pools();
+
+        private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+        private volatile boolean exceeded;
+
+        private Pools() {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                long max = pool.getUsage().getMax();
+                if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && max > 0) {
+                    pool.setCollectionUsageThreshold((long) (max * THRESHOLD));
+                    pools.add(pool);
+                }
+            }
+            ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(
+                    (notification, handback) -> exceeded = true,
+                    notification -> MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED
+                            .equals(notification.getType()), null);
+        }
+
+        // The notification only reports crossing the threshold, so the pools are asked whether it still holds.
+        private boolean isUnderPressure() {
+            if (!exceeded) {
+                return false;
+            }
+            for (MemoryPoolMXBean pool : pools) {
+                if (pool.isCollectionUsageThresholdExceeded()) {
+                    return true;
+                }
+            }
+            exceeded = false;
+            return false;
+        }
+    }
+}
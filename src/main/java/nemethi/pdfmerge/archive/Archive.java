@@ -0,0 +1,93 @@
+package nemethi.pdfmerge.archive;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// The index of a ZIP or TAR file, recognized by its content rather than its name.
+final class Archive {
+
+    private final Path path;
+    private final long size;
+    private final FileTime lastModified;
+    private final List<ArchiveEntry> entries;
+    private final Map<String, ArchiveEntry> entriesByName = new HashMap<>();
+
+    private Archive(Path path, BasicFileAttributes attributes, List<ArchiveEntry> entries) {
+        this.path = path;
+        this.size = attributes.size();
+        this.lastModified = attributes.lastModifiedTime();
+        this.entries = Collections.unmodifiableList(entries);
+        for (ArchiveEntry entry : entries) {
+            // The last of several entries with the same name wins, as when the archive is extracted.
+            entriesByName.put(normalize(entry.getName()), entry);
+        }
+    }
+
+    static Archive read(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        List<ArchiveEntry> entries = null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ZipReader.isZip(channel)) {
+                entries = ZipReader.read(channel);
+            } else if (TarReader.isTar(channel)) {
+                entries = TarReader.read(channel);
+            }
+        } catch (IOException e) {
+            throw new IOException(path + ": " + e.getMessage(), e);
+        }
+        if (entries == null) {
+            throw new IOException(path + " is not a ZIP or TAR archive.");
+        }
+        return new Archive(path, attributes, entries);
+    }
+
+    boolean isCurrent(BasicFileAttributes attributes) {
+        return attributes.size() == size && attributes.lastModifiedTime().equals(lastModified);
+    }
+
+    List<ArchiveEntry> getEntries() {
+        return entries;
+    }
+
+    ArchiveEntry getEntry(String name) {
+        return entriesByName.get(normalize(name));
+    }
+
+    InputStream open(ArchiveEntry entry) throws IOException {
+        switch (entry.getMethod()) {
+            case ArchiveEntry.STORED:
+                return new EntryInputStream(path, entry);
+            case ArchiveEntry.DEFLATED:
+                return new EntryInflaterInputStream(new EntryInputStream(path, entry));
+            case ArchiveEntry.ENCRYPTED:
+                throw new IOException(String.format("%s!/%s is encrypted.", path, entry.getName()));
+            default:
+                throw new IOException(String.format("%s!/%s uses the unsupported compression method %d.",
+                        path, entry.getName(), entry.getMethod()));
+        }
+    }
+
+    ArchiveEntry requireEntry(String name) throws NoSuchFileException {
+        ArchiveEntry entry = getEntry(name);
+        if (entry == null) {
+            throw new NoSuchFileException(path + Archives.SEPARATOR + name);
+        }
+        return entry;
+    }
+
+    // Entry paths go through Path, which collapses repeated separators.
+    private static String normalize(String name) {
+        return name.replace('\\', '/').replaceAll("/{2,}", "/");
+    }
+}
@@ -0,0 +1,48 @@
+package nemethi.pdfmerge.archive;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+// A file inside an archive. ZIP entries point at their local header, whose length is only known once it is read.
+final class ArchiveEntry {
+
+    static final int STORED = 0;
+    static final int DEFLATED = 8;
+    static final int ENCRYPTED = -1;
+
+    private final String name;
+    private final int method;
+    private final long offset;
+    private final boolean localHeader;
+    private final long storedSize;
+    private final long size;
+
+    ArchiveEntry(String name, int method, long offset, boolean localHeader, long storedSize, long size) {
+        this.name = name;
+        this.method = method;
+        this.offset = offset;
+        this.localHeader = localHeader;
+        this.storedSize = storedSize;
+        this.size = size;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    int getMethod() {
+        return method;
+    }
+
+    long getStoredSize() {
+        return storedSize;
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long dataOffset(FileChannel channel) throws IOException {
+        return localHeader ? ZipReader.dataOffset(channel, offset) : offset;
+    }
+}
@@ -0,0 +1,57 @@
+package nemethi.pdfmerge.archive;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Expands inputs that name archives into the entries to merge: {@code bundle.zip} stands for every PDF in it and
+ * {@code bundle.zip!/sub/*.pdf} for the entries matching the glob. Other inputs are returned as they are.
+ */
+public class ArchiveExpander {
+
+    private ArchiveOrder order = ArchiveOrder.ARCHIVE;
+
+    public List<Path> expand(Path input) throws IOException {
+        if (Archives.isEntry(input)) {
+            String pattern = Archives.entryNameOf(input);
+            if (!Glob.isPattern(pattern)) {
+                return Collections.singletonList(input);
+            }
+            return matchingEntries(Archives.archiveOf(input), Glob.compile(pattern));
+        } else if (Archives.isArchive(input)) {
+            return matchingEntries(input, null);
+        }
+        return Collections.singletonList(input);
+    }
+
+    public void setOrder(ArchiveOrder order) {
+        this.order = order;
+    }
+
+    private List<Path> matchingEntries(Path archivePath, Pattern pattern) throws IOException {
+        List<String> names = new ArrayList<>();
+        Archive archive = Archives.index(archivePath);
+        for (ArchiveEntry entry : archive.getEntries()) {
+            String name = entry.getName();
+            if (archive.getEntry(name) != entry) {
+                continue;
+            }
+            if (pattern == null ? name.toLowerCase(Locale.ROOT).endsWith(".pdf") : pattern.matcher(name).matches()) {
+                names.add(name);
+            }
+        }
+        if (order.getComparator() != null) {
+            names.sort(order.getComparator());
+        }
+        List<Path> entries = new ArrayList<>();
+        for (String name : names) {
+            entries.add(Archives.entryPath(archivePath, name));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,21 @@
+package nemethi.pdfmerge.archive;
+
+import java.util.Comparator;
+
+public enum ArchiveOrder {
+
+    // The order in which the entries were added to the archive.
+    ARCHIVE(null),
+    // By name, with runs of digits compared as numbers, so page2.pdf comes before page10.pdf.
+    NATURAL(new NaturalOrder());
+
+    private final Comparator<String> comparator;
+
+    ArchiveOrder(Comparator<String> comparator) {
+        this.comparator = comparator;
+    }
+
+    public Comparator<String> getComparator() {
+        return comparator;
+    }
+}
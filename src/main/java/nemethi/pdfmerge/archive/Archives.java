@@ -0,0 +1,94 @@
+package nemethi.pdfmerge.archive;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Entries of ZIP and TAR files addressed as {@code archive.zip!/sub/file.pdf}. The indexes of recently used
+ * archives are cached, so the files of a bundle can be sized and opened one by one without rereading it.
+ */
+public final class Archives {
+
+    public static final String SEPARATOR = "!/";
+
+    private static final int CACHED_ARCHIVES = 16;
+    private static final Map<Path, Archive> CACHE = new LinkedHashMap<Path, Archive>(CACHED_ARCHIVES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, Archive> eldest) {
+            return size() > CACHED_ARCHIVES;
+        }
+    };
+
+    private Archives() {
+    }
+
+    public static boolean isArchive(Path path) {
+        String name = String.valueOf(path.getFileName()).toLowerCase(Locale.ROOT);
+        return (name.endsWith(".zip") || name.endsWith(".tar")) && Files.isRegularFile(path);
+    }
+
+    // A path only names an entry if the part before the separator is a file, so a directory called "x!" still works.
+    public static boolean isEntry(Path path) {
+        Path archive = archiveOf(path);
+        return archive != null && Files.isRegularFile(archive);
+    }
+
+    public static Path archiveOf(Path path) {
+        String value = path.toString();
+        int separator = separatorIndex(path);
+        return separator < 0 ? null : path.getFileSystem().getPath(value.substring(0, separator));
+    }
+
+    public static Path entryPath(Path archive, String entryName) {
+        return archive.getFileSystem().getPath(archive + SEPARATOR + entryName);
+    }
+
+    public static boolean exists(Path entryPath) {
+        try {
+            return archive(entryPath).getEntry(entryNameOf(entryPath)) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public static long size(Path entryPath) throws IOException {
+        return archive(entryPath).requireEntry(entryNameOf(entryPath)).getSize();
+    }
+
+    public static InputStream open(Path entryPath) throws IOException {
+        Archive archive = archive(entryPath);
+        return archive.open(archive.requireEntry(entryNameOf(entryPath)));
+    }
+
+    static String entryNameOf(Path path) {
+        return path.toString().substring(separatorIndex(path) + 2).replace(File.separatorChar, '/');
+    }
+
+    static Archive archive(Path entryPath) throws IOException {
+        return index(archiveOf(entryPath));
+    }
+
+    static synchronized Archive index(Path path) throws IOException {
+        Path key = path.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        Archive archive = CACHE.get(key);
+        if (archive == null || !archive.isCurrent(attributes)) {
+            archive = Archive.read(key);
+            CACHE.put(key, archive);
+        }
+        return archive;
+    }
+
+    private static int separatorIndex(Path path) {
+        String value = path.toString();
+        int separator = value.indexOf(SEPARATOR);
+        return separator >= 0 ? separator : value.indexOf("!" + File.separator);
+    }
+}
@@ -0,0 +1,42 @@
+package nemethi.pdfmerge.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Raw deflate data may need one byte past its end before the inflater reports that it finished, as in ZipFile.
+class EntryInflaterInputStream extends InflaterInputStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private boolean endOfInput;
+
+    EntryInflaterInputStream(InputStream in) {
+        super(in, new Inflater(true), BUFFER_SIZE);
+    }
+
+    @Override
+    protected void fill() throws IOException {
+        if (endOfInput) {
+            throw new EOFException("Unexpected end of deflated entry.");
+        }
+        len = in.read(buf, 0, buf.length);
+        if (len < 0) {
+            buf[0] = 0;
+            len = 1;
+            endOfInput = true;
+        }
+        inf.setInput(buf, 0, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            inf.end();
+        }
+    }
+}
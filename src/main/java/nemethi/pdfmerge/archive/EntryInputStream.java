@@ -0,0 +1,104 @@
+package nemethi.pdfmerge.archive;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads the stored bytes of an entry with positional reads, so skipping is a seek and nothing is inflated or copied.
+// The archive is opened on first use, so a merge of thousands of entries does not hold thousands of descriptors.
+// Stored entries are handed to the merge as this stream, which the parser then reads in place as a RandomAccessRead.
+class EntryInputStream extends InputStream implements RandomAccessSource {
+
+    private final Path archive;
+    private final ArchiveEntry entry;
+    private FileChannel channel;
+    private long position;
+    private long end;
+    private boolean closed;
+
+    EntryInputStream(Path archive, ArchiveEntry entry) {
+        this.archive = archive;
+        this.entry = entry;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (len == 0) {
+            return 0;
+        } else if (position >= end) {
+            return -1;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, (int) Math.min(len, end - position));
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+            throw new EOFException(archive + " is truncated.");
+        }
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return (int) Math.min(end - position, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public RandomAccessRead openRandomAccess() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed.");
+        }
+        FileChannel opened = FileChannel.open(archive, StandardOpenOption.READ);
+        try {
+            return new EntryRandomAccessRead(opened, entry.dataOffset(opened), entry.getStoredSize());
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed.");
+        } else if (channel == null) {
+            FileChannel opened = FileChannel.open(archive, StandardOpenOption.READ);
+            try {
+                position = entry.dataOffset(opened);
+            } catch (IOException e) {
+                opened.close();
+                throw e;
+            }
+            end = position + entry.getStoredSize();
+            channel = opened;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package nemethi.pdfmerge.archive;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// The byte range of a stored entry, read with positional reads through a window, since the parser reads byte by byte.
+class EntryRandomAccessRead implements RandomAccessRead {
+
+    private static final int WINDOW_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long start;
+    private final long length;
+    private final ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE);
+    private long windowStart;
+    private long position;
+    private boolean closed;
+
+    EntryRandomAccessRead(FileChannel channel, long start, long length) {
+        this.channel = channel;
+        this.start = start;
+        this.length = length;
+        window.limit(0);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkOpen();
+        if (position >= length) {
+            return -1;
+        }
+        fillWindow();
+        return window.get((int) (position++ - windowStart)) & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int len) throws IOException {
+        checkOpen();
+        if (len == 0) {
+            return 0;
+        } else if (position >= length) {
+            return -1;
+        }
+        int count = (int) Math.min(len, length - position);
+        if (count >= WINDOW_SIZE) {
+            // Large reads skip the window rather than copying through it.
+            readAt(ByteBuffer.wrap(b, offset, count), position);
+        } else {
+            fillWindow();
+            count = (int) Math.min(count, windowStart + window.limit() - position);
+            ByteBuffer source = window.duplicate();
+            source.position((int) (position - windowStart));
+            source.get(b, offset, count);
+        }
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        checkOpen();
+        return position;
+    }
+
+    @Override
+    public void seek(long newPosition) throws IOException {
+        checkOpen();
+        if (newPosition < 0) {
+            throw new IOException("Invalid position " + newPosition);
+        }
+        position = newPosition;
+    }
+
+    @Override
+    public long length() throws IOException {
+        checkOpen();
+        return length;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int peek() throws IOException {
+        int b = read();
+        if (b != -1) {
+            position--;
+        }
+        return b;
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException {
+        seek(position - bytes);
+    }
+
+    @Override
+    public byte[] readFully(int len) throws IOException {
+        byte[] b = new byte[len];
+        for (int off = 0; off < len; ) {
+            int read = read(b, off, len - off);
+            if (read < 0) {
+                throw new EOFException("Premature end of the entry.");
+            }
+            off += read;
+        }
+        return b;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        checkOpen();
+        return position >= length;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkOpen();
+        return (int) Math.max(0, Math.min(length - position, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    private void fillWindow() throws IOException {
+        if (position >= windowStart && position < windowStart + window.limit()) {
+            return;
+        }
+        window.clear();
+        window.limit((int) Math.min(WINDOW_SIZE, length - position));
+        readAt(window, position);
+        window.flip();
+        windowStart = position;
+    }
+
+    private void readAt(ByteBuffer buffer, long entryPosition) throws IOException {
+        long filePosition = start + entryPosition;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, filePosition);
+            if (read < 0) {
+                throw new EOFException("The archive is truncated.");
+            }
+            filePosition += read;
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Source closed.");
+        }
+    }
+}
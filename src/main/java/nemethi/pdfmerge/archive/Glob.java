@@ -0,0 +1,52 @@
+package nemethi.pdfmerge.archive;
+
+import java.util.regex.Pattern;
+
+// Glob patterns for entry names, with the syntax of FileSystem.getPathMatcher: *, **, ?, [...] and {a,b}.
+final class Glob {
+
+    private Glob() {
+    }
+
+    static boolean isPattern(String value) {
+        return value.matches(".*[*?\\[{].*");
+    }
+
+    static Pattern compile(String glob) {
+        StringBuilder regex = new StringBuilder();
+        boolean inGroup = false;
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '*') {
+                if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                    regex.append(".*");
+                    i++;
+                } else {
+                    regex.append("[^/]*");
+                }
+            } else if (c == '?') {
+                regex.append("[^/]");
+            } else if (c == '[') {
+                int end = glob.indexOf(']', i + 1);
+                if (end < 0) {
+                    regex.append("\\[");
+                } else {
+                    String set = glob.substring(i + 1, end).replace("\\", "\\\\");
+                    regex.append('[').append(set.startsWith("!") ? "^" + set.substring(1) : set).append(']');
+                    i = end;
+                }
+            } else if (c == '{' && !inGroup) {
+                regex.append("(?:");
+                inGroup = true;
+            } else if (c == '}' && inGroup) {
+                regex.append(')');
+                inGroup = false;
+            } else if (c == ',' && inGroup) {
+                regex.append('|');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
@@ -0,0 +1,58 @@
+package nemethi.pdfmerge.archive;
+
+import java.util.Comparator;
+
+class NaturalOrder implements Comparator<String> {
+
+    @Override
+    public int compare(String first, String second) {
+        int i = 0;
+        int j = 0;
+        while (i < first.length() && j < second.length()) {
+            char a = first.charAt(i);
+            char b = second.charAt(j);
+            if (Character.isDigit(a) && Character.isDigit(b)) {
+                int endA = digitsEnd(first, i);
+                int endB = digitsEnd(second, j);
+                int result = compareNumbers(first.substring(i, endA), second.substring(j, endB));
+                if (result != 0) {
+                    return result;
+                }
+                i = endA;
+                j = endB;
+            } else {
+                int result = Character.compare(Character.toLowerCase(a), Character.toLowerCase(b));
+                if (result != 0) {
+                    return result;
+                }
+                i++;
+                j++;
+            }
+        }
+        int result = Integer.compare(first.length() - i, second.length() - j);
+        return result != 0 ? result : first.compareTo(second);
+    }
+
+    private static int digitsEnd(String value, int start) {
+        int end = start;
+        while (end < value.length() && Character.isDigit(value.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    // Compared as strings without leading zeros, so numbers of any length never overflow.
+    private static int compareNumbers(String first, String second) {
+        String a = stripLeadingZeros(first);
+        String b = stripLeadingZeros(second);
+        return a.length() != b.length() ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+    }
+
+    private static String stripLeadingZeros(String digits) {
+        int start = 0;
+        while (start < digits.length() - 1 && digits.charAt(start) == '0') {
+            start++;
+        }
+        return digits.substring(start);
+    }
+}
@@ -0,0 +1,12 @@
+package nemethi.pdfmerge.archive;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.IOException;
+
+// An input the parser can read in place, instead of copying it to a scratch buffer first.
+public interface RandomAccessSource {
+
+    // The caller owns the returned source and closes it.
+    RandomAccessRead openRandomAccess() throws IOException;
+}
@@ -0,0 +1,188 @@
+package nemethi.pdfmerge.archive;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// Reads the headers of an uncompressed TAR file: POSIX ustar, with GNU long names and pax paths and sizes.
+final class TarReader {
+
+    private static final int BLOCK_SIZE = 512;
+    private static final int CHECKSUM_OFFSET = 148;
+    private static final int CHECKSUM_LENGTH = 8;
+
+    private TarReader() {
+    }
+
+    static boolean isTar(FileChannel channel) throws IOException {
+        return channel.size() >= BLOCK_SIZE && hasValidChecksum(ZipReader.read(channel, 0, BLOCK_SIZE));
+    }
+
+    static List<ArchiveEntry> read(FileChannel channel) throws IOException {
+        List<ArchiveEntry> entries = new ArrayList<>();
+        long size = channel.size();
+        long position = 0;
+        String longName = null;
+        long paxSize = -1;
+        while (position + BLOCK_SIZE <= size) {
+            ByteBuffer header = ZipReader.read(channel, position, BLOCK_SIZE);
+            if (isZeroBlock(header)) {
+                break;
+            }
+            if (!hasValidChecksum(header)) {
+                throw new IOException("Corrupt header at offset " + position + ".");
+            }
+            long entrySize = parseNumber(header, 124, 12);
+            if (paxSize >= 0) {
+                entrySize = paxSize;
+            }
+            long dataOffset = position + BLOCK_SIZE;
+            char type = (char) header.get(156);
+            if (type == 'L' || type == 'x') {
+                String data = new String(readData(channel, dataOffset, entrySize), UTF_8);
+                if (type == 'L') {
+                    longName = trimNul(data);
+                } else {
+                    longName = paxValue(data, "path", longName);
+                    String paxSizeValue = paxValue(data, "size", null);
+                    paxSize = paxSizeValue == null ? -1 : parsePaxSize(paxSizeValue);
+                }
+            } else {
+                if (type == '0' || type == '\0' || type == '7') {
+                    String name = longName != null ? longName : headerName(header);
+                    entries.add(new ArchiveEntry(stripCurrentDirectory(name), ArchiveEntry.STORED, dataOffset, false,
+                            entrySize, entrySize));
+                }
+                longName = null;
+                paxSize = -1;
+            }
+            position = dataOffset + (entrySize + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+        }
+        return entries;
+    }
+
+    private static byte[] readData(FileChannel channel, long offset, long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Extended header at offset " + offset + " is too large.");
+        }
+        ByteBuffer buffer = ZipReader.read(channel, offset, (int) length);
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+    private static String headerName(ByteBuffer header) {
+        String name = readString(header, 0, 100);
+        String prefix = isUstar(header) ? readString(header, 345, 155) : "";
+        return prefix.isEmpty() ? name : prefix + "/" + name;
+    }
+
+    private static boolean isUstar(ByteBuffer header) {
+        return "ustar".equals(readString(header, 257, 6).trim());
+    }
+
+    // Records are "LENGTH KEY=VALUE\n"; later records override earlier ones.
+    private static String paxValue(String data, String key, String defaultValue) {
+        String value = defaultValue;
+        int position = 0;
+        while (position < data.length()) {
+            int space = data.indexOf(' ', position);
+            if (space < 0) {
+                break;
+            }
+            int length;
+            try {
+                length = Integer.parseInt(data.substring(position, space));
+            } catch (NumberFormatException e) {
+                break;
+            }
+            if (length <= 0 || position + length > data.length()) {
+                break;
+            }
+            String record = data.substring(space + 1, position + length - 1);
+            if (record.startsWith(key + "=")) {
+                value = record.substring(key.length() + 1);
+            }
+            position += length;
+        }
+        return value;
+    }
+
+    private static long parsePaxSize(String value) throws IOException {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Corrupt size in extended header.", e);
+        }
+    }
+
+    // Sizes beyond 8 GB are stored base-256 with the high bit of the first byte set.
+    private static long parseNumber(ByteBuffer header, int offset, int length) throws IOException {
+        if ((header.get(offset) & 0x80) != 0) {
+            long value = header.get(offset) & 0x7f;
+            for (int i = 1; i < length; i++) {
+                value = (value << 8) | (header.get(offset + i) & 0xff);
+            }
+            return value;
+        }
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = header.get(offset + i);
+            if (b == 0 || (b == ' ' && value > 0)) {
+                break;
+            } else if (b >= '0' && b <= '7') {
+                value = value * 8 + (b - '0');
+            } else if (b != ' ') {
+                throw new IOException("Corrupt number in header.");
+            }
+        }
+        return value;
+    }
+
+    private static boolean hasValidChecksum(ByteBuffer header) {
+        long sum = 0;
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            boolean inChecksum = i >= CHECKSUM_OFFSET && i < CHECKSUM_OFFSET + CHECKSUM_LENGTH;
+            sum += inChecksum ? ' ' : header.get(i) & 0xff;
+        }
+        try {
+            return sum == parseNumber(header, CHECKSUM_OFFSET, CHECKSUM_LENGTH);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isZeroBlock(ByteBuffer header) {
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (header.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String readString(ByteBuffer header, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = header.get(offset + i);
+        }
+        return trimNul(new String(bytes, UTF_8));
+    }
+
+    private static String trimNul(String value) {
+        int nul = value.indexOf('\0');
+        return nul < 0 ? value : value.substring(0, nul);
+    }
+
+    private static String stripCurrentDirectory(String name) {
+        String stripped = name;
+        while (stripped.startsWith("./")) {
+            stripped = stripped.substring(2);
+        }
+        return stripped;
+    }
+}
@@ -0,0 +1,153 @@
+package nemethi.pdfmerge.archive;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// Reads the central directory of a ZIP file, including ZIP64 archives with more than 65535 entries or 4 GB.
+final class ZipReader {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_DIRECTORY = 0x06054b50;
+    private static final int ZIP64_END_OF_DIRECTORY = 0x06064b50;
+    private static final int ZIP64_LOCATOR = 0x07064b50;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_OF_DIRECTORY_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_OF_DIRECTORY_SIZE = 56;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+    private static final long MAGIC_SIZE = 0xffffffffL;
+    private static final int ENCRYPTED = 1;
+
+    private ZipReader() {
+    }
+
+    static boolean isZip(FileChannel channel) throws IOException {
+        if (channel.size() < 4) {
+            return false;
+        }
+        int signature = read(channel, 0, 4).getInt();
+        return signature == LOCAL_HEADER || signature == END_OF_DIRECTORY;
+    }
+
+    static List<ArchiveEntry> read(FileChannel channel) throws IOException {
+        long end = findEndOfDirectory(channel);
+        ByteBuffer record = read(channel, end, END_OF_DIRECTORY_SIZE);
+        long count = record.getShort(10) & 0xffff;
+        long directorySize = record.getInt(12) & MAGIC_SIZE;
+        long directoryOffset = record.getInt(16) & MAGIC_SIZE;
+        if ((count == 0xffff || directorySize == MAGIC_SIZE || directoryOffset == MAGIC_SIZE)
+                && end >= ZIP64_LOCATOR_SIZE) {
+            ByteBuffer locator = read(channel, end - ZIP64_LOCATOR_SIZE, ZIP64_LOCATOR_SIZE);
+            if (locator.getInt(0) == ZIP64_LOCATOR) {
+                ByteBuffer zip64 = read(channel, locator.getLong(8), ZIP64_END_OF_DIRECTORY_SIZE);
+                if (zip64.getInt(0) != ZIP64_END_OF_DIRECTORY) {
+                    throw new IOException("Corrupt ZIP64 end of central directory.");
+                }
+                count = zip64.getLong(32);
+                directorySize = zip64.getLong(40);
+                directoryOffset = zip64.getLong(48);
+            }
+        }
+        if (directorySize > Integer.MAX_VALUE) {
+            throw new IOException("The central directory is too large.");
+        }
+        ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+        List<ArchiveEntry> entries = new ArrayList<>();
+        for (long i = 0; i < count; i++) {
+            ArchiveEntry entry = readEntry(directory);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    // The local header repeats the name but may carry a different extra field, so the data starts after both.
+    static long dataOffset(FileChannel channel, long headerOffset) throws IOException {
+        ByteBuffer header = read(channel, headerOffset, LOCAL_HEADER_SIZE);
+        if (header.getInt(0) != LOCAL_HEADER) {
+            throw new IOException("Corrupt local header at offset " + headerOffset + ".");
+        }
+        return headerOffset + LOCAL_HEADER_SIZE + (header.getShort(26) & 0xffff) + (header.getShort(28) & 0xffff);
+    }
+
+    private static ArchiveEntry readEntry(ByteBuffer directory) throws IOException {
+        int start = directory.position();
+        if (directory.remaining() < CENTRAL_HEADER_SIZE || directory.getInt(start) != CENTRAL_HEADER) {
+            throw new IOException("Corrupt central directory.");
+        }
+        int flags = directory.getShort(start + 8) & 0xffff;
+        int method = directory.getShort(start + 10) & 0xffff;
+        long storedSize = directory.getInt(start + 20) & MAGIC_SIZE;
+        long size = directory.getInt(start + 24) & MAGIC_SIZE;
+        int nameLength = directory.getShort(start + 28) & 0xffff;
+        int extraLength = directory.getShort(start + 30) & 0xffff;
+        int commentLength = directory.getShort(start + 32) & 0xffff;
+        long headerOffset = directory.getInt(start + 42) & MAGIC_SIZE;
+        if (directory.remaining() < CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength) {
+            throw new IOException("Corrupt central directory.");
+        }
+        byte[] name = new byte[nameLength];
+        directory.position(start + CENTRAL_HEADER_SIZE);
+        directory.get(name);
+        int extraEnd = directory.position() + extraLength;
+        while (directory.position() + 4 <= extraEnd) {
+            int id = directory.getShort() & 0xffff;
+            int length = directory.getShort() & 0xffff;
+            int next = directory.position() + length;
+            if (id == ZIP64_EXTRA) {
+                if (size == MAGIC_SIZE && directory.position() + 8 <= next) {
+                    size = directory.getLong();
+                }
+                if (storedSize == MAGIC_SIZE && directory.position() + 8 <= next) {
+                    storedSize = directory.getLong();
+                }
+                if (headerOffset == MAGIC_SIZE && directory.position() + 8 <= next) {
+                    headerOffset = directory.getLong();
+                }
+            }
+            directory.position(Math.min(next, extraEnd));
+        }
+        directory.position(extraEnd + commentLength);
+        String entryName = new String(name, UTF_8);
+        if (entryName.endsWith("/")) {
+            return null;
+        }
+        // Encrypted entries are kept, so they fail when opened rather than silently go missing from the merge.
+        int entryMethod = (flags & ENCRYPTED) != 0 ? ArchiveEntry.ENCRYPTED : method;
+        return new ArchiveEntry(entryName, entryMethod, headerOffset, true, storedSize, size);
+    }
+
+    private static long findEndOfDirectory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        int tail = (int) Math.min(size, END_OF_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer buffer = read(channel, size - tail, tail);
+        for (int i = tail - END_OF_DIRECTORY_SIZE; i >= 0; i--) {
+            if (buffer.getInt(i) == END_OF_DIRECTORY) {
+                return size - tail + i;
+            }
+        }
+        throw new IOException("Missing end of central directory.");
+    }
+
+    static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of archive.");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+}
@@ -0,0 +1,43 @@
+package nemethi.pdfmerge.batch;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Latency percentiles of a batch, by the nearest-rank method over all jobs, failed ones included.
+public class BatchReport {
+
+    private final int jobs;
+    private final int failures;
+    private final long[] sortedLatencies;
+
+    public BatchReport(List<JobResult> results) {
+        jobs = results.size();
+        sortedLatencies = new long[jobs];
+        int failed = 0;
+        for (int i = 0; i < jobs; i++) {
+            JobResult result = results.get(i);
+            sortedLatencies[i] = result.getLatencyNanos();
+            if (!result.isSuccessful()) {
+                failed++;
+            }
+        }
+        failures = failed;
+        Arrays.sort(sortedLatencies);
+    }
+
+    public int getJobs() {
+        return jobs;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public long percentileNanos(double percentile) {
+        if (jobs == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * jobs);
+        return sortedLatencies[Math.max(0, Math.min(jobs, rank) - 1)];
+    }
+}
@@ -0,0 +1,82 @@
+package nemethi.pdfmerge.batch;
+
+import nemethi.pdfmerge.util.FileChecker;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads the jobs of a batch. Every line holds one job: an optional {@code priority=N}, the output file and the
+ * input files. Fields are separated by tabs, or by spaces on lines without a tab. Blank lines and lines starting
+ * with {@code #} are skipped. Relative paths are resolved against the directory of the job file.
+ */
+public class JobFile {
+
+    private static final String PRIORITY_PREFIX = "priority=";
+
+    private FileChecker fileChecker;
+
+    public JobFile() {
+        fileChecker = new FileChecker();
+    }
+
+    public List<MergeJob> read(Path jobFile) throws IOException {
+        Path baseDirectory = jobFile.toAbsolutePath().getParent();
+        List<String> lines = Files.readAllLines(jobFile, UTF_8);
+        List<MergeJob> jobs = new ArrayList<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String separator = line.indexOf('\t') >= 0 ? "\t+" : " +";
+            List<String> fields = new ArrayList<>(Arrays.asList(line.split(separator)));
+            int priority = 0;
+            if (fields.get(0).startsWith(PRIORITY_PREFIX)) {
+                priority = parsePriority(fields.remove(0), jobFile, i + 1);
+            }
+            if (fields.size() < 2) {
+                throw new IOException(String.format("%s:%d: A job needs an output file and at least one input file.",
+                        jobFile, i + 1));
+            }
+            List<Path> inputPaths = new ArrayList<>();
+            long inputBytes = 0;
+            for (String field : fields.subList(1, fields.size())) {
+                Path inputPath = baseDirectory.resolve(field.trim());
+                inputPaths.add(inputPath);
+                inputBytes += sizeOf(inputPath);
+            }
+            jobs.add(new MergeJob(jobs.size(), baseDirectory.resolve(fields.get(0).trim()), inputPaths, priority,
+                    inputBytes));
+        }
+        return jobs;
+    }
+
+    private static int parsePriority(String field, Path jobFile, int lineNumber) throws IOException {
+        try {
+            return Integer.parseInt(field.substring(PRIORITY_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new IOException(String.format("%s:%d: '%s' is not a valid priority.", jobFile, lineNumber, field));
+        }
+    }
+
+    // A missing input fails its own job when it runs instead of the whole batch.
+    private long sizeOf(Path inputPath) throws IOException {
+        try {
+            return fileChecker.size(inputPath);
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    public void setFileChecker(FileChecker fileChecker) {
+        this.fileChecker = fileChecker;
+    }
+}
@@ -0,0 +1,31 @@
+package nemethi.pdfmerge.batch;
+
+public class JobResult {
+
+    private final MergeJob job;
+    private final long latencyNanos;
+    private final Throwable failure;
+
+    JobResult(MergeJob job, long latencyNanos, Throwable failure) {
+        this.job = job;
+        this.latencyNanos = latencyNanos;
+        this.failure = failure;
+    }
+
+    public MergeJob getJob() {
+        return job;
+    }
+
+    // From the start of the batch to the end of the job, so time spent waiting counts too.
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+}
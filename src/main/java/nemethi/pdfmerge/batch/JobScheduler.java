@@ -0,0 +1,141 @@
+package nemethi.pdfmerge.batch;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the jobs of a batch on a pool of workers. All workers take jobs from one queue in the order of the policy,
+ * so a worker that finishes early simply takes the next job and a slow job never holds up the jobs behind it. As a
+ * fairness limit, a job never starts more than {@code maxOvertakes} places later than it would in job file order;
+ * an overdue job is started next by whichever worker asks first.
+ */
+public class JobScheduler {
+
+    public static final int DEFAULT_MAX_OVERTAKES = 1000;
+
+    private SchedulingPolicy policy = SchedulingPolicy.FIFO;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int maxOvertakes = DEFAULT_MAX_OVERTAKES;
+    private boolean virtualThreads = JobThreads.isVirtualAvailable();
+
+    public List<JobResult> run(List<MergeJob> jobs, JobRunner runner) throws IOException {
+        int workerCount = Math.max(1, Math.min(workers, jobs.size()));
+        JobQueue queue = new JobQueue(jobs, policy.getOrder(), maxOvertakes);
+        JobResult[] results = new JobResult[jobs.size()];
+        long start = System.nanoTime();
+        ExecutorService executor = usesVirtualThreads() ? JobThreads.newVirtualExecutor(workerCount)
+                : Executors.newFixedThreadPool(workerCount);
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int worker = 0; worker < workerCount; worker++) {
+                running.add(executor.submit(() -> {
+                    for (MergeJob job = queue.next(); job != null; job = queue.next()) {
+                        Throwable failure = null;
+                        try {
+                            runner.run(job);
+                        } catch (Exception e) {
+                            failure = e;
+                        }
+                        results[job.getIndex()] = new JobResult(job, System.nanoTime() - start, failure);
+                    }
+                }));
+            }
+            for (Future<?> worker : running) {
+                await(worker);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return Arrays.asList(results);
+    }
+
+    private static void await(Future<?> worker) throws IOException {
+        try {
+            worker.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Running the batch was interrupted.");
+        } catch (ExecutionException e) {
+            throw new IOException("A batch worker failed.", e.getCause());
+        }
+    }
+
+    // Workers waiting on slow storage cost a few hundred bytes each on virtual threads instead of a stack each.
+    public boolean usesVirtualThreads() {
+        return virtualThreads && JobThreads.isVirtualAvailable();
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public void setPolicy(SchedulingPolicy policy) {
+        this.policy = policy;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    public void setMaxOvertakes(int maxOvertakes) {
+        this.maxOvertakes = maxOvertakes;
+    }
+
+    public interface JobRunner {
+        void run(MergeJob job) throws IOException;
+    }
+
+    // Dispatching takes a fraction of a merge, so one lock around the queue costs nothing measurable.
+    private static final class JobQueue {
+
+        private final PriorityQueue<MergeJob> pending;
+        private final MergeJob[] jobsByIndex;
+        private final boolean[] started;
+        private final int maxOvertakes;
+        private int startedCount;
+        // The index of the first job in file order that has not started yet.
+        private int oldest;
+
+        private JobQueue(List<MergeJob> jobs, Comparator<MergeJob> order, int maxOvertakes) {
+            this.maxOvertakes = maxOvertakes;
+            pending = new PriorityQueue<>(Math.max(1, jobs.size()), order);
+            pending.addAll(jobs);
+            jobsByIndex = new MergeJob[jobs.size()];
+            for (MergeJob job : jobs) {
+                jobsByIndex[job.getIndex()] = job;
+            }
+            started = new boolean[jobs.size()];
+        }
+
+        private synchronized MergeJob next() {
+            while (oldest < started.length && started[oldest]) {
+                oldest++;
+            }
+            if (oldest == started.length) {
+                return null;
+            }
+            MergeJob job;
+            if ((long) startedCount - oldest >= maxOvertakes) {
+                // left in the priority queue and skipped when it comes up
+                job = jobsByIndex[oldest];
+            } else {
+                job = pending.poll();
+                while (started[job.getIndex()]) {
+                    job = pending.poll();
+                }
+            }
+            started[job.getIndex()] = true;
+            startedCount++;
+            return job;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package nemethi.pdfmerge.batch;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Java 8 has no virtual threads. On Java 21 and later the multi-release JAR uses src/main/java21 instead.
+public final class JobThreads {
+
+    private JobThreads() {
+    }
+
+    public static boolean isVirtualAvailable() {
+        return false;
+    }
+
+    // Without virtual threads every worker gets a platform thread.
+    static ExecutorService newVirtualExecutor(int workers) {
+        return Executors.newFixedThreadPool(workers);
+    }
+}
@@ -0,0 +1,44 @@
+package nemethi.pdfmerge.batch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// One merge of a batch. The indexes of a batch count from 0 in job file order, which is the order FIFO runs them in.
+public class MergeJob {
+
+    private final int index;
+    private final Path outputPath;
+    private final List<Path> inputPaths;
+    private final int priority;
+    private final long inputBytes;
+
+    public MergeJob(int index, Path outputPath, List<Path> inputPaths, int priority, long inputBytes) {
+        this.index = index;
+        this.outputPath = outputPath;
+        this.inputPaths = Collections.unmodifiableList(new ArrayList<>(inputPaths));
+        this.priority = priority;
+        this.inputBytes = inputBytes;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Path getOutputPath() {
+        return outputPath;
+    }
+
+    public List<Path> getInputPaths() {
+        return inputPaths;
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public long getInputBytes() {
+        return inputBytes;
+    }
+}
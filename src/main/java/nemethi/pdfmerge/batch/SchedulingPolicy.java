@@ -0,0 +1,21 @@
+package nemethi.pdfmerge.batch;
+
+import java.util.Comparator;
+
+// The order in which waiting jobs are started. Ties are broken by job file order.
+public enum SchedulingPolicy {
+
+    FIFO(Comparator.comparingInt(MergeJob::getIndex)),
+    SJF(Comparator.comparingLong(MergeJob::getInputBytes).thenComparingInt(MergeJob::getIndex)),
+    PRIORITY(Comparator.comparingInt(MergeJob::getPriority).reversed().thenComparingInt(MergeJob::getIndex));
+
+    private final Comparator<MergeJob> order;
+
+    SchedulingPolicy(Comparator<MergeJob> order) {
+        this.order = order;
+    }
+
+    public Comparator<MergeJob> getOrder() {
+        return order;
+    }
+}
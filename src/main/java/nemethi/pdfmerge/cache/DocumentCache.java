@@ -0,0 +1,21 @@
+package nemethi.pdfmerge.cache;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+
+/**
+ * Keeps the inputs a merge loaded for the next merge of the same files. The merger asks for every input before
+ * loading it and hands over the ones it had to load, already stripped, optimized and collected. It never closes
+ * those documents: they and the streams they were loaded from are closed by the cache.
+ */
+public interface DocumentCache {
+
+    // Returns null if the input is not cached or has changed since it was loaded.
+    PDDocument get(Path inputPath) throws IOException;
+
+    // Only called for an input get returned null for, with a document that the merge still appends afterwards.
+    void put(Path inputPath, PDDocument document, InputStream inputStream);
+}
@@ -0,0 +1,33 @@
+package nemethi.pdfmerge.cancel;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class CancellableInputStream extends FilterInputStream {
+
+    private final CancellationCheck check;
+
+    public CancellableInputStream(InputStream in, Cancellation cancellation) {
+        super(in);
+        this.check = new CancellationCheck(cancellation);
+    }
+
+    @Override
+    public int read() throws IOException {
+        check.tick();
+        return super.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        check.now();
+        return super.read(b, off, len);
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        check.now();
+        return super.skip(n);
+    }
+}
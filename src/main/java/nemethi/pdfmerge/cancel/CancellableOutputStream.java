@@ -0,0 +1,27 @@
+package nemethi.pdfmerge.cancel;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class CancellableOutputStream extends FilterOutputStream {
+
+    private final CancellationCheck check;
+
+    public CancellableOutputStream(OutputStream out, Cancellation cancellation) {
+        super(out);
+        this.check = new CancellationCheck(cancellation);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        check.tick();
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        check.now();
+        out.write(b, off, len);
+    }
+}
@@ -0,0 +1,88 @@
+package nemethi.pdfmerge.cancel;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+
+import java.io.IOException;
+
+// Lets the parser notice a cancellation while it scans a damaged file or resolves objects.
+public class CancellableRandomAccessRead implements RandomAccessRead {
+
+    private final RandomAccessRead source;
+    private final CancellationCheck check;
+
+    public CancellableRandomAccessRead(RandomAccessRead source, Cancellation cancellation) {
+        this.source = source;
+        this.check = new CancellationCheck(cancellation);
+    }
+
+    @Override
+    public int read() throws IOException {
+        check.tick();
+        return source.read();
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        check.tick();
+        return source.read(b);
+    }
+
+    @Override
+    public int read(byte[] b, int offset, int length) throws IOException {
+        check.tick();
+        return source.read(b, offset, length);
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        return source.getPosition();
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        check.tick();
+        source.seek(position);
+    }
+
+    @Override
+    public long length() throws IOException {
+        return source.length();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return source.isClosed();
+    }
+
+    @Override
+    public int peek() throws IOException {
+        check.tick();
+        return source.peek();
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException {
+        source.rewind(bytes);
+    }
+
+    @Override
+    public byte[] readFully(int length) throws IOException {
+        check.tick();
+        return source.readFully(length);
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        return source.isEOF();
+    }
+
+    @Override
+    public int available() throws IOException {
+        return source.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
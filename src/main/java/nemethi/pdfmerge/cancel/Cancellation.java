@@ -0,0 +1,54 @@
+package nemethi.pdfmerge.cancel;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Merges check this between inputs and while reading, parsing and writing, and stop at the next check.
+public class Cancellation {
+
+    private final Duration timeout;
+    private final long deadline;
+    private volatile boolean cancelled;
+
+    public Cancellation() {
+        this(null);
+    }
+
+    public Cancellation(Duration timeout) {
+        this.timeout = timeout;
+        this.deadline = timeout == null ? 0 : System.nanoTime() + timeout.toNanos();
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || isTimedOut();
+    }
+
+    public void check() throws MergeCancelledException {
+        if (cancelled) {
+            throw new MergeCancelledException("The merge was cancelled.");
+        }
+        if (isTimedOut()) {
+            throw new MergeTimeoutException(String.format("The merge did not finish within %s.", format(timeout)));
+        }
+    }
+
+    private boolean isTimedOut() {
+        return timeout != null && System.nanoTime() - deadline >= 0;
+    }
+
+    static String format(Duration duration) {
+        long millis = duration.toMillis();
+        if (millis > 0 && millis % TimeUnit.HOURS.toMillis(1) == 0) {
+            return TimeUnit.MILLISECONDS.toHours(millis) + "h";
+        } else if (millis > 0 && millis % TimeUnit.MINUTES.toMillis(1) == 0) {
+            return TimeUnit.MILLISECONDS.toMinutes(millis) + "m";
+        } else if (millis > 0 && millis % TimeUnit.SECONDS.toMillis(1) == 0) {
+            return TimeUnit.MILLISECONDS.toSeconds(millis) + "s";
+        }
+        return millis + "ms";
+    }
+}
@@ -0,0 +1,26 @@
+package nemethi.pdfmerge.cancel;
+
+// PDFBox reads and writes many single bytes, so those only check the clock every few thousand calls.
+class CancellationCheck {
+
+    private static final int TICKS_PER_CHECK = 4096;
+
+    private final Cancellation cancellation;
+    private int ticks;
+
+    CancellationCheck(Cancellation cancellation) {
+        this.cancellation = cancellation;
+        this.ticks = TICKS_PER_CHECK - 1;
+    }
+
+    void tick() throws MergeCancelledException {
+        if (++ticks >= TICKS_PER_CHECK) {
+            now();
+        }
+    }
+
+    void now() throws MergeCancelledException {
+        ticks = 0;
+        cancellation.check();
+    }
+}
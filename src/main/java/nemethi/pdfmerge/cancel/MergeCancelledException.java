@@ -0,0 +1,10 @@
+package nemethi.pdfmerge.cancel;
+
+import java.io.InterruptedIOException;
+
+public class MergeCancelledException extends InterruptedIOException {
+
+    public MergeCancelledException(String message) {
+        super(message);
+    }
+}
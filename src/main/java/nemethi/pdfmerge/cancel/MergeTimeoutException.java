@@ -0,0 +1,8 @@
+package nemethi.pdfmerge.cancel;
+
+public class MergeTimeoutException extends MergeCancelledException {
+
+    public MergeTimeoutException(String message) {
+        super(message);
+    }
+}
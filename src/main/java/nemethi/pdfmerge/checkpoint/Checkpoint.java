@@ -0,0 +1,235 @@
+package nemethi.pdfmerge.checkpoint;
+
+import nemethi.pdfmerge.archive.Archives;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The finished chunks of one merge, kept in a directory so that the merge can resume after it was interrupted.
+ * Each chunk is the merge of a run of consecutive inputs. The manifest records the output, a hash of the options
+ * the chunks were merged with, the chunks and the fingerprints of the inputs they cover; it is replaced in one move
+ * after every chunk, so a crash leaves either the previous or the next state behind.
+ *
+ * <p>When a checkpoint is opened with other options, all chunks are deleted. Otherwise the chunks are kept up to
+ * the first one whose inputs changed, moved or are gone; that chunk and all later ones are deleted and merged
+ * again.
+ */
+public class Checkpoint {
+
+    static final String MANIFEST = "checkpoint.manifest";
+    private static final String HEADER = "pdfmerge-checkpoint 2";
+    private static final String PART_FILE = "chunk.part";
+    private static final String CHUNK_FILE_FORMAT = "chunk-%05d.pdf";
+    private static final Pattern CHUNK_FILE = Pattern.compile("chunk-(\\d{5,9})\\.pdf");
+
+    private final Path directory;
+    private final List<Path> inputPaths;
+    private final Path outputPath;
+    private final String optionsHash;
+    private final List<String> fingerprints = new ArrayList<>();
+    private final List<Integer> chunkEnds = new ArrayList<>();
+    private final List<Fingerprint.Tracked> trackedInputs = new ArrayList<>();
+
+    private Checkpoint(Path directory, List<Path> inputPaths, Path outputPath, String optionsHash) {
+        this.directory = directory;
+        this.inputPaths = inputPaths;
+        this.outputPath = outputPath;
+        this.optionsHash = optionsHash;
+    }
+
+    // The options are every setting that changes the content of a chunk, in any stable text form.
+    public static Checkpoint open(Path directory, List<Path> inputPaths, Path outputPath, String options)
+            throws IOException {
+        Files.createDirectories(directory);
+        Checkpoint checkpoint = new Checkpoint(directory, absolute(inputPaths), outputPath.toAbsolutePath(),
+                Fingerprint.of(options));
+        checkpoint.restore();
+        return checkpoint;
+    }
+
+    // The index of the first input that is not covered by a chunk yet.
+    public int getResumeIndex() {
+        return chunkEnds.isEmpty() ? 0 : chunkEnds.get(chunkEnds.size() - 1);
+    }
+
+    public List<Path> getChunkPaths() {
+        List<Path> chunkPaths = new ArrayList<>();
+        for (int i = 0; i < chunkEnds.size(); i++) {
+            chunkPaths.add(chunkPath(i));
+        }
+        return chunkPaths;
+    }
+
+    // Where the next chunk is written before it is committed.
+    public Path getPartPath() {
+        return directory.resolve(PART_FILE);
+    }
+
+    // Wraps the next input of the chunk being written, so that it is fingerprinted while the merge reads it.
+    public InputStream track(InputStream inputStream) {
+        Fingerprint.Tracked trackedInput = new Fingerprint.Tracked(inputStream);
+        trackedInputs.add(trackedInput);
+        return trackedInput;
+    }
+
+    public void commit(int endIndex) throws IOException {
+        if (endIndex <= getResumeIndex() || endIndex > inputPaths.size()) {
+            throw new IllegalArgumentException("A chunk must cover the next inputs.");
+        }
+        int start = getResumeIndex();
+        for (int i = start; i < endIndex; i++) {
+            // Inputs that were not tracked or not read to their end are read once more here.
+            Fingerprint.Tracked trackedInput = i - start < trackedInputs.size() ? trackedInputs.get(i - start) : null;
+            fingerprints.add(trackedInput != null && trackedInput.isComplete() ? trackedInput.fingerprint()
+                    : Fingerprint.of(inputPaths.get(i)));
+        }
+        trackedInputs.clear();
+        move(getPartPath(), chunkPath(chunkEnds.size()));
+        chunkEnds.add(endIndex);
+        writeManifest();
+    }
+
+    public void delete() throws IOException {
+        Files.deleteIfExists(directory.resolve(MANIFEST));
+        for (int i = 0; i < chunkEnds.size(); i++) {
+            Files.deleteIfExists(chunkPath(i));
+        }
+        Files.deleteIfExists(getPartPath());
+        chunkEnds.clear();
+        fingerprints.clear();
+        trackedInputs.clear();
+    }
+
+    private void restore() throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(directory.resolve(MANIFEST), UTF_8);
+        } catch (NoSuchFileException e) {
+            lines = Collections.emptyList();
+        }
+        // A manifest of another output belongs to another merge, and chunks merged with other options differ from
+        // what this merge would write, so neither is of use here.
+        if (lines.size() >= 3 && HEADER.equals(lines.get(0)) && ("output\t" + outputPath).equals(lines.get(1))
+                && ("options\t" + optionsHash).equals(lines.get(2))) {
+            List<String> recordedHashes = new ArrayList<>();
+            List<String> recordedPaths = new ArrayList<>();
+            List<Integer> recordedEnds = new ArrayList<>();
+            for (String line : lines.subList(3, lines.size())) {
+                String[] fields = line.split("\t", 3);
+                if ("input".equals(fields[0]) && fields.length == 3) {
+                    recordedHashes.add(fields[1]);
+                    recordedPaths.add(fields[2]);
+                } else if ("chunk".equals(fields[0]) && fields.length == 2) {
+                    recordedEnds.add(Integer.parseInt(fields[1]));
+                }
+            }
+            keepValidChunks(recordedHashes, recordedPaths, recordedEnds);
+        }
+        deleteStaleFiles();
+        writeManifest();
+    }
+
+    private void keepValidChunks(List<String> recordedHashes, List<String> recordedPaths, List<Integer> recordedEnds)
+            throws IOException {
+        int start = 0;
+        for (int chunk = 0; chunk < recordedEnds.size(); chunk++) {
+            int end = recordedEnds.get(chunk);
+            if (end <= start || end > inputPaths.size() || end > recordedHashes.size()
+                    || !Files.isRegularFile(chunkPath(chunk))) {
+                return;
+            }
+            List<String> chunkFingerprints = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                Path inputPath = inputPaths.get(i);
+                if (!inputPath.toString().equals(recordedPaths.get(i)) || !isInputFile(inputPath)) {
+                    return;
+                }
+                String fingerprint = Fingerprint.of(inputPath);
+                if (!fingerprint.equals(recordedHashes.get(i))) {
+                    return;
+                }
+                chunkFingerprints.add(fingerprint);
+            }
+            fingerprints.addAll(chunkFingerprints);
+            chunkEnds.add(end);
+            start = end;
+        }
+    }
+
+    // Only the files a checkpoint writes itself are deleted; anything else in the directory is left alone.
+    private void deleteStaleFiles() throws IOException {
+        List<Path> staleFiles = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher chunk = CHUNK_FILE.matcher(name);
+                if (chunk.matches() ? Integer.parseInt(chunk.group(1)) >= chunkEnds.size() : isPartFile(name)) {
+                    staleFiles.add(file);
+                }
+            }
+        }
+        for (Path staleFile : staleFiles) {
+            Files.deleteIfExists(staleFile);
+        }
+    }
+
+    private static boolean isInputFile(Path path) {
+        return Archives.isEntry(path) ? Archives.exists(path) : Files.isRegularFile(path);
+    }
+
+    private static boolean isPartFile(String name) {
+        return PART_FILE.equals(name) || (MANIFEST + ".part").equals(name);
+    }
+
+    private void writeManifest() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        Path part = directory.resolve(MANIFEST + ".part");
+        try (BufferedWriter writer = Files.newBufferedWriter(part, UTF_8)) {
+            writer.write(HEADER + "\n");
+            writer.write("output\t" + outputPath + "\n");
+            writer.write("options\t" + optionsHash + "\n");
+            for (int i = 0; i < fingerprints.size(); i++) {
+                writer.write("input\t" + fingerprints.get(i) + "\t" + inputPaths.get(i) + "\n");
+            }
+            for (Integer chunkEnd : chunkEnds) {
+                writer.write("chunk\t" + chunkEnd + "\n");
+            }
+        }
+        move(part, manifest);
+    }
+
+    private Path chunkPath(int chunk) {
+        return directory.resolve(String.format(CHUNK_FILE_FORMAT, chunk));
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static List<Path> absolute(List<Path> paths) {
+        List<Path> absolutePaths = new ArrayList<>();
+        for (Path path : paths) {
+            absolutePaths.add(path.toAbsolutePath());
+        }
+        return absolutePaths;
+    }
+}
@@ -0,0 +1,91 @@
+package nemethi.pdfmerge.checkpoint;
+
+import nemethi.pdfmerge.archive.Archives;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// The SHA-256 of a file or text. Merged inputs are hashed while the merge reads them, so they are not read twice.
+final class Fingerprint {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private Fingerprint() {
+    }
+
+    static String of(Path path) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream inputStream = Archives.isEntry(path) ? Archives.open(path) : Files.newInputStream(path)) {
+            for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return hex(digest);
+    }
+
+    static String of(String text) {
+        MessageDigest digest = sha256();
+        digest.update(text.getBytes(UTF_8));
+        return hex(digest);
+    }
+
+    private static String hex(MessageDigest digest) {
+        byte[] hash = digest.digest();
+        char[] hex = new char[hash.length * 2];
+        for (int i = 0; i < hash.length; i++) {
+            hex[2 * i] = HEX_DIGITS[(hash[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX_DIGITS[hash[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Hashes an input as it is read. The hash only covers the whole input if the stream was read to its end.
+    static final class Tracked extends DigestInputStream {
+
+        private boolean complete;
+
+        Tracked(InputStream inputStream) {
+            super(inputStream, sha256());
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            complete |= read == -1;
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            complete |= read == -1;
+            return read;
+        }
+
+        boolean isComplete() {
+            return complete;
+        }
+
+        String fingerprint() {
+            return hex(getMessageDigest());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package nemethi.pdfmerge.cli;
+
+import nemethi.pdfmerge.archive.ArchiveOrder;
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.TypeConversionException;
+
+import java.util.Locale;
+
+public class ArchiveOrderConverter implements ITypeConverter<ArchiveOrder> {
+
+    @Override
+    public ArchiveOrder convert(String value) {
+        try {
+            return ArchiveOrder.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new TypeConversionException(String.format("'%s' is not an archive order.", value));
+        }
+    }
+}
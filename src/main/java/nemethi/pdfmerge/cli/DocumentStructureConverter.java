@@ -0,0 +1,19 @@
+package nemethi.pdfmerge.cli;
+
+import nemethi.pdfmerge.structure.DocumentStructure;
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.TypeConversionException;
+
+import java.util.Locale;
+
+public class DocumentStructureConverter implements ITypeConverter<DocumentStructure> {
+
+    @Override
+    public DocumentStructure convert(String value) {
+        try {
+            return DocumentStructure.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new TypeConversionException(String.format("'%s' is not a document structure.", value));
+        }
+    }
+}
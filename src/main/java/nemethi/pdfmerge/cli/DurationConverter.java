@@ -0,0 +1,44 @@
+package nemethi.pdfmerge.cli;
+
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.TypeConversionException;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class DurationConverter implements ITypeConverter<Duration> {
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+)\\s*(MS|S|M|H)?");
+
+    @Override
+    public Duration convert(String value) {
+        Matcher matcher = DURATION.matcher(value.trim().toUpperCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new TypeConversionException(String.format("'%s' is not a duration.", value));
+        }
+        TimeUnit unit = toUnit(matcher.group(2));
+        try {
+            long amount = Long.parseLong(matcher.group(1));
+            if (amount > unit.convert(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                throw new NumberFormatException();
+            }
+            return Duration.ofNanos(unit.toNanos(amount));
+        } catch (NumberFormatException e) {
+            throw new TypeConversionException(String.format("'%s' is too long.", value));
+        }
+    }
+
+    private static TimeUnit toUnit(String suffix) {
+        if ("MS".equals(suffix)) {
+            return TimeUnit.MILLISECONDS;
+        } else if ("M".equals(suffix)) {
+            return TimeUnit.MINUTES;
+        } else if ("H".equals(suffix)) {
+            return TimeUnit.HOURS;
+        }
+        return TimeUnit.SECONDS;
+    }
+}
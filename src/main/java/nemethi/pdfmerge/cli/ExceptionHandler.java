@@ -1,5 +1,6 @@
 package nemethi.pdfmerge.cli;
 
+import nemethi.pdfmerge.FailureType;
 import picocli.CommandLine;
 import picocli.CommandLine.IExecutionExceptionHandler;
 import picocli.CommandLine.IParameterExceptionHandler;
@@ -8,10 +9,12 @@ import picocli.CommandLine.ParseResult;
 import picocli.CommandLine.UnmatchedArgumentException;
 
 import java.io.PrintWriter;
-import java.nio.file.FileAlreadyExistsException;
 
 public class ExceptionHandler implements IExecutionExceptionHandler, IParameterExceptionHandler {
 
+    // Same as the timeout(1) utility, so schedulers can tell a timeout from a failed merge and retry elsewhere.
+    public static final int TIMEOUT_EXIT_CODE = 124;
+
     private static final String ERROR_MESSAGE_FORMAT = "%s: %s";
     private static final String ERROR_MESSAGE_WITH_HINT_FORMAT = "%s: %s %s";
     private static final String FORCE_HINT = "Use -f or --force to overwrite it.";
@@ -19,7 +22,7 @@ public class ExceptionHandler implements IExecutionExceptionHandler, IParameterE
     @Override
     public int handleParseException(ParameterException ex, String[] args) throws Exception {
         CommandLine commandLine = ex.getCommandLine();
-        String errorMessage = String.format(ERROR_MESSAGE_FORMAT, commandLine.getCommandName(), ex.getMessage());
+        String errorMessage = String.format(ERROR_MESSAGE_FORMAT, commandName(commandLine), ex.getMessage());
         commandLine.getErr().println(commandLine.getColorScheme().errorText(errorMessage));
         if (!suggestionsArePrinted(ex, commandLine.getErr())) {
             commandLine.usage(commandLine.getOut(), commandLine.getColorScheme());
@@ -34,15 +37,18 @@ public class ExceptionHandler implements IExecutionExceptionHandler, IParameterE
 
     @Override
     public int handleExecutionException(Exception ex, CommandLine commandLine, ParseResult parseResult) throws Exception {
-        if (ex instanceof FileAlreadyExistsException) {
+        FailureType failureType = FailureType.of(ex);
+        if (failureType == FailureType.OUTPUT_EXISTS) {
             handleFileAlreadyExistsException(ex, commandLine);
         } else {
-            String errorMessage = String.format(ERROR_MESSAGE_FORMAT, commandLine.getCommandName(), ex.getMessage());
+            String errorMessage = String.format(ERROR_MESSAGE_FORMAT, commandName(commandLine), ex.getMessage());
             commandLine.getErr().println(commandLine.getColorScheme().errorText(errorMessage));
         }
 
         if (commandLine.getExitCodeExceptionMapper() != null) {
             return commandLine.getExitCodeExceptionMapper().getExitCode(ex);
+        } else if (failureType == FailureType.TIMEOUT) {
+            return TIMEOUT_EXIT_CODE;
         } else {
             return commandLine.getCommandSpec().exitCodeOnExecutionException();
         }
@@ -52,9 +58,14 @@ public class ExceptionHandler implements IExecutionExceptionHandler, IParameterE
         return UnmatchedArgumentException.printSuggestions(ex, err);
     }
 
+    // Qualified, so that the errors of a command are prefixed like its usage: "pdfmerge watch: ...".
+    private static String commandName(CommandLine commandLine) {
+        return commandLine.getCommandSpec().qualifiedName();
+    }
+
     private void handleFileAlreadyExistsException(Exception ex, CommandLine commandLine) {
         String errorMessage = String.format(ERROR_MESSAGE_WITH_HINT_FORMAT,
-                commandLine.getCommandName(), ex.getMessage(), FORCE_HINT);
+                commandName(commandLine), ex.getMessage(), FORCE_HINT);
         commandLine.getErr().println(commandLine.getColorScheme().errorText(errorMessage));
     }
 }
@@ -0,0 +1,36 @@
+package nemethi.pdfmerge.cli;
+
+import nemethi.pdfmerge.progress.ProgressFormat;
+import picocli.CommandLine.IParameterConsumer;
+import picocli.CommandLine.Model.ArgSpec;
+import picocli.CommandLine.Model.CommandSpec;
+
+import java.util.Locale;
+import java.util.Stack;
+
+// With a plain optional value, picocli would take the FILE after a bare --progress for the format and reject it.
+// Here only a format name is taken; anything else is left for the following options and parameters.
+public class ProgressFormatConsumer implements IParameterConsumer {
+
+    @Override
+    public void consumeParameters(Stack<String> args, ArgSpec argSpec, CommandSpec commandSpec) {
+        ProgressFormat format = ProgressFormat.TEXT;
+        if (!args.isEmpty()) {
+            ProgressFormat named = formatNamed(args.peek());
+            if (named != null) {
+                args.pop();
+                format = named;
+            }
+        }
+        argSpec.setValue(format);
+    }
+
+    private static ProgressFormat formatNamed(String value) {
+        for (ProgressFormat format : ProgressFormat.values()) {
+            if (format.name().equals(value.toUpperCase(Locale.ROOT))) {
+                return format;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,19 @@
+package nemethi.pdfmerge.cli;
+
+import nemethi.pdfmerge.batch.SchedulingPolicy;
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.TypeConversionException;
+
+import java.util.Locale;
+
+public class SchedulingPolicyConverter implements ITypeConverter<SchedulingPolicy> {
+
+    @Override
+    public SchedulingPolicy convert(String value) {
+        try {
+            return SchedulingPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new TypeConversionException(String.format("'%s' is not a scheduling policy.", value));
+        }
+    }
+}
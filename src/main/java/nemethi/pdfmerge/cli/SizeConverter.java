@@ -0,0 +1,34 @@
+package nemethi.pdfmerge.cli;
+
+import picocli.CommandLine.ITypeConverter;
+import picocli.CommandLine.TypeConversionException;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class SizeConverter implements ITypeConverter<Long> {
+
+    private static final Pattern SIZE = Pattern.compile("(\\d+)\\s*([KMG]?)B?");
+    private static final String UNITS = "KMG";
+    private static final int UNIT_SHIFT = 10;
+
+    @Override
+    public Long convert(String value) {
+        Matcher matcher = SIZE.matcher(value.trim().toUpperCase(Locale.ROOT));
+        if (!matcher.matches()) {
+            throw new TypeConversionException(String.format("'%s' is not a size.", value));
+        }
+        String unit = matcher.group(2);
+        int shift = unit.isEmpty() ? 0 : UNIT_SHIFT * (UNITS.indexOf(unit) + 1);
+        try {
+            long size = Long.parseLong(matcher.group(1));
+            if (size > Long.MAX_VALUE >> shift) {
+                throw new NumberFormatException();
+            }
+            return size << shift;
+        } catch (NumberFormatException e) {
+            throw new TypeConversionException(String.format("'%s' is too large.", value));
+        }
+    }
+}
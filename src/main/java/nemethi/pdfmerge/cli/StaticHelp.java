@@ -0,0 +1,54 @@
+package nemethi.pdfmerge.cli;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Answers a lone {@code --help} or {@code --version} from build-time metadata: no command model is built, no
+ * annotation is reflected on and no PDFBox class is loaded. Any other command line is left to picocli.
+ * The usage resource is checked against picocli's own rendering by the tests, so it cannot drift.
+ */
+public final class StaticHelp {
+
+    static final String USAGE_RESOURCE = "usage.txt";
+
+    private StaticHelp() {
+    }
+
+    public static String answer(String... args) {
+        if (args.length != 1) {
+            return null;
+        }
+        switch (args[0]) {
+            case "-h":
+            case "--help":
+                return usage();
+            case "-V":
+            case "--version":
+                return Version.VERSION + System.lineSeparator();
+            default:
+                return null;
+        }
+    }
+
+    private static String usage() {
+        try (InputStream inputStream = StaticHelp.class.getResourceAsStream(USAGE_RESOURCE)) {
+            if (inputStream == null) {
+                return null;
+            }
+            ByteArrayOutputStream usage = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                usage.write(buffer, 0, read);
+            }
+            return new String(usage.toByteArray(), UTF_8).replace("\n", System.lineSeparator());
+        } catch (IOException e) {
+            // picocli renders the help itself then, only slower
+            return null;
+        }
+    }
+}
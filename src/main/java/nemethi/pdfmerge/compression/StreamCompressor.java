@@ -0,0 +1,154 @@
+package nemethi.pdfmerge.compression;
+
+import nemethi.pdfmerge.util.WorkerPool;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class StreamCompressor {
+
+    private final WorkerPool workers = new WorkerPool("pdfmerge-compress", "Stream compression",
+            Runtime.getRuntime().availableProcessors());
+    private boolean enabled;
+    private int level;
+
+    public boolean isEnabled() {
+        return enabled || level > 0;
+    }
+
+    // The PDFBox writer copies stream data verbatim on one thread, so streams are encoded up front in parallel.
+    public void compress(PDDocument document) throws IOException {
+        List<COSStream> candidates = new ArrayList<>();
+        for (COSStream stream : collectStreams(document)) {
+            if (isUncompressed(stream) || (level > 0 && isFlateEncoded(stream))) {
+                candidates.add(stream);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        workers.map(candidates, stream -> encode(document, stream), (stream, encoded) -> {
+            if (encoded != null) {
+                synchronized (document) {
+                    apply(stream, encoded);
+                }
+            }
+        });
+    }
+
+    // Reading goes through the scratch file of the document, which is not thread-safe; only coding runs in parallel.
+    private byte[] encode(PDDocument document, COSStream stream) throws IOException {
+        byte[] raw;
+        boolean flateEncoded;
+        synchronized (document) {
+            flateEncoded = isFlateEncoded(stream);
+            try (InputStream inputStream = stream.createRawInputStream()) {
+                raw = IOUtils.toByteArray(inputStream);
+            }
+        }
+        byte[] decoded = raw;
+        if (flateEncoded) {
+            try {
+                decoded = IOUtils.toByteArray(new InflaterInputStream(new ByteArrayInputStream(raw)));
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(Math.max(32, decoded.length / 4));
+        Deflater deflater = new Deflater(level > 0 ? level : Deflater.DEFAULT_COMPRESSION);
+        try (DeflaterOutputStream deflaterStream = new DeflaterOutputStream(outputStream, deflater)) {
+            deflaterStream.write(decoded);
+        } finally {
+            deflater.end();
+        }
+        return outputStream.size() < raw.length ? outputStream.toByteArray() : null;
+    }
+
+    private static void apply(COSStream stream, byte[] encoded) throws IOException {
+        try (OutputStream outputStream = stream.createRawOutputStream()) {
+            outputStream.write(encoded);
+        }
+        stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        stream.removeItem(COSName.DECODE_PARMS);
+        stream.removeItem(COSName.DL);
+    }
+
+    // XMP metadata is left readable for tools that scan files for it without parsing them.
+    private static boolean isUncompressed(COSStream stream) {
+        return stream.getFilters() == null && !COSName.METADATA.equals(stream.getCOSName(COSName.TYPE));
+    }
+
+    private static boolean isFlateEncoded(COSStream stream) {
+        COSBase filters = stream.getFilters();
+        if (filters instanceof COSArray && ((COSArray) filters).size() == 1) {
+            filters = ((COSArray) filters).getObject(0);
+        }
+        return COSName.FLATE_DECODE.equals(filters) && stream.getDictionaryObject(COSName.DECODE_PARMS) == null;
+    }
+
+    private static List<COSStream> collectStreams(PDDocument document) {
+        List<COSStream> streams = new ArrayList<>();
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(document.getDocument().getTrailer());
+        while (!pending.isEmpty()) {
+            COSBase object = pending.pop();
+            if (object instanceof COSObject) {
+                object = ((COSObject) object).getObject();
+            }
+            if (object == null || !visited.add(object)) {
+                continue;
+            }
+            if (object instanceof COSStream) {
+                streams.add((COSStream) object);
+            }
+            if (object instanceof COSDictionary) {
+                for (COSBase value : ((COSDictionary) object).getValues()) {
+                    pending.push(value);
+                }
+            } else if (object instanceof COSArray) {
+                for (COSBase value : (COSArray) object) {
+                    pending.push(value);
+                }
+            }
+        }
+        return streams;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public void setThreads(int threads) {
+        workers.setThreads(threads);
+    }
+}
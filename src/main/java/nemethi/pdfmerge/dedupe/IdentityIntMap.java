@@ -0,0 +1,82 @@
+package nemethi.pdfmerge.dedupe;
+
+// Open addressing by identity over an object and an int array, so values are not boxed as they would be in an
+// IdentityHashMap. The table starts small and doubles as entries are added; its callers bound the entries.
+class IdentityIntMap {
+
+    static final int ABSENT = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private Object[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    IdentityIntMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    int get(Object key) {
+        if (key == null) {
+            return ABSENT;
+        }
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            Object candidate = keys[slot];
+            if (candidate == null) {
+                return ABSENT;
+            }
+            if (candidate == key) {
+                return values[slot];
+            }
+        }
+    }
+
+    // The key must not be mapped yet.
+    void put(Object key, int value) {
+        if (key == null || value < 0) {
+            throw new IllegalArgumentException("key must not be null and value must not be negative");
+        }
+        // A load factor of at most 3/4 keeps probes short and leaves free slots to end every probe.
+        if ((size + 1) * 4L > keys.length * 3L) {
+            grow();
+        }
+        insert(key, value);
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void insert(Object key, int value) {
+        int slot = slot(key);
+        while (keys[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(Object key) {
+        long mixed = System.identityHashCode(key) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
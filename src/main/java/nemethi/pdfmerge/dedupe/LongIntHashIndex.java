@@ -0,0 +1,106 @@
+package nemethi.pdfmerge.dedupe;
+
+// Open addressing over two primitive arrays: twelve bytes per slot and no boxing, so a million entries take
+// about 24 MB. The table starts small and doubles with its entries, up to the capacity for maxEntries; once that
+// is full, new keys are dropped instead of growing the table further.
+class LongIntHashIndex {
+
+    static final int ABSENT = -1;
+    static final int MAX_ENTRIES = 1 << 28;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxEntries;
+    private final int maxCapacity;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashIndex(int maxEntries) {
+        if (maxEntries < 1 || maxEntries > MAX_ENTRIES) {
+            throw new IllegalArgumentException("maxEntries must be between 1 and " + MAX_ENTRIES);
+        }
+        this.maxEntries = maxEntries;
+        // A load factor of at most 3/4 keeps probes short and leaves free slots to end every probe.
+        this.maxCapacity = Integer.highestOneBit(maxEntries + maxEntries / 3) << 1;
+        allocate(Math.min(INITIAL_CAPACITY, maxCapacity));
+    }
+
+    int get(long key) {
+        for (int slot = slot(key); ; slot = (slot + 1) & mask) {
+            int value = values[slot];
+            if (value == 0) {
+                return ABSENT;
+            }
+            if (keys[slot] == key) {
+                return value - 1;
+            }
+        }
+    }
+
+    // Returns the existing value or ABSENT after storing the new one, or after dropping it when the index is full.
+    int putIfAbsent(long key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative");
+        }
+        int slot = slot(key);
+        for (; values[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot] - 1;
+            }
+        }
+        if (size < maxEntries) {
+            if ((size + 1) * 4L > keys.length * 3L && keys.length < maxCapacity) {
+                grow();
+                slot = slot(key);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+            }
+            keys[slot] = key;
+            values[slot] = value + 1;
+            size++;
+        }
+        return ABSENT;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == maxEntries;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & mask;
+    }
+}
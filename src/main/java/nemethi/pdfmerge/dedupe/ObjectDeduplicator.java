@@ -0,0 +1,368 @@
+package nemethi.pdfmerge.dedupe;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class ObjectDeduplicator {
+
+    public static final int DEFAULT_MAX_INDEX_ENTRIES = 1 << 20;
+
+    private static final int IN_PROGRESS = -1;
+    private static final int BUFFER_SIZE = 8192;
+    private static final long DICTIONARY = 0x6A09E667F3BCC908L;
+    private static final long STREAM = 0xBB67AE8584CAA73BL;
+    private static final long ARRAY = 0x3C6EF372FE94F82BL;
+    private static final long DIRECT = 0xA54FF53A5F1D36F1L;
+    private static final long REFERENCE = 0x510E527FADE682D1L;
+    private static final long NULL = 0x9B05688C2B3E6C1FL;
+
+    // Objects whose identity is meaningful: each of them has to stay a separate object even when another one looks
+    // the same, like two blank pages or two identical link annotations on different pages.
+    private static final Set<COSName> IDENTITY_TYPES = new HashSet<>(Arrays.asList(
+            COSName.CATALOG, COSName.PAGES, COSName.PAGE, COSName.ANNOT, COSName.OCG, COSName.SIG,
+            COSName.STRUCT_TREE_ROOT, COSName.getPDFName("StructElem"), COSName.OUTLINES));
+    private static final List<COSName> IDENTITY_KEYS = Arrays.asList(
+            COSName.PARENT, COSName.P, COSName.RECT, COSName.FT);
+
+    private boolean enabled;
+    private int maxIndexEntries = DEFAULT_MAX_INDEX_ENTRIES;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Returns the number of streams and indirect dictionaries that were replaced by an identical one.
+    public int deduplicate(PDDocument document) throws IOException {
+        return new Pass(maxIndexEntries).run(document.getDocument().getTrailer());
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setMaxIndexEntries(int maxIndexEntries) {
+        this.maxIndexEntries = maxIndexEntries;
+    }
+
+    // Hash-consing in post-order: every container gets the id of the first equal container seen before it, so a
+    // parent is hashed over the classes of its children and equal subtrees are found in a single walk. Members of
+    // a reference cycle are hashed by identity, which leaves cycles alone but never merges what is not equal.
+    // At most maxEntries containers are tracked, so the memory of a pass is bounded like its index; containers
+    // beyond that are compared by identity and their children are left as they are.
+    private static class Pass {
+
+        private final int maxEntries;
+        private final LongIntHashIndex index;
+        private final IdentityIntMap ids = new IdentityIntMap();
+        private final List<COSBase> objects = new ArrayList<>();
+        private int[] classes = new int[1024];
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private final byte[] otherBuffer = new byte[BUFFER_SIZE];
+
+        Pass(int maxEntries) {
+            this.maxEntries = maxEntries;
+            this.index = new LongIntHashIndex(maxEntries);
+        }
+
+        int run(COSDictionary trailer) throws IOException {
+            Deque<Frame> stack = new ArrayDeque<>();
+            stack.push(enter(trailer));
+            while (!stack.isEmpty()) {
+                Frame frame = stack.peek();
+                if (frame.children.hasNext()) {
+                    COSBase child = resolve(frame.children.next());
+                    if (isContainer(child) && objects.size() < maxEntries && ids.get(child) == IdentityIntMap.ABSENT) {
+                        stack.push(enter(child));
+                    }
+                } else {
+                    stack.pop();
+                    classify(frame.id, frame.object);
+                }
+            }
+            return replaceDuplicates();
+        }
+
+        private Frame enter(COSBase object) {
+            int id = objects.size();
+            ids.put(object, id);
+            objects.add(object);
+            if (id == classes.length) {
+                classes = Arrays.copyOf(classes, id * 2);
+            }
+            classes[id] = IN_PROGRESS;
+            return new Frame(id, object);
+        }
+
+        private void classify(int id, COSBase object) throws IOException {
+            classes[id] = id;
+            if (hasIdentity(object)) {
+                return;
+            }
+            long hash = hash(object);
+            int candidate = index.get(hash);
+            if (candidate == LongIntHashIndex.ABSENT) {
+                index.putIfAbsent(hash, id);
+            } else if (isEqual(object, objects.get(candidate))) {
+                classes[id] = candidate;
+            }
+        }
+
+        private int replaceDuplicates() {
+            int replaced = 0;
+            for (int id = 0; id < objects.size(); id++) {
+                COSBase object = objects.get(id);
+                if (classes[id] != id && isShared(object)) {
+                    replaced++;
+                }
+                if (object instanceof COSDictionary) {
+                    COSDictionary dictionary = (COSDictionary) object;
+                    for (COSName key : new ArrayList<>(dictionary.keySet())) {
+                        COSBase canonical = canonical(dictionary.getItem(key));
+                        if (canonical != null) {
+                            dictionary.setItem(key, canonical);
+                        }
+                    }
+                } else if (object instanceof COSArray) {
+                    COSArray array = (COSArray) object;
+                    for (int i = 0; i < array.size(); i++) {
+                        COSBase canonical = canonical(array.get(i));
+                        if (canonical != null) {
+                            array.set(i, canonical);
+                        }
+                    }
+                }
+            }
+            return replaced;
+        }
+
+        // Only streams and indirect dictionaries are written as objects of their own, so only they are replaced;
+        // arrays and direct dictionaries still get classes to let their parents compare equal.
+        private COSBase canonical(COSBase value) {
+            COSBase object = resolve(value);
+            int id = ids.get(object);
+            if (id == IdentityIntMap.ABSENT || classes[id] == id || !isShared(object)) {
+                return null;
+            }
+            return objects.get(classes[id]);
+        }
+
+        private long hash(COSBase object) throws IOException {
+            if (object instanceof COSArray) {
+                long hash = ARRAY;
+                for (COSBase value : (COSArray) object) {
+                    hash = mix(hash * 31 + valueHash(value));
+                }
+                return hash;
+            }
+            COSDictionary dictionary = (COSDictionary) object;
+            // Key order is not significant, so entries are summed rather than chained.
+            long hash = dictionary.isDirect() ? DIRECT : DICTIONARY;
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                hash += mix(entry.getKey().hashCode() * 0x9E3779B97F4A7C15L + valueHash(entry.getValue()));
+            }
+            if (object instanceof COSStream) {
+                hash = mix(hash ^ STREAM) + contentHash((COSStream) object);
+            }
+            return mix(hash + dictionary.size());
+        }
+
+        private long valueHash(COSBase value) {
+            COSBase object = resolve(value);
+            int id = ids.get(object);
+            if (id != IdentityIntMap.ABSENT) {
+                return mix(REFERENCE + classOf(id));
+            }
+            if (object == null || object instanceof COSNull) {
+                return NULL;
+            }
+            if (object instanceof COSString) {
+                COSString string = (COSString) object;
+                return mix(Arrays.hashCode(string.getBytes()) * 2L + (string.getForceHexForm() ? 1 : 0));
+            }
+            if (object instanceof COSInteger) {
+                return mix(((COSInteger) object).longValue());
+            }
+            if (object instanceof COSFloat) {
+                return mix(Float.floatToIntBits(((COSFloat) object).floatValue()) ^ 0xF1L << 32);
+            }
+            return mix(object.hashCode() ^ (long) object.getClass().hashCode() << 32);
+        }
+
+        private long contentHash(COSStream stream) throws IOException {
+            long hash = 0xCBF29CE484222325L;
+            long length = 0;
+            try (InputStream inputStream = stream.createRawInputStream()) {
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    for (int i = 0; i < read; i++) {
+                        hash = (hash ^ (buffer[i] & 0xFF)) * 0x100000001B3L;
+                    }
+                    length += read;
+                }
+            }
+            return mix(hash ^ length);
+        }
+
+        // Hashes only point at a candidate; merging requires the objects to be equal.
+        private boolean isEqual(COSBase object, COSBase other) throws IOException {
+            if (object.getClass() != other.getClass()) {
+                return false;
+            }
+            if (object instanceof COSArray) {
+                COSArray array = (COSArray) object;
+                COSArray otherArray = (COSArray) other;
+                if (array.size() != otherArray.size()) {
+                    return false;
+                }
+                for (int i = 0; i < array.size(); i++) {
+                    if (!isEqualValue(array.get(i), otherArray.get(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            COSDictionary dictionary = (COSDictionary) object;
+            COSDictionary otherDictionary = (COSDictionary) other;
+            if (dictionary.isDirect() != otherDictionary.isDirect() || dictionary.size() != otherDictionary.size()) {
+                return false;
+            }
+            for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+                if (!otherDictionary.containsKey(entry.getKey())
+                        || !isEqualValue(entry.getValue(), otherDictionary.getItem(entry.getKey()))) {
+                    return false;
+                }
+            }
+            return !(object instanceof COSStream) || isEqualContent((COSStream) object, (COSStream) other);
+        }
+
+        private boolean isEqualValue(COSBase value, COSBase otherValue) {
+            COSBase object = resolve(value);
+            COSBase other = resolve(otherValue);
+            int id = ids.get(object);
+            int otherId = ids.get(other);
+            if (id != IdentityIntMap.ABSENT || otherId != IdentityIntMap.ABSENT) {
+                return id != IdentityIntMap.ABSENT && otherId != IdentityIntMap.ABSENT
+                        && classOf(id) == classOf(otherId);
+            }
+            if (object == null || object instanceof COSNull) {
+                return other == null || other instanceof COSNull;
+            }
+            if (object instanceof COSString && other instanceof COSString) {
+                COSString string = (COSString) object;
+                COSString otherString = (COSString) other;
+                return string.getForceHexForm() == otherString.getForceHexForm()
+                        && Arrays.equals(string.getBytes(), otherString.getBytes());
+            }
+            if (object instanceof COSInteger || object instanceof COSFloat || object instanceof COSName
+                    || object instanceof COSBoolean) {
+                return object.equals(other);
+            }
+            return object == other;
+        }
+
+        private boolean isEqualContent(COSStream stream, COSStream other) throws IOException {
+            try (InputStream inputStream = stream.createRawInputStream();
+                 InputStream otherInputStream = other.createRawInputStream()) {
+                while (true) {
+                    int read = readFully(inputStream, buffer);
+                    if (read != readFully(otherInputStream, otherBuffer)) {
+                        return false;
+                    }
+                    for (int i = 0; i < read; i++) {
+                        if (buffer[i] != otherBuffer[i]) {
+                            return false;
+                        }
+                    }
+                    if (read < BUFFER_SIZE) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        // The class of a container still on the stack is its own id until all of its children are done.
+        private int classOf(int id) {
+            return classes[id] == IN_PROGRESS ? id : classes[id];
+        }
+
+        private static boolean isShared(COSBase object) {
+            return object instanceof COSStream || (object instanceof COSDictionary && !object.isDirect());
+        }
+
+        private static boolean hasIdentity(COSBase object) {
+            if (object instanceof COSStream || !(object instanceof COSDictionary)) {
+                return false;
+            }
+            COSDictionary dictionary = (COSDictionary) object;
+            if (IDENTITY_TYPES.contains(dictionary.getCOSName(COSName.TYPE))) {
+                return true;
+            }
+            for (COSName key : IDENTITY_KEYS) {
+                if (dictionary.containsKey(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int readFully(InputStream inputStream, byte[] bytes) throws IOException {
+            int total = 0;
+            int read;
+            while (total < bytes.length && (read = inputStream.read(bytes, total, bytes.length - total)) != -1) {
+                total += read;
+            }
+            return total;
+        }
+
+        private static COSBase resolve(COSBase value) {
+            return value instanceof COSObject ? ((COSObject) value).getObject() : value;
+        }
+
+        private static boolean isContainer(COSBase object) {
+            return object instanceof COSDictionary || object instanceof COSArray;
+        }
+
+        private static long mix(long value) {
+            long mixed = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+            mixed = (mixed ^ (mixed >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return mixed ^ (mixed >>> 33);
+        }
+    }
+
+    private static class Frame {
+
+        private final int id;
+        private final COSBase object;
+        private final Iterator<COSBase> children;
+
+        Frame(int id, COSBase object) {
+            this.id = id;
+            this.object = object;
+            this.children = object instanceof COSArray
+                    ? ((COSArray) object).iterator()
+                    : ((COSDictionary) object).getValues().iterator();
+        }
+    }
+}
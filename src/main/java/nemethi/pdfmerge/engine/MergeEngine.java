@@ -0,0 +1,15 @@
+package nemethi.pdfmerge.engine;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+public interface MergeEngine {
+
+    void mergeDocuments(List<InputStream> inputStreams, OutputStream outputStream) throws IOException;
+
+    void appendDocument(PDDocument destination, PDDocument source) throws IOException;
+}
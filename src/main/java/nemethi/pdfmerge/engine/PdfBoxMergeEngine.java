@@ -0,0 +1,39 @@
+package nemethi.pdfmerge.engine;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class PdfBoxMergeEngine implements MergeEngine {
+
+    private final Supplier<PDFMergerUtility> mergerUtilityFactory;
+
+    public PdfBoxMergeEngine() {
+        // A lambda rather than a constructor reference: linking the latter loads PDFBox before any merge runs.
+        this(() -> new PDFMergerUtility());
+    }
+
+    // PDFMergerUtility accumulates sources and keeps a field name counter, so every call gets its own instance.
+    public PdfBoxMergeEngine(Supplier<PDFMergerUtility> mergerUtilityFactory) {
+        this.mergerUtilityFactory = mergerUtilityFactory;
+    }
+
+    @Override
+    public void mergeDocuments(List<InputStream> inputStreams, OutputStream outputStream) throws IOException {
+        PDFMergerUtility mergerUtility = mergerUtilityFactory.get();
+        mergerUtility.addSources(inputStreams);
+        mergerUtility.setDestinationStream(outputStream);
+        mergerUtility.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
+    }
+
+    @Override
+    public void appendDocument(PDDocument destination, PDDocument source) throws IOException {
+        mergerUtilityFactory.get().appendDocument(destination, source);
+    }
+}
@@ -0,0 +1,88 @@
+package nemethi.pdfmerge.engine;
+
+import nemethi.pdfmerge.util.DocumentLoader;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageTree;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports the pages of the source documents without cloning their object graphs.
+ * The page dictionaries are moved into the destination page tree and everything they
+ * reference is shared with the source, so the objects are only renumbered and their
+ * stream bytes are copied as-is when the destination is saved. The sources therefore
+ * must stay open until then. Document-level structures (outlines, forms, tags, etc.)
+ * are not merged.
+ */
+public class RawCopyMergeEngine implements MergeEngine {
+
+    private static final COSName[] INHERITABLE_ATTRIBUTES = {
+            COSName.RESOURCES, COSName.MEDIA_BOX, COSName.CROP_BOX, COSName.ROTATE
+    };
+
+    private DocumentLoader documentLoader;
+
+    public RawCopyMergeEngine() {
+        documentLoader = new DocumentLoader();
+    }
+
+    @Override
+    public void mergeDocuments(List<InputStream> inputStreams, OutputStream outputStream) throws IOException {
+        MemoryUsageSetting memoryUsageSetting = MemoryUsageSetting.setupMainMemoryOnly();
+        List<PDDocument> sources = new ArrayList<>();
+        try (PDDocument destination = new PDDocument(memoryUsageSetting)) {
+            for (InputStream inputStream : inputStreams) {
+                PDDocument source = documentLoader.load(inputStream, memoryUsageSetting);
+                sources.add(source);
+                appendDocument(destination, source);
+            }
+            destination.save(outputStream);
+        } finally {
+            sources.forEach(IOUtils::closeQuietly);
+            inputStreams.forEach(IOUtils::closeQuietly);
+        }
+    }
+
+    @Override
+    public void appendDocument(PDDocument destination, PDDocument source) throws IOException {
+        if (source.getDocument().isClosed()) {
+            throw new IOException("The source document is closed.");
+        }
+        if (destination.getDocument().isClosed()) {
+            throw new IOException("The destination document is closed.");
+        }
+        if (destination.getVersion() < source.getVersion()) {
+            destination.setVersion(source.getVersion());
+        }
+        List<PDPage> pages = new ArrayList<>();
+        source.getPages().forEach(pages::add);
+        for (PDPage page : pages) {
+            COSDictionary pageDictionary = page.getCOSObject();
+            for (COSName attribute : INHERITABLE_ATTRIBUTES) {
+                if (!pageDictionary.containsKey(attribute)) {
+                    COSBase value = PDPageTree.getInheritableAttribute(pageDictionary, attribute);
+                    if (value != null) {
+                        pageDictionary.setItem(attribute, value);
+                    }
+                }
+            }
+        }
+        for (PDPage page : pages) {
+            destination.addPage(page);
+        }
+    }
+
+    public void setDocumentLoader(DocumentLoader documentLoader) {
+        this.documentLoader = documentLoader;
+    }
+}
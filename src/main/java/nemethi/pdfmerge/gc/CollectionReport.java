@@ -0,0 +1,26 @@
+package nemethi.pdfmerge.gc;
+
+public final class CollectionReport {
+
+    public static final CollectionReport EMPTY = new CollectionReport(0, 0);
+
+    private final long objects;
+    private final long bytes;
+
+    public CollectionReport(long objects, long bytes) {
+        this.objects = objects;
+        this.bytes = bytes;
+    }
+
+    public CollectionReport plus(CollectionReport other) {
+        return new CollectionReport(objects + other.objects, bytes + other.bytes);
+    }
+
+    public long getObjects() {
+        return objects;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
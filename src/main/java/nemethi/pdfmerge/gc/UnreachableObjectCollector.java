@@ -0,0 +1,138 @@
+package nemethi.pdfmerge.gc;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSObjectKey;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds the objects of a loaded input that its trailer no longer reaches: orphans left behind by the tools that
+ * edited the input, and whatever the merge has cut off, like the structures of a lean merge or the pages outside
+ * of a volume. The writers only serialize what they reach from the trailer, so none of these end up in the output;
+ * the collector releases the parsed ones early and measures how much the input carried.
+ */
+public class UnreachableObjectCollector {
+
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Must run before the document is appended, while its trailer still leads to all of its pages.
+    public CollectionReport collect(PDDocument document) {
+        COSDocument cosDocument = document.getDocument();
+        Set<COSBase> reachable = reach(cosDocument.getTrailer());
+        Map<COSObjectKey, Long> xrefTable = cosDocument.getXrefTable();
+        Map<COSObjectKey, COSObject> pool = new HashMap<>();
+        for (COSObject object : cosDocument.getObjects()) {
+            pool.put(new COSObjectKey(object), object);
+        }
+        Set<Long> objectStreams = new HashSet<>();
+        for (Long offset : xrefTable.values()) {
+            if (offset < 0) {
+                objectStreams.add(-offset);
+            }
+        }
+        Map<COSObjectKey, Long> sizes = storedSizes(xrefTable, cosDocument.getStartXref());
+
+        long objects = 0;
+        long bytes = 0;
+        for (Map.Entry<COSObjectKey, Long> entry : xrefTable.entrySet()) {
+            COSObjectKey key = entry.getKey();
+            COSObject object = pool.get(key);
+            // Object streams and the cross-reference stream are containers that nothing refers to by design.
+            if ((object != null && reachable.contains(object.getObject()))
+                    || objectStreams.contains(key.getNumber()) || entry.getValue() == cosDocument.getStartXref()) {
+                continue;
+            }
+            objects++;
+            bytes += sizes.getOrDefault(key, 0L);
+            if (object != null) {
+                release(cosDocument, key, object);
+            }
+        }
+        return new CollectionReport(objects, bytes);
+    }
+
+    private static void release(COSDocument cosDocument, COSObjectKey key, COSObject object) {
+        cosDocument.removeObject(key);
+        if (object.getObject() instanceof COSStream) {
+            IOUtils.closeQuietly((COSStream) object.getObject());
+        }
+    }
+
+    private static Set<COSBase> reach(COSDictionary trailer) {
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(trailer);
+        while (!pending.isEmpty()) {
+            COSBase object = pending.pop();
+            if (object instanceof COSObject) {
+                object = ((COSObject) object).getObject();
+            }
+            if (object == null || !visited.add(object)) {
+                continue;
+            }
+            if (object instanceof COSDictionary) {
+                for (COSBase value : ((COSDictionary) object).getValues()) {
+                    pending.push(value);
+                }
+            } else if (object instanceof COSArray) {
+                for (COSBase value : (COSArray) object) {
+                    pending.push(value);
+                }
+            }
+        }
+        return visited;
+    }
+
+    // The input itself is gone by now, so an object is assumed to run up to the next object in the file, and the
+    // last one up to the cross-reference section. Compressed objects share the size of their object stream.
+    private static Map<COSObjectKey, Long> storedSizes(Map<COSObjectKey, Long> xrefTable, long startXref) {
+        Map<COSObjectKey, Long> sizes = new HashMap<>();
+        long[] offsets = xrefTable.values().stream().mapToLong(Long::longValue).filter(offset -> offset > 0)
+                .sorted().toArray();
+        Map<Long, Long> compressedCounts = new HashMap<>();
+        for (Map.Entry<COSObjectKey, Long> entry : xrefTable.entrySet()) {
+            long offset = entry.getValue();
+            if (offset < 0) {
+                compressedCounts.merge(-offset, 1L, Long::sum);
+            } else if (offset > 0) {
+                int next = Arrays.binarySearch(offsets, offset) + 1;
+                while (next < offsets.length && offsets[next] == offset) {
+                    next++;
+                }
+                long end = next < offsets.length ? offsets[next] : startXref;
+                sizes.put(entry.getKey(), Math.max(0, end - offset));
+            }
+        }
+        for (Map.Entry<COSObjectKey, Long> entry : xrefTable.entrySet()) {
+            long offset = entry.getValue();
+            if (offset < 0) {
+                long streamSize = sizes.getOrDefault(new COSObjectKey(-offset, 0), 0L);
+                sizes.put(entry.getKey(), streamSize / compressedCounts.get(-offset));
+            }
+        }
+        return sizes;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+}
@@ -0,0 +1,41 @@
+package nemethi.pdfmerge.image;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+class EncodedImage {
+
+    private final byte[] data;
+    private final COSName filter;
+    private final int width;
+    private final int height;
+    private final boolean gray;
+
+    EncodedImage(byte[] data, COSName filter, int width, int height, boolean gray) {
+        this.data = data;
+        this.filter = filter;
+        this.width = width;
+        this.height = height;
+        this.gray = gray;
+    }
+
+    void applyTo(COSStream stream) throws IOException {
+        try (OutputStream outputStream = stream.createRawOutputStream()) {
+            outputStream.write(data);
+        }
+        stream.setItem(COSName.FILTER, filter);
+        stream.removeItem(COSName.DECODE_PARMS);
+        stream.removeItem(COSName.DECODE);
+        stream.setInt(COSName.WIDTH, width);
+        stream.setInt(COSName.HEIGHT, height);
+        stream.setInt(COSName.BITS_PER_COMPONENT, 8);
+        stream.setItem(COSName.COLORSPACE, gray ? COSName.DEVICEGRAY : COSName.DEVICERGB);
+    }
+
+    int getSize() {
+        return data.length;
+    }
+}
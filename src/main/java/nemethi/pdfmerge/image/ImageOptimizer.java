@@ -0,0 +1,194 @@
+package nemethi.pdfmerge.image;
+
+import nemethi.pdfmerge.util.WorkerPool;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+
+public class ImageOptimizer {
+
+    private static final int DEFAULT_JPEG_QUALITY = 75;
+    private static final float MAX_JPEG_QUALITY = 100;
+    private static final String JPEG_SUFFIX = "jpg";
+    private static final String LOSSLESS_SUFFIX = "png";
+
+    private final WorkerPool workers = new WorkerPool("pdfmerge-image", "Image optimization",
+            Runtime.getRuntime().availableProcessors());
+    private int maxDpi;
+    private int jpegQuality;
+
+    public boolean isEnabled() {
+        return maxDpi > 0 || jpegQuality > 0;
+    }
+
+    public void optimize(PDDocument document) throws IOException {
+        List<ImageUsage> candidates = new ArrayList<>();
+        for (ImageUsage usage : new ImageUsageCollector().collect(document)) {
+            if (isCandidate(usage)) {
+                candidates.add(usage);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+        workers.map(candidates, usage -> encode(document, usage), (usage, encodedImage) -> {
+            if (encodedImage != null) {
+                synchronized (document) {
+                    encodedImage.applyTo(usage.getImage().getCOSObject());
+                }
+            }
+        });
+    }
+
+    private boolean isCandidate(ImageUsage usage) {
+        PDImageXObject image = usage.getImage();
+        String suffix = image.getSuffix();
+        if (image.isStencil() || image.getBitsPerComponent() == 1 || image.getColorKeyMask() != null
+                || !(JPEG_SUFFIX.equals(suffix) || LOSSLESS_SUFFIX.equals(suffix))) {
+            return false;
+        }
+        return needsDownsampling(usage) || (jpegQuality > 0 && LOSSLESS_SUFFIX.equals(suffix));
+    }
+
+    private boolean needsDownsampling(ImageUsage usage) {
+        return maxDpi > 0 && usage.isPlaced() && usage.getLowestDpi() > maxDpi;
+    }
+
+    // Decoding reads through the document, which is not thread-safe; only scaling and encoding run in parallel.
+    private EncodedImage encode(PDDocument document, ImageUsage usage) {
+        // An image that cannot be decoded is kept as it is; anything else is a bug and fails the merge.
+        try {
+            BufferedImage image;
+            long originalSize;
+            synchronized (document) {
+                image = usage.getImage().getOpaqueImage();
+                originalSize = usage.getImage().getCOSObject().getLength();
+            }
+            boolean gray = image.getColorModel().getNumComponents() == 1;
+            image = normalize(image, gray);
+            boolean downsampled = needsDownsampling(usage);
+            if (downsampled) {
+                float factor = maxDpi / usage.getLowestDpi();
+                image = scale(image, Math.max(1, Math.round(image.getWidth() * factor)),
+                        Math.max(1, Math.round(image.getHeight() * factor)), gray);
+            }
+            EncodedImage encodedImage;
+            if (jpegQuality > 0 || JPEG_SUFFIX.equals(usage.getImage().getSuffix())) {
+                int quality = jpegQuality > 0 ? jpegQuality : DEFAULT_JPEG_QUALITY;
+                encodedImage = new EncodedImage(encodeJpeg(image, quality), COSName.DCT_DECODE,
+                        image.getWidth(), image.getHeight(), gray);
+            } else {
+                encodedImage = new EncodedImage(encodeFlate(image, gray), COSName.FLATE_DECODE,
+                        image.getWidth(), image.getHeight(), gray);
+            }
+            if (!downsampled && encodedImage.getSize() >= originalSize) {
+                return null;
+            }
+            return encodedImage;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static BufferedImage normalize(BufferedImage image, boolean gray) {
+        int type = gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB;
+        if (image.getType() == type) {
+            return image;
+        }
+        BufferedImage normalized = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D graphics = normalized.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return normalized;
+    }
+
+    // Halving in steps avoids the aliasing a single bilinear pass produces on large reductions.
+    private static BufferedImage scale(BufferedImage image, int width, int height, boolean gray) {
+        BufferedImage scaled = image;
+        int currentWidth = image.getWidth();
+        int currentHeight = image.getHeight();
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+            BufferedImage step = new BufferedImage(currentWidth, currentHeight,
+                    gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(scaled, 0, 0, currentWidth, currentHeight, null);
+            graphics.dispose();
+            scaled = step;
+        } while (currentWidth != width || currentHeight != height);
+        return scaled;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, int quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality / MAX_JPEG_QUALITY);
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] encodeFlate(BufferedImage image, boolean gray) throws IOException {
+        int components = gray ? 1 : 3;
+        byte[] row = new byte[image.getWidth() * components];
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(outputStream)) {
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    if (gray) {
+                        row[x] = (byte) image.getRaster().getSample(x, y, 0);
+                    } else {
+                        int rgb = image.getRGB(x, y);
+                        row[x * components] = (byte) (rgb >> 16);
+                        row[x * components + 1] = (byte) (rgb >> 8);
+                        row[x * components + 2] = (byte) rgb;
+                    }
+                }
+                deflater.write(row);
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    public int getMaxDpi() {
+        return maxDpi;
+    }
+
+    public int getJpegQuality() {
+        return jpegQuality;
+    }
+
+    public void setMaxDpi(int maxDpi) {
+        this.maxDpi = maxDpi;
+    }
+
+    public void setJpegQuality(int jpegQuality) {
+        this.jpegQuality = jpegQuality;
+    }
+
+    public void setThreads(int threads) {
+        workers.setThreads(threads);
+    }
+}
@@ -0,0 +1,36 @@
+package nemethi.pdfmerge.image;
+
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+class ImageUsage {
+
+    private static final float POINTS_PER_INCH = 72;
+
+    private final PDImageXObject image;
+    private float lowestDpi = Float.MAX_VALUE;
+
+    ImageUsage(PDImageXObject image) {
+        this.image = image;
+    }
+
+    void recordPlacement(float displayedWidth, float displayedHeight) {
+        if (displayedWidth <= 0 || displayedHeight <= 0) {
+            return;
+        }
+        float horizontalDpi = image.getWidth() * POINTS_PER_INCH / displayedWidth;
+        float verticalDpi = image.getHeight() * POINTS_PER_INCH / displayedHeight;
+        lowestDpi = Math.min(lowestDpi, Math.min(horizontalDpi, verticalDpi));
+    }
+
+    boolean isPlaced() {
+        return lowestDpi != Float.MAX_VALUE;
+    }
+
+    PDImageXObject getImage() {
+        return image;
+    }
+
+    float getLowestDpi() {
+        return lowestDpi;
+    }
+}
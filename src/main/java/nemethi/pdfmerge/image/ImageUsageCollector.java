@@ -0,0 +1,84 @@
+package nemethi.pdfmerge.image;
+
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.DrawObject;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetGraphicsStateParameters;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+class ImageUsageCollector extends PDFStreamEngine {
+
+    private final Map<COSBase, ImageUsage> usages = new IdentityHashMap<>();
+    private final List<ImageUsage> orderedUsages = new ArrayList<>();
+
+    ImageUsageCollector() {
+        addOperator(new Concatenate());
+        addOperator(new DrawObject());
+        addOperator(new SetGraphicsStateParameters());
+        addOperator(new Save());
+        addOperator(new Restore());
+    }
+
+    List<ImageUsage> collect(PDDocument document) throws IOException {
+        for (PDPage page : document.getPages()) {
+            processPage(page);
+            collectUnplacedImages(page.getResources());
+        }
+        return orderedUsages;
+    }
+
+    @Override
+    protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+        if (OperatorName.DRAW_OBJECT.equals(operator.getName()) && !operands.isEmpty()
+                && operands.get(0) instanceof COSName && getResources().isImageXObject((COSName) operands.get(0))) {
+            PDXObject xObject = getResources().getXObject((COSName) operands.get(0));
+            if (xObject instanceof PDImageXObject) {
+                Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+                usageOf((PDImageXObject) xObject).recordPlacement(ctm.getScalingFactorX(), ctm.getScalingFactorY());
+            }
+        } else {
+            super.processOperator(operator, operands);
+        }
+    }
+
+    private void collectUnplacedImages(PDResources resources) throws IOException {
+        if (resources == null) {
+            return;
+        }
+        for (COSName name : resources.getXObjectNames()) {
+            if (resources.isImageXObject(name)) {
+                PDXObject xObject = resources.getXObject(name);
+                if (xObject instanceof PDImageXObject) {
+                    usageOf((PDImageXObject) xObject);
+                }
+            }
+        }
+    }
+
+    private ImageUsage usageOf(PDImageXObject image) {
+        ImageUsage usage = usages.get(image.getCOSObject());
+        if (usage == null) {
+            usage = new ImageUsage(image);
+            usages.put(image.getCOSObject(), usage);
+            orderedUsages.add(usage);
+        }
+        return usage;
+    }
+}
@@ -0,0 +1,37 @@
+package nemethi.pdfmerge.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.LongAdder;
+
+// LongAdder only allocates a cell per contended CPU, never per increment.
+public class Counter extends Metric {
+
+    private final LongAdder value = new LongAdder();
+
+    Counter(String name, String help, String labelName, String labelValue) {
+        super(name, help, labelName, labelValue);
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    @Override
+    String getType() {
+        return "counter";
+    }
+
+    @Override
+    void writeSamples(Writer writer) throws IOException {
+        writeSample(writer, "", null, Long.toString(get()));
+    }
+}
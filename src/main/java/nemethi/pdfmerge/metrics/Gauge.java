@@ -0,0 +1,43 @@
+package nemethi.pdfmerge.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class Gauge extends Metric {
+
+    private final AtomicLong value = new AtomicLong();
+    private final LongSupplier supplier;
+
+    Gauge(String name, String help, LongSupplier supplier) {
+        super(name, help, null, null);
+        this.supplier = supplier == null ? value::get : supplier;
+    }
+
+    public void increment() {
+        value.incrementAndGet();
+    }
+
+    public void decrement() {
+        value.decrementAndGet();
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public long get() {
+        return supplier.getAsLong();
+    }
+
+    @Override
+    String getType() {
+        return "gauge";
+    }
+
+    @Override
+    void writeSamples(Writer writer) throws IOException {
+        writeSample(writer, "", null, Long.toString(get()));
+    }
+}
@@ -0,0 +1,63 @@
+package nemethi.pdfmerge.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Durations are recorded in nanoseconds and only converted to seconds when they are written out.
+public class Histogram extends Metric {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double[] bounds;
+    private final long[] boundsNanos;
+    private final AtomicLongArray counts;
+    private final LongAdder sumNanos = new LongAdder();
+
+    Histogram(String name, String help, String labelName, String labelValue, double[] bounds) {
+        super(name, help, labelName, labelValue);
+        this.bounds = bounds.clone();
+        this.boundsNanos = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            boundsNanos[i] = (long) (bounds[i] * NANOS_PER_SECOND);
+        }
+        this.counts = new AtomicLongArray(bounds.length + 1);
+    }
+
+    public void observeNanos(long nanos) {
+        int bucket = 0;
+        while (bucket < boundsNanos.length && nanos > boundsNanos[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        sumNanos.add(nanos);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    @Override
+    String getType() {
+        return "histogram";
+    }
+
+    @Override
+    void writeSamples(Writer writer) throws IOException {
+        long cumulative = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulative += counts.get(i);
+            writeSample(writer, "_bucket", "le=\"" + bounds[i] + "\"", Long.toString(cumulative));
+        }
+        cumulative += counts.get(bounds.length);
+        writeSample(writer, "_bucket", "le=\"+Inf\"", Long.toString(cumulative));
+        writeSample(writer, "_sum", null, Double.toString(sumNanos.sum() / NANOS_PER_SECOND));
+        writeSample(writer, "_count", null, Long.toString(cumulative));
+    }
+}
@@ -0,0 +1,118 @@
+package nemethi.pdfmerge.metrics;
+
+import nemethi.pdfmerge.FailureType;
+import nemethi.pdfmerge.scratch.ScratchDirectory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The metrics of the merge pipeline. One instance can be shared by any number of concurrent merges; every method
+ * is lock-free and allocation-free.
+ */
+public class MergeMetrics {
+
+    private static final double[] MERGE_SECONDS = {0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+    private static final double[] PHASE_SECONDS = {0.001, 0.005, 0.01, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 60};
+    // The prefix of the scratch files PDFBox creates when a document does not fit into memory.
+    private static final String SCRATCH_FILE_PREFIX = "PDFBox";
+
+    private final MetricsRegistry registry;
+    private final Counter merges;
+    private final Counter pages;
+    private final Counter inputBytes;
+    private final Counter outputBytes;
+    private final Map<FailureType, Counter> failures = new EnumMap<>(FailureType.class);
+    private final Histogram mergeDuration;
+    private final Map<MergePhase, Histogram> phaseDurations = new EnumMap<>(MergePhase.class);
+    private final Gauge activeMerges;
+    private final Gauge queuedMerges;
+
+    public MergeMetrics() {
+        this(new MetricsRegistry(), ScratchDirectory::current);
+    }
+
+    public MergeMetrics(MetricsRegistry registry, Path scratchDirectory) {
+        this(registry, scratchDirectory::toFile);
+    }
+
+    private MergeMetrics(MetricsRegistry registry, Supplier<File> scratchDirectory) {
+        this.registry = registry;
+        merges = registry.counter("pdfmerge_merges_total", "Merges that completed successfully.");
+        pages = registry.counter("pdfmerge_pages_total", "Pages written to outputs.");
+        inputBytes = registry.counter("pdfmerge_input_bytes_total", "Bytes of the input files of started merges.");
+        outputBytes = registry.counter("pdfmerge_output_bytes_total", "Bytes written to outputs.");
+        for (FailureType type : FailureType.values()) {
+            failures.put(type, registry.counter("pdfmerge_merge_failures_total", "Merges that failed, by cause.",
+                    "type", type.getLabel()));
+        }
+        mergeDuration = registry.histogram("pdfmerge_merge_duration_seconds", "Duration of whole merges.",
+                MERGE_SECONDS);
+        for (MergePhase phase : MergePhase.values()) {
+            phaseDurations.put(phase, registry.histogram("pdfmerge_phase_duration_seconds",
+                    "Duration of the phases of merges.", "phase", phase.getLabel(), PHASE_SECONDS));
+        }
+        activeMerges = registry.gauge("pdfmerge_active_merges", "Merges currently running.");
+        queuedMerges = registry.gauge("pdfmerge_queued_merges", "Asynchronous merges waiting for a thread.");
+        registry.gauge("pdfmerge_scratch_bytes", "Bytes of scratch files on disk.",
+                () -> scratchBytes(scratchDirectory.get()));
+    }
+
+    public void mergeQueued() {
+        queuedMerges.increment();
+    }
+
+    public void mergeDequeued() {
+        queuedMerges.decrement();
+    }
+
+    public void mergeStarted(long inputSize) {
+        activeMerges.increment();
+        inputBytes.add(inputSize);
+    }
+
+    public void mergeSucceeded(long nanos) {
+        activeMerges.decrement();
+        merges.increment();
+        mergeDuration.observeNanos(nanos);
+    }
+
+    public void mergeFailed(Throwable failure, long nanos) {
+        activeMerges.decrement();
+        failures.get(FailureType.of(failure)).increment();
+        mergeDuration.observeNanos(nanos);
+    }
+
+    public void phaseFinished(MergePhase phase, long nanos) {
+        phaseDurations.get(phase).observeNanos(nanos);
+    }
+
+    public void pagesWritten(int count) {
+        pages.add(count);
+    }
+
+    public Counter getOutputBytes() {
+        return outputBytes;
+    }
+
+    public MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    private static long scratchBytes(File directory) {
+        if (directory == null) {
+            return 0;
+        }
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SCRATCH_FILE_PREFIX));
+        long bytes = 0;
+        if (files != null) {
+            for (File file : files) {
+                bytes += file.length();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,21 @@
+package nemethi.pdfmerge.metrics;
+
+public enum MergePhase {
+
+    LOAD("load"),
+    PREPARE("prepare"),
+    APPEND("append"),
+    DEDUPE("dedupe"),
+    COMPRESS("compress"),
+    SAVE("save");
+
+    private final String label;
+
+    MergePhase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,27 @@
+package nemethi.pdfmerge.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class MeteredOutputStream extends FilterOutputStream {
+
+    private final Counter bytes;
+
+    public MeteredOutputStream(OutputStream out, Counter bytes) {
+        super(out);
+        this.bytes = bytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        bytes.increment();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        bytes.add(len);
+    }
+}
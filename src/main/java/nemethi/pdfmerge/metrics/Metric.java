@@ -0,0 +1,50 @@
+package nemethi.pdfmerge.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+
+abstract class Metric {
+
+    private final String name;
+    private final String help;
+    private final String labels;
+
+    Metric(String name, String help, String labelName, String labelValue) {
+        this.name = name;
+        this.help = help;
+        this.labels = labelName == null ? "" : labelName + "=\"" + escape(labelValue) + "\"";
+    }
+
+    abstract String getType();
+
+    abstract void writeSamples(Writer writer) throws IOException;
+
+    String getName() {
+        return name;
+    }
+
+    String getHelp() {
+        return help;
+    }
+
+    void writeSample(Writer writer, String suffix, String extraLabel, String value) throws IOException {
+        writer.write(name);
+        writer.write(suffix);
+        if (!labels.isEmpty() || extraLabel != null) {
+            writer.write('{');
+            writer.write(labels);
+            if (extraLabel != null) {
+                writer.write(labels.isEmpty() ? "" : ",");
+                writer.write(extraLabel);
+            }
+            writer.write('}');
+        }
+        writer.write(' ');
+        writer.write(value);
+        writer.write('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
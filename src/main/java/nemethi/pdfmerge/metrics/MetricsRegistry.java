@@ -0,0 +1,102 @@
+package nemethi.pdfmerge.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Holds metrics and writes them in the Prometheus text exposition format. Registering takes a lock, but the
+ * registered metrics are updated without locking or allocating, so they can be recorded on the merge path.
+ */
+public class MetricsRegistry {
+
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Map<String, List<Metric>> families = new LinkedHashMap<>();
+
+    public Counter counter(String name, String help) {
+        return register(new Counter(name, help, null, null));
+    }
+
+    public Counter counter(String name, String help, String labelName, String labelValue) {
+        return register(new Counter(name, help, labelName, labelValue));
+    }
+
+    public Gauge gauge(String name, String help) {
+        return register(new Gauge(name, help, null));
+    }
+
+    // The supplier is only asked when the metrics are written, so it may do some work, like listing a directory.
+    public Gauge gauge(String name, String help, LongSupplier supplier) {
+        return register(new Gauge(name, help, supplier));
+    }
+
+    public Histogram histogram(String name, String help, double... bounds) {
+        return register(new Histogram(name, help, null, null, bounds));
+    }
+
+    public Histogram histogram(String name, String help, String labelName, String labelValue, double... bounds) {
+        return register(new Histogram(name, help, labelName, labelValue, bounds));
+    }
+
+    public void writeTo(Writer writer) throws IOException {
+        List<List<Metric>> snapshot;
+        synchronized (families) {
+            snapshot = new ArrayList<>();
+            for (List<Metric> family : families.values()) {
+                snapshot.add(new ArrayList<>(family));
+            }
+        }
+        for (List<Metric> family : snapshot) {
+            Metric first = family.get(0);
+            writer.write("# HELP " + first.getName() + " " + first.getHelp() + "\n");
+            writer.write("# TYPE " + first.getName() + " " + first.getType() + "\n");
+            for (Metric metric : family) {
+                metric.writeSamples(writer);
+            }
+        }
+        writer.flush();
+    }
+
+    // Replaces the file in one move, so collectors reading it never see a partly written exposition.
+    public void writeTo(Path path) throws IOException {
+        Path absolutePath = path.toAbsolutePath();
+        Path partPath = absolutePath.resolveSibling("." + absolutePath.getFileName() + ".part");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(partPath, UTF_8)) {
+                writeTo(writer);
+            }
+            try {
+                Files.move(partPath, absolutePath, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(partPath, absolutePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(partPath);
+        }
+    }
+
+    private <T extends Metric> T register(T metric) {
+        synchronized (families) {
+            List<Metric> family = families.computeIfAbsent(metric.getName(), name -> new ArrayList<>());
+            if (!family.isEmpty() && !family.get(0).getType().equals(metric.getType())) {
+                throw new IllegalArgumentException(metric.getName() + " is already registered as a "
+                        + family.get(0).getType() + ".");
+            }
+            family.add(metric);
+        }
+        return metric;
+    }
+}
@@ -0,0 +1,55 @@
+package nemethi.pdfmerge.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// Serves the metrics on the loopback interface only; anything remote is expected to scrape through a proxy.
+public class MetricsServer implements Closeable {
+
+    public static final String PATH = "/metrics";
+
+    private final HttpServer server;
+
+    public MetricsServer(MetricsRegistry registry, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(PATH, exchange -> respond(exchange, registry));
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static void respond(HttpExchange exchange, MetricsRegistry registry) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            registry.writeTo(new OutputStreamWriter(body, UTF_8));
+            exchange.getResponseHeaders().set("Content-Type", MetricsRegistry.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.size());
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                body.writeTo(outputStream);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
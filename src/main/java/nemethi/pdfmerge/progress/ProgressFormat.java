@@ -0,0 +1,9 @@
+package nemethi.pdfmerge.progress;
+
+public enum ProgressFormat {
+
+    // One line, rewritten in place.
+    TEXT,
+    // One JSON object per line, for programs that follow the merge.
+    JSON
+}
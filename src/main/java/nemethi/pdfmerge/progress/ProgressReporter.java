@@ -0,0 +1,146 @@
+package nemethi.pdfmerge.progress;
+
+import nemethi.pdfmerge.streaming.MergeListener;
+
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Reports the progress of a merge at a fixed interval. The merge only updates two counters once per input; a
+ * background thread samples them, so the cost of reporting does not grow with the number of pages.
+ */
+public class ProgressReporter implements MergeListener, Closeable {
+
+    public static final long INTERVAL_MILLIS = 1000;
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MEGABYTE = 1 << 20;
+
+    private final long[] bytesBefore;
+    private final ProgressFormat format;
+    private final PrintWriter out;
+    private final LongSupplier clock;
+    private final long start;
+    // Inputs are merged in order, so progress is the number of inputs up to the last merged one.
+    private final AtomicInteger inputsDone = new AtomicInteger();
+    private final AtomicInteger firstInput = new AtomicInteger(-1);
+    private final AtomicLong pages = new AtomicLong();
+    private ScheduledExecutorService sampler;
+    private int lineWidth;
+    private boolean finished;
+
+    public ProgressReporter(List<Long> inputSizes, ProgressFormat format, PrintWriter out) {
+        this(inputSizes, format, out, System::nanoTime);
+    }
+
+    ProgressReporter(List<Long> inputSizes, ProgressFormat format, PrintWriter out, LongSupplier clock) {
+        bytesBefore = new long[inputSizes.size() + 1];
+        for (int i = 0; i < inputSizes.size(); i++) {
+            bytesBefore[i + 1] = bytesBefore[i] + inputSizes.get(i);
+        }
+        this.format = format;
+        this.out = out;
+        this.clock = clock;
+        this.start = clock.getAsLong();
+    }
+
+    public void start() {
+        sampler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "pdfmerge-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> report(false), INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Inputs skipped when resuming from a checkpoint are not counted towards the throughput.
+    @Override
+    public void inputStarted(int input) {
+        firstInput.compareAndSet(-1, input);
+    }
+
+    @Override
+    public void inputMerged(int input, int pages) {
+        this.pages.addAndGet(pages);
+        inputsDone.accumulateAndGet(Math.min(input + 1, bytesBefore.length - 1), Math::max);
+    }
+
+    // Reports the finished merge one last time. Every input is done by then, even if the merge did not say so.
+    public void finish() {
+        stopSampling();
+        inputsDone.set(bytesBefore.length - 1);
+        report(true);
+    }
+
+    // Without finish, e.g. when the merge failed, a text line is only ended so that the next output starts on a line
+    // of its own.
+    @Override
+    public synchronized void close() {
+        stopSampling();
+        if (!finished && format == ProgressFormat.TEXT && lineWidth > 0) {
+            out.println();
+            out.flush();
+        }
+    }
+
+    private void stopSampling() {
+        if (sampler == null) {
+            return;
+        }
+        sampler.shutdownNow();
+        try {
+            sampler.awaitTermination(INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    synchronized void report(boolean done) {
+        finished = done;
+        int inputs = inputsDone.get();
+        long pageCount = pages.get();
+        long bytes = bytesBefore[inputs];
+        long totalBytes = bytesBefore[bytesBefore.length - 1];
+        double seconds = Math.max(clock.getAsLong() - start, 1) / NANOS_PER_SECOND;
+        double pagesPerSecond = pageCount / seconds;
+        double bytesPerSecond = (bytes - bytesBefore[Math.max(0, Math.min(firstInput.get(), inputs))]) / seconds;
+        long eta = bytesPerSecond > 0 ? Math.round((totalBytes - bytes) / bytesPerSecond) : -1;
+        int totalInputs = bytesBefore.length - 1;
+        if (format == ProgressFormat.JSON) {
+            out.printf(Locale.ROOT, "{\"inputs\":%d,\"totalInputs\":%d,\"pages\":%d,\"bytes\":%d,\"totalBytes\":%d,"
+                            + "\"elapsedSeconds\":%.3f,\"pagesPerSecond\":%.1f,\"bytesPerSecond\":%.0f,\"etaSeconds\":%s,"
+                            + "\"done\":%b}%n", inputs, totalInputs, pageCount, bytes, totalBytes, seconds,
+                    pagesPerSecond, bytesPerSecond, eta < 0 ? "null" : Long.toString(eta), done);
+        } else {
+            String line = String.format(Locale.ROOT, "%d/%d inputs, %d pages, %.1f pages/s, %.1f MB/s, ETA %s",
+                    inputs, totalInputs, pageCount, pagesPerSecond, bytesPerSecond / BYTES_PER_MEGABYTE,
+                    eta < 0 ? "--:--" : duration(eta));
+            // The line is rewritten in place until the merge is done, blanking out what is left of a longer one.
+            out.print('\r');
+            out.print(line);
+            for (int i = line.length(); i < lineWidth; i++) {
+                out.print(' ');
+            }
+            lineWidth = line.length();
+            if (done) {
+                out.println();
+            }
+        }
+        out.flush();
+    }
+
+    private static String duration(long seconds) {
+        if (seconds >= 3600) {
+            return String.format(Locale.ROOT, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+        }
+        return String.format(Locale.ROOT, "%d:%02d", seconds / 60, seconds % 60);
+    }
+}
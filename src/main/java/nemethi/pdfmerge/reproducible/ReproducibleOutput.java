@@ -0,0 +1,127 @@
+package nemethi.pdfmerge.reproducible;
+
+import nemethi.pdfmerge.volume.Segment;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDMetadata;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Makes the bytes of an output depend on its inputs only. Objects are already numbered in the order they are
+ * reached from the catalog, which does not vary between runs; what does vary is the trailer /ID, which PDFBox
+ * derives from the clock, and the dates the inputs were written at, which change whenever they are regenerated.
+ */
+public class ReproducibleOutput {
+
+    private static final int ID_LENGTH = 16;
+    private static final Pattern XMP_DATES = Pattern.compile(
+            "\\s*<xmp:(CreateDate|ModifyDate|MetadataDate)>[^<]*</xmp:\\1>"
+                    + "|\\s*xmp:(CreateDate|ModifyDate|MetadataDate)=\"[^\"]*\"");
+
+    private boolean deterministic;
+    private boolean droppingTimestamps;
+
+    public boolean isEnabled() {
+        return deterministic || droppingTimestamps;
+    }
+
+    // Inputs are added to the returned instance one by one, as the merge opens them.
+    public TrackedInputs track() {
+        return new TrackedInputs(deterministic);
+    }
+
+    // Called once every input has been loaded, so the digests cover all of their bytes.
+    public void apply(PDDocument destination, TrackedInputs inputs, List<Segment> segments) throws IOException {
+        if (droppingTimestamps) {
+            dropTimestamps(destination);
+        }
+        if (deterministic) {
+            COSString id = new COSString(documentId(inputs.getDigests(), segments));
+            id.setForceHexForm(true);
+            COSArray idArray = new COSArray();
+            idArray.add(id);
+            idArray.add(id);
+            destination.getDocument().getTrailer().setItem(COSName.ID, idArray);
+        }
+    }
+
+    public boolean isDeterministic() {
+        return deterministic;
+    }
+
+    public boolean isDroppingTimestamps() {
+        return droppingTimestamps;
+    }
+
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    public void setDroppingTimestamps(boolean droppingTimestamps) {
+        this.droppingTimestamps = droppingTimestamps;
+    }
+
+    // Volumes of the same inputs hold different pages, so the pages of each input are part of the ID too.
+    private static byte[] documentId(List<MessageDigest> digests, List<Segment> segments) {
+        MessageDigest id = sha256();
+        for (int i = 0; i < digests.size(); i++) {
+            id.update(digests.get(i).digest());
+            if (i < segments.size()) {
+                Segment segment = segments.get(i);
+                id.update(ByteBuffer.allocate(8).putInt(segment.getFirstPage()).putInt(segment.getPageCount())
+                        .array());
+            }
+        }
+        return Arrays.copyOf(id.digest(), ID_LENGTH);
+    }
+
+    private static void dropTimestamps(PDDocument document) throws IOException {
+        COSDictionary info = document.getDocument().getTrailer().getCOSDictionary(COSName.INFO);
+        if (info != null) {
+            info.removeItem(COSName.CREATION_DATE);
+            info.removeItem(COSName.MOD_DATE);
+        }
+        for (PDPage page : document.getPages()) {
+            page.getCOSObject().removeItem(COSName.LAST_MODIFIED);
+        }
+        document.getDocumentCatalog().getCOSObject().removeItem(COSName.LAST_MODIFIED);
+        PDMetadata metadata = document.getDocumentCatalog().getMetadata();
+        if (metadata != null) {
+            String xmp;
+            try (InputStream inputStream = metadata.exportXMPMetadata()) {
+                xmp = new String(IOUtils.toByteArray(inputStream), UTF_8);
+            }
+            String stripped = XMP_DATES.matcher(xmp).replaceAll("");
+            if (!stripped.equals(xmp)) {
+                try (OutputStream outputStream = metadata.getCOSObject().createOutputStream()) {
+                    outputStream.write(stripped.getBytes(UTF_8));
+                }
+            }
+        }
+    }
+
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256.
+            throw new IllegalStateException(e);
+        }
+    }
+}
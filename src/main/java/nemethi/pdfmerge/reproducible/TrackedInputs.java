@@ -0,0 +1,31 @@
+package nemethi.pdfmerge.reproducible;
+
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+// The inputs of one merge, with the digests they update as they are read.
+public class TrackedInputs {
+
+    private final boolean digesting;
+    private final List<MessageDigest> digests = new ArrayList<>();
+
+    TrackedInputs(boolean digesting) {
+        this.digesting = digesting;
+    }
+
+    public InputStream add(InputStream inputStream) {
+        if (!digesting) {
+            return inputStream;
+        }
+        MessageDigest digest = ReproducibleOutput.sha256();
+        digests.add(digest);
+        return new DigestInputStream(inputStream, digest);
+    }
+
+    List<MessageDigest> getDigests() {
+        return digests;
+    }
+}
@@ -0,0 +1,263 @@
+package nemethi.pdfmerge.scratch;
+
+import org.apache.pdfbox.io.RandomAccess;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static nemethi.pdfmerge.scratch.OffHeapScratch.PAGE_SIZE;
+
+// A scratch buffer made of pool pages. A buffer that keeps growing after the pool ran dry continues in a buffer of
+// the overflow scratch file, so it is bounded by the memory setting admission chose rather than growing the heap.
+class OffHeapBuffer implements RandomAccess {
+
+    private final OffHeapScratch pool;
+    private final OffHeapScratchFile owner;
+    private final List<ByteBuffer> pages = new ArrayList<>();
+    // Holds everything from overflowStart on, which is where the pool pages end.
+    private RandomAccess overflow;
+    private long overflowStart;
+    private long size;
+    private long position;
+    private boolean closed;
+
+    OffHeapBuffer(OffHeapScratch pool, OffHeapScratchFile owner) {
+        this.pool = pool;
+        this.owner = owner;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkClosed();
+        ByteBuffer page = page(position);
+        if (page == null) {
+            overflow.seek(position - overflowStart);
+            overflow.write(b);
+        } else {
+            page.put(offset(position), (byte) b);
+        }
+        position++;
+        size = Math.max(size, position);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        while (len > 0) {
+            ByteBuffer page = page(position);
+            if (page == null) {
+                overflow.seek(position - overflowStart);
+                overflow.write(b, off, len);
+                position += len;
+                break;
+            }
+            int count = Math.min(len, PAGE_SIZE - offset(position));
+            page.position(offset(position));
+            page.put(b, off, count);
+            position += count;
+            off += count;
+            len -= count;
+        }
+        size = Math.max(size, position);
+    }
+
+    @Override
+    public void clear() throws IOException {
+        checkClosed();
+        releasePages();
+        closeOverflow();
+        size = 0;
+        position = 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkClosed();
+        if (position >= size) {
+            return -1;
+        }
+        int b;
+        if (isOverflow(position)) {
+            overflow.seek(position - overflowStart);
+            b = overflow.read();
+        } else {
+            b = pages.get(index(position)).get(offset(position)) & 0xFF;
+        }
+        position++;
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkClosed();
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        int total = (int) Math.min(len, size - position);
+        int remaining = total;
+        while (remaining > 0) {
+            if (isOverflow(position)) {
+                overflow.seek(position - overflowStart);
+                byte[] bytes = overflow.readFully(remaining);
+                System.arraycopy(bytes, 0, b, off, remaining);
+                position += remaining;
+                break;
+            }
+            ByteBuffer page = pages.get(index(position));
+            int count = Math.min(remaining, PAGE_SIZE - offset(position));
+            page.position(offset(position));
+            page.get(b, off, count);
+            position += count;
+            off += count;
+            remaining -= count;
+        }
+        return total;
+    }
+
+    @Override
+    public long getPosition() throws IOException {
+        checkClosed();
+        return position;
+    }
+
+    @Override
+    public void seek(long position) throws IOException {
+        checkClosed();
+        if (position < 0) {
+            throw new IOException("Invalid position " + position);
+        }
+        if (position > size) {
+            throw new EOFException();
+        }
+        this.position = position;
+    }
+
+    @Override
+    public long length() throws IOException {
+        checkClosed();
+        return size;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public int peek() throws IOException {
+        int b = read();
+        if (b != -1) {
+            rewind(1);
+        }
+        return b;
+    }
+
+    @Override
+    public void rewind(int bytes) throws IOException {
+        seek(position - bytes);
+    }
+
+    @Override
+    public byte[] readFully(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        int read = 0;
+        while (read < length) {
+            int count = read(bytes, read, length - read);
+            if (count < 0) {
+                throw new EOFException();
+            }
+            read += count;
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean isEOF() throws IOException {
+        checkClosed();
+        return position >= size;
+    }
+
+    @Override
+    public int available() throws IOException {
+        checkClosed();
+        return (int) Math.min(size - position, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            releasePages();
+            try {
+                closeOverflow();
+            } catch (IOException e) {
+                // the overflow scratch file cleans up its pages when the document is closed
+            }
+            owner.closed(this);
+        }
+    }
+
+    // Null for a position past the pool pages, which the overflow holds once the pool ran dry.
+    private ByteBuffer page(long position) throws IOException {
+        int index = index(position);
+        while (overflow == null && pages.size() <= index) {
+            ByteBuffer page = pool.acquire();
+            if (page == null) {
+                overflow = owner.createOverflowBuffer();
+                overflowStart = (long) pages.size() * PAGE_SIZE;
+            } else {
+                pages.add(page);
+            }
+        }
+        return index < pages.size() ? pages.get(index) : null;
+    }
+
+    private boolean isOverflow(long position) {
+        return overflow != null && position >= overflowStart;
+    }
+
+    private void releasePages() {
+        for (ByteBuffer page : pages) {
+            pool.release(page);
+        }
+        pages.clear();
+    }
+
+    private void closeOverflow() throws IOException {
+        if (overflow != null) {
+            RandomAccess closing = overflow;
+            overflow = null;
+            closing.close();
+        }
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Scratch buffer already closed");
+        }
+    }
+
+    private static int index(long position) {
+        return (int) (position / PAGE_SIZE);
+    }
+
+    private static int offset(long position) {
+        return (int) (position % PAGE_SIZE);
+    }
+}
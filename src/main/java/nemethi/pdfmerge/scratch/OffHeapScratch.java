@@ -0,0 +1,118 @@
+package nemethi.pdfmerge.scratch;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSDocument;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct pages for the scratch buffers of PDFBox, shared by every merge it is given to. Pages are
+ * allocated in slabs until the capacity is reached and are reused after that, so the heap only holds the object
+ * graphs of the documents. Once the pool is exhausted, new buffers use the scratch the merge would use anyway.
+ */
+public class OffHeapScratch {
+
+    public static final int MIN_CAPACITY = 4096;
+    static final int PAGE_SIZE = MIN_CAPACITY;
+    static final int SLAB_SIZE = 256 * PAGE_SIZE;
+
+    private final long capacity;
+    private final Queue<ByteBuffer> freePages = new ConcurrentLinkedQueue<>();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLong usedBytes = new AtomicLong();
+
+    public OffHeapScratch(long capacity) {
+        if (capacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException("The capacity must be at least " + MIN_CAPACITY + " bytes.");
+        }
+        this.capacity = capacity;
+    }
+
+    public ScratchFile createScratchFile(MemoryUsageSetting overflow) throws IOException {
+        return new OffHeapScratchFile(this, overflow);
+    }
+
+    // Same as new PDDocument(MemoryUsageSetting), but on an off-heap scratch file.
+    public PDDocument createDocument(MemoryUsageSetting overflow) throws IOException {
+        COSDocument document = new COSDocument(createScratchFile(overflow));
+        COSDictionary trailer = new COSDictionary();
+        document.setTrailer(trailer);
+        COSDictionary catalog = new COSDictionary();
+        trailer.setItem(COSName.ROOT, catalog);
+        catalog.setItem(COSName.TYPE, COSName.CATALOG);
+        catalog.setItem(COSName.VERSION, COSName.getPDFName("1.4"));
+        COSDictionary pages = new COSDictionary();
+        catalog.setItem(COSName.PAGES, pages);
+        pages.setItem(COSName.TYPE, COSName.PAGES);
+        pages.setItem(COSName.KIDS, new COSArray());
+        pages.setItem(COSName.COUNT, COSInteger.ZERO);
+        return new PDDocument(document);
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    boolean hasHeadroom() {
+        return !freePages.isEmpty() || allocatedBytes.get() + PAGE_SIZE <= capacity;
+    }
+
+    ByteBuffer acquire() {
+        ByteBuffer page = freePages.poll();
+        if (page == null) {
+            page = allocate();
+        }
+        if (page != null) {
+            usedBytes.addAndGet(PAGE_SIZE);
+            page.clear();
+        }
+        return page;
+    }
+
+    void release(ByteBuffer page) {
+        usedBytes.addAndGet(-PAGE_SIZE);
+        freePages.add(page);
+    }
+
+    private synchronized ByteBuffer allocate() {
+        ByteBuffer page = freePages.poll();
+        if (page != null) {
+            return page;
+        }
+        long size = Math.min(SLAB_SIZE, (capacity - allocatedBytes.get()) / PAGE_SIZE * PAGE_SIZE);
+        if (size < PAGE_SIZE) {
+            return null;
+        }
+        ByteBuffer slab = ByteBuffer.allocateDirect((int) size);
+        allocatedBytes.addAndGet(size);
+        for (int offset = PAGE_SIZE; offset < size; offset += PAGE_SIZE) {
+            freePages.add(slice(slab, offset));
+        }
+        return slice(slab, 0);
+    }
+
+    private static ByteBuffer slice(ByteBuffer slab, int offset) {
+        ByteBuffer page = slab.duplicate();
+        page.position(offset);
+        page.limit(offset + PAGE_SIZE);
+        return page.slice();
+    }
+}
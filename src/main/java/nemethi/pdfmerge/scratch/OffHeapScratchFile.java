@@ -0,0 +1,64 @@
+package nemethi.pdfmerge.scratch;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.ScratchFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// PDFBox keeps its pages private, but every stream and parser source is created through createBuffer.
+class OffHeapScratchFile extends ScratchFile {
+
+    private final OffHeapScratch pool;
+    private final Set<OffHeapBuffer> buffers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    OffHeapScratchFile(OffHeapScratch pool, MemoryUsageSetting overflow) throws IOException {
+        super(overflow);
+        this.pool = pool;
+    }
+
+    @Override
+    public RandomAccess createBuffer() throws IOException {
+        if (!pool.hasHeadroom()) {
+            return super.createBuffer();
+        }
+        OffHeapBuffer buffer = new OffHeapBuffer(pool, this);
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    @Override
+    public RandomAccess createBuffer(InputStream input) throws IOException {
+        RandomAccess buffer = createBuffer();
+        byte[] bytes = new byte[8192];
+        int read;
+        while ((read = input.read(bytes)) != -1) {
+            buffer.write(bytes, 0, read);
+        }
+        buffer.seek(0);
+        return buffer;
+    }
+
+    // Where a buffer continues once the pool ran dry, on the terms of the overflow memory setting.
+    RandomAccess createOverflowBuffer() throws IOException {
+        return super.createBuffer();
+    }
+
+    void closed(OffHeapBuffer buffer) {
+        buffers.remove(buffer);
+    }
+
+    // Streams that were never closed still give their pages back when the document is closed.
+    @Override
+    public void close() throws IOException {
+        for (OffHeapBuffer buffer : new ArrayList<>(buffers)) {
+            buffer.close();
+        }
+        super.close();
+    }
+}
@@ -0,0 +1,49 @@
+package nemethi.pdfmerge.scratch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * The directory this process keeps its scratch files in. It is created under the system temp directory the first
+ * time a merge spills to disk and removed on exit, so the scratch files of this process are not mixed up with
+ * those of other processes sharing the temp directory.
+ */
+public final class ScratchDirectory {
+
+    private static volatile File directory;
+
+    private ScratchDirectory() {
+    }
+
+    public static File get() {
+        File current = directory;
+        if (current == null) {
+            synchronized (ScratchDirectory.class) {
+                current = directory;
+                if (current == null) {
+                    current = create();
+                    directory = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Null until a merge spilled to disk, so reading it never creates the directory.
+    public static File current() {
+        return directory;
+    }
+
+    private static File create() {
+        try {
+            File created = Files.createTempDirectory("pdfmerge-scratch-").toFile();
+            // PDFBox deletes its scratch files when a document is closed, so the directory is empty on exit
+            created.deleteOnExit();
+            return created;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create the scratch directory.", e);
+        }
+    }
+}
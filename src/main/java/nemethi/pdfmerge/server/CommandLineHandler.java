@@ -0,0 +1,51 @@
+package nemethi.pdfmerge.server;
+
+import nemethi.pdfmerge.CommandLineFactory;
+import nemethi.pdfmerge.PdfMerger;
+import picocli.CommandLine.Help;
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+
+/**
+ * Runs a forwarded command line the way {@code Application.main} runs its own. The server cannot change its working
+ * directory, so relative paths are resolved against the client's, and made relative again in the error messages.
+ * Colors follow the client's terminal, which the server has none of.
+ */
+public class CommandLineHandler implements RequestHandler {
+
+    @Override
+    public int handle(Path workingDirectory, String[] args, boolean isColored, PrintWriter out, PrintWriter err) {
+        return CommandLineFactory.create(new PdfMerger())
+                .registerConverter(Path.class, value -> workingDirectory.resolve(value))
+                .setColorScheme(Help.defaultColorScheme(isColored ? Ansi.ON : Ansi.OFF))
+                .setOut(out)
+                .setErr(new PrintWriter(new RelativizingWriter(err, workingDirectory), true))
+                .execute(args);
+    }
+
+    private static final class RelativizingWriter extends FilterWriter {
+
+        private final String prefix;
+
+        private RelativizingWriter(Writer out, Path workingDirectory) {
+            super(out);
+            // Stripping the separator alone would mangle every path.
+            prefix = workingDirectory.getParent() == null
+                    ? null : workingDirectory + workingDirectory.getFileSystem().getSeparator();
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            String text = str.substring(off, off + len);
+            if (prefix != null) {
+                text = text.replace(prefix, "");
+            }
+            out.write(text);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package nemethi.pdfmerge.server;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.LinkOption.NOFOLLOW_LINKS;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_READ;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_WRITE;
+
+// Whoever can connect runs merges as the owner of the server, so everything lives in a directory only they can read.
+final class Endpoints {
+
+    static final String TCP = "tcp";
+    static final String UNIX = "unix";
+    private static final String PRIVATE_DIRECTORY = "rwx------";
+    private static final String PRIVATE_FILE = "rw-------";
+    private static final Set<PosixFilePermission> SHARED_PERMISSIONS =
+            EnumSet.complementOf(EnumSet.of(OWNER_READ, OWNER_WRITE, OWNER_EXECUTE));
+
+    private Endpoints() {
+    }
+
+    static Path lockFileOf(Path endpoint) {
+        return endpoint.resolveSibling(endpoint.getFileName() + ".lock");
+    }
+
+    static Path socketFileOf(Path endpoint) {
+        return endpoint.resolveSibling(endpoint.getFileName() + ".sock");
+    }
+
+    static Path logFileOf(Path endpoint) {
+        return endpoint.resolveSibling(endpoint.getFileName() + ".log");
+    }
+
+    static void createPrivateDirectory(Path endpoint) throws IOException {
+        Path directory = endpoint.toAbsolutePath().getParent();
+        if (!Files.exists(directory, NOFOLLOW_LINKS)) {
+            Files.createDirectories(directory, permissions(directory, PRIVATE_DIRECTORY));
+        }
+        // Also after creating it, since another user may have created it first.
+        checkPrivateDirectory(endpoint);
+    }
+
+    // The default directory is in the shared temp directory, where another user could have created it first to
+    // serve a forged endpoint, so it has to be this user's and closed to everyone else.
+    static void checkPrivateDirectory(Path endpoint) throws IOException {
+        Path directory = endpoint.toAbsolutePath().getParent();
+        if (!Files.exists(directory, NOFOLLOW_LINKS)) {
+            return;
+        }
+        UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService()
+                .lookupPrincipalByName(System.getProperty("user.name"));
+        if (Files.isSymbolicLink(directory) || !Files.getOwner(directory, NOFOLLOW_LINKS).equals(user)) {
+            throw new AccessDeniedException(directory.toString(), null,
+                    "The merge server directory is not owned by " + user.getName() + ".");
+        }
+        if (isPosix(directory)) {
+            Set<PosixFilePermission> permissions = Files.readAttributes(directory, PosixFileAttributes.class,
+                    NOFOLLOW_LINKS).permissions();
+            if (!Collections.disjoint(permissions, SHARED_PERMISSIONS)) {
+                throw new AccessDeniedException(directory.toString(), null,
+                        "The merge server directory must be accessible only by its owner (chmod 700).");
+            }
+        }
+    }
+
+    // The first line names the transport, so a client on another Java can tell it cannot connect.
+    static void writeTcp(Path endpoint, int port, String token) throws IOException {
+        write(endpoint, Arrays.asList(TCP, Integer.toString(port), token));
+    }
+
+    static void writeUnix(Path endpoint) throws IOException {
+        write(endpoint, Collections.singletonList(UNIX));
+    }
+
+    // Written aside and moved in place, so a client never reads half of it.
+    private static void write(Path endpoint, List<String> lines) throws IOException {
+        Path temporary = Files.createTempFile(endpoint.toAbsolutePath().getParent(), endpoint.getFileName().toString(),
+                ".tmp", permissions(endpoint, PRIVATE_FILE));
+        Files.write(temporary, lines, US_ASCII);
+        Files.move(temporary, endpoint, ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    private static boolean isPosix(Path path) {
+        return path.getFileSystem().supportedFileAttributeViews().contains("posix");
+    }
+
+    private static FileAttribute<?>[] permissions(Path path, String permissions) {
+        if (!isPosix(path)) {
+            return new FileAttribute<?>[0];
+        }
+        return new FileAttribute<?>[]{PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString(permissions))};
+    }
+}
@@ -0,0 +1,46 @@
+package nemethi.pdfmerge.server;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Both streams of a request share the connection, so a frame is written as a whole.
+final class FrameOutputStream extends OutputStream {
+
+    private final DataOutputStream out;
+    private final byte kind;
+
+    FrameOutputStream(DataOutputStream out, byte kind) {
+        this.out = out;
+        this.kind = kind;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        synchronized (out) {
+            out.writeByte(kind);
+            out.writeInt(len);
+            out.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        synchronized (out) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
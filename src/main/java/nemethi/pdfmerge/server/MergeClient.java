@@ -0,0 +1,218 @@
+package nemethi.pdfmerge.server;
+
+import nemethi.pdfmerge.Application;
+import picocli.CommandLine.Help.Ansi;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ProcessBuilder.Redirect;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Forwards a command line, the working directory and the exit code to and from a {@link MergeServer}. A missing or
+ * stale server, or one of another version, leaves the merge to the caller and only costs the attempt to connect. A
+ * server on a transport this JVM cannot connect over is reported instead, since every later call would miss it too,
+ * and so is an endpoint in a directory other users can change, whose server could be anyone's.
+ */
+public class MergeClient {
+
+    public static final String MODE_VARIABLE = "PDFMERGE_SERVER";
+    public static final String SOCKET_VARIABLE = "PDFMERGE_SOCKET";
+    static final String AUTO = "auto";
+    private static final String SERVER_COMMAND = "server";
+
+    private final Path endpoint;
+
+    public MergeClient(Path endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public static Path defaultEndpoint() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "pdfmerge-" + System.getProperty("user.name"), "server");
+    }
+
+    /**
+     * @return the client scripts asked for with {@code PDFMERGE_SERVER=auto}, or null
+     */
+    public static MergeClient fromEnvironment() {
+        if (!AUTO.equals(System.getenv(MODE_VARIABLE))) {
+            return null;
+        }
+        String socket = System.getenv(SOCKET_VARIABLE);
+        return new MergeClient(socket == null ? defaultEndpoint() : Paths.get(socket));
+    }
+
+    /**
+     * Has the server merge on behalf of this process, or starts one in the background for the next call.
+     *
+     * @return the exit code, or null if this process has to merge itself
+     */
+    public Integer run(String[] args) {
+        Integer exitCode;
+        try {
+            exitCode = forward(Paths.get("").toAbsolutePath(), args, System.out, System.err);
+        } catch (TransportMismatchException | AccessDeniedException e) {
+            System.err.println("pdfmerge: " + e.getMessage());
+            return 1;
+        } catch (IOException e) {
+            System.err.println("pdfmerge: Lost the connection to the merge server.");
+            return 1;
+        }
+        if (exitCode == null) {
+            try {
+                startServer();
+            } catch (IOException e) {
+                // The merge runs here all the same.
+            }
+        }
+        return exitCode;
+    }
+
+    /**
+     * @return the exit code of the command line, or null if no server accepted it
+     * @throws TransportMismatchException if the server listens on a transport this JVM cannot connect over
+     * @throws AccessDeniedException if the endpoint is in a directory other users can change
+     * @throws IOException if the connection broke after the server accepted the command line
+     */
+    public Integer forward(Path workingDirectory, String[] args, OutputStream out, OutputStream err)
+            throws IOException {
+        Connection connection = connect();
+        if (connection == null) {
+            return null;
+        }
+        boolean isColored = Ansi.AUTO.enabled();
+        return send(connection, Request.merge(connection.token, workingDirectory, isColored, args), out, err);
+    }
+
+    /**
+     * @return false if no server was running
+     * @throws TransportMismatchException if the server listens on a transport this JVM cannot connect over
+     * @throws AccessDeniedException if the endpoint is in a directory other users can change
+     */
+    public boolean stop() throws IOException {
+        Connection connection = connect();
+        return connection != null && send(connection, Request.stop(connection.token), null, null) != null;
+    }
+
+    /**
+     * Starts a server in the background, with the Java and the class path of this process.
+     *
+     * @return false if a server is already running or starting
+     */
+    public boolean startServer() throws IOException {
+        if (isLocked()) {
+            return false;
+        }
+        List<String> command = Arrays.asList(Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), Application.class.getName(), SERVER_COMMAND,
+                "--socket=" + endpoint.toAbsolutePath());
+        new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(Redirect.appendTo(Endpoints.logFileOf(endpoint).toFile()))
+                .start();
+        return true;
+    }
+
+    private boolean isLocked() throws IOException {
+        Endpoints.createPrivateDirectory(endpoint);
+        try (FileChannel lockFile = FileChannel.open(Endpoints.lockFileOf(endpoint), CREATE, WRITE)) {
+            return !MergeServer.tryLock(lockFile);
+        }
+    }
+
+    private Connection connect() throws IOException {
+        Endpoints.checkPrivateDirectory(endpoint);
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(endpoint, US_ASCII);
+        } catch (IOException e) {
+            // no server, or one that is still starting
+            return null;
+        }
+        String transport = lines.isEmpty() ? "" : lines.get(0);
+        try {
+            if (Endpoints.TCP.equals(transport)) {
+                InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                        Integer.parseInt(lines.get(1)));
+                return new Connection(SocketChannel.open(address), lines.get(2));
+            } else if (Endpoints.UNIX.equals(transport)) {
+                return new Connection(ServerSockets.connectUnix(Endpoints.socketFileOf(endpoint)), "");
+            }
+        } catch (TransportMismatchException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            // a server that was killed
+            return null;
+        }
+        throw new TransportMismatchException(String.format("The merge server at %s uses an unknown transport '%s'. "
+                + "Stop it with the pdfmerge version that started it.", endpoint, transport));
+    }
+
+    private static Integer send(Connection connection, Request request, OutputStream out, OutputStream err)
+            throws IOException {
+        try (SocketChannel socket = connection.channel) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(socket)));
+            try {
+                request.writeTo(new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(socket))));
+                if (in.read() != Protocol.ACCEPTED) {
+                    return null;
+                }
+            } catch (IOException e) {
+                // closed by a server going idle, which has merged nothing of this request
+                return null;
+            }
+            return readResponse(in, out, err);
+        }
+    }
+
+    private static int readResponse(DataInputStream in, OutputStream out, OutputStream err) throws IOException {
+        while (true) {
+            byte kind = in.readByte();
+            if (kind == Protocol.EXIT) {
+                return in.readInt();
+            }
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            OutputStream target;
+            if (kind == Protocol.STDOUT) {
+                target = out;
+            } else if (kind == Protocol.STDERR) {
+                target = err;
+            } else {
+                throw new EOFException("Unexpected frame from the merge server.");
+            }
+            target.write(bytes);
+            target.flush();
+        }
+    }
+
+    private static final class Connection {
+
+        private final SocketChannel channel;
+        private final String token;
+
+        private Connection(SocketChannel channel, String token) {
+            this.channel = channel;
+            this.token = token;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package nemethi.pdfmerge.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Runs the command lines forwarded by {@link MergeClient}s in one warm JVM. It listens on a Unix domain socket next
+ * to the endpoint, or on Java 8, which has none, on a loopback port guarded by a token the clients have to present.
+ * The endpoint file names the transport and holds the port and token. A lock next to the endpoint keeps it to one
+ * server, which stops once no request has come in for the idle timeout.
+ */
+public class MergeServer implements Closeable {
+
+    private static final long MAX_IDLE_CHECK_MILLIS = 1000;
+    private static final int TOKEN_BYTES = 16;
+
+    private final Path endpoint;
+    private final long idleNanos;
+    private final RequestHandler handler;
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private final ExecutorService workers = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "pdfmerge-server-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile long lastRequestNanos;
+    private FileChannel lock;
+    private ServerSocketChannel channel;
+    private String token = "";
+
+    public MergeServer(Path endpoint, Duration idleTimeout, RequestHandler handler) {
+        this.endpoint = endpoint;
+        this.idleNanos = idleTimeout.toNanos();
+        this.handler = handler;
+    }
+
+    /**
+     * Takes over the endpoint, unless another server holds it.
+     *
+     * @return false if another server is running at the endpoint
+     */
+    public boolean bind() throws IOException {
+        Endpoints.createPrivateDirectory(endpoint);
+        FileChannel lockFile = FileChannel.open(Endpoints.lockFileOf(endpoint), CREATE, WRITE);
+        if (!tryLock(lockFile)) {
+            lockFile.close();
+            return false;
+        }
+        lock = lockFile;
+        // Left over by a server that was killed, since the lock was free.
+        Files.deleteIfExists(endpoint);
+        Files.deleteIfExists(Endpoints.socketFileOf(endpoint));
+        channel = ServerSockets.bind(Endpoints.socketFileOf(endpoint));
+        if (Endpoints.TCP.equals(ServerSockets.transport())) {
+            token = newToken();
+            Endpoints.writeTcp(endpoint, ((InetSocketAddress) channel.getLocalAddress()).getPort(), token);
+        } else {
+            Endpoints.writeUnix(endpoint);
+        }
+        return true;
+    }
+
+    /**
+     * Serves requests until the server is idle for the idle timeout or closed, then waits for the requests still
+     * running and gives up the endpoint.
+     */
+    public void serve() throws IOException {
+        lastRequestNanos = System.nanoTime();
+        long checkMillis = Math.max(1, Math.min(MAX_IDLE_CHECK_MILLIS, TimeUnit.NANOSECONDS.toMillis(idleNanos) / 2));
+        ScheduledExecutorService idleCheck = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "pdfmerge-server-idle");
+            thread.setDaemon(true);
+            return thread;
+        });
+        idleCheck.scheduleWithFixedDelay(this::closeIfIdle, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        try {
+            while (true) {
+                SocketChannel client;
+                try {
+                    client = channel.accept();
+                } catch (ClosedChannelException e) {
+                    return;
+                }
+                activeRequests.incrementAndGet();
+                workers.execute(() -> serve(client));
+            }
+        } finally {
+            idleCheck.shutdownNow();
+            channel.close();
+            shutDown();
+        }
+    }
+
+    /**
+     * Stops accepting requests; {@link #serve()} returns once the running ones are done.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (SocketChannel socket = client) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(socket)));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(socket)));
+            Request request = Request.readFrom(in);
+            if (!request.isAcceptedBy(token)) {
+                out.writeByte(Protocol.REJECTED);
+                out.flush();
+                return;
+            }
+            out.writeByte(Protocol.ACCEPTED);
+            int exitCode = 0;
+            if (request.isStop()) {
+                close();
+            } else {
+                exitCode = run(request, out);
+            }
+            synchronized (out) {
+                out.writeByte(Protocol.EXIT);
+                out.writeInt(exitCode);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The client is gone, so there is nobody left to tell.
+        } finally {
+            lastRequestNanos = System.nanoTime();
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private int run(Request request, DataOutputStream out) {
+        // Like System.out and System.err, which the client passes the bytes on to.
+        Charset charset = Charset.defaultCharset();
+        PrintWriter stdout = new PrintWriter(
+                new OutputStreamWriter(new FrameOutputStream(out, Protocol.STDOUT), charset), true);
+        PrintWriter stderr = new PrintWriter(
+                new OutputStreamWriter(new FrameOutputStream(out, Protocol.STDERR), charset), true);
+        try {
+            return handler.handle(request.getWorkingDirectory(), request.getArgs(), request.isColored(),
+                    stdout, stderr);
+        } finally {
+            stdout.flush();
+            stderr.flush();
+        }
+    }
+
+    private void closeIfIdle() {
+        if (activeRequests.get() == 0 && System.nanoTime() - lastRequestNanos >= idleNanos) {
+            try {
+                close();
+            } catch (IOException e) {
+                // serve() gives up the endpoint all the same
+            }
+        }
+    }
+
+    private void shutDown() throws IOException {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Before the lock is released, so the endpoint of the next server is never deleted.
+        try {
+            Files.deleteIfExists(endpoint);
+            Files.deleteIfExists(Endpoints.socketFileOf(endpoint));
+        } finally {
+            lock.close();
+        }
+    }
+
+    static boolean tryLock(FileChannel lockFile) throws IOException {
+        try {
+            FileLock fileLock = lockFile.tryLock();
+            return fileLock != null;
+        } catch (OverlappingFileLockException e) {
+            // held by this JVM
+            return false;
+        }
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        StringBuilder token = new StringBuilder();
+        for (byte b : bytes) {
+            token.append(String.format("%02x", b));
+        }
+        return token.toString();
+    }
+}
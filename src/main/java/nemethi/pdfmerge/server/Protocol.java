@@ -0,0 +1,15 @@
+package nemethi.pdfmerge.server;
+
+// A request is answered by ACCEPTED or REJECTED, then by STDOUT and STDERR frames of a length and that many bytes,
+// and finally by EXIT and the exit code.
+final class Protocol {
+
+    static final int ACCEPTED = 1;
+    static final int REJECTED = 0;
+    static final byte STDOUT = 'O';
+    static final byte STDERR = 'E';
+    static final byte EXIT = 'X';
+
+    private Protocol() {
+    }
+}
@@ -0,0 +1,96 @@
+package nemethi.pdfmerge.server;
+
+import nemethi.pdfmerge.cli.Version;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+final class Request {
+
+    private static final String MAGIC = "pdfmerge-server/1";
+    private static final int STOP = -1;
+
+    private final String version;
+    private final String token;
+    private final String workingDirectory;
+    private final boolean isColored;
+    private final String[] args;
+
+    private Request(String version, String token, String workingDirectory, boolean isColored, String[] args) {
+        this.version = version;
+        this.token = token;
+        this.workingDirectory = workingDirectory;
+        this.isColored = isColored;
+        this.args = args;
+    }
+
+    static Request merge(String token, Path workingDirectory, boolean isColored, String[] args) {
+        return new Request(Version.VERSION, token, workingDirectory.toString(), isColored, args);
+    }
+
+    static Request stop(String token) {
+        return new Request(Version.VERSION, token, "", false, null);
+    }
+
+    static Request readFrom(DataInputStream in) throws IOException {
+        if (!MAGIC.equals(in.readUTF())) {
+            throw new IOException("Not a merge request.");
+        }
+        String version = in.readUTF();
+        String token = in.readUTF();
+        String workingDirectory = in.readUTF();
+        boolean isColored = in.readBoolean();
+        int count = in.readInt();
+        String[] args = null;
+        if (count != STOP) {
+            args = new String[count];
+            for (int i = 0; i < count; i++) {
+                args[i] = in.readUTF();
+            }
+        }
+        return new Request(version, token, workingDirectory, isColored, args);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeUTF(MAGIC);
+        out.writeUTF(version);
+        out.writeUTF(token);
+        out.writeUTF(workingDirectory);
+        out.writeBoolean(isColored);
+        out.writeInt(args == null ? STOP : args.length);
+        if (args != null) {
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+        }
+        out.flush();
+    }
+
+    // A server of another version could parse the same command line differently, so the client merges itself.
+    boolean isAcceptedBy(String expectedToken) {
+        return Version.VERSION.equals(version)
+                && MessageDigest.isEqual(expectedToken.getBytes(US_ASCII), token.getBytes(US_ASCII));
+    }
+
+    boolean isStop() {
+        return args == null;
+    }
+
+    Path getWorkingDirectory() {
+        return Paths.get(workingDirectory);
+    }
+
+    boolean isColored() {
+        return isColored;
+    }
+
+    String[] getArgs() {
+        return args;
+    }
+}
@@ -0,0 +1,10 @@
+package nemethi.pdfmerge.server;
+
+import java.io.PrintWriter;
+import java.nio.file.Path;
+
+@FunctionalInterface
+public interface RequestHandler {
+
+    int handle(Path workingDirectory, String[] args, boolean isColored, PrintWriter out, PrintWriter err);
+}
@@ -0,0 +1,37 @@
+package nemethi.pdfmerge.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+// Java 8 has no Unix domain sockets, so its server listens on a loopback port. On Java 21 and later the
+// multi-release JAR uses src/main/java21 instead.
+final class ServerSockets {
+
+    private ServerSockets() {
+    }
+
+    static String transport() {
+        return Endpoints.TCP;
+    }
+
+    static ServerSocketChannel bind(Path socket) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        try {
+            channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    // Reached when a server started on Java 21 left the endpoint.
+    static SocketChannel connectUnix(Path socket) throws IOException {
+        throw new TransportMismatchException("The merge server listens on a Unix domain socket, which needs Java 16 "
+                + "or later. Stop it with 'pdfmerge server --stop' on that Java, or run pdfmerge with it.");
+    }
+}
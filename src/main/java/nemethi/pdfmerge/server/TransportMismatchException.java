@@ -0,0 +1,14 @@
+package nemethi.pdfmerge.server;
+
+import java.io.IOException;
+
+/**
+ * Thrown when the endpoint names a transport this JVM cannot connect over. Unlike a stale endpoint, it would fail
+ * the same way on every call, so the client reports it instead of quietly merging itself.
+ */
+public class TransportMismatchException extends IOException {
+
+    public TransportMismatchException(String message) {
+        super(message);
+    }
+}
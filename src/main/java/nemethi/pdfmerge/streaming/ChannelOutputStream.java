@@ -0,0 +1,48 @@
+package nemethi.pdfmerge.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
+
+// Unlike Channels.newOutputStream, closing this stream leaves the channel open: PDFBox closes the stream it saves
+// to, but the channel belongs to the caller. Like Channels.newOutputStream, it only takes blocking channels, since
+// a non-blocking one would have to be polled until it accepts the bytes.
+public class ChannelOutputStream extends OutputStream {
+
+    private final WritableByteChannel channel;
+
+    public ChannelOutputStream(WritableByteChannel channel) {
+        checkBlocking(channel);
+        this.channel = channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    // Some channels, such as pipes, may take only part of the bytes per call, so the write is repeated.
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0) {
+                // switched to non-blocking mode since it was passed in
+                checkBlocking(channel);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static void checkBlocking(WritableByteChannel channel) {
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalBlockingModeException();
+        }
+    }
+}
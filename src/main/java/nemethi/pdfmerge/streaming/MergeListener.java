@@ -0,0 +1,20 @@
+package nemethi.pdfmerge.streaming;
+
+/**
+ * Receives the progress of a streaming merge on the thread running it. Inputs and pages are numbered from zero;
+ * {@code outputPage} is the index of the page in the merged document.
+ */
+public interface MergeListener {
+
+    MergeListener NONE = new MergeListener() {
+    };
+
+    default void inputStarted(int input) {
+    }
+
+    default void pageMerged(int input, int page, int outputPage) {
+    }
+
+    default void inputMerged(int input, int pages) {
+    }
+}
@@ -0,0 +1,35 @@
+package nemethi.pdfmerge.streaming;
+
+import nemethi.pdfmerge.util.ByteBufferInputStream;
+import nemethi.pdfmerge.util.PathToStreamConverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * One input of a streaming merge. Sources are opened only when the merge reaches them, and the merge closes
+ * the streams it opens.
+ */
+@FunctionalInterface
+public interface MergeSource {
+
+    InputStream open() throws IOException;
+
+    static MergeSource of(Path path) {
+        return () -> PathToStreamConverter.open(path);
+    }
+
+    // The channel is closed together with the stream read from it.
+    static MergeSource of(ReadableByteChannel channel) {
+        return () -> Channels.newInputStream(channel);
+    }
+
+    // Reads a view of the buffer, so its position is left alone and the source can be opened more than once.
+    static MergeSource of(ByteBuffer buffer) {
+        return () -> new ByteBufferInputStream(buffer.duplicate());
+    }
+}
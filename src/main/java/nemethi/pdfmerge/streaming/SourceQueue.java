@@ -0,0 +1,130 @@
+package nemethi.pdfmerge.streaming;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hands sources from producer threads to a streaming merge. The queue is bounded, so producers that get ahead of
+ * the merge block in {@link #put} until it catches up. Producers must finish with {@link #close} or {@link #fail};
+ * ending the queue never blocks.
+ */
+public class SourceQueue implements Iterator<MergeSource> {
+
+    private final int capacity;
+    private final Queue<MergeSource> sources = new ArrayDeque<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+    private boolean closed;
+    private IOException failure;
+
+    public SourceQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive.");
+        }
+        this.capacity = capacity;
+    }
+
+    public void put(MergeSource source) throws InterruptedException {
+        lock.lock();
+        try {
+            while (sources.size() >= capacity) {
+                notFull.await();
+            }
+            add(source);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns false if the merge did not make room within the timeout, e.g. because it failed and stopped reading.
+    public boolean offer(MergeSource source, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (sources.size() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            add(source);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The merge rethrows the failure once it has merged the sources queued before it.
+    public void fail(IOException failure) {
+        lock.lock();
+        try {
+            this.failure = failure;
+            close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        lock.lock();
+        try {
+            while (sources.isEmpty() && !closed) {
+                notEmpty.await();
+            }
+            if (!sources.isEmpty()) {
+                return true;
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for a source."));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public MergeSource next() {
+        lock.lock();
+        try {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            notFull.signal();
+            return sources.remove();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void add(MergeSource source) {
+        if (closed) {
+            throw new IllegalStateException("The queue is closed.");
+        }
+        sources.add(source);
+        notEmpty.signal();
+    }
+}
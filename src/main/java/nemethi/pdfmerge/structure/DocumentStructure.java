@@ -0,0 +1,10 @@
+package nemethi.pdfmerge.structure;
+
+public enum DocumentStructure {
+    OUTLINES,
+    FORMS,
+    TAGS,
+    DESTINATIONS,
+    LABELS,
+    METADATA
+}
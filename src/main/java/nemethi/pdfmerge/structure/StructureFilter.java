@@ -0,0 +1,90 @@
+package nemethi.pdfmerge.structure;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PageMode;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static nemethi.pdfmerge.structure.DocumentStructure.DESTINATIONS;
+import static nemethi.pdfmerge.structure.DocumentStructure.FORMS;
+import static nemethi.pdfmerge.structure.DocumentStructure.LABELS;
+import static nemethi.pdfmerge.structure.DocumentStructure.METADATA;
+import static nemethi.pdfmerge.structure.DocumentStructure.OUTLINES;
+import static nemethi.pdfmerge.structure.DocumentStructure.TAGS;
+
+public class StructureFilter {
+
+    private boolean enabled;
+    private Set<DocumentStructure> keptStructures = EnumSet.noneOf(DocumentStructure.class);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void strip(PDDocument document) {
+        PDDocumentCatalog documentCatalog = document.getDocumentCatalog();
+        COSDictionary catalog = documentCatalog.getCOSObject();
+        catalog.removeItem(COSName.OPEN_ACTION);
+        catalog.removeItem(COSName.AA);
+        catalog.removeItem(COSName.THREADS);
+        if (!keptStructures.contains(OUTLINES)) {
+            if (documentCatalog.getPageMode() == PageMode.USE_OUTLINES) {
+                catalog.removeItem(COSName.PAGE_MODE);
+            }
+            catalog.removeItem(COSName.OUTLINES);
+        }
+        if (!keptStructures.contains(FORMS)) {
+            catalog.removeItem(COSName.ACRO_FORM);
+        }
+        if (!keptStructures.contains(TAGS)) {
+            catalog.removeItem(COSName.STRUCT_TREE_ROOT);
+            catalog.removeItem(COSName.MARK_INFO);
+            catalog.removeItem(COSName.LANG);
+        }
+        if (!keptStructures.contains(DESTINATIONS)) {
+            catalog.removeItem(COSName.NAMES);
+            catalog.removeItem(COSName.DESTS);
+        }
+        if (!keptStructures.contains(LABELS)) {
+            catalog.removeItem(COSName.PAGE_LABELS);
+        }
+        if (!keptStructures.contains(METADATA)) {
+            catalog.removeItem(COSName.METADATA);
+            document.getDocumentInformation().getCOSObject().clear();
+        }
+        for (PDPage page : document.getPages()) {
+            stripPage(page.getCOSObject());
+        }
+    }
+
+    private void stripPage(COSDictionary page) {
+        page.removeItem(COSName.B);
+        page.removeItem(COSName.THUMB);
+        page.removeItem(COSName.AA);
+        page.removeItem(COSName.PIECE_INFO);
+        if (!keptStructures.contains(TAGS)) {
+            page.removeItem(COSName.STRUCT_PARENTS);
+        }
+        if (!keptStructures.contains(METADATA)) {
+            page.removeItem(COSName.METADATA);
+        }
+    }
+
+    public Set<DocumentStructure> getKeptStructures() {
+        return keptStructures;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setKeptStructures(Set<DocumentStructure> keptStructures) {
+        this.keptStructures = keptStructures.isEmpty()
+                ? EnumSet.noneOf(DocumentStructure.class) : EnumSet.copyOf(keptStructures);
+    }
+}
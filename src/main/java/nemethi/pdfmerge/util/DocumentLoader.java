@@ -0,0 +1,96 @@
+package nemethi.pdfmerge.util;
+
+import nemethi.pdfmerge.archive.RandomAccessSource;
+import nemethi.pdfmerge.cancel.Cancellation;
+import nemethi.pdfmerge.cancel.CancellableRandomAccessRead;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+public class DocumentLoader {
+
+    public PDDocument load(InputStream inputStream, MemoryUsageSetting memoryUsageSetting) throws IOException {
+        if (inputStream instanceof RandomAccessSource) {
+            return load(inputStream, new ScratchFile(memoryUsageSetting), null);
+        }
+        return PDDocument.load(inputStream, memoryUsageSetting);
+    }
+
+    // Same as PDDocument.load, but the parser reads through a source that checks the cancellation.
+    public PDDocument load(InputStream inputStream, MemoryUsageSetting memoryUsageSetting, Cancellation cancellation)
+            throws IOException {
+        return load(inputStream, new ScratchFile(memoryUsageSetting), cancellation);
+    }
+
+    // The document takes over the scratch file; without a cancellation the source is read unchecked.
+    public PDDocument load(InputStream inputStream, ScratchFile scratchFile, Cancellation cancellation)
+            throws IOException {
+        return load(inputStream, scratchFile, cancellation, null);
+    }
+
+    // The input is read on the calling thread, but parsed on parseExecutor if there is one.
+    public PDDocument load(InputStream inputStream, ScratchFile scratchFile, Cancellation cancellation,
+                           Executor parseExecutor) throws IOException {
+        RandomAccessRead source = null;
+        try {
+            source = openSource(inputStream, scratchFile);
+            if (cancellation != null) {
+                source = new CancellableRandomAccessRead(source, cancellation);
+            }
+            PDFParser parser = new PDFParser(source, "", null, null, scratchFile);
+            if (parseExecutor == null) {
+                parser.parse();
+            } else {
+                parseOn(parseExecutor, parser);
+            }
+            return parser.getPDDocument();
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(source);
+            IOUtils.closeQuietly(scratchFile);
+            throw e;
+        }
+    }
+
+    // Stored archive entries are parsed in place; anything else is copied to the scratch file first.
+    private static RandomAccessRead openSource(InputStream inputStream, ScratchFile scratchFile) throws IOException {
+        if (inputStream instanceof RandomAccessSource) {
+            return ((RandomAccessSource) inputStream).openRandomAccess();
+        }
+        return scratchFile.createBuffer(inputStream);
+    }
+
+    private static void parseOn(Executor parseExecutor, PDFParser parser) throws IOException {
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            parser.parse();
+            return null;
+        });
+        parseExecutor.execute(task);
+        try {
+            task.get();
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Parsing was interrupted.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
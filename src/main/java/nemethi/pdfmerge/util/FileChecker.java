@@ -1,19 +1,26 @@
 package nemethi.pdfmerge.util;
 
+import nemethi.pdfmerge.archive.Archives;
+
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class FileChecker {
 
     public boolean exists(Path path) {
-        return Files.exists(path);
+        return Archives.isEntry(path) ? Archives.exists(path) : Files.exists(path);
     }
 
     public boolean notExists(Path path) {
-        return Files.notExists(path);
+        return Archives.isEntry(path) ? !Archives.exists(path) : Files.notExists(path);
     }
 
     public boolean isDirectory(Path path) {
-        return Files.isDirectory(path);
+        return !Archives.isEntry(path) && Files.isDirectory(path);
+    }
+
+    public long size(Path path) throws IOException {
+        return Archives.isEntry(path) ? Archives.size(path) : Files.size(path);
     }
 }
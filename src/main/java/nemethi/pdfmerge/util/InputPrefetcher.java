@@ -0,0 +1,197 @@
+package nemethi.pdfmerge.util;
+
+import nemethi.pdfmerge.archive.Archives;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+// Reads the inputs that follow the one being consumed into memory in the background, within a byte budget.
+class InputPrefetcher {
+
+    // Archive entries cannot be read with an asynchronous channel, so they are read on these threads instead.
+    private static final WorkerPool ENTRY_READERS = new WorkerPool("pdfmerge-prefetch", "Prefetching archive entries",
+            Runtime.getRuntime().availableProcessors());
+
+    private final List<Path> paths;
+    private final int prefetchCount;
+    private final List<CompletableFuture<ByteBuffer>> reads;
+    private long availableBytes;
+
+    InputPrefetcher(List<Path> paths, int prefetchCount, long bufferSize) {
+        this.paths = paths;
+        this.prefetchCount = prefetchCount;
+        this.reads = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            reads.add(null);
+        }
+        this.availableBytes = bufferSize;
+    }
+
+    List<InputStream> createStreams() throws FileNotFoundException {
+        List<InputStream> streams = new ArrayList<>();
+        for (int i = 0; i < paths.size(); i++) {
+            Path path = paths.get(i);
+            boolean readable = Archives.isEntry(path) ? Archives.exists(path)
+                    : Files.isRegularFile(path) && Files.isReadable(path);
+            if (!readable) {
+                throw new FileNotFoundException(path + " (No such file or cannot be read)");
+            }
+            streams.add(new PrefetchedInputStream(this, i));
+        }
+        return streams;
+    }
+
+    InputStream open(int index) throws IOException {
+        CompletableFuture<ByteBuffer> read;
+        synchronized (this) {
+            for (int i = index + 1; i <= index + prefetchCount && i < paths.size(); i++) {
+                startRead(i);
+            }
+            read = reads.get(index);
+        }
+        ByteBuffer buffer = read == null ? null : await(read);
+        if (buffer == null) {
+            return PathToStreamConverter.open(paths.get(index));
+        }
+        return new ByteBufferInputStream(buffer);
+    }
+
+    // Whether the input was read ahead into memory.
+    synchronized boolean isPrefetched(int index) {
+        CompletableFuture<ByteBuffer> read = reads.get(index);
+        return read != null && read.isDone() && read.getNow(null) != null;
+    }
+
+    synchronized void release(int index) {
+        CompletableFuture<ByteBuffer> read = reads.get(index);
+        if (read == null) {
+            return;
+        }
+        reads.set(index, CompletableFuture.completedFuture(null));
+        read.whenComplete((buffer, e) -> {
+            if (buffer != null) {
+                releaseBytes(buffer.capacity());
+            }
+        });
+    }
+
+    private void startRead(int index) {
+        if (reads.get(index) != null) {
+            return;
+        }
+        Path path = paths.get(index);
+        long size;
+        try {
+            size = Archives.isEntry(path) ? Archives.size(path) : Files.size(path);
+        } catch (IOException e) {
+            reads.set(index, CompletableFuture.completedFuture(null));
+            return;
+        }
+        if (size > Integer.MAX_VALUE || size > availableBytes) {
+            reads.set(index, CompletableFuture.completedFuture(null));
+            return;
+        }
+        availableBytes -= size;
+        reads.set(index, Archives.isEntry(path) ? readEntryAsync(path, (int) size) : readAsync(path, (int) size));
+    }
+
+    private synchronized void releaseBytes(long bytes) {
+        availableBytes += bytes;
+    }
+
+    // A failed or inconsistent read completes with null, so the input is opened directly and its error surfaces there.
+    private CompletableFuture<ByteBuffer> readAsync(Path path, int size) {
+        CompletableFuture<ByteBuffer> result = new CompletableFuture<>();
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        AsynchronousFileChannel channel;
+        try {
+            channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+        } catch (IOException | RuntimeException e) {
+            releaseBytes(size);
+            result.complete(null);
+            return result;
+        }
+        channel.read(buffer, 0, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer bytesRead, Void attachment) {
+                if (bytesRead >= 0 && buffer.hasRemaining()) {
+                    channel.read(buffer, buffer.position(), null, this);
+                    return;
+                }
+                try {
+                    boolean complete = !buffer.hasRemaining() && channel.size() == size;
+                    channel.close();
+                    finish(complete);
+                } catch (IOException e) {
+                    finish(false);
+                }
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // the read already failed
+                }
+                finish(false);
+            }
+
+            private void finish(boolean complete) {
+                if (complete) {
+                    buffer.flip();
+                    result.complete(buffer);
+                } else {
+                    releaseBytes(size);
+                    result.complete(null);
+                }
+            }
+        });
+        return result;
+    }
+
+    private CompletableFuture<ByteBuffer> readEntryAsync(Path path, int size) {
+        return CompletableFuture.supplyAsync(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            try (InputStream inputStream = Archives.open(path)) {
+                for (int read = 0; read != -1 && buffer.hasRemaining(); ) {
+                    read = inputStream.read(buffer.array(), buffer.position(), buffer.remaining());
+                    if (read > 0) {
+                        buffer.position(buffer.position() + read);
+                    }
+                }
+                if (!buffer.hasRemaining() && inputStream.read() == -1) {
+                    buffer.flip();
+                    return buffer;
+                }
+            } catch (IOException | RuntimeException e) {
+                // opened directly instead, where the error surfaces
+            }
+            releaseBytes(size);
+            return null;
+        }, ENTRY_READERS);
+    }
+
+    private static ByteBuffer await(CompletableFuture<ByteBuffer> read) throws IOException {
+        try {
+            return read.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reading ahead was interrupted.");
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+}
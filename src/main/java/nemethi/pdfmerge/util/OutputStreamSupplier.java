@@ -2,7 +2,9 @@ package nemethi.pdfmerge.util;
 
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 public class OutputStreamSupplier {
@@ -10,4 +12,8 @@ public class OutputStreamSupplier {
     public OutputStream getFileStream(Path path) throws FileNotFoundException {
         return new FileOutputStream(path.toFile());
     }
+
+    public void delete(Path path) throws IOException {
+        Files.deleteIfExists(path);
+    }
 }
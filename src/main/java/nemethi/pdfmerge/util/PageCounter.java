@@ -0,0 +1,87 @@
+package nemethi.pdfmerge.util;
+
+import nemethi.pdfmerge.archive.Archives;
+import nemethi.pdfmerge.cancel.CancellableRandomAccessRead;
+import nemethi.pdfmerge.cancel.Cancellation;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessBufferedFileInputStream;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdfparser.PDFParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+
+/**
+ * Reads the page count of a PDF from the /Count of its page tree: the cross-reference table, the trailer and three
+ * objects are parsed, where loading the document parses every object of it and copies its streams to scratch.
+ */
+public class PageCounter {
+
+    /**
+     * @return the page count, or -1 if the file has to be loaded to tell
+     */
+    public int count(Path path, MemoryUsageSetting memoryUsageSetting, Cancellation cancellation)
+            throws IOException {
+        try (ScratchFile scratchFile = new ScratchFile(memoryUsageSetting)) {
+            RandomAccessRead source;
+            if (Archives.isEntry(path)) {
+                try (InputStream inputStream = Archives.open(path)) {
+                    source = scratchFile.createBuffer(inputStream);
+                }
+            } else {
+                source = new RandomAccessBufferedFileInputStream(path.toFile());
+            }
+            if (cancellation != null) {
+                source = new CancellableRandomAccessRead(source, cancellation);
+            }
+            try (RandomAccessRead input = source) {
+                return new PageCountParser(input, scratchFile).count();
+            }
+        }
+    }
+
+    private static final class PageCountParser extends PDFParser {
+
+        private PageCountParser(RandomAccessRead source, ScratchFile scratchFile) throws IOException {
+            super(source, "", null, null, scratchFile);
+        }
+
+        private int count() throws IOException {
+            try {
+                if (!parsePDFHeader()) {
+                    return -1;
+                }
+                COSBase root = resolve(retrieveTrailer().getItem(COSName.ROOT));
+                if (!(root instanceof COSDictionary)) {
+                    return -1;
+                }
+                COSBase pages = resolve(((COSDictionary) root).getItem(COSName.PAGES));
+                if (!(pages instanceof COSDictionary)) {
+                    return -1;
+                }
+                COSBase count = resolve(((COSDictionary) pages).getItem(COSName.COUNT));
+                return count instanceof COSInteger && ((COSInteger) count).intValue() >= 0
+                        ? ((COSInteger) count).intValue() : -1;
+            } catch (InterruptedIOException e) {
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                // Loading the document repairs what it can, or reports what is wrong with it.
+                return -1;
+            } finally {
+                getDocument().close();
+            }
+        }
+
+        private COSBase resolve(COSBase base) throws IOException {
+            return base instanceof COSObject ? parseObjectDynamically((COSObject) base, false) : base;
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package nemethi.pdfmerge.util;
 
+import nemethi.pdfmerge.archive.Archives;
+
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.util.ArrayList;
@@ -9,11 +12,38 @@ import java.util.List;
 
 public class PathToStreamConverter {
 
-    public List<InputStream> convertPathsToStreams(List<Path> paths) throws FileNotFoundException {
+    private static final long DEFAULT_PREFETCH_BUFFER_SIZE = 64L << 20;
+
+    private int prefetchCount;
+    private long prefetchBufferSize = DEFAULT_PREFETCH_BUFFER_SIZE;
+
+    public List<InputStream> convertPathsToStreams(List<Path> paths) throws IOException {
+        if (prefetchCount > 0) {
+            return new InputPrefetcher(paths, prefetchCount, prefetchBufferSize).createStreams();
+        }
         List<InputStream> streams = new ArrayList<>();
         for (Path path : paths) {
-            streams.add(new FileInputStream(path.toFile()));
+            streams.add(open(path));
         }
         return streams;
     }
+
+    // Archive entries are opened lazily, while files are opened right away so a missing one fails before the merge.
+    public static InputStream open(Path path) throws IOException {
+        if (Archives.isEntry(path)) {
+            if (!Archives.exists(path)) {
+                throw new FileNotFoundException(path + " (No such file or cannot be read)");
+            }
+            return Archives.open(path);
+        }
+        return new FileInputStream(path.toFile());
+    }
+
+    public void setPrefetchCount(int prefetchCount) {
+        this.prefetchCount = prefetchCount;
+    }
+
+    public void setPrefetchBufferSize(long prefetchBufferSize) {
+        this.prefetchBufferSize = prefetchBufferSize;
+    }
 }
@@ -0,0 +1,83 @@
+package nemethi.pdfmerge.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+// Opens its input on first use, which also starts reading the following inputs ahead.
+class PrefetchedInputStream extends InputStream {
+
+    private final InputPrefetcher prefetcher;
+    private final int index;
+    private InputStream delegate;
+    private boolean exhausted;
+    private boolean closed;
+
+    PrefetchedInputStream(InputPrefetcher prefetcher, int index) {
+        this.prefetcher = prefetcher;
+        this.index = index;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (exhausted) {
+            return -1;
+        }
+        int value = delegate().read();
+        if (value < 0) {
+            finish();
+        }
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (exhausted) {
+            return -1;
+        }
+        int count = delegate().read(b, off, len);
+        if (count < 0) {
+            finish();
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        return exhausted ? 0 : delegate().skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return exhausted ? 0 : delegate().available();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        prefetcher.release(index);
+        if (delegate != null) {
+            delegate.close();
+        }
+    }
+
+    // Readers keep their streams open until the merge ends, so the buffer is given back as soon as it is consumed.
+    private void finish() throws IOException {
+        exhausted = true;
+        prefetcher.release(index);
+        delegate.close();
+        delegate = null;
+    }
+
+    private InputStream delegate() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (delegate == null) {
+            delegate = prefetcher.open(index);
+        }
+        return delegate;
+    }
+}
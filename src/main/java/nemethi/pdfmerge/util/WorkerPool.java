@@ -0,0 +1,120 @@
+package nemethi.pdfmerge.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Daemon threads shared by every call of their owner. Idle threads time out, so an owner that is no longer used
+ * holds none. A call keeps at most twice as many tasks in flight as there are threads, so the results waiting to
+ * be applied in order stay bounded however slow an early task is.
+ */
+public class WorkerPool implements Executor {
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final int TASKS_PER_THREAD = 2;
+
+    private final String name;
+    private final String description;
+    private final AtomicInteger threadCount = new AtomicInteger();
+    private int threads;
+    private ThreadPoolExecutor executor;
+
+    public WorkerPool(String name, String description, int threads) {
+        this.name = name;
+        this.description = description;
+        this.threads = threads;
+    }
+
+    /**
+     * Runs the task on every item in parallel and hands the results to the handler in the order of the items, on
+     * the calling thread.
+     */
+    public <T, R> void map(List<T> items, Task<T, R> task, ResultHandler<T, R> handler) throws IOException {
+        int maxInFlight;
+        ExecutorService pool;
+        synchronized (this) {
+            maxInFlight = threads * TASKS_PER_THREAD;
+            pool = executor();
+        }
+        Deque<Future<R>> inFlight = new ArrayDeque<>();
+        int submitted = 0;
+        try {
+            for (T item : items) {
+                while (submitted < items.size() && inFlight.size() < maxInFlight) {
+                    T next = items.get(submitted++);
+                    inFlight.add(pool.submit(() -> task.run(next)));
+                }
+                handler.accept(item, await(inFlight.poll()));
+            }
+        } finally {
+            for (Future<R> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    // Runs one task, queued while every thread is busy.
+    @Override
+    public void execute(Runnable task) {
+        ExecutorService pool;
+        synchronized (this) {
+            pool = executor();
+        }
+        pool.execute(task);
+    }
+
+    public synchronized void setThreads(int threads) {
+        this.threads = threads;
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private ExecutorService executor() {
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), task -> {
+                        Thread thread = new Thread(task, name + "-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    private <R> R await(Future<R> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(description + " was interrupted.");
+        } catch (ExecutionException e) {
+            throw new IOException(description + " failed.", e.getCause());
+        }
+    }
+
+    @FunctionalInterface
+    public interface Task<T, R> {
+
+        R run(T item) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface ResultHandler<T, R> {
+
+        void accept(T item, R result) throws IOException;
+    }
+}
@@ -0,0 +1,57 @@
+package nemethi.pdfmerge.volume;
+
+import java.nio.file.Path;
+
+public class Segment {
+
+    private final Path path;
+    private final int firstPage;
+    private final int pageCount;
+    private final int inputPageCount;
+    private final long inputSize;
+
+    public Segment(Path path, int inputPageCount, long inputSize) {
+        this(path, 0, inputPageCount, inputPageCount, inputSize);
+    }
+
+    private Segment(Path path, int firstPage, int pageCount, int inputPageCount, long inputSize) {
+        this.path = path;
+        this.firstPage = firstPage;
+        this.pageCount = pageCount;
+        this.inputPageCount = inputPageCount;
+        this.inputSize = inputSize;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getFirstPage() {
+        return firstPage;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public boolean isWholeInput() {
+        return firstPage == 0 && pageCount == inputPageCount;
+    }
+
+    long getPageSize() {
+        return inputPageCount == 0 ? inputSize : inputSize / inputPageCount;
+    }
+
+    long getEstimatedSize() {
+        return isWholeInput() ? inputSize : getPageSize() * pageCount;
+    }
+
+    Segment slice(int offset, int count) {
+        return new Segment(path, firstPage + offset, count, inputPageCount, inputSize);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s[%d..%d]", path, firstPage + 1, firstPage + pageCount);
+    }
+}
@@ -0,0 +1,61 @@
+package nemethi.pdfmerge.volume;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Volume {
+
+    private final List<Segment> segments = new ArrayList<>();
+    private int pageCount;
+    private long estimatedSize;
+
+    void add(Segment segment) {
+        segments.add(segment);
+        pageCount += segment.getPageCount();
+        estimatedSize += segment.getEstimatedSize();
+    }
+
+    public List<Segment> getSegments() {
+        return Collections.unmodifiableList(segments);
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    List<Volume> split() {
+        Volume first = new Volume();
+        Volume second = new Volume();
+        int remaining = pageCount / 2;
+        for (Segment segment : segments) {
+            int firstPart = Math.min(remaining, segment.getPageCount());
+            if (firstPart == segment.getPageCount()) {
+                first.add(segment);
+            } else if (firstPart == 0) {
+                second.add(segment);
+            } else {
+                first.add(segment.slice(0, firstPart));
+                second.add(segment.slice(firstPart, segment.getPageCount() - firstPart));
+            }
+            remaining -= firstPart;
+        }
+        List<Volume> halves = new ArrayList<>();
+        halves.add(first);
+        halves.add(second);
+        return halves;
+    }
+
+    @Override
+    public String toString() {
+        return segments.toString();
+    }
+}
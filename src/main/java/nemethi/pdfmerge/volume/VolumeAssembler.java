@@ -0,0 +1,10 @@
+package nemethi.pdfmerge.volume;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@FunctionalInterface
+public interface VolumeAssembler {
+
+    void assemble(Volume volume, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,66 @@
+package nemethi.pdfmerge.volume;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class VolumePlanner {
+
+    private int maxPages;
+    private long maxSize;
+
+    public boolean isEnabled() {
+        return maxPages > 0 || maxSize > 0;
+    }
+
+    // The size of a page is estimated from the size of its input; VolumeWriter splits volumes that turn out larger.
+    public List<Volume> plan(List<Segment> inputs) {
+        List<Volume> volumes = new ArrayList<>();
+        Volume volume = new Volume();
+        for (Segment input : inputs) {
+            Segment remaining = input;
+            while (remaining.getPageCount() > 0) {
+                int fitting = Math.min(remaining.getPageCount(), fittingPages(volume, remaining));
+                if (fitting == 0 && volume.isEmpty()) {
+                    fitting = 1;
+                }
+                if (fitting == 0) {
+                    volumes.add(volume);
+                    volume = new Volume();
+                    continue;
+                }
+                if (fitting == remaining.getPageCount()) {
+                    volume.add(remaining);
+                    break;
+                }
+                volume.add(remaining.slice(0, fitting));
+                remaining = remaining.slice(fitting, remaining.getPageCount() - fitting);
+            }
+        }
+        if (!volume.isEmpty()) {
+            volumes.add(volume);
+        }
+        return volumes;
+    }
+
+    private int fittingPages(Volume volume, Segment segment) {
+        long fitting = Integer.MAX_VALUE;
+        if (maxPages > 0) {
+            fitting = maxPages - volume.getPageCount();
+        }
+        if (maxSize > 0) {
+            long free = maxSize - volume.getEstimatedSize();
+            if (segment.getEstimatedSize() > free) {
+                fitting = Math.min(fitting, free / Math.max(1, segment.getPageSize()));
+            }
+        }
+        return (int) Math.max(0, fitting);
+    }
+
+    public void setMaxPages(int maxPages) {
+        this.maxPages = maxPages;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+}
@@ -0,0 +1,160 @@
+package nemethi.pdfmerge.volume;
+
+import nemethi.pdfmerge.util.FileChecker;
+import nemethi.pdfmerge.util.OutputStreamSupplier;
+import nemethi.pdfmerge.util.WorkerPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+public class VolumeWriter {
+
+    private static final String PART_PREFIX = ".pdfmerge-";
+    private static final String PART_SUFFIX = ".part";
+
+    private final WorkerPool workers = new WorkerPool("pdfmerge-volume", "Writing the output volumes",
+            Runtime.getRuntime().availableProcessors());
+    private FileChecker fileChecker;
+    private OutputStreamSupplier streamSupplier;
+    private long maxSize;
+
+    public VolumeWriter() {
+        fileChecker = new FileChecker();
+        streamSupplier = new OutputStreamSupplier();
+    }
+
+    public List<Path> write(List<Volume> volumes, Path outputPath, boolean overwrite, VolumeAssembler assembler)
+            throws IOException {
+        if (!overwrite) {
+            checkNotExisting(volumePaths(outputPath, volumes.size()));
+        }
+        Path directory = outputPath.toAbsolutePath().getParent();
+        List<Path> parts = Collections.synchronizedList(new ArrayList<>());
+        try {
+            List<Path> orderedParts = new ArrayList<>();
+            try {
+                workers.map(groupBySharedInput(volumes), group -> writeGroup(group, directory, assembler, parts),
+                        (group, groupParts) -> orderedParts.addAll(groupParts));
+            } catch (IOException e) {
+                // The pool wraps the failure of a volume, which callers tell apart, e.g. a timeout from a bad input.
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : e;
+            }
+            List<Path> volumePaths = volumePaths(outputPath, orderedParts.size());
+            if (!overwrite) {
+                checkNotExisting(volumePaths);
+            }
+            for (int i = 0; i < orderedParts.size(); i++) {
+                Files.move(orderedParts.get(i), volumePaths.get(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (overwrite) {
+                deleteLaterVolumes(outputPath, volumePaths.size());
+            }
+            return volumePaths;
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    static List<Path> volumePaths(Path outputPath, int count) {
+        List<Path> paths = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            paths.add(volumePath(outputPath, i));
+        }
+        return paths;
+    }
+
+    private static Path volumePath(Path outputPath, int number) {
+        String fileName = outputPath.getFileName().toString();
+        int extension = fileName.lastIndexOf('.');
+        String baseName = extension > 0 ? fileName.substring(0, extension) : fileName;
+        String suffix = extension > 0 ? fileName.substring(extension) : "";
+        return outputPath.resolveSibling(String.format("%s-%03d%s", baseName, number, suffix));
+    }
+
+    // The last volumes of an earlier run that wrote more of them would otherwise pass for part of this output.
+    private static void deleteLaterVolumes(Path outputPath, int count) throws IOException {
+        int number = count + 1;
+        while (Files.deleteIfExists(volumePath(outputPath, number))) {
+            number++;
+        }
+    }
+
+    // Each volume loads the inputs it cuts pages from, so volumes cut from the same input are written one after the
+    // other. That input is then loaded once at a time, however many volumes it is split into.
+    static List<List<Volume>> groupBySharedInput(List<Volume> volumes) {
+        List<List<Volume>> groups = new ArrayList<>();
+        List<Volume> group = null;
+        Path lastInput = null;
+        for (Volume volume : volumes) {
+            List<Segment> segments = volume.getSegments();
+            if (group == null || segments.isEmpty() || !segments.get(0).getPath().equals(lastInput)) {
+                group = new ArrayList<>();
+                groups.add(group);
+            }
+            group.add(volume);
+            lastInput = segments.isEmpty() ? null : segments.get(segments.size() - 1).getPath();
+        }
+        return groups;
+    }
+
+    private List<Path> writeGroup(List<Volume> group, Path directory, VolumeAssembler assembler, List<Path> parts)
+            throws IOException {
+        List<Path> groupParts = new ArrayList<>();
+        for (Volume volume : group) {
+            groupParts.addAll(writeVolume(volume, directory, assembler, parts));
+        }
+        return groupParts;
+    }
+
+    private List<Path> writeVolume(Volume volume, Path directory, VolumeAssembler assembler, List<Path> parts)
+            throws IOException {
+        Path part = directory.resolve(PART_PREFIX + UUID.randomUUID() + PART_SUFFIX);
+        parts.add(part);
+        try (OutputStream outputStream = streamSupplier.getFileStream(part)) {
+            assembler.assemble(volume, outputStream);
+        }
+        if (maxSize > 0 && volume.getPageCount() > 1 && Files.size(part) > maxSize) {
+            Files.delete(part);
+            List<Path> splitParts = new ArrayList<>();
+            for (Volume half : volume.split()) {
+                splitParts.addAll(writeVolume(half, directory, assembler, parts));
+            }
+            return splitParts;
+        }
+        return Collections.singletonList(part);
+    }
+
+    private void checkNotExisting(List<Path> volumePaths) throws FileAlreadyExistsException {
+        for (Path volumePath : volumePaths) {
+            if (fileChecker.exists(volumePath)) {
+                throw new FileAlreadyExistsException("The output file already exists.");
+            }
+        }
+    }
+
+    public void setFileChecker(FileChecker fileChecker) {
+        this.fileChecker = fileChecker;
+    }
+
+    public void setStreamSupplier(OutputStreamSupplier streamSupplier) {
+        this.streamSupplier = streamSupplier;
+    }
+
+    public void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public void setThreads(int threads) {
+        workers.setThreads(threads);
+    }
+}
@@ -0,0 +1,104 @@
+package nemethi.pdfmerge.watch;
+
+import nemethi.pdfmerge.PdfMerger;
+import nemethi.pdfmerge.streaming.MergeListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+public class FolderMerger implements Closeable {
+
+    private static final String PDF_EXTENSION = ".pdf";
+    private static final String PART_PREFIX = ".";
+    private static final String PART_SUFFIX = ".part";
+
+    private final Path directory;
+    private final Path outputPath;
+    private final Path partPath;
+    private final PdfMerger pdfMerger;
+    private InputCache inputCache;
+    private int changedCount;
+
+    public FolderMerger(Path directory, Path outputPath, PdfMerger pdfMerger) {
+        this.directory = directory;
+        this.pdfMerger = pdfMerger;
+        this.outputPath = outputPath.toAbsolutePath();
+        this.partPath = this.outputPath.resolveSibling(PART_PREFIX + this.outputPath.getFileName() + PART_SUFFIX);
+        inputCache = new InputCache();
+    }
+
+    public List<Path> listInputs() throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (isInput(entry) && Files.isRegularFile(entry)) {
+                    inputs.add(entry);
+                }
+            }
+        }
+        Collections.sort(inputs);
+        return inputs;
+    }
+
+    public boolean isInput(Path path) {
+        String fileName = path.getFileName().toString();
+        return fileName.toLowerCase(Locale.ROOT).endsWith(PDF_EXTENSION) && !fileName.startsWith(PART_PREFIX)
+                && !path.toAbsolutePath().equals(outputPath);
+    }
+
+    // Every rebuild is a merge by the merger, so all of its options apply to watch mode as well. Only the inputs
+    // that changed since the previous rebuild are loaded again.
+    public int rebuild() throws IOException {
+        List<Path> inputs = listInputs();
+        // An emptied directory leaves the previous output in place, so it does not count as a merge.
+        if (inputs.isEmpty()) {
+            changedCount = 0;
+            return 0;
+        }
+        int changed = inputCache.countChanged(inputs);
+        try {
+            pdfMerger.forceMerge(inputs, partPath, MergeListener.NONE, inputCache);
+            swapOutput();
+        } finally {
+            Files.deleteIfExists(partPath);
+        }
+        inputCache.update(inputs);
+        changedCount = changed;
+        return inputs.size();
+    }
+
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public Path getOutputPath() {
+        return outputPath;
+    }
+
+    private void swapOutput() throws IOException {
+        try {
+            Files.move(partPath, outputPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(partPath, outputPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Closes the documents kept for the next rebuild.
+    @Override
+    public void close() {
+        inputCache.close();
+    }
+
+    public void setInputCache(InputCache inputCache) {
+        this.inputCache = inputCache;
+    }
+}
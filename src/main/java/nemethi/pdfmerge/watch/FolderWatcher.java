@@ -0,0 +1,100 @@
+package nemethi.pdfmerge.watch;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+public class FolderWatcher {
+
+    private final FolderMerger folderMerger;
+    private final Path directory;
+    private final long debounceMillis;
+    private final PrintWriter out;
+    private final PrintWriter err;
+    private volatile WatchService watchService;
+
+    public FolderWatcher(FolderMerger folderMerger, Path directory, long debounceMillis, PrintWriter out, PrintWriter err) {
+        this.folderMerger = folderMerger;
+        this.directory = directory;
+        this.debounceMillis = debounceMillis;
+        this.out = out;
+        this.err = err;
+    }
+
+    public void run() throws IOException {
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            watchService = service;
+            directory.register(service, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+            rebuild();
+            while (awaitChanges(service)) {
+                rebuild();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        }
+    }
+
+    public void stop() throws IOException {
+        WatchService service = watchService;
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    // Waits for a relevant event, then for a quiet period of debounceMillis so that bursts trigger one rebuild.
+    private boolean awaitChanges(WatchService service) throws InterruptedException {
+        boolean changed = false;
+        WatchKey key = service.take();
+        while (key != null) {
+            changed |= isRelevant(key);
+            if (!key.reset()) {
+                err.println("pdfmerge watch: " + directory + " is no longer accessible.");
+                err.flush();
+                return false;
+            }
+            key = changed ? service.poll(debounceMillis, TimeUnit.MILLISECONDS) : service.take();
+        }
+        return true;
+    }
+
+    private boolean isRelevant(WatchKey key) {
+        boolean relevant = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                relevant = true;
+            } else if (folderMerger.isInput(directory.resolve((Path) event.context()))) {
+                relevant = true;
+            }
+        }
+        return relevant;
+    }
+
+    private void rebuild() {
+        try {
+            int inputCount = folderMerger.rebuild();
+            if (inputCount == 0) {
+                out.printf("No PDF files in %s.%n", directory);
+            } else {
+                out.printf("Merged %d files (%d changed) into %s.%n",
+                        inputCount, folderMerger.getChangedCount(), folderMerger.getOutputPath());
+            }
+            out.flush();
+        } catch (IOException e) {
+            err.println("pdfmerge watch: " + e.getMessage());
+            err.flush();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package nemethi.pdfmerge.watch;
+
+import nemethi.pdfmerge.cache.DocumentCache;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Keeps a size and modification time fingerprint of the inputs merged last, keyed by path, so a rebuild can tell
+ * how many of its inputs are new or changed. The documents the merger loaded are kept with the fingerprint their
+ * input had when it was looked up, so the next rebuild only loads the inputs that changed since. Every input of
+ * the directory therefore stays loaded between rebuilds, until it changes or is removed. Rebuilds must not overlap.
+ */
+public class InputCache implements DocumentCache, Closeable {
+
+    private final Map<Path, Fingerprint> fingerprints = new HashMap<>();
+    private final Map<Path, CachedDocument> documents = new HashMap<>();
+    private final Map<Path, Fingerprint> misses = new HashMap<>();
+
+    public int countChanged(List<Path> inputPaths) throws IOException {
+        int changedCount = 0;
+        for (Path inputPath : inputPaths) {
+            if (!fingerprintOf(inputPath).equals(fingerprints.get(inputPath))) {
+                changedCount++;
+            }
+        }
+        return changedCount;
+    }
+
+    // The fingerprint is taken before the merger loads the input, so a change made while it loads is seen next time.
+    @Override
+    public PDDocument get(Path inputPath) throws IOException {
+        Fingerprint fingerprint = fingerprintOf(inputPath);
+        CachedDocument cached = documents.get(inputPath);
+        if (cached != null && fingerprint.equals(cached.fingerprint)) {
+            return cached.document;
+        }
+        misses.put(inputPath, fingerprint);
+        return null;
+    }
+
+    @Override
+    public void put(Path inputPath, PDDocument document, InputStream inputStream) {
+        CachedDocument replaced = documents.put(inputPath,
+                new CachedDocument(misses.remove(inputPath), document, inputStream));
+        if (replaced != null) {
+            replaced.close();
+        }
+    }
+
+    // Removed inputs are forgotten and their documents closed, so a file that comes back counts as changed.
+    public void update(List<Path> inputPaths) throws IOException {
+        Map<Path, Fingerprint> current = new HashMap<>();
+        for (Path inputPath : inputPaths) {
+            try {
+                current.put(inputPath, fingerprintOf(inputPath));
+            } catch (NoSuchFileException e) {
+                // removed since it was merged, which the next rebuild picks up
+            }
+        }
+        fingerprints.clear();
+        fingerprints.putAll(current);
+        Set<Path> retained = new HashSet<>(inputPaths);
+        for (Iterator<Map.Entry<Path, CachedDocument>> entries = documents.entrySet().iterator(); entries.hasNext(); ) {
+            Map.Entry<Path, CachedDocument> entry = entries.next();
+            if (!retained.contains(entry.getKey())) {
+                entry.getValue().close();
+                entries.remove();
+            }
+        }
+        misses.clear();
+    }
+
+    public int size() {
+        return fingerprints.size();
+    }
+
+    public int documentCount() {
+        return documents.size();
+    }
+
+    @Override
+    public void close() {
+        documents.values().forEach(CachedDocument::close);
+        documents.clear();
+        misses.clear();
+    }
+
+    private static Fingerprint fingerprintOf(Path inputPath) throws IOException {
+        return new Fingerprint(Files.readAttributes(inputPath, BasicFileAttributes.class));
+    }
+
+    private static final class CachedDocument {
+
+        private final Fingerprint fingerprint;
+        private final PDDocument document;
+        private final InputStream inputStream;
+
+        private CachedDocument(Fingerprint fingerprint, PDDocument document, InputStream inputStream) {
+            this.fingerprint = fingerprint;
+            this.document = document;
+            this.inputStream = inputStream;
+        }
+
+        private void close() {
+            IOUtils.closeQuietly(document);
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    private static final class Fingerprint {
+
+        private final long size;
+        private final FileTime lastModified;
+
+        private Fingerprint(BasicFileAttributes attributes) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Fingerprint that = (Fingerprint) o;
+            return size == that.size && Objects.equals(lastModified, that.lastModified);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lastModified);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package nemethi.pdfmerge.writer;
+
+import java.io.ByteArrayOutputStream;
+
+class BitWriter {
+
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private int currentByte;
+    private int bitCount;
+
+    void write(long value, int bits) {
+        for (int i = bits - 1; i >= 0; i--) {
+            currentByte = (currentByte << 1) | (int) ((value >>> i) & 1);
+            bitCount++;
+            if (bitCount == Byte.SIZE) {
+                output.write(currentByte);
+                currentByte = 0;
+                bitCount = 0;
+            }
+        }
+    }
+
+    void alignToByte() {
+        if (bitCount > 0) {
+            write(0, Byte.SIZE - bitCount);
+        }
+    }
+
+    int size() {
+        return output.size();
+    }
+
+    byte[] toByteArray() {
+        alignToByte();
+        return output.toByteArray();
+    }
+
+    static int bitsNeeded(long value) {
+        return Long.SIZE - Long.numberOfLeadingZeros(value);
+    }
+}
@@ -0,0 +1,82 @@
+package nemethi.pdfmerge.writer;
+
+import org.apache.pdfbox.cos.COSBase;
+
+class IndirectObject {
+
+    private final COSBase object;
+    private int number;
+    private long offset;
+    private long length;
+    private int firstPage = -1;
+    private int lastPage = -1;
+    private int pageCount;
+    private int sharedIdentifier = -1;
+    private boolean assigned;
+
+    IndirectObject(COSBase object) {
+        this.object = object;
+    }
+
+    void markUsedByPage(int pageIndex) {
+        if (lastPage != pageIndex) {
+            if (firstPage < 0) {
+                firstPage = pageIndex;
+            }
+            lastPage = pageIndex;
+            pageCount++;
+        }
+    }
+
+    COSBase getObject() {
+        return object;
+    }
+
+    int getNumber() {
+        return number;
+    }
+
+    void setNumber(int number) {
+        this.number = number;
+    }
+
+    long getOffset() {
+        return offset;
+    }
+
+    void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    long getLength() {
+        return length;
+    }
+
+    void setLength(long length) {
+        this.length = length;
+    }
+
+    int getFirstPage() {
+        return firstPage;
+    }
+
+    int getPageCount() {
+        return pageCount;
+    }
+
+    int getSharedIdentifier() {
+        return sharedIdentifier;
+    }
+
+    void setSharedIdentifier(int sharedIdentifier) {
+        this.sharedIdentifier = sharedIdentifier;
+    }
+
+    boolean isAssigned() {
+        return assigned;
+    }
+
+    void setAssigned(boolean assigned) {
+        this.assigned = assigned;
+    }
+}
@@ -0,0 +1,532 @@
+package nemethi.pdfmerge.writer;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static nemethi.pdfmerge.writer.ObjectSerializer.ascii;
+
+/**
+ * Lays out a document in the order described in Annex F of ISO 32000-1:
+ * header, linearization dictionary, first-page cross-reference table, catalog, primary hint stream,
+ * first page, remaining pages, shared objects, other objects and finally the main cross-reference table.
+ */
+class Linearization {
+
+    private static final int OFFSET_WIDTH = 10;
+    private static final int SHARED_OBJECT_DENOMINATOR = 1;
+    private static final COSName[] DOCUMENT_LEVEL_KEYS = {COSName.VIEWER_PREFERENCES, COSName.OPEN_ACTION,
+            COSName.ACRO_FORM};
+    private static final byte[] BINARY_COMMENT = {'%', (byte) 0xE2, (byte) 0xE3, (byte) 0xCF, (byte) 0xD3, '\n'};
+    private static final String XREF_ENTRY_FORMAT = "%010d 00000 n\r\n";
+    private static final String FREE_XREF_ENTRY = "0000000000 65535 f\r\n";
+
+    private final PDDocument document;
+    private final Map<COSBase, IndirectObject> objects = new IdentityHashMap<>();
+    private final List<IndirectObject> discoveryOrder = new ArrayList<>();
+    private final Set<COSBase> pageTreeNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<List<IndirectObject>> pageReaches = new ArrayList<>();
+    private final List<IndirectObject> catalogPart = new ArrayList<>();
+    private final List<IndirectObject> firstPagePart = new ArrayList<>();
+    private final List<List<IndirectObject>> pageParts = new ArrayList<>();
+    private final List<IndirectObject> sharedPart = new ArrayList<>();
+    private final List<IndirectObject> otherPart = new ArrayList<>();
+    private final ObjectSerializer serializer = new ObjectSerializer(objects);
+
+    private COSDictionary trailer;
+    private IndirectObject catalog;
+    private IndirectObject info;
+    private byte[] header;
+    private byte[] documentId;
+    private int firstPageSectionStart;
+    private int linearizationNumber;
+    private int hintStreamNumber;
+    private int totalObjects;
+    private long firstPageXrefOffset;
+    private long hintStreamOffset;
+    private long firstPageEnd;
+    private long mainXrefOffset;
+    private long fileLength;
+
+    Linearization(PDDocument document) {
+        this.document = document;
+    }
+
+    void write(OutputStream outputStream) throws IOException {
+        if (document.isEncrypted()) {
+            throw new IOException("Linearization of encrypted documents is not supported.");
+        }
+        if (document.getNumberOfPages() == 0) {
+            throw new IOException("Cannot linearize a document without pages.");
+        }
+        discoverObjects();
+        partitionObjects();
+        numberObjects();
+        measureObjects();
+        layout(0);
+        byte[] hintStream = buildHintStream();
+        layout(hintStream.length);
+        writeFile(outputStream, hintStream);
+    }
+
+    private void discoverObjects() throws IOException {
+        trailer = document.getDocument().getTrailer();
+        COSBase root = ObjectSerializer.resolve(trailer.getItem(COSName.ROOT));
+        if (!(root instanceof COSDictionary)) {
+            throw new IOException("The document has no catalog.");
+        }
+        COSBase documentInfo = ObjectSerializer.resolve(trailer.getItem(COSName.INFO));
+        Deque<COSBase> queue = new ArrayDeque<>();
+        catalog = register(root, queue);
+        if (documentInfo != null) {
+            info = register(documentInfo, queue);
+        }
+        for (PDPage page : document.getPages()) {
+            pageTreeNodes.add(page.getCOSObject());
+        }
+        List<COSBase> references = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            COSBase current = queue.poll();
+            if (current instanceof COSDictionary && COSName.PAGES.equals(((COSDictionary) current).getItem(COSName.TYPE))) {
+                pageTreeNodes.add(current);
+            }
+            references.clear();
+            ObjectSerializer.collectReferences(current, true, references);
+            for (COSBase reference : references) {
+                if (!objects.containsKey(reference)) {
+                    register(reference, queue);
+                }
+            }
+        }
+    }
+
+    private IndirectObject register(COSBase object, Deque<COSBase> queue) {
+        IndirectObject indirectObject = new IndirectObject(object);
+        objects.put(object, indirectObject);
+        discoveryOrder.add(indirectObject);
+        queue.add(object);
+        return indirectObject;
+    }
+
+    private void partitionObjects() {
+        int pageIndex = 0;
+        for (PDPage page : document.getPages()) {
+            List<IndirectObject> reach = reach(Collections.singletonList(page.getCOSObject()));
+            for (IndirectObject object : reach) {
+                object.markUsedByPage(pageIndex);
+            }
+            pageReaches.add(reach);
+            pageIndex++;
+        }
+
+        assign(catalog, catalogPart);
+        for (IndirectObject object : pageReaches.get(0)) {
+            assign(object, firstPagePart);
+        }
+        COSDictionary catalogDictionary = (COSDictionary) catalog.getObject();
+        List<COSBase> documentLevelObjects = new ArrayList<>();
+        for (COSName key : DOCUMENT_LEVEL_KEYS) {
+            ObjectSerializer.collectValueReferences(catalogDictionary.getItem(key), false, documentLevelObjects);
+        }
+        for (IndirectObject object : reach(documentLevelObjects)) {
+            if (object.getFirstPage() < 0) {
+                assign(object, catalogPart);
+            }
+        }
+        for (int i = 1; i < pageReaches.size(); i++) {
+            List<IndirectObject> pagePart = new ArrayList<>();
+            for (IndirectObject object : pageReaches.get(i)) {
+                if (object.getFirstPage() == i && object.getPageCount() == 1) {
+                    assign(object, pagePart);
+                }
+            }
+            pageParts.add(pagePart);
+        }
+        for (IndirectObject object : discoveryOrder) {
+            if (object.getPageCount() > 1) {
+                assign(object, sharedPart);
+            }
+        }
+        for (IndirectObject object : discoveryOrder) {
+            assign(object, otherPart);
+        }
+
+        int sharedIdentifier = 0;
+        for (IndirectObject object : firstPagePart) {
+            object.setSharedIdentifier(sharedIdentifier++);
+        }
+        for (IndirectObject object : sharedPart) {
+            object.setSharedIdentifier(sharedIdentifier++);
+        }
+    }
+
+    private List<IndirectObject> reach(List<COSBase> starts) {
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSBase> queue = new ArrayDeque<>();
+        List<IndirectObject> reached = new ArrayList<>();
+        for (COSBase start : starts) {
+            if (objects.containsKey(start) && visited.add(start)) {
+                queue.add(start);
+            }
+        }
+        List<COSBase> references = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            COSBase current = queue.poll();
+            reached.add(objects.get(current));
+            references.clear();
+            ObjectSerializer.collectReferences(current, false, references);
+            for (COSBase reference : references) {
+                if (!pageTreeNodes.contains(reference) && objects.containsKey(reference) && visited.add(reference)) {
+                    queue.add(reference);
+                }
+            }
+        }
+        return reached;
+    }
+
+    private void assign(IndirectObject object, List<IndirectObject> part) {
+        if (!object.isAssigned()) {
+            object.setAssigned(true);
+            part.add(object);
+        }
+    }
+
+    private void numberObjects() {
+        int number = 1;
+        for (List<IndirectObject> pagePart : pageParts) {
+            number = numberPart(pagePart, number);
+        }
+        number = numberPart(sharedPart, number);
+        number = numberPart(otherPart, number);
+        firstPageSectionStart = number;
+        linearizationNumber = number++;
+        number = numberPart(catalogPart, number);
+        hintStreamNumber = number++;
+        totalObjects = numberPart(firstPagePart, number);
+    }
+
+    private int numberPart(List<IndirectObject> part, int firstNumber) {
+        int number = firstNumber;
+        for (IndirectObject object : part) {
+            object.setNumber(number++);
+        }
+        return number;
+    }
+
+    private void measureObjects() throws IOException {
+        MessageDigest digest = newDigest();
+        CountingOutputStream counter = new CountingOutputStream(new DigestOutputStream(new NullOutputStream(), digest));
+        for (IndirectObject object : fileOrder()) {
+            long start = counter.getCount();
+            serializer.writeObject(object, counter);
+            object.setLength(counter.getCount() - start);
+        }
+        documentId = digest.digest();
+        header = ascii("%PDF-" + document.getVersion() + "\n");
+    }
+
+    private void layout(long hintStreamLength) throws IOException {
+        long position = header.length + BINARY_COMMENT.length;
+        position += linearizationDictionary().length;
+        firstPageXrefOffset = position;
+        position += firstPageXref().length;
+        position = place(catalogPart, position);
+        hintStreamOffset = position;
+        position += hintStreamLength;
+        position = place(firstPagePart, position);
+        firstPageEnd = position;
+        for (List<IndirectObject> pagePart : pageParts) {
+            position = place(pagePart, position);
+        }
+        position = place(sharedPart, position);
+        position = place(otherPart, position);
+        mainXrefOffset = position;
+        fileLength = position + mainXref().length;
+    }
+
+    private long place(List<IndirectObject> part, long firstOffset) {
+        long position = firstOffset;
+        for (IndirectObject object : part) {
+            object.setOffset(position);
+            position += object.getLength();
+        }
+        return position;
+    }
+
+    // Offsets in the hint tables are computed as if the hint stream were not present (ISO 32000-1, F.4).
+    private byte[] buildHintStream() {
+        int pageCount = pageReaches.size();
+        long[] objectCounts = new long[pageCount];
+        long[] pageLengths = new long[pageCount];
+        List<List<IndirectObject>> sharedReferences = new ArrayList<>();
+        objectCounts[0] = firstPagePart.size();
+        pageLengths[0] = firstPageEnd - firstPagePart.get(0).getOffset();
+        sharedReferences.add(Collections.emptyList());
+        for (int i = 1; i < pageCount; i++) {
+            List<IndirectObject> pagePart = pageParts.get(i - 1);
+            objectCounts[i] = pagePart.size();
+            pageLengths[i] = partLength(pagePart);
+            List<IndirectObject> references = new ArrayList<>();
+            for (IndirectObject object : pageReaches.get(i)) {
+                if (object.getSharedIdentifier() >= 0) {
+                    references.add(object);
+                }
+            }
+            sharedReferences.add(references);
+        }
+
+        long leastObjects = min(objectCounts);
+        long leastLength = min(pageLengths);
+        int objectBits = BitWriter.bitsNeeded(max(objectCounts) - leastObjects);
+        int lengthBits = BitWriter.bitsNeeded(max(pageLengths) - leastLength);
+        int sharedCountBits = 0;
+        int sharedIdentifierBits = BitWriter.bitsNeeded(Math.max(0, firstPagePart.size() + sharedPart.size() - 1));
+        for (List<IndirectObject> references : sharedReferences) {
+            sharedCountBits = Math.max(sharedCountBits, BitWriter.bitsNeeded(references.size()));
+        }
+
+        BitWriter bits = new BitWriter();
+        bits.write(leastObjects, 32);
+        bits.write(firstPagePart.get(0).getOffset(), 32);
+        bits.write(objectBits, 16);
+        bits.write(leastLength, 32);
+        bits.write(lengthBits, 16);
+        bits.write(0, 32);
+        bits.write(0, 16);
+        bits.write(leastLength, 32);
+        bits.write(lengthBits, 16);
+        bits.write(sharedCountBits, 16);
+        bits.write(sharedIdentifierBits, 16);
+        bits.write(0, 16);
+        bits.write(SHARED_OBJECT_DENOMINATOR, 16);
+        for (long objectCount : objectCounts) {
+            bits.write(objectCount - leastObjects, objectBits);
+        }
+        bits.alignToByte();
+        for (long pageLength : pageLengths) {
+            bits.write(pageLength - leastLength, lengthBits);
+        }
+        bits.alignToByte();
+        for (List<IndirectObject> references : sharedReferences) {
+            bits.write(references.size(), sharedCountBits);
+        }
+        bits.alignToByte();
+        for (List<IndirectObject> references : sharedReferences) {
+            for (IndirectObject reference : references) {
+                bits.write(reference.getSharedIdentifier(), sharedIdentifierBits);
+            }
+        }
+        bits.alignToByte();
+        for (long pageLength : pageLengths) {
+            bits.write(pageLength - leastLength, lengthBits);
+        }
+        bits.alignToByte();
+        int sharedObjectTableOffset = bits.size();
+
+        List<IndirectObject> sharedGroups = new ArrayList<>(firstPagePart);
+        sharedGroups.addAll(sharedPart);
+        long[] groupLengths = new long[sharedGroups.size()];
+        for (int i = 0; i < groupLengths.length; i++) {
+            groupLengths[i] = sharedGroups.get(i).getLength();
+        }
+        long leastGroupLength = min(groupLengths);
+        int groupLengthBits = BitWriter.bitsNeeded(max(groupLengths) - leastGroupLength);
+        bits.write(sharedPart.isEmpty() ? 0 : sharedPart.get(0).getNumber(), 32);
+        bits.write(sharedPart.isEmpty() ? 0 : sharedPart.get(0).getOffset(), 32);
+        bits.write(firstPagePart.size(), 32);
+        bits.write(sharedGroups.size(), 32);
+        bits.write(0, 16);
+        bits.write(leastGroupLength, 32);
+        bits.write(groupLengthBits, 16);
+        for (long groupLength : groupLengths) {
+            bits.write(groupLength - leastGroupLength, groupLengthBits);
+        }
+        bits.alignToByte();
+        for (int i = 0; i < groupLengths.length; i++) {
+            bits.write(0, 1);
+        }
+        byte[] data = bits.toByteArray();
+
+        ByteArrayOutputStream hintStream = new ByteArrayOutputStream();
+        writeAscii(hintStream, hintStreamNumber + " 0 obj\n<</S " + sharedObjectTableOffset + "/Length " + data.length
+                + ">>\nstream\r\n");
+        hintStream.write(data, 0, data.length);
+        writeAscii(hintStream, "\r\nendstream\nendobj\n");
+        return hintStream.toByteArray();
+    }
+
+    private void writeFile(OutputStream outputStream, byte[] hintStream) throws IOException {
+        CountingOutputStream output = new CountingOutputStream(outputStream);
+        output.write(header);
+        output.write(BINARY_COMMENT);
+        output.write(linearizationDictionary());
+        output.write(firstPageXref());
+        writePart(catalogPart, output);
+        output.write(hintStream);
+        writePart(firstPagePart, output);
+        for (List<IndirectObject> pagePart : pageParts) {
+            writePart(pagePart, output);
+        }
+        writePart(sharedPart, output);
+        writePart(otherPart, output);
+        output.write(mainXref());
+        if (output.getCount() != fileLength) {
+            throw new IOException("Linearized output does not match the computed layout.");
+        }
+    }
+
+    private void writePart(List<IndirectObject> part, CountingOutputStream output) throws IOException {
+        for (IndirectObject object : part) {
+            if (output.getCount() != object.getOffset()) {
+                throw new IOException("Linearized output does not match the computed layout.");
+            }
+            serializer.writeObject(object, output);
+        }
+    }
+
+    private byte[] linearizationDictionary() {
+        long hintStreamLength = firstPagePart.isEmpty() ? 0 : firstPagePart.get(0).getOffset() - hintStreamOffset;
+        String dictionary = linearizationNumber + " 0 obj\n<</Linearized 1/L " + pad(fileLength)
+                + "/H [" + pad(hintStreamOffset) + " " + pad(hintStreamLength) + "]"
+                + "/O " + firstPagePart.get(0).getNumber()
+                + "/E " + pad(firstPageEnd)
+                + "/N " + pageReaches.size()
+                + "/T " + pad(mainXrefOffset + ascii("xref\n0 " + firstPageSectionStart).length)
+                + ">>\nendobj\n";
+        return ascii(dictionary);
+    }
+
+    private byte[] firstPageXref() throws IOException {
+        ByteArrayOutputStream xref = new ByteArrayOutputStream();
+        int count = totalObjects - firstPageSectionStart;
+        writeAscii(xref, "xref\n" + firstPageSectionStart + " " + count + "\n");
+        writeAscii(xref, String.format(XREF_ENTRY_FORMAT, header.length + BINARY_COMMENT.length));
+        for (IndirectObject object : catalogPart) {
+            writeAscii(xref, String.format(XREF_ENTRY_FORMAT, object.getOffset()));
+        }
+        writeAscii(xref, String.format(XREF_ENTRY_FORMAT, hintStreamOffset));
+        for (IndirectObject object : firstPagePart) {
+            writeAscii(xref, String.format(XREF_ENTRY_FORMAT, object.getOffset()));
+        }
+        writeAscii(xref, "trailer\n<</Size " + totalObjects + "/Root " + catalog.getNumber() + " 0 R");
+        if (info != null) {
+            writeAscii(xref, "/Info " + info.getNumber() + " 0 R");
+        }
+        writeAscii(xref, "/ID ");
+        serializer.writeValue(documentIdArray(), xref);
+        writeAscii(xref, "/Prev " + pad(mainXrefOffset) + ">>\nstartxref\n0\n%%EOF\n");
+        return xref.toByteArray();
+    }
+
+    private byte[] mainXref() {
+        ByteArrayOutputStream xref = new ByteArrayOutputStream();
+        writeAscii(xref, "xref\n0 " + firstPageSectionStart + "\n" + FREE_XREF_ENTRY);
+        for (IndirectObject object : fileOrder()) {
+            if (object.getNumber() < firstPageSectionStart) {
+                writeAscii(xref, String.format(XREF_ENTRY_FORMAT, object.getOffset()));
+            }
+        }
+        writeAscii(xref, "trailer\n<</Size " + firstPageSectionStart + ">>\nstartxref\n" + firstPageXrefOffset
+                + "\n%%EOF\n");
+        return xref.toByteArray();
+    }
+
+    private COSArray documentIdArray() {
+        COSBase existingId = ObjectSerializer.resolve(trailer.getItem(COSName.ID));
+        if (existingId instanceof COSArray && ((COSArray) existingId).size() == 2) {
+            return (COSArray) existingId;
+        }
+        COSString id = new COSString(documentId);
+        id.setForceHexForm(true);
+        COSArray idArray = new COSArray();
+        idArray.add(id);
+        idArray.add(id);
+        return idArray;
+    }
+
+    private List<IndirectObject> fileOrder() {
+        List<IndirectObject> order = new ArrayList<>(catalogPart);
+        order.addAll(firstPagePart);
+        for (List<IndirectObject> pagePart : pageParts) {
+            order.addAll(pagePart);
+        }
+        order.addAll(sharedPart);
+        order.addAll(otherPart);
+        return order;
+    }
+
+    private static long partLength(List<IndirectObject> part) {
+        long length = 0;
+        for (IndirectObject object : part) {
+            length += object.getLength();
+        }
+        return length;
+    }
+
+    private static long min(long[] values) {
+        long min = Long.MAX_VALUE;
+        for (long value : values) {
+            min = Math.min(min, value);
+        }
+        return values.length == 0 ? 0 : min;
+    }
+
+    private static long max(long[] values) {
+        long max = 0;
+        for (long value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    private static String pad(long value) {
+        StringBuilder padded = new StringBuilder(Long.toString(value));
+        while (padded.length() < OFFSET_WIDTH) {
+            padded.append(' ');
+        }
+        return padded.toString();
+    }
+
+    private static void writeAscii(ByteArrayOutputStream output, String text) {
+        byte[] bytes = ascii(text);
+        output.write(bytes, 0, bytes.length);
+    }
+
+    private static MessageDigest newDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static class NullOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package nemethi.pdfmerge.writer;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+public class LinearizedWriter {
+
+    public void write(PDDocument document, OutputStream outputStream) throws IOException {
+        BufferedOutputStream bufferedStream = new BufferedOutputStream(outputStream);
+        new Linearization(document).write(bufferedStream);
+        bufferedStream.flush();
+    }
+}
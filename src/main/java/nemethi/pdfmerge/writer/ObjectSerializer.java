@@ -0,0 +1,170 @@
+package nemethi.pdfmerge.writer;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSBoolean;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSFloat;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdfwriter.COSWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+class ObjectSerializer {
+
+    private static final byte[] DICTIONARY_OPEN = ascii("<<");
+    private static final byte[] DICTIONARY_CLOSE = ascii(">>");
+    private static final byte[] ARRAY_OPEN = ascii("[");
+    private static final byte[] ARRAY_CLOSE = ascii("]");
+    private static final byte[] SPACE = ascii(" ");
+    private static final byte[] STREAM = ascii("\nstream\r\n");
+    private static final byte[] END_STREAM = ascii("\r\nendstream");
+    private static final byte[] END_OBJECT = ascii("\nendobj\n");
+
+    private final Map<COSBase, IndirectObject> objects;
+
+    ObjectSerializer(Map<COSBase, IndirectObject> objects) {
+        this.objects = objects;
+    }
+
+    void writeObject(IndirectObject object, OutputStream output) throws IOException {
+        output.write(ascii(object.getNumber() + " 0 obj\n"));
+        COSBase body = object.getObject();
+        if (body instanceof COSStream) {
+            writeStream((COSStream) body, output);
+        } else {
+            writeDirect(body, output);
+        }
+        output.write(END_OBJECT);
+    }
+
+    void writeValue(COSBase value, OutputStream output) throws IOException {
+        if (isReference(value)) {
+            writeReference(resolve(value), output);
+        } else {
+            writeDirect(value, output);
+        }
+    }
+
+    static boolean isReference(COSBase value) {
+        return value instanceof COSObject || value instanceof COSStream
+                || (value instanceof COSDictionary && !value.isDirect());
+    }
+
+    static COSBase resolve(COSBase value) {
+        COSBase resolved = value instanceof COSObject ? ((COSObject) value).getObject() : value;
+        return resolved instanceof COSNull ? null : resolved;
+    }
+
+    static void collectReferences(COSBase body, boolean followParents, Collection<COSBase> references) {
+        if (body instanceof COSDictionary) {
+            boolean isStream = body instanceof COSStream;
+            for (Map.Entry<COSName, COSBase> entry : ((COSDictionary) body).entrySet()) {
+                COSName key = entry.getKey();
+                if ((isStream && COSName.LENGTH.equals(key)) || (!followParents && COSName.PARENT.equals(key))) {
+                    continue;
+                }
+                collectValueReferences(entry.getValue(), followParents, references);
+            }
+        } else if (body instanceof COSArray) {
+            for (COSBase element : (COSArray) body) {
+                collectValueReferences(element, followParents, references);
+            }
+        }
+    }
+
+    static void collectValueReferences(COSBase value, boolean followParents, Collection<COSBase> references) {
+        if (isReference(value)) {
+            COSBase target = resolve(value);
+            if (target != null) {
+                references.add(target);
+            }
+        } else {
+            collectReferences(value, followParents, references);
+        }
+    }
+
+    static byte[] ascii(String text) {
+        return text.getBytes(US_ASCII);
+    }
+
+    private void writeStream(COSStream stream, OutputStream output) throws IOException {
+        writeDictionary(stream, output);
+        output.write(STREAM);
+        try (InputStream input = stream.createRawInputStream()) {
+            IOUtils.copy(input, output);
+        }
+        output.write(END_STREAM);
+    }
+
+    private void writeDirect(COSBase value, OutputStream output) throws IOException {
+        if (value instanceof COSDictionary) {
+            writeDictionary((COSDictionary) value, output);
+        } else if (value instanceof COSArray) {
+            writeArray((COSArray) value, output);
+        } else if (value instanceof COSString) {
+            COSWriter.writeString((COSString) value, output);
+        } else if (value instanceof COSName) {
+            ((COSName) value).writePDF(output);
+        } else if (value instanceof COSInteger) {
+            ((COSInteger) value).writePDF(output);
+        } else if (value instanceof COSFloat) {
+            ((COSFloat) value).writePDF(output);
+        } else if (value instanceof COSBoolean) {
+            ((COSBoolean) value).writePDF(output);
+        } else {
+            COSNull.NULL.writePDF(output);
+        }
+    }
+
+    private void writeDictionary(COSDictionary dictionary, OutputStream output) throws IOException {
+        boolean isStream = dictionary instanceof COSStream;
+        output.write(DICTIONARY_OPEN);
+        for (Map.Entry<COSName, COSBase> entry : dictionary.entrySet()) {
+            if (entry.getValue() == null || (isStream && COSName.LENGTH.equals(entry.getKey()))) {
+                continue;
+            }
+            entry.getKey().writePDF(output);
+            output.write(SPACE);
+            writeValue(entry.getValue(), output);
+        }
+        if (isStream) {
+            COSName.LENGTH.writePDF(output);
+            output.write(SPACE);
+            output.write(ascii(Long.toString(((COSStream) dictionary).getLength())));
+        }
+        output.write(DICTIONARY_CLOSE);
+    }
+
+    private void writeArray(COSArray array, OutputStream output) throws IOException {
+        output.write(ARRAY_OPEN);
+        for (int i = 0; i < array.size(); i++) {
+            if (i > 0) {
+                output.write(SPACE);
+            }
+            writeValue(array.get(i), output);
+        }
+        output.write(ARRAY_CLOSE);
+    }
+
+    private void writeReference(COSBase target, OutputStream output) throws IOException {
+        IndirectObject object = target == null ? null : objects.get(target);
+        if (object == null) {
+            COSNull.NULL.writePDF(output);
+        } else {
+            output.write(ascii(object.getNumber() + " 0 R"));
+        }
+    }
+}
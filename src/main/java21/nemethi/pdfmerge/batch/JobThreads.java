@@ -0,0 +1,23 @@
+package nemethi.pdfmerge.batch;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// The Java 21 version of the class in src/main/java, picked by the multi-release JAR.
+public final class JobThreads {
+
+    private static final ThreadFactory FACTORY = Thread.ofVirtual().name("pdfmerge-job-", 0).factory();
+
+    private JobThreads() {
+    }
+
+    public static boolean isVirtualAvailable() {
+        return true;
+    }
+
+    // The workers bound how many jobs run at once, so each of them can have its own thread.
+    static ExecutorService newVirtualExecutor(int workers) {
+        return Executors.newThreadPerTaskExecutor(FACTORY);
+    }
+}
@@ -0,0 +1,34 @@
+package nemethi.pdfmerge.server;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+
+// The Java 21 version of the class in src/main/java, picked by the multi-release JAR.
+final class ServerSockets {
+
+    private ServerSockets() {
+    }
+
+    static String transport() {
+        return Endpoints.UNIX;
+    }
+
+    static ServerSocketChannel bind(Path socket) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.bind(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    static SocketChannel connectUnix(Path socket) throws IOException {
+        return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+    }
+}
@@ -1,9 +1,21 @@
 package nemethi.pdfmerge;
 
+import nemethi.pdfmerge.archive.ArchiveExpander;
+import nemethi.pdfmerge.archive.ArchiveOrder;
+import nemethi.pdfmerge.gc.CollectionReport;
+import nemethi.pdfmerge.metrics.MergeMetrics;
+import nemethi.pdfmerge.progress.ProgressFormat;
+import nemethi.pdfmerge.scratch.OffHeapScratch;
+import nemethi.pdfmerge.streaming.MergeListener;
+import nemethi.pdfmerge.structure.DocumentStructure;
 import nemethi.pdfmerge.util.FileChecker;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import picocli.CommandLine;
@@ -11,14 +23,26 @@ import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.ParameterException;
 
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.util.Lists.list;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -29,11 +53,16 @@ public class ApplicationTest {
 
     private static final IOException EXPECTED_EXCEPTION = new IOException("message");
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Mock
     private PdfMerger pdfMerger;
     @Mock
     private FileChecker fileChecker;
     @Mock
+    private ArchiveExpander archiveExpander;
+    @Mock
     private CommandSpec spec;
     @Mock(stubOnly = true)
     private CommandLine commandLine;
@@ -170,14 +199,16 @@ public class ApplicationTest {
 
         // then
         assertThat(exitCode).isZero();
-        verify(pdfMerger).forceMerge(paths, validPath);
+        verify(pdfMerger).forceMerge(paths, validPath, MergeListener.NONE);
         verifyNoMoreInteractions(pdfMerger);
     }
 
     @Test
     public void callForwardsForceMergeException() throws IOException {
         // given
-        doThrow(EXPECTED_EXCEPTION).when(pdfMerger).forceMerge(any(), any());
+        doThrow(EXPECTED_EXCEPTION).when(pdfMerger).forceMerge(any(), any(), any());
+        application.setOutputFile(validPath);
+        application.setInputFiles(list(validPath, validPath2));
         application.setForced(true);
 
         // when
@@ -185,7 +216,7 @@ public class ApplicationTest {
 
         // then
         assertThat(thrown).isEqualTo(EXPECTED_EXCEPTION);
-        verify(pdfMerger).forceMerge(any(), any());
+        verify(pdfMerger).forceMerge(any(), any(), any());
         verifyNoMoreInteractions(pdfMerger);
     }
 
@@ -203,14 +234,16 @@ public class ApplicationTest {
 
         // then
         assertThat(exitCode).isZero();
-        verify(pdfMerger).merge(paths, validPath);
+        verify(pdfMerger).merge(paths, validPath, MergeListener.NONE);
         verifyNoMoreInteractions(pdfMerger);
     }
 
     @Test
     public void callForwardsMergeException() throws IOException {
         // given
-        doThrow(EXPECTED_EXCEPTION).when(pdfMerger).merge(any(), any());
+        doThrow(EXPECTED_EXCEPTION).when(pdfMerger).merge(anyList(), any(Path.class), any());
+        application.setOutputFile(validPath);
+        application.setInputFiles(list(validPath, validPath2));
         application.setForced(false);
 
         // when
@@ -218,10 +251,598 @@ public class ApplicationTest {
 
         // then
         assertThat(thrown).isEqualTo(EXPECTED_EXCEPTION);
-        verify(pdfMerger).merge(any(), any());
+        verify(pdfMerger).merge(anyList(), any(Path.class), any());
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void callReportsUnreachableObjectsOfAllInputs() throws Exception {
+        // given
+        StringWriter out = new StringWriter();
+        when(spec.commandLine()).thenReturn(commandLine);
+        when(commandLine.getOut()).thenReturn(new PrintWriter(out, true));
+        application.setOutputFile(validPath);
+        application.setInputFiles(list(validPath, validPath2));
+        application.setCollecting(true);
+        ArgumentCaptor<Consumer<CollectionReport>> listener = ArgumentCaptor.forClass(Consumer.class);
+        verify(pdfMerger).setCollectionListener(listener.capture());
+        doAnswer(invocation -> {
+            listener.getValue().accept(new CollectionReport(3, 1000));
+            listener.getValue().accept(new CollectionReport(2, 24));
+            return null;
+        }).when(pdfMerger).merge(anyList(), any(Path.class), any());
+
+        // when
+        int exitCode = application.call();
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(out.toString()).isEqualTo(String.format("Found 5 unreachable objects in the inputs (1024 bytes).%n"));
+        verify(pdfMerger).setCollectingUnreachable(true);
+        verify(pdfMerger).merge(anyList(), any(Path.class), any());
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void callReportsProgressOnStderr() throws Exception {
+        // given
+        StringWriter err = new StringWriter();
+        when(spec.commandLine()).thenReturn(commandLine);
+        when(commandLine.getErr()).thenReturn(new PrintWriter(err, true));
+        when(fileChecker.size(validPath)).thenReturn(100L);
+        when(fileChecker.size(validPath2)).thenReturn(300L);
+        application.setOutputFile(validPath);
+        application.setInputFiles(list(validPath, validPath2));
+        application.setProgressFormat(ProgressFormat.JSON);
+        doAnswer(invocation -> {
+            MergeListener listener = invocation.getArgument(2);
+            listener.inputStarted(0);
+            listener.inputMerged(0, 2);
+            listener.inputStarted(1);
+            listener.inputMerged(1, 5);
+            return null;
+        }).when(pdfMerger).merge(anyList(), any(Path.class), any());
+
+        // when
+        int exitCode = application.call();
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(err.toString()).startsWith("{\"inputs\":2,\"totalInputs\":2,\"pages\":7,\"bytes\":400,")
+                .endsWith(String.format("\"done\":true}%n"));
+    }
+
+    @Test
+    public void progressOptionTakesOnlyAFormatName() {
+        // given
+        Application command = spy(new Application(pdfMerger));
+        command.setFileChecker(fileChecker);
+        CommandLine commandLine = new CommandLine(command);
+
+        // when
+        commandLine.parseArgs("-o", "out.pdf", "--progress", "in.pdf", "in2.pdf");
+        List<Path> inputFiles = command.getInputFiles();
+        commandLine.parseArgs("-o", "out.pdf", "--progress=json", "in.pdf", "in2.pdf");
+
+        // then
+        assertThat(inputFiles).hasSize(2);
+        InOrder inOrder = inOrder(command);
+        inOrder.verify(command).setProgressFormat(ProgressFormat.TEXT);
+        inOrder.verify(command).setProgressFormat(ProgressFormat.JSON);
+    }
+
+    @Test
+    public void callMergesEntriesOfArchives() throws Exception {
+        // given
+        application.setArchiveExpander(archiveExpander);
+        when(archiveExpander.expand(validPath)).thenReturn(list(validPath, validPath2));
+        application.setOutputFile(invalidPath);
+        application.setInputFiles(list(validPath));
+
+        // when
+        application.call();
+
+        // then
+        verify(pdfMerger).merge(list(validPath, validPath2), invalidPath, MergeListener.NONE);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void callThrowsExceptionIfArchiveHasNoMatchingEntries() throws Exception {
+        // given
+        application.setArchiveExpander(archiveExpander);
+        when(archiveExpander.expand(validPath)).thenReturn(list());
+        when(spec.commandLine()).thenReturn(commandLine);
+        application.setOutputFile(validPath);
+        application.setInputFiles(list(validPath, validPath2));
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.call());
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage(String.format("Invalid path: %s matches no PDF files.", validPath));
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void callThrowsExceptionIfFewerThanTwoFilesAreGiven() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+        application.setOutputFile(validPath);
+        application.setInputFiles(list(validPath));
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.call());
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: FILE must name at least two PDF files.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void callThrowsExceptionIfOutputFileIsMissing() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+        application.setInputFiles(list(validPath, validPath2));
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.call());
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Missing required option: '--output=OUTFILE'");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void callThrowsExceptionIfInputFilesAreMissing() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+        application.setOutputFile(validPath);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.call());
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Missing required parameter: 'FILE'");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setArchiveOrderConfiguresExpander() {
+        // given
+        application.setArchiveExpander(archiveExpander);
+
+        // when
+        application.setArchiveOrder(ArchiveOrder.NATURAL);
+
+        // then
+        verify(archiveExpander).setOrder(ArchiveOrder.NATURAL);
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setMetricsFileThrowsExceptionIfPathIsDirectory() {
+        // given
+        when(fileChecker.isDirectory(invalidPath)).thenReturn(true);
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setMetricsFile(invalidPath));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid path: METRICSFILE must point to a file.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void callWritesMetricsFileEvenIfMergeFails() throws Exception {
+        // given
+        Path metricsFile = temporaryFolder.getRoot().toPath().resolve("metrics.prom");
+        application.setOutputFile(validPath);
+        application.setInputFiles(list(validPath, validPath2));
+        application.setMetricsFile(metricsFile);
+        ArgumentCaptor<MergeMetrics> metrics = ArgumentCaptor.forClass(MergeMetrics.class);
+        verify(pdfMerger).setMetrics(metrics.capture());
+        doAnswer(invocation -> {
+            metrics.getValue().mergeStarted(100);
+            metrics.getValue().mergeFailed(EXPECTED_EXCEPTION, 1_000_000);
+            throw EXPECTED_EXCEPTION;
+        }).when(pdfMerger).merge(anyList(), any(Path.class), any());
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.call());
+
+        // then
+        assertThat(thrown).isEqualTo(EXPECTED_EXCEPTION);
+        assertThat(new String(Files.readAllBytes(metricsFile), UTF_8))
+                .contains("pdfmerge_input_bytes_total 100\n")
+                .contains("pdfmerge_merge_failures_total{type=\"io\"} 1\n")
+                .contains("pdfmerge_merge_duration_seconds_count 1\n");
+        verify(pdfMerger).merge(anyList(), any(Path.class), any());
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void callKeepsMergeFailureIfMetricsFileCannotBeWritten() throws Exception {
+        // given
+        Path metricsFile = temporaryFolder.newFile().toPath().resolve("metrics.prom");
+        IOException mergeFailure = new IOException("merge");
+        application.setOutputFile(validPath);
+        application.setInputFiles(list(validPath, validPath2));
+        application.setMetricsFile(metricsFile);
+        doThrow(mergeFailure).when(pdfMerger).merge(anyList(), any(Path.class), any());
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.call());
+
+        // then
+        assertThat(thrown).isSameAs(mergeFailure);
+        assertThat(thrown.getSuppressed()).hasSize(1);
+        assertThat(thrown.getSuppressed()[0]).isInstanceOf(IOException.class);
+        verify(pdfMerger).setMetrics(any(MergeMetrics.class));
+        verify(pdfMerger).merge(anyList(), any(Path.class), any());
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setLinearizedConfiguresMerger() {
+        // when
+        application.setLinearized(true);
+
+        // then
+        verify(pdfMerger).setLinearized(true);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setRawCopyConfiguresMerger() {
+        // when
+        application.setRawCopy(true);
+
+        // then
+        verify(pdfMerger).setRawCopy(true);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void leanOptionsConfigureMerger() {
+        // when
+        application.setLean(true);
+        application.setKeptStructures(list(DocumentStructure.TAGS, DocumentStructure.LABELS));
+
+        // then
+        verify(pdfMerger, times(2)).setLean(true);
+        verify(pdfMerger).setKeptStructures(EnumSet.of(DocumentStructure.TAGS, DocumentStructure.LABELS));
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void keepImpliesLean() {
+        // when
+        application.setKeptStructures(list(DocumentStructure.OUTLINES));
+
+        // then
+        verify(pdfMerger).setLean(true);
+        verify(pdfMerger).setKeptStructures(EnumSet.of(DocumentStructure.OUTLINES));
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void imageOptionsConfigureMerger() {
+        // when
+        application.setMaxImageDpi(150);
+        application.setJpegQuality(80);
+        application.setImageThreads(4);
+
+        // then
+        verify(pdfMerger).setMaxImageDpi(150);
+        verify(pdfMerger).setJpegQuality(80);
+        verify(pdfMerger).setImageThreads(4);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void prefetchOptionsConfigureMerger() {
+        // when
+        application.setPrefetchCount(2);
+        application.setPrefetchBufferSize(16L << 20);
+
+        // then
+        verify(pdfMerger).setPrefetchCount(2);
+        verify(pdfMerger).setPrefetchBufferSize(16L << 20);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setPrefetchCountThrowsExceptionIfNotPositive() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setPrefetchCount(0));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: N must be a positive number.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setTimeoutConfiguresMerger() {
+        // when
+        application.setTimeout(Duration.ofMinutes(15));
+
+        // then
+        verify(pdfMerger).setTimeout(Duration.ofMinutes(15));
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setTimeoutThrowsExceptionIfZero() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setTimeout(Duration.ZERO));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: DURATION must be positive.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void compressionOptionsConfigureMerger() {
+        // when
+        application.setCompressStreams(true);
+        application.setCompressionLevel(9);
+        application.setCompressThreads(4);
+
+        // then
+        verify(pdfMerger).setCompressStreams(true);
+        verify(pdfMerger).setCompressionLevel(9);
+        verify(pdfMerger).setCompressThreads(4);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void dedupeOptionConfiguresMerger() {
+        // when
+        application.setDeduplicated(true);
+
+        // then
+        verify(pdfMerger).setDeduplicated(true);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void reproducibilityOptionsConfigureMerger() {
+        // when
+        application.setDeterministic(true);
+        application.setDroppingTimestamps(true);
+
+        // then
+        verify(pdfMerger).setDeterministic(true);
+        verify(pdfMerger).setDroppingTimestamps(true);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void volumeOptionsConfigureMerger() {
+        // when
+        application.setMaxOutputPages(2000);
+        application.setMaxOutputSize(200L << 20);
+
+        // then
+        verify(pdfMerger).setMaxOutputPages(2000);
+        verify(pdfMerger).setMaxOutputSize(200L << 20);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void checkpointOptionsConfigureMerger() {
+        // given
+        when(fileChecker.exists(validPath)).thenReturn(true);
+        when(fileChecker.isDirectory(validPath)).thenReturn(true);
+
+        // when
+        application.setCheckpointDirectory(validPath);
+        application.setCheckpointInterval(100);
+
+        // then
+        verify(pdfMerger).setCheckpointDirectory(validPath);
+        verify(pdfMerger).setCheckpointInterval(100);
         verifyNoMoreInteractions(pdfMerger);
     }
 
+    @Test
+    public void setCheckpointDirectoryThrowsExceptionIfPathIsFile() {
+        // given
+        when(fileChecker.exists(invalidPath)).thenReturn(true);
+        when(fileChecker.isDirectory(invalidPath)).thenReturn(false);
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setCheckpointDirectory(invalidPath));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid path: DIR must point to a directory.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setCheckpointIntervalThrowsExceptionIfNotPositive() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setCheckpointInterval(0));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: N must be a positive number.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setMemoryBudgetConfiguresMerger() {
+        // when
+        application.setMemoryBudget(512L << 20);
+
+        // then
+        verify(pdfMerger).setMemoryBudget(512L << 20);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setMemoryBudgetThrowsExceptionIfNotPositive() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setMemoryBudget(0));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: SIZE must be a positive number.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setOffHeapScratchConfiguresMerger() {
+        // given
+        ArgumentCaptor<OffHeapScratch> scratch = ArgumentCaptor.forClass(OffHeapScratch.class);
+
+        // when
+        application.setOffHeapScratch(64L << 20);
+
+        // then
+        verify(pdfMerger).setOffHeapScratch(scratch.capture());
+        assertThat(scratch.getValue().getCapacity()).isEqualTo(64L << 20);
+        verifyNoMoreInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setOffHeapScratchThrowsExceptionIfSmallerThanPage() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setOffHeapScratch(4095));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: SIZE must be at least 4096 bytes.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setMaxOutputPagesThrowsExceptionIfNotPositive() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setMaxOutputPages(0));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: N must be a positive number.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setMaxOutputSizeThrowsExceptionIfNotPositive() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setMaxOutputSize(0));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: SIZE must be a positive number.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setJpegQualityThrowsExceptionIfOutOfRange() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setJpegQuality(101));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: QUALITY must be between 1 and 100.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setCompressionLevelThrowsExceptionIfOutOfRange() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setCompressionLevel(10));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: LEVEL must be between 1 and 9.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setCompressThreadsThrowsExceptionIfNotPositive() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setCompressThreads(0));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: N must be a positive number.");
+        verifyNoInteractions(pdfMerger);
+    }
+
+    @Test
+    public void setMaxImageDpiThrowsExceptionIfNotPositive() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> application.setMaxImageDpi(0));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: DPI must be a positive number.");
+        verifyNoInteractions(pdfMerger);
+    }
+
     private void mockFileChecks() {
         when(fileChecker.isDirectory(validPath)).thenReturn(false);
         when(fileChecker.notExists(validPath)).thenReturn(false);
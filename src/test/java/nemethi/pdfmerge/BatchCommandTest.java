@@ -0,0 +1,193 @@
+package nemethi.pdfmerge;
+
+import nemethi.pdfmerge.batch.JobFile;
+import nemethi.pdfmerge.batch.JobScheduler;
+import nemethi.pdfmerge.batch.MergeJob;
+import nemethi.pdfmerge.batch.SchedulingPolicy;
+import nemethi.pdfmerge.util.FileChecker;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.notNull;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BatchCommandTest {
+
+    @Mock
+    private PdfMerger pdfMerger;
+    @Mock
+    private FileChecker fileChecker;
+    @Mock
+    private JobFile jobFileReader;
+    @Mock
+    private JobScheduler scheduler;
+    @Mock
+    private CommandSpec spec;
+    @Mock(stubOnly = true)
+    private CommandLine commandLine;
+    @Mock(stubOnly = true)
+    private Path path;
+
+    private BatchCommand batchCommand;
+
+    @Before
+    public void setUp() {
+        batchCommand = new BatchCommand(pdfMerger);
+        batchCommand.setFileChecker(fileChecker);
+        batchCommand.setJobFileReader(jobFileReader);
+        batchCommand.setScheduler(scheduler);
+        batchCommand.setSpec(spec);
+    }
+
+    @Test
+    public void setJobFileThrowsExceptionIfFileDoesNotExist() {
+        // given
+        when(fileChecker.exists(path)).thenReturn(false);
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> batchCommand.setJobFile(path));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid path: JOBFILE must point to a file.");
+        assertThat(batchCommand.getJobFile()).isNull();
+    }
+
+    @Test
+    public void schedulingOptionsConfigureScheduler() {
+        // when
+        batchCommand.setPolicy(SchedulingPolicy.SJF);
+        batchCommand.setWorkers(4);
+        batchCommand.setMaxOvertakes(0);
+
+        // then
+        verify(scheduler).setPolicy(SchedulingPolicy.SJF);
+        verify(scheduler).setWorkers(4);
+        verify(scheduler).setMaxOvertakes(0);
+    }
+
+    @Test
+    public void setWorkersThrowsExceptionIfNotPositive() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> batchCommand.setWorkers(0));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: N must be a positive number.");
+        verifyNoInteractions(scheduler);
+    }
+
+    @Test
+    public void setMaxOvertakesThrowsExceptionIfNegative() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> batchCommand.setMaxOvertakes(-1));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: N must not be negative.");
+        verifyNoInteractions(scheduler);
+    }
+
+    @Test
+    public void callMergesEveryJobAndReportsFailedOnes() throws Exception {
+        // given
+        StringWriter out = new StringWriter();
+        StringWriter err = new StringWriter();
+        when(spec.commandLine()).thenReturn(commandLine);
+        when(spec.exitCodeOnExecutionException()).thenReturn(1);
+        when(commandLine.getOut()).thenReturn(new PrintWriter(out, true));
+        when(commandLine.getErr()).thenReturn(new PrintWriter(err, true));
+        List<Path> inputs = Collections.singletonList(Paths.get("in.pdf"));
+        MergeJob first = new MergeJob(0, Paths.get("first.pdf"), inputs, 0, 10);
+        MergeJob second = new MergeJob(1, Paths.get("second.pdf"), inputs, 0, 10);
+        when(jobFileReader.read(any())).thenReturn(Arrays.asList(first, second));
+        doThrow(new IOException("broken")).when(pdfMerger).merge(inputs, second.getOutputPath());
+        batchCommand.setScheduler(new JobScheduler());
+        batchCommand.setForced(false);
+
+        // when
+        int exitCode = batchCommand.call();
+
+        // then
+        assertThat(exitCode).isEqualTo(1);
+        verify(pdfMerger).merge(inputs, first.getOutputPath());
+        verify(pdfMerger).merge(inputs, second.getOutputPath());
+        assertThat(err.toString()).isEqualTo(String.format("Merging into second.pdf failed: broken%n"));
+        assertThat(out.toString()).startsWith("Merged 1 of 2 jobs; latency p50 ");
+    }
+
+    @Test
+    public void callParsesOnBoundedPoolWhileWorkersAreVirtual() throws Exception {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+        when(commandLine.getOut()).thenReturn(new PrintWriter(new StringWriter(), true));
+        when(commandLine.getErr()).thenReturn(new PrintWriter(new StringWriter(), true));
+        when(jobFileReader.read(any())).thenReturn(Collections.emptyList());
+        when(scheduler.usesVirtualThreads()).thenReturn(true);
+
+        // when
+        int exitCode = batchCommand.call();
+
+        // then
+        assertThat(exitCode).isZero();
+        InOrder inOrder = inOrder(pdfMerger, scheduler);
+        inOrder.verify(pdfMerger).setParseExecutor(notNull());
+        inOrder.verify(scheduler).run(any(), any());
+        inOrder.verify(pdfMerger).setParseExecutor(null);
+    }
+
+    @Test
+    public void callFailsJobWithMissingInputBeforeCreatingOutput() throws Exception {
+        // given
+        StringWriter err = new StringWriter();
+        when(spec.commandLine()).thenReturn(commandLine);
+        when(commandLine.getOut()).thenReturn(new PrintWriter(new StringWriter(), true));
+        when(commandLine.getErr()).thenReturn(new PrintWriter(err, true));
+        Path missing = Paths.get("missing.pdf");
+        when(fileChecker.notExists(missing)).thenReturn(true);
+        MergeJob job = new MergeJob(0, Paths.get("out.pdf"), Collections.singletonList(missing), 0, 0);
+        when(jobFileReader.read(any())).thenReturn(Collections.singletonList(job));
+        batchCommand.setScheduler(new JobScheduler());
+
+        // when
+        batchCommand.call();
+
+        // then
+        assertThat(err.toString()).isEqualTo(String.format("Merging into out.pdf failed: missing.pdf does not exist.%n"));
+        verifyNoInteractions(pdfMerger);
+    }
+}
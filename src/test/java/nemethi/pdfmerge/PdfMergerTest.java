@@ -1,27 +1,90 @@
 package nemethi.pdfmerge;
 
+import nemethi.pdfmerge.admission.Admission;
+import nemethi.pdfmerge.admission.AdmissionController;
+import nemethi.pdfmerge.cancel.Cancellation;
+import nemethi.pdfmerge.cancel.MergeTimeoutException;
+import nemethi.pdfmerge.compression.StreamCompressor;
+import nemethi.pdfmerge.dedupe.ObjectDeduplicator;
+import nemethi.pdfmerge.gc.CollectionReport;
+import nemethi.pdfmerge.gc.UnreachableObjectCollector;
+import nemethi.pdfmerge.engine.MergeEngine;
+import nemethi.pdfmerge.engine.PdfBoxMergeEngine;
+import nemethi.pdfmerge.engine.RawCopyMergeEngine;
+import nemethi.pdfmerge.image.ImageOptimizer;
+import nemethi.pdfmerge.metrics.MergeMetrics;
+import nemethi.pdfmerge.metrics.MetricsRegistry;
+import nemethi.pdfmerge.reproducible.ReproducibleOutput;
+import nemethi.pdfmerge.reproducible.TrackedInputs;
+import nemethi.pdfmerge.scratch.OffHeapScratch;
+import nemethi.pdfmerge.streaming.MergeListener;
+import nemethi.pdfmerge.streaming.MergeSource;
+import nemethi.pdfmerge.structure.DocumentStructure;
+import nemethi.pdfmerge.structure.StructureFilter;
+import nemethi.pdfmerge.util.DocumentLoader;
 import nemethi.pdfmerge.util.FileChecker;
 import nemethi.pdfmerge.util.OutputStreamSupplier;
+import nemethi.pdfmerge.util.PageCounter;
 import nemethi.pdfmerge.util.PathToStreamConverter;
+import nemethi.pdfmerge.volume.Segment;
+import nemethi.pdfmerge.volume.Volume;
+import nemethi.pdfmerge.volume.VolumePlanner;
+import nemethi.pdfmerge.volume.VolumeAssembler;
+import nemethi.pdfmerge.volume.VolumeWriter;
+import nemethi.pdfmerge.writer.LinearizedWriter;
 import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.ScratchFile;
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.assertj.core.util.Lists.list;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -52,6 +115,34 @@ public class PdfMergerTest {
     private InputStream inputStream1;
     @Mock
     private InputStream inputStream2;
+    @Mock
+    private DocumentLoader documentLoader;
+    @Mock
+    private PageCounter pageCounter;
+    @Mock
+    private LinearizedWriter linearizedWriter;
+    @Mock
+    private ImageOptimizer imageOptimizer;
+    @Mock
+    private StructureFilter structureFilter;
+    @Mock
+    private VolumePlanner volumePlanner;
+    @Mock
+    private VolumeWriter volumeWriter;
+    @Mock
+    private StreamCompressor streamCompressor;
+    @Mock
+    private ObjectDeduplicator objectDeduplicator;
+    @Mock
+    private UnreachableObjectCollector objectCollector;
+    @Mock
+    private AdmissionController admissionController;
+    @Mock
+    private Admission admission;
+    @Mock
+    private PDDocument document1;
+    @Mock
+    private PDDocument document2;
 
     private PdfMerger pdfMerger;
 
@@ -60,10 +151,21 @@ public class PdfMergerTest {
 
     @Before
     public void setUp() {
-        pdfMerger = new PdfMerger(mergerUtility);
+        pdfMerger = new PdfMerger(() -> mergerUtility);
         pdfMerger.setConverter(converter);
         pdfMerger.setFileChecker(fileChecker);
         pdfMerger.setStreamSupplier(streamSupplier);
+        pdfMerger.setDocumentLoader(documentLoader);
+        pdfMerger.setPageCounter(pageCounter);
+        pdfMerger.setLinearizedWriter(linearizedWriter);
+        pdfMerger.setImageOptimizer(imageOptimizer);
+        pdfMerger.setStructureFilter(structureFilter);
+        pdfMerger.setVolumePlanner(volumePlanner);
+        pdfMerger.setVolumeWriter(volumeWriter);
+        pdfMerger.setStreamCompressor(streamCompressor);
+        pdfMerger.setObjectDeduplicator(objectDeduplicator);
+        pdfMerger.setObjectCollector(objectCollector);
+        pdfMerger.setAdmissionController(admissionController);
         inputPaths = list(inputPath1, inputPath2);
         inputStreams = list(inputStream1, inputStream2);
     }
@@ -103,6 +205,270 @@ public class PdfMergerTest {
         verify(fileChecker).exists(outputPath);
     }
 
+    @Test
+    public void mergeWithMetricsRecordsInputsPhasesAndOutput() throws IOException {
+        // given
+        MetricsRegistry registry = new MetricsRegistry();
+        pdfMerger.setMetrics(new MergeMetrics(registry, Paths.get("nonexistent")));
+        when(fileChecker.exists(inputPath1)).thenReturn(true);
+        when(fileChecker.size(inputPath1)).thenReturn(100L);
+        when(fileChecker.exists(inputPath2)).thenReturn(true);
+        when(fileChecker.size(inputPath2)).thenReturn(20L);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.merge(inputPaths, outputPath);
+
+        // then
+        StringWriter exposition = new StringWriter();
+        registry.writeTo(exposition);
+        assertThat(exposition.toString())
+                .contains("pdfmerge_merges_total 1\n")
+                .contains("pdfmerge_input_bytes_total 120\n")
+                .contains("pdfmerge_active_merges 0\n")
+                .contains("pdfmerge_phase_duration_seconds_count{phase=\"load\"} 2\n")
+                .contains("pdfmerge_phase_duration_seconds_count{phase=\"save\"} 1\n")
+                .doesNotContain("pdfmerge_output_bytes_total 0\n");
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+    }
+
+    @Test
+    public void mergeWithMetricsCountsFailureByType() throws IOException {
+        // given
+        MetricsRegistry registry = new MetricsRegistry();
+        pdfMerger.setMetrics(new MergeMetrics(registry, Paths.get("nonexistent")));
+        when(fileChecker.exists(outputPath)).thenReturn(true);
+
+        // when
+        Throwable thrown = catchThrowable(() -> pdfMerger.merge(inputPaths, outputPath));
+
+        // then
+        assertThat(thrown).isInstanceOf(FileAlreadyExistsException.class);
+        StringWriter exposition = new StringWriter();
+        registry.writeTo(exposition);
+        assertThat(exposition.toString())
+                .contains("pdfmerge_merges_total 0\n")
+                .contains("pdfmerge_merge_failures_total{type=\"output_exists\"} 1\n")
+                .contains("pdfmerge_merge_failures_total{type=\"io\"} 0\n")
+                .contains("pdfmerge_active_merges 0\n");
+        verifyNoInteractions(mergerUtility);
+    }
+
+    @Test
+    public void admittedMergeLoadsSourcesWithSettingOfAdmissionAndReleasesIt() throws IOException {
+        // given
+        MemoryUsageSetting scratchSetting = MemoryUsageSetting.setupTempFileOnly();
+        when(admissionController.isEnabled()).thenReturn(true);
+        when(fileChecker.exists(inputPath1)).thenReturn(true);
+        when(fileChecker.size(inputPath1)).thenReturn(100L);
+        when(admissionController.admit(100L, null)).thenReturn(admission);
+        when(admission.getMemoryUsageSetting()).thenReturn(scratchSetting);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(inputStream1, scratchSetting)).thenReturn(document1);
+        when(documentLoader.load(inputStream2, scratchSetting)).thenReturn(document2);
+
+        // when
+        pdfMerger.merge(inputPaths, outputPath);
+
+        // then
+        InOrder inOrder = inOrder(admissionController, mergerUtility, admission);
+        inOrder.verify(admissionController).admit(100L, null);
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        inOrder.verify(admission).close();
+    }
+
+    @Test
+    public void admissionIsReleasedWhenMergeFails() throws IOException {
+        // given
+        when(admissionController.isEnabled()).thenReturn(true);
+        when(admissionController.admit(0L, null)).thenReturn(admission);
+        when(fileChecker.exists(outputPath)).thenReturn(true);
+
+        // when
+        Throwable thrown = catchThrowable(() -> pdfMerger.merge(inputPaths, outputPath));
+
+        // then
+        assertThat(thrown).isInstanceOf(FileAlreadyExistsException.class);
+        verify(admission).close();
+        verifyNoInteractions(mergerUtility);
+    }
+
+    @Test
+    public void memoryBudgetIsForwardedToAdmissionController() {
+        // when
+        pdfMerger.setMemoryBudget(1L << 30);
+
+        // then
+        verify(admissionController).setBudget(1L << 30);
+    }
+
+    @Test
+    public void everyMergeUsesNewMergerUtility() throws IOException {
+        // given
+        AtomicInteger created = new AtomicInteger();
+        pdfMerger = new PdfMerger(() -> {
+            created.incrementAndGet();
+            return mergerUtility;
+        });
+        pdfMerger.setConverter(converter);
+        pdfMerger.setStreamSupplier(streamSupplier);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        assertThat(created).hasValue(2);
+    }
+
+    @Test
+    public void mergeAsyncRunsOnExecutor() throws Exception {
+        // given
+        Executor executor = mock(Executor.class);
+        pdfMerger.setExecutor(executor);
+        when(fileChecker.exists(outputPath)).thenReturn(false);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(any(InputStream.class), any(MemoryUsageSetting.class), any(Cancellation.class)))
+                .thenReturn(document1, document2);
+
+        // when
+        CompletableFuture<Void> result = pdfMerger.mergeAsync(inputPaths, outputPath);
+
+        // then
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(task.capture());
+        assertThat(result).isNotDone();
+        verifyNoInteractions(mergerUtility);
+
+        // when
+        task.getValue().run();
+
+        // then
+        assertThat(result).isCompleted();
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        verify(outputStream, atLeastOnce()).write(any(byte[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void cancellingAsyncMergeStopsIt() throws Exception {
+        // given
+        Executor executor = mock(Executor.class);
+        pdfMerger.setExecutor(executor);
+        CompletableFuture<Void> result = pdfMerger.forceMergeAsync(inputPaths, outputPath);
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).execute(task.capture());
+
+        // when
+        result.cancel(true);
+        task.getValue().run();
+
+        // then
+        assertThat(result).isCancelled();
+        verifyNoInteractions(converter, streamSupplier, documentLoader, mergerUtility);
+    }
+
+    @Test
+    public void cancelledMergeClosesInputsAndDeletesPartialOutput() throws IOException {
+        // given
+        pdfMerger.setTimeout(Duration.ofHours(1));
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(any(InputStream.class), any(MemoryUsageSetting.class), any(Cancellation.class)))
+                .thenReturn(document1)
+                .thenThrow(new MergeTimeoutException("The merge did not finish within 1h."));
+
+        // when
+        Throwable thrown = catchThrowable(() -> pdfMerger.forceMerge(inputPaths, outputPath));
+
+        // then
+        assertThat(thrown).isInstanceOf(MergeTimeoutException.class);
+        verify(document1).close();
+        verify(inputStream1).close();
+        verify(inputStream2).close();
+        verify(outputStream).close();
+        verify(streamSupplier).delete(outputPath);
+        verify(mergerUtility, never()).mergeDocuments(any(MemoryUsageSetting.class));
+    }
+
+    @Test
+    public void mergeWithExpiredTimeoutFailsBeforeWriting() throws IOException {
+        // given
+        pdfMerger.setTimeout(Duration.ofNanos(1));
+
+        // when
+        Throwable thrown = catchThrowable(() -> pdfMerger.merge(inputPaths, outputPath));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(MergeTimeoutException.class)
+                .hasMessageStartingWith("The merge did not finish within");
+        verify(fileChecker).exists(outputPath);
+        verifyNoInteractions(converter, streamSupplier, mergerUtility);
+    }
+
+    @Test
+    public void mergeAsyncCompletesExceptionallyOnFailure() {
+        // given
+        pdfMerger.setExecutor(Runnable::run);
+        when(fileChecker.exists(outputPath)).thenReturn(true);
+
+        // when
+        CompletableFuture<Void> result = pdfMerger.mergeAsync(inputPaths, outputPath);
+
+        // then
+        assertThat(result).isCompletedExceptionally();
+        assertThat(catchThrowable(result::get))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(FileAlreadyExistsException.class);
+    }
+
+    @Test
+    public void forceMergeAsyncOverwritesOutputFile() throws Exception {
+        // given
+        pdfMerger.setExecutor(Runnable::run);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(any(InputStream.class), any(MemoryUsageSetting.class), any(Cancellation.class)))
+                .thenReturn(document1, document2);
+
+        // when
+        pdfMerger.forceMergeAsync(inputPaths, outputPath).get();
+
+        // then
+        verify(mergerUtility, times(2)).appendDocument(any(PDDocument.class), any(PDDocument.class));
+        verifyNoInteractions(fileChecker);
+    }
+
+    @Test
+    public void mergeAsyncRunsOnDedicatedThreadsByDefault() throws Exception {
+        // given
+        AtomicReference<Thread> worker = new AtomicReference<>();
+        when(converter.convertPathsToStreams(inputPaths)).thenAnswer(invocation -> {
+            worker.set(Thread.currentThread());
+            return inputStreams;
+        });
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(any(InputStream.class), any(MemoryUsageSetting.class), any(Cancellation.class)))
+                .thenReturn(document1, document2);
+
+        // when
+        pdfMerger.forceMergeAsync(inputPaths, outputPath).get();
+
+        // then
+        assertThat(worker.get().getName()).startsWith("pdfmerge-merge-");
+        assertThat(worker.get().isDaemon()).isTrue();
+    }
+
     @Test
     public void forceMergeOverwritesOutputFile() throws IOException {
         // given
@@ -121,4 +487,522 @@ public class PdfMergerTest {
         verifyNoMoreInteractions(mergerUtility);
         verifyNoInteractions(fileChecker);
     }
+
+    @Test
+    public void linearizedMergeAppendsDocumentsAndWritesLinearizedOutput() throws IOException {
+        // given
+        pdfMerger.setLinearized(true);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        verify(linearizedWriter).write(any(PDDocument.class), same(outputStream));
+        verify(document1).close();
+        verify(document2).close();
+        verify(inputStream1).close();
+        verify(inputStream2).close();
+        verifyNoMoreInteractions(mergerUtility);
+    }
+
+    @Test
+    public void linearizedMergeClosesSourcesOnFailure() throws IOException {
+        // given
+        IOException expectedException = new IOException("message");
+        pdfMerger.setLinearized(true);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenThrow(expectedException);
+
+        // when
+        Throwable thrown = catchThrowable(() -> pdfMerger.forceMerge(inputPaths, outputPath));
+
+        // then
+        assertThat(thrown).isEqualTo(expectedException);
+        verify(document1).close();
+        verify(outputStream).close();
+        verifyNoInteractions(linearizedWriter);
+    }
+
+    @Test
+    public void defaultMergeDoesNotLinearize() throws IOException {
+        // given
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        verify(mergerUtility).mergeDocuments(any(MemoryUsageSetting.class));
+        verifyNoInteractions(documentLoader, linearizedWriter);
+    }
+
+    @Test
+    public void mergeOptimizesImagesOfEverySource() throws IOException {
+        // given
+        when(imageOptimizer.isEnabled()).thenReturn(true);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        verify(imageOptimizer).optimize(document1);
+        verify(imageOptimizer).optimize(document2);
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        verify(outputStream, atLeastOnce()).write(any(byte[].class), anyInt(), anyInt());
+        verifyNoMoreInteractions(mergerUtility);
+        verifyNoInteractions(linearizedWriter);
+    }
+
+    @Test
+    public void imageSettingsAreForwardedToOptimizer() {
+        // when
+        pdfMerger.setMaxImageDpi(150);
+        pdfMerger.setJpegQuality(80);
+        pdfMerger.setImageThreads(4);
+
+        // then
+        verify(imageOptimizer).setMaxDpi(150);
+        verify(imageOptimizer).setJpegQuality(80);
+        verify(imageOptimizer).setThreads(4);
+    }
+
+    @Test
+    public void mergeCompressesStreamsOfDestination() throws IOException {
+        // given
+        when(streamCompressor.isEnabled()).thenReturn(true);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        InOrder inOrder = inOrder(mergerUtility, streamCompressor, outputStream);
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        inOrder.verify(streamCompressor).compress(argThat(destination -> destination != document1
+                && destination != document2));
+        inOrder.verify(outputStream, atLeastOnce()).write(any(byte[].class), anyInt(), anyInt());
+        verifyNoMoreInteractions(mergerUtility);
+    }
+
+    @Test
+    public void mergeDeduplicatesDestinationBeforeCompressingIt() throws IOException {
+        // given
+        when(objectDeduplicator.isEnabled()).thenReturn(true);
+        when(streamCompressor.isEnabled()).thenReturn(true);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        InOrder inOrder = inOrder(mergerUtility, objectDeduplicator, streamCompressor, outputStream);
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        inOrder.verify(objectDeduplicator).deduplicate(argThat(destination -> destination != document1
+                && destination != document2));
+        inOrder.verify(streamCompressor).compress(any(PDDocument.class));
+        inOrder.verify(outputStream, atLeastOnce()).write(any(byte[].class), anyInt(), anyInt());
+    }
+
+    @Test
+    public void dedupeSettingIsForwardedToDeduplicator() {
+        // when
+        pdfMerger.setDeduplicated(true);
+
+        // then
+        verify(objectDeduplicator).setEnabled(true);
+    }
+
+    @Test
+    public void prefetchSettingsAreForwardedToConverter() {
+        // when
+        pdfMerger.setPrefetchCount(2);
+        pdfMerger.setPrefetchBufferSize(1L << 20);
+
+        // then
+        verify(converter).setPrefetchCount(2);
+        verify(converter).setPrefetchBufferSize(1L << 20);
+    }
+
+    @Test
+    public void compressionSettingsAreForwardedToCompressor() {
+        // when
+        pdfMerger.setCompressStreams(true);
+        pdfMerger.setCompressionLevel(9);
+        pdfMerger.setCompressThreads(4);
+
+        // then
+        verify(streamCompressor).setEnabled(true);
+        verify(streamCompressor).setLevel(9);
+        verify(streamCompressor).setThreads(4);
+    }
+
+    @Test
+    public void leanMergeStripsStructuresOfEverySource() throws IOException {
+        // given
+        when(structureFilter.isEnabled()).thenReturn(true);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        InOrder inOrder = inOrder(structureFilter, mergerUtility);
+        inOrder.verify(structureFilter).strip(document1);
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        inOrder.verify(structureFilter).strip(document2);
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        verifyNoMoreInteractions(mergerUtility);
+        verifyNoInteractions(linearizedWriter);
+    }
+
+    @Test
+    public void mergeCollectsEverySourceBeforeAppendingIt() throws IOException {
+        // given
+        CollectionReport report1 = new CollectionReport(3, 1000);
+        CollectionReport report2 = new CollectionReport(0, 0);
+        List<CollectionReport> reports = new ArrayList<>();
+        pdfMerger.setCollectionListener(reports::add);
+        when(objectCollector.isEnabled()).thenReturn(true);
+        when(objectCollector.collect(document1)).thenReturn(report1);
+        when(objectCollector.collect(document2)).thenReturn(report2);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        InOrder inOrder = inOrder(objectCollector, mergerUtility);
+        inOrder.verify(objectCollector).collect(document1);
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        inOrder.verify(objectCollector).collect(document2);
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        assertThat(reports).containsExactly(report1, report2);
+    }
+
+    @Test
+    public void mergeMakesOutputReproducibleAfterAppendingEverySource() throws IOException {
+        // given
+        ReproducibleOutput reproducibleOutput = mock(ReproducibleOutput.class);
+        TrackedInputs trackedInputs = mock(TrackedInputs.class);
+        pdfMerger.setReproducibleOutput(reproducibleOutput);
+        when(reproducibleOutput.isEnabled()).thenReturn(true);
+        when(reproducibleOutput.track()).thenReturn(trackedInputs);
+        when(trackedInputs.add(any(InputStream.class))).thenAnswer(returnsFirstArg());
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        InOrder inOrder = inOrder(reproducibleOutput, mergerUtility);
+        inOrder.verify(reproducibleOutput).track();
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        inOrder.verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        inOrder.verify(reproducibleOutput).apply(any(PDDocument.class), same(trackedInputs), eq(Collections.emptyList()));
+    }
+
+    @Test
+    public void offHeapScratchBacksSourcesAndDestination() throws IOException {
+        // given
+        OffHeapScratch offHeapScratch = mock(OffHeapScratch.class);
+        ScratchFile scratchFile1 = mock(ScratchFile.class);
+        ScratchFile scratchFile2 = mock(ScratchFile.class);
+        PDDocument destination = new PDDocument();
+        pdfMerger.setOffHeapScratch(offHeapScratch);
+        when(offHeapScratch.createDocument(any(MemoryUsageSetting.class))).thenReturn(destination);
+        when(offHeapScratch.createScratchFile(any(MemoryUsageSetting.class))).thenReturn(scratchFile1, scratchFile2);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(inputStream1, scratchFile1, null, null)).thenReturn(document1);
+        when(documentLoader.load(inputStream2, scratchFile2, null, null)).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        verify(mergerUtility).appendDocument(destination, document1);
+        verify(mergerUtility).appendDocument(destination, document2);
+        verify(document1).close();
+        verify(document2).close();
+    }
+
+    @Test
+    public void parseExecutorIsPassedToDocumentLoader() throws IOException {
+        // given
+        Executor parseExecutor = Runnable::run;
+        pdfMerger.setParseExecutor(parseExecutor);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(ScratchFile.class), isNull(), same(parseExecutor)))
+                .thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(ScratchFile.class), isNull(), same(parseExecutor)))
+                .thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        verify(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+    }
+
+    @Test
+    public void reproducibilitySettingsAreForwardedToReproducibleOutput() {
+        // given
+        ReproducibleOutput reproducibleOutput = mock(ReproducibleOutput.class);
+        pdfMerger.setReproducibleOutput(reproducibleOutput);
+
+        // when
+        pdfMerger.setDeterministic(true);
+        pdfMerger.setDroppingTimestamps(true);
+
+        // then
+        verify(reproducibleOutput).setDeterministic(true);
+        verify(reproducibleOutput).setDroppingTimestamps(true);
+    }
+
+    @Test
+    public void collectSettingIsForwardedToCollector() {
+        // when
+        pdfMerger.setCollectingUnreachable(true);
+
+        // then
+        verify(objectCollector).setEnabled(true);
+    }
+
+    @Test
+    public void leanSettingsAreForwardedToStructureFilter() {
+        // given
+        Set<DocumentStructure> keptStructures = EnumSet.of(DocumentStructure.OUTLINES);
+
+        // when
+        pdfMerger.setLean(true);
+        pdfMerger.setKeptStructures(keptStructures);
+
+        // then
+        verify(structureFilter).setEnabled(true);
+        verify(structureFilter).setKeptStructures(keptStructures);
+    }
+
+    @Test
+    public void mergeUsesConfiguredEngine() throws IOException {
+        // given
+        MergeEngine mergeEngine = mock(MergeEngine.class);
+        pdfMerger.setMergeEngine(mergeEngine);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        verify(mergeEngine).mergeDocuments(inputStreams, outputStream);
+        verifyNoInteractions(mergerUtility);
+    }
+
+    @Test
+    public void rawCopySwitchesToRawCopyEngine() {
+        // when
+        pdfMerger.setRawCopy(true);
+
+        // then
+        assertThat(pdfMerger.getMergeEngine()).isInstanceOf(RawCopyMergeEngine.class);
+    }
+
+    @Test
+    public void rawCopyCanBeTurnedOffAgain() throws IOException {
+        // given
+        pdfMerger.setRawCopy(true);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+
+        // when
+        pdfMerger.setRawCopy(false);
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        assertThat(pdfMerger.getMergeEngine()).isInstanceOf(PdfBoxMergeEngine.class);
+        verify(mergerUtility).addSources(inputStreams);
+        verify(mergerUtility).mergeDocuments(any(MemoryUsageSetting.class));
+    }
+
+    @Test
+    public void appendingMergeUsesConfiguredEngine() throws IOException {
+        // given
+        MergeEngine mergeEngine = mock(MergeEngine.class);
+        pdfMerger.setMergeEngine(mergeEngine);
+        pdfMerger.setLinearized(true);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath);
+
+        // then
+        verify(mergeEngine).appendDocument(any(PDDocument.class), same(document1));
+        verify(mergeEngine).appendDocument(any(PDDocument.class), same(document2));
+        verify(linearizedWriter).write(any(PDDocument.class), same(outputStream));
+        verifyNoInteractions(mergerUtility);
+    }
+
+    @Test
+    public void mergeIntoVolumesPlansInputsAndWritesVolumes() throws IOException {
+        // given
+        List<Volume> volumes = list(new Volume());
+        when(volumePlanner.isEnabled()).thenReturn(true);
+        when(pageCounter.count(same(inputPath1), any(MemoryUsageSetting.class), isNull())).thenReturn(1);
+        when(pageCounter.count(same(inputPath2), any(MemoryUsageSetting.class), isNull())).thenReturn(-1);
+        when(converter.convertPathsToStreams(list(inputPath2))).thenReturn(list(inputStream2));
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+        when(document2.getNumberOfPages()).thenReturn(2);
+        when(fileChecker.size(inputPath1)).thenReturn(100L);
+        when(fileChecker.size(inputPath2)).thenReturn(200L);
+        when(volumePlanner.plan(anyList())).thenReturn(volumes);
+
+        // when
+        pdfMerger.merge(inputPaths, outputPath);
+
+        // then
+        ArgumentCaptor<List<Segment>> inputs = ArgumentCaptor.forClass(List.class);
+        verify(volumePlanner).plan(inputs.capture());
+        assertThat(inputs.getValue()).extracting(Segment::getPath, Segment::getPageCount)
+                .containsExactly(tuple(inputPath1, 1), tuple(inputPath2, 2));
+        verify(volumeWriter).write(same(volumes), same(outputPath), eq(false), any(VolumeAssembler.class));
+        verify(documentLoader, never()).load(same(inputStream1), any(MemoryUsageSetting.class));
+        verify(document2).close();
+        verify(inputStream2).close();
+        verify(fileChecker, never()).exists(outputPath);
+        verifyNoInteractions(streamSupplier, mergerUtility);
+    }
+
+    @Test
+    public void volumeSettingsAreForwarded() {
+        // when
+        pdfMerger.setMaxOutputPages(2000);
+        pdfMerger.setMaxOutputSize(1024);
+
+        // then
+        verify(volumePlanner).setMaxPages(2000);
+        verify(volumePlanner).setMaxSize(1024);
+        verify(volumeWriter).setMaxSize(1024);
+    }
+
+    @Test
+    public void mergeFromIteratorReportsProgressAndLeavesChannelOpen() throws IOException {
+        // given
+        MergeListener listener = mock(MergeListener.class);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WritableByteChannel channel = Channels.newChannel(output);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+        doAnswer(invocation -> addPages(invocation.getArgument(0), 2))
+                .when(mergerUtility).appendDocument(any(PDDocument.class), same(document1));
+        doAnswer(invocation -> addPages(invocation.getArgument(0), 1))
+                .when(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+        List<MergeSource> sources = list(() -> inputStream1, () -> inputStream2);
+
+        // when
+        pdfMerger.merge(sources.iterator(), channel, listener);
+
+        // then
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).inputStarted(0);
+        inOrder.verify(listener).pageMerged(0, 0, 0);
+        inOrder.verify(listener).pageMerged(0, 1, 1);
+        inOrder.verify(listener).inputMerged(0, 2);
+        inOrder.verify(listener).inputStarted(1);
+        inOrder.verify(listener).pageMerged(1, 0, 2);
+        inOrder.verify(listener).inputMerged(1, 1);
+        assertThat(channel.isOpen()).isTrue();
+        assertThat(output.toString("US-ASCII")).startsWith("%PDF-");
+        verify(inputStream1).close();
+        verify(inputStream2).close();
+    }
+
+    @Test
+    public void mergeListenerIsToldOfEveryInput() throws IOException {
+        // given
+        MergeListener listener = mock(MergeListener.class);
+        when(converter.convertPathsToStreams(inputPaths)).thenReturn(inputStreams);
+        when(streamSupplier.getFileStream(outputPath)).thenReturn(outputStream);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenReturn(document2);
+        doAnswer(invocation -> addPages(invocation.getArgument(0), 3))
+                .when(mergerUtility).appendDocument(any(PDDocument.class), same(document2));
+
+        // when
+        pdfMerger.forceMerge(inputPaths, outputPath, listener);
+
+        // then
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).inputStarted(0);
+        inOrder.verify(listener).inputMerged(0, 0);
+        inOrder.verify(listener).inputStarted(1);
+        inOrder.verify(listener, times(3)).pageMerged(eq(1), anyInt(), anyInt());
+        inOrder.verify(listener).inputMerged(1, 3);
+        verify(mergerUtility, never()).mergeDocuments(any(MemoryUsageSetting.class));
+    }
+
+    @Test
+    public void mergeFromIteratorOpensSourcesOnlyWhenReachingThem() throws IOException {
+        // given
+        IOException failure = new IOException("unreadable");
+        MergeListener listener = mock(MergeListener.class);
+        MergeSource third = mock(MergeSource.class);
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document1);
+        List<MergeSource> sources = list(() -> inputStream1, () -> {
+            throw failure;
+        }, third);
+
+        // when
+        Throwable thrown = catchThrowable(() ->
+                pdfMerger.merge(sources.stream(), Channels.newChannel(outputStream), listener));
+
+        // then
+        assertThat(thrown).isSameAs(failure);
+        verify(listener).inputStarted(0);
+        verify(listener, never()).inputStarted(1);
+        verify(inputStream1).close();
+        verify(document1).close();
+        verifyNoInteractions(third, outputStream);
+    }
+
+    private static Object addPages(PDDocument destination, int count) {
+        for (int i = 0; i < count; i++) {
+            destination.addPage(new PDPage());
+        }
+        return null;
+    }
 }
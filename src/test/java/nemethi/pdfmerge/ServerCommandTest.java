@@ -0,0 +1,65 @@
+package nemethi.pdfmerge;
+
+import nemethi.pdfmerge.server.MergeClient;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ServerCommandTest {
+
+    @Mock
+    private CommandSpec spec;
+    @Mock(stubOnly = true)
+    private CommandLine commandLine;
+
+    private ServerCommand serverCommand;
+
+    @Before
+    public void setUp() {
+        serverCommand = new ServerCommand();
+        serverCommand.setSpec(spec);
+    }
+
+    @Test
+    public void defaultsToThePrivateEndpointAndTenMinutes() {
+        assertThat(serverCommand.getSocket()).isEqualTo(MergeClient.defaultEndpoint());
+        assertThat(serverCommand.getIdleTimeout()).isEqualTo(Duration.ofMinutes(10));
+        assertThat(serverCommand.isStopping()).isFalse();
+    }
+
+    @Test
+    public void setIdleTimeoutThrowsExceptionIfZero() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> serverCommand.setIdleTimeout(Duration.ZERO));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: DURATION must be positive.");
+        assertThat(serverCommand.getIdleTimeout()).isEqualTo(Duration.ofMinutes(10));
+    }
+
+    @Test
+    public void setIdleTimeoutSetsIdleTimeout() {
+        // when
+        serverCommand.setIdleTimeout(Duration.ofSeconds(30));
+
+        // then
+        assertThat(serverCommand.getIdleTimeout()).isEqualTo(Duration.ofSeconds(30));
+    }
+}
@@ -0,0 +1,115 @@
+package nemethi.pdfmerge;
+
+import nemethi.pdfmerge.util.FileChecker;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import picocli.CommandLine;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.ParameterException;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WatchCommandTest {
+
+    @Mock
+    private PdfMerger pdfMerger;
+    @Mock
+    private FileChecker fileChecker;
+    @Mock
+    private CommandSpec spec;
+    @Mock(stubOnly = true)
+    private CommandLine commandLine;
+    @Mock(stubOnly = true)
+    private Path path;
+
+    private WatchCommand watchCommand;
+
+    @Before
+    public void setUp() {
+        watchCommand = new WatchCommand(pdfMerger);
+        watchCommand.setFileChecker(fileChecker);
+        watchCommand.setSpec(spec);
+    }
+
+    @Test
+    public void setDirectoryThrowsExceptionIfPathIsNotDirectory() {
+        // given
+        when(fileChecker.isDirectory(path)).thenReturn(false);
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> watchCommand.setDirectory(path));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid path: DIR must point to a directory.");
+        assertThat(watchCommand.getDirectory()).isNull();
+    }
+
+    @Test
+    public void setDirectorySetsDirectory() {
+        // given
+        when(fileChecker.isDirectory(path)).thenReturn(true);
+
+        // when
+        watchCommand.setDirectory(path);
+
+        // then
+        assertThat(watchCommand.getDirectory()).isEqualTo(path);
+    }
+
+    @Test
+    public void setOutputFileThrowsExceptionIfPathIsDirectory() {
+        // given
+        when(fileChecker.isDirectory(path)).thenReturn(true);
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> watchCommand.setOutputFile(path));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid path: OUTFILE must point to a file.");
+        assertThat(watchCommand.getOutputFile()).isNull();
+    }
+
+    @Test
+    public void setDebounceMillisThrowsExceptionIfNegative() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> watchCommand.setDebounceMillis(-1));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: MILLIS must not be negative.");
+        assertThat(watchCommand.getDebounceMillis()).isEqualTo(500);
+    }
+
+    @Test
+    public void setMetricsPortThrowsExceptionIfOutOfRange() {
+        // given
+        when(spec.commandLine()).thenReturn(commandLine);
+
+        // when
+        Throwable thrown = catchThrowable(() -> watchCommand.setMetricsPort(65536));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(ParameterException.class)
+                .hasMessage("Invalid value: PORT must be between 0 and 65535.");
+        assertThat(watchCommand.getMetricsPort()).isNull();
+    }
+}
@@ -0,0 +1,125 @@
+package nemethi.pdfmerge.admission;
+
+import nemethi.pdfmerge.cancel.Cancellation;
+import nemethi.pdfmerge.cancel.MergeCancelledException;
+import nemethi.pdfmerge.scratch.ScratchDirectory;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdmissionControllerTest {
+
+    private static final long INPUT_BYTES = 10L << 20;
+    private static final long ESTIMATE = AdmissionController.estimate(INPUT_BYTES);
+
+    @Mock
+    private HeapPressureMonitor pressureMonitor;
+
+    private AdmissionController controller;
+
+    @Before
+    public void setUp() {
+        controller = new AdmissionController();
+        controller.setPressureMonitor(pressureMonitor);
+        controller.setBudget(2 * ESTIMATE);
+    }
+
+    @Test
+    public void admitsMergesWithinBudgetInMemory() throws Exception {
+        // when
+        Admission first = controller.admit(INPUT_BYTES, null);
+        Admission second = controller.admit(INPUT_BYTES, null);
+
+        // then
+        assertThat(controller.getReservedBytes()).isEqualTo(2 * ESTIMATE);
+        assertThat(first.isScratchBacked()).isFalse();
+        assertThat(second.getMemoryUsageSetting().useMainMemory()).isTrue();
+        second.close();
+        second.close();
+        assertThat(controller.getReservedBytes()).isEqualTo(ESTIMATE);
+    }
+
+    @Test
+    public void mergeWaitsUntilBudgetIsReleased() throws Exception {
+        // given
+        Admission first = controller.admit(INPUT_BYTES, null);
+        Admission second = controller.admit(INPUT_BYTES, null);
+
+        // when
+        CompletableFuture<Admission> third = CompletableFuture.supplyAsync(() -> admit(INPUT_BYTES));
+
+        // then
+        assertThat(catchThrowable(() -> third.get(300, TimeUnit.MILLISECONDS))).isInstanceOf(TimeoutException.class);
+        first.close();
+        assertThat(third.get(5, TimeUnit.SECONDS).isScratchBacked()).isFalse();
+        second.close();
+    }
+
+    @Test
+    public void mergeLargerThanBudgetRunsAloneOnScratchFiles() throws Exception {
+        // when
+        Admission admission = controller.admit(Long.MAX_VALUE, null);
+
+        // then
+        assertThat(admission.isScratchBacked()).isTrue();
+        assertThat(admission.getMemoryUsageSetting().useTempFile()).isTrue();
+        assertThat(admission.getMemoryUsageSetting().useMainMemory()).isFalse();
+        assertThat(admission.getMemoryUsageSetting().getTempDir()).isEqualTo(ScratchDirectory.get());
+        CompletableFuture<Admission> next = CompletableFuture.supplyAsync(() -> admit(0));
+        assertThat(catchThrowable(() -> next.get(300, TimeUnit.MILLISECONDS))).isInstanceOf(TimeoutException.class);
+        admission.close();
+        assertThat(next.get(5, TimeUnit.SECONDS).isScratchBacked()).isFalse();
+    }
+
+    @Test
+    public void heapPressurePausesNewMergesAndSwitchesRunningOnesToScratchFiles() throws Exception {
+        // given
+        Admission running = controller.admit(INPUT_BYTES, null);
+        when(pressureMonitor.isUnderPressure()).thenReturn(true);
+
+        // when
+        CompletableFuture<Admission> next = CompletableFuture.supplyAsync(() -> admit(INPUT_BYTES));
+
+        // then
+        assertThat(catchThrowable(() -> next.get(300, TimeUnit.MILLISECONDS))).isInstanceOf(TimeoutException.class);
+        MemoryUsageSetting setting = running.getMemoryUsageSetting();
+        assertThat(setting.useMainMemory()).isFalse();
+        running.close();
+        assertThat(next.get(5, TimeUnit.SECONDS).isScratchBacked()).isTrue();
+    }
+
+    @Test
+    public void waitingMergeStopsWhenCancelled() throws Exception {
+        // given
+        controller.admit(2 * INPUT_BYTES, null);
+        Cancellation cancellation = new Cancellation();
+        CompletableFuture<Throwable> waiting = CompletableFuture.supplyAsync(
+                () -> catchThrowable(() -> controller.admit(INPUT_BYTES, cancellation)));
+
+        // when
+        cancellation.cancel();
+
+        // then
+        assertThat(waiting.get(5, TimeUnit.SECONDS)).isInstanceOf(MergeCancelledException.class);
+    }
+
+    private Admission admit(long inputBytes) {
+        try {
+            return controller.admit(inputBytes, null);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
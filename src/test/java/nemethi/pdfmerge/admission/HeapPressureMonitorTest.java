@@ -0,0 +1,27 @@
+package nemethi.pdfmerge.admission;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HeapPressureMonitorTest {
+
+    @Test
+    public void setsThresholdsOnHeapPoolsMeasuredAfterCollections() {
+        // when
+        boolean underPressure = new HeapPressureMonitor().isUnderPressure();
+
+        // then
+        assertThat(underPressure).isFalse();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+            if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported() && max > 0) {
+                assertThat(pool.getCollectionUsageThreshold()).isEqualTo((long) (max * HeapPressureMonitor.THRESHOLD));
+            }
+        }
+    }
+}
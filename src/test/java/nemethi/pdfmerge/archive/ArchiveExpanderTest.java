@@ -0,0 +1,82 @@
+package nemethi.pdfmerge.archive;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ArchiveExpanderTest {
+
+    private static final byte[] CONTENT = "%PDF-1.4".getBytes(UTF_8);
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private ArchiveExpander expander;
+    private Path zip;
+
+    @Before
+    public void setUp() throws IOException {
+        expander = new ArchiveExpander();
+        zip = temp.getRoot().toPath().resolve("bundle.zip");
+        ArchivesTest.writeZip(zip, ZipEntry.DEFLATED, "scans/page10.pdf", CONTENT, "scans/page2.pdf", CONTENT,
+                "notes.txt", CONTENT, "Cover.PDF", CONTENT);
+    }
+
+    @Test
+    public void expandReturnsEveryPdfOfArchiveInArchiveOrder() throws IOException {
+        // when
+        List<Path> entries = expander.expand(zip);
+
+        // then
+        assertThat(entries).containsExactly(entry("scans/page10.pdf"), entry("scans/page2.pdf"), entry("Cover.PDF"));
+    }
+
+    @Test
+    public void expandSortsEntriesInNaturalOrder() throws IOException {
+        // given
+        expander.setOrder(ArchiveOrder.NATURAL);
+
+        // when
+        List<Path> entries = expander.expand(zip);
+
+        // then
+        assertThat(entries).containsExactly(entry("Cover.PDF"), entry("scans/page2.pdf"), entry("scans/page10.pdf"));
+    }
+
+    @Test
+    public void expandReturnsEntriesMatchingGlob() throws IOException {
+        // when
+        List<Path> scans = expander.expand(entry("scans/*.pdf"));
+        List<Path> topLevel = expander.expand(entry("*.{txt,PDF}"));
+        List<Path> none = expander.expand(entry("*.pdf"));
+
+        // then
+        assertThat(scans).containsExactly(entry("scans/page10.pdf"), entry("scans/page2.pdf"));
+        assertThat(topLevel).containsExactly(entry("notes.txt"), entry("Cover.PDF"));
+        assertThat(none).isEmpty();
+    }
+
+    @Test
+    public void expandReturnsFilesAndSingleEntriesUnchanged() throws IOException {
+        // given
+        Path file = temp.newFile("a.pdf").toPath();
+
+        // when + then
+        assertThat(expander.expand(file)).isEqualTo(Collections.singletonList(file));
+        assertThat(expander.expand(entry("notes.txt"))).isEqualTo(Collections.singletonList(entry("notes.txt")));
+    }
+
+    private Path entry(String name) {
+        return Archives.entryPath(zip, name);
+    }
+}
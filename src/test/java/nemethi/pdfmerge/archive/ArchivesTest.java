@@ -0,0 +1,256 @@
+package nemethi.pdfmerge.archive;
+
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ArchivesTest {
+
+    private static final byte[] CONTENT = "%PDF-1.4 first".getBytes(UTF_8);
+    private static final byte[] OTHER_CONTENT = "%PDF-1.4 second".getBytes(UTF_8);
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void openReadsStoredZipEntryAtItsOffset() throws IOException {
+        // given
+        Path zip = temp.getRoot().toPath().resolve("bundle.zip");
+        writeZip(zip, ZipEntry.STORED, "a.pdf", OTHER_CONTENT, "sub/b.pdf", CONTENT);
+        Path entry = Archives.entryPath(zip, "sub/b.pdf");
+
+        // when
+        byte[] skippedAndRead;
+        try (InputStream inputStream = Archives.open(entry)) {
+            assertThat(inputStream.skip(9)).isEqualTo(9);
+            skippedAndRead = readAll(inputStream);
+        }
+
+        // then
+        assertThat(Archives.isEntry(entry)).isTrue();
+        assertThat(Archives.size(entry)).isEqualTo(CONTENT.length);
+        assertThat(skippedAndRead).isEqualTo(Arrays.copyOfRange(CONTENT, 9, CONTENT.length));
+    }
+
+    @Test
+    public void storedZipEntryIsReadInPlaceAsRandomAccessSource() throws IOException {
+        // given
+        Path zip = temp.getRoot().toPath().resolve("bundle.zip");
+        writeZip(zip, ZipEntry.STORED, "a.pdf", OTHER_CONTENT, "sub/b.pdf", CONTENT);
+
+        // when
+        InputStream inputStream = Archives.open(Archives.entryPath(zip, "sub/b.pdf"));
+
+        // then
+        assertThat(inputStream).isInstanceOf(RandomAccessSource.class);
+        try (RandomAccessRead source = ((RandomAccessSource) inputStream).openRandomAccess()) {
+            assertThat(source.length()).isEqualTo(CONTENT.length);
+            source.seek(9);
+            assertThat(source.peek()).isEqualTo(CONTENT[9]);
+            assertThat(source.readFully(CONTENT.length - 9)).isEqualTo(Arrays.copyOfRange(CONTENT, 9, CONTENT.length));
+            assertThat(source.isEOF()).isTrue();
+            source.rewind(CONTENT.length);
+            assertThat(source.read()).isEqualTo(CONTENT[0]);
+        }
+        inputStream.close();
+    }
+
+    @Test
+    public void deflatedZipEntryIsNotARandomAccessSource() throws IOException {
+        // given
+        Path zip = temp.getRoot().toPath().resolve("bundle.zip");
+        writeZip(zip, ZipEntry.DEFLATED, "a.pdf", CONTENT);
+
+        // when
+        try (InputStream inputStream = Archives.open(Archives.entryPath(zip, "a.pdf"))) {
+
+            // then
+            assertThat(inputStream).isNotInstanceOf(RandomAccessSource.class);
+        }
+    }
+
+    @Test
+    public void openInflatesDeflatedZipEntry() throws IOException {
+        // given
+        Path zip = temp.getRoot().toPath().resolve("bundle.zip");
+        writeZip(zip, ZipEntry.DEFLATED, "a.pdf", CONTENT, "b.pdf", OTHER_CONTENT);
+
+        // when
+        byte[] read;
+        try (InputStream inputStream = Archives.open(Archives.entryPath(zip, "b.pdf"))) {
+            read = readAll(inputStream);
+        }
+
+        // then
+        assertThat(read).isEqualTo(OTHER_CONTENT);
+        assertThat(Archives.size(Archives.entryPath(zip, "b.pdf"))).isEqualTo(OTHER_CONTENT.length);
+    }
+
+    @Test
+    public void openReadsTarEntryWithLongName() throws IOException {
+        // given
+        String longName = String.join("/", "deeply", "nested", "directories", "that", "do", "not", "fit", "into",
+                "the", "hundred", "bytes", "of", "a", "tar", "header", "name", "field", "last.pdf");
+        Path tar = temp.getRoot().toPath().resolve("bundle.tar");
+        writeTar(tar, "./a.pdf", CONTENT, longName, OTHER_CONTENT);
+
+        // when
+        byte[] first;
+        byte[] second;
+        try (InputStream firstStream = Archives.open(Archives.entryPath(tar, "a.pdf"));
+             InputStream secondStream = Archives.open(Archives.entryPath(tar, longName))) {
+            first = readAll(firstStream);
+            second = readAll(secondStream);
+        }
+
+        // then
+        assertThat(first).isEqualTo(CONTENT);
+        assertThat(second).isEqualTo(OTHER_CONTENT);
+    }
+
+    @Test
+    public void existsIsFalseForMissingEntries() throws IOException {
+        // given
+        Path zip = temp.getRoot().toPath().resolve("bundle.zip");
+        writeZip(zip, ZipEntry.STORED, "a.pdf", CONTENT);
+        Path missing = Archives.entryPath(zip, "b.pdf");
+
+        // when
+        Throwable thrown = catchThrowable(() -> Archives.open(missing));
+
+        // then
+        assertThat(Archives.exists(Archives.entryPath(zip, "a.pdf"))).isTrue();
+        assertThat(Archives.exists(missing)).isFalse();
+        assertThat(thrown).isInstanceOf(NoSuchFileException.class);
+    }
+
+    @Test
+    public void isEntryIsFalseIfArchivePartIsNotAFile() throws IOException {
+        // given
+        Path directory = temp.newFolder("scans!").toPath();
+
+        // when + then
+        assertThat(Archives.isEntry(directory.resolve("a.pdf"))).isFalse();
+        assertThat(Archives.isEntry(temp.getRoot().toPath().resolve("missing.zip!/a.pdf"))).isFalse();
+    }
+
+    @Test
+    public void openThrowsExceptionIfFileIsNotAnArchive() throws IOException {
+        // given
+        Path notArchive = temp.newFile("bundle.zip").toPath();
+        Files.write(notArchive, CONTENT);
+
+        // when
+        Throwable thrown = catchThrowable(() -> Archives.open(Archives.entryPath(notArchive, "a.pdf")));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(IOException.class)
+                .hasMessage(notArchive.toAbsolutePath() + " is not a ZIP or TAR archive.");
+    }
+
+    @Test
+    public void indexIsReadAgainWhenArchiveChanges() throws IOException {
+        // given
+        Path zip = temp.getRoot().toPath().resolve("bundle.zip");
+        writeZip(zip, ZipEntry.STORED, "a.pdf", CONTENT);
+        assertThat(Archives.exists(Archives.entryPath(zip, "b.pdf"))).isFalse();
+
+        // when
+        writeZip(zip, ZipEntry.STORED, "a.pdf", CONTENT, "b.pdf", OTHER_CONTENT);
+
+        // then
+        assertThat(Archives.exists(Archives.entryPath(zip, "b.pdf"))).isTrue();
+    }
+
+    static void writeZip(Path zip, int method, Object... namesAndContents) throws IOException {
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(zip))) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                byte[] content = (byte[]) namesAndContents[i + 1];
+                ZipEntry entry = new ZipEntry((String) namesAndContents[i]);
+                entry.setMethod(method);
+                if (method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(content);
+                    entry.setSize(content.length);
+                    entry.setCompressedSize(content.length);
+                    entry.setCrc(crc.getValue());
+                }
+                outputStream.putNextEntry(entry);
+                outputStream.write(content);
+                outputStream.closeEntry();
+            }
+        }
+    }
+
+    // Writes a ustar archive; names over 100 bytes get a GNU long name entry, as GNU tar writes them.
+    static void writeTar(Path tar, Object... namesAndContents) throws IOException {
+        try (OutputStream outputStream = Files.newOutputStream(tar)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                String name = (String) namesAndContents[i];
+                byte[] content = (byte[]) namesAndContents[i + 1];
+                if (name.length() > 100) {
+                    byte[] longName = (name + '\0').getBytes(UTF_8);
+                    writeTarEntry(outputStream, "././@LongLink", 'L', longName);
+                }
+                writeTarEntry(outputStream, name.length() > 100 ? name.substring(0, 100) : name, '0', content);
+            }
+            outputStream.write(new byte[1024]);
+        }
+    }
+
+    private static void writeTarEntry(OutputStream outputStream, String name, char type, byte[] content)
+            throws IOException {
+        byte[] header = new byte[512];
+        put(header, 0, name);
+        put(header, 100, "0000644");
+        put(header, 108, "0000000");
+        put(header, 116, "0000000");
+        put(header, 124, String.format("%011o", content.length));
+        put(header, 136, "00000000000");
+        Arrays.fill(header, 148, 156, (byte) ' ');
+        header[156] = (byte) type;
+        put(header, 257, "ustar");
+        put(header, 263, "00");
+        int checksum = 0;
+        for (byte b : header) {
+            checksum += b & 0xff;
+        }
+        put(header, 148, String.format("%06o", checksum));
+        header[154] = 0;
+        outputStream.write(header);
+        outputStream.write(content);
+        outputStream.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static void put(byte[] header, int offset, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        System.arraycopy(bytes, 0, header, offset, bytes.length);
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4];
+        for (int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer)) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,47 @@
+package nemethi.pdfmerge.batch;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchReportTest {
+
+    @Test
+    public void percentilesUseNearestRank() {
+        // given
+        List<JobResult> results = new ArrayList<>();
+        for (int i = 100; i >= 1; i--) {
+            results.add(result(i, i == 7 ? new IOException("broken") : null));
+        }
+
+        // when
+        BatchReport report = new BatchReport(results);
+
+        // then
+        assertThat(report.getJobs()).isEqualTo(100);
+        assertThat(report.getFailures()).isEqualTo(1);
+        assertThat(report.percentileNanos(50)).isEqualTo(50);
+        assertThat(report.percentileNanos(99)).isEqualTo(99);
+        assertThat(report.percentileNanos(100)).isEqualTo(100);
+    }
+
+    @Test
+    public void percentileOfEmptyBatchIsZero() {
+        // when
+        BatchReport report = new BatchReport(Collections.emptyList());
+
+        // then
+        assertThat(report.percentileNanos(99)).isZero();
+    }
+
+    private static JobResult result(long latencyNanos, Throwable failure) {
+        MergeJob job = new MergeJob(0, Paths.get("out.pdf"), Collections.singletonList(Paths.get("in.pdf")), 0, 1);
+        return new JobResult(job, latencyNanos, failure);
+    }
+}
@@ -0,0 +1,85 @@
+package nemethi.pdfmerge.batch;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class JobFileTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path directory;
+    private JobFile jobFile;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temp.getRoot().toPath();
+        Files.write(directory.resolve("a.pdf"), new byte[10]);
+        Files.write(directory.resolve("b c.pdf"), new byte[5]);
+        jobFile = new JobFile();
+    }
+
+    @Test
+    public void readParsesJobsRelativeToJobFile() throws IOException {
+        // given
+        Path file = write("# nightly", "out1.pdf a.pdf a.pdf", "", "priority=3\tout 2.pdf\tb c.pdf",
+                "priority=-1  out3.pdf  missing.pdf");
+
+        // when
+        List<MergeJob> jobs = jobFile.read(file);
+
+        // then
+        assertThat(jobs).extracting(MergeJob::getIndex, MergeJob::getOutputPath, MergeJob::getPriority,
+                MergeJob::getInputBytes).containsExactly(
+                tuple(0, directory.resolve("out1.pdf"), 0, 20L),
+                tuple(1, directory.resolve("out 2.pdf"), 3, 5L),
+                tuple(2, directory.resolve("out3.pdf"), -1, 0L));
+        assertThat(jobs.get(0).getInputPaths()).containsExactly(directory.resolve("a.pdf"), directory.resolve("a.pdf"));
+        assertThat(jobs.get(1).getInputPaths()).containsExactly(directory.resolve("b c.pdf"));
+    }
+
+    @Test
+    public void readThrowsExceptionOnJobWithoutInputs() throws IOException {
+        // given
+        Path file = write("out1.pdf a.pdf", "out2.pdf");
+
+        // when
+        Throwable thrown = catchThrowable(() -> jobFile.read(file));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(IOException.class)
+                .hasMessage(file + ":2: A job needs an output file and at least one input file.");
+    }
+
+    @Test
+    public void readThrowsExceptionOnInvalidPriority() throws IOException {
+        // given
+        Path file = write("priority=high out.pdf a.pdf");
+
+        // when
+        Throwable thrown = catchThrowable(() -> jobFile.read(file));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(IOException.class)
+                .hasMessage(file + ":1: 'priority=high' is not a valid priority.");
+    }
+
+    private Path write(String... lines) throws IOException {
+        return Files.write(directory.resolve("jobs.txt"), Arrays.asList(lines), UTF_8);
+    }
+}
@@ -0,0 +1,165 @@
+package nemethi.pdfmerge.batch;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JobSchedulerTest {
+
+    private JobScheduler scheduler;
+    private List<Integer> started;
+
+    @Before
+    public void setUp() {
+        scheduler = new JobScheduler();
+        scheduler.setWorkers(1);
+        started = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    @Test
+    public void fifoRunsJobsInFileOrder() throws IOException {
+        // given
+        scheduler.setPolicy(SchedulingPolicy.FIFO);
+
+        // when
+        scheduler.run(jobs(30, 10, 20), job -> started.add(job.getIndex()));
+
+        // then
+        assertThat(started).containsExactly(0, 1, 2);
+    }
+
+    @Test
+    public void runsOnPlatformThreadsWithoutVirtualThreads() throws IOException {
+        // given
+        scheduler.setVirtualThreads(true);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+
+        // when
+        scheduler.run(jobs(10, 20), job -> threads.add(Thread.currentThread()));
+
+        // then
+        assertThat(scheduler.usesVirtualThreads()).isEqualTo(JobThreads.isVirtualAvailable());
+        assertThat(threads).hasSize(2).doesNotContain(Thread.currentThread());
+    }
+
+    @Test
+    public void sjfRunsSmallestInputsFirst() throws IOException {
+        // given
+        scheduler.setPolicy(SchedulingPolicy.SJF);
+
+        // when
+        scheduler.run(jobs(30, 10, 20, 10), job -> started.add(job.getIndex()));
+
+        // then
+        assertThat(started).containsExactly(1, 3, 2, 0);
+    }
+
+    @Test
+    public void priorityRunsHighestPriorityFirst() throws IOException {
+        // given
+        scheduler.setPolicy(SchedulingPolicy.PRIORITY);
+        List<MergeJob> jobs = new ArrayList<>();
+        jobs.add(job(0, 1, 0));
+        jobs.add(job(1, 1, 5));
+        jobs.add(job(2, 1, -1));
+        jobs.add(job(3, 1, 5));
+
+        // when
+        scheduler.run(jobs, job -> started.add(job.getIndex()));
+
+        // then
+        assertThat(started).containsExactly(1, 3, 0, 2);
+    }
+
+    @Test
+    public void overtakeLimitKeepsLargeJobsFromStarving() throws IOException {
+        // given
+        scheduler.setPolicy(SchedulingPolicy.SJF);
+        scheduler.setMaxOvertakes(2);
+
+        // when
+        scheduler.run(jobs(100, 90, 1, 1, 1, 1, 1), job -> started.add(job.getIndex()));
+
+        // then
+        assertThat(started).containsExactly(2, 3, 0, 1, 4, 5, 6);
+    }
+
+    @Test
+    public void idleWorkersRunJobsWhileOneIsBusy() throws IOException {
+        // given
+        scheduler.setWorkers(2);
+        CountDownLatch othersDone = new CountDownLatch(5);
+
+        // when
+        List<JobResult> results = scheduler.run(jobs(1, 1, 1, 1, 1, 1), job -> {
+            if (job.getIndex() > 0) {
+                othersDone.countDown();
+            } else if (!awaitQuietly(othersDone)) {
+                throw new IOException("The other jobs waited for the busy worker.");
+            }
+        });
+
+        // then
+        assertThat(results).allMatch(JobResult::isSuccessful);
+    }
+
+    @Test
+    public void failedJobIsReportedAndOthersRun() throws IOException {
+        // given
+        IOException failure = new IOException("broken");
+
+        // when
+        List<JobResult> results = scheduler.run(jobs(1, 2, 3), job -> {
+            started.add(job.getIndex());
+            if (job.getIndex() == 1) {
+                throw failure;
+            }
+        });
+
+        // then
+        assertThat(started).containsExactly(0, 1, 2);
+        assertThat(results).extracting(JobResult::getFailure).containsExactly(null, failure, null);
+        assertThat(results.get(2).getLatencyNanos()).isGreaterThanOrEqualTo(results.get(0).getLatencyNanos());
+    }
+
+    @Test
+    public void emptyBatchReturnsNoResults() throws IOException {
+        // when
+        List<JobResult> results = scheduler.run(Collections.emptyList(), job -> started.add(job.getIndex()));
+
+        // then
+        assertThat(results).isEmpty();
+    }
+
+    private static boolean awaitQuietly(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static List<MergeJob> jobs(long... inputBytes) {
+        List<MergeJob> jobs = new ArrayList<>();
+        for (int i = 0; i < inputBytes.length; i++) {
+            jobs.add(job(i, inputBytes[i], 0));
+        }
+        return jobs;
+    }
+
+    private static MergeJob job(int index, long inputBytes, int priority) {
+        Path output = Paths.get("out-" + index + ".pdf");
+        return new MergeJob(index, output, Collections.singletonList(Paths.get("in.pdf")), priority, inputBytes);
+    }
+}
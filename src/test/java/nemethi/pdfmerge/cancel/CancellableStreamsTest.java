@@ -0,0 +1,95 @@
+package nemethi.pdfmerge.cancel;
+
+import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CancellableStreamsTest {
+
+    private static final int SIZE = 10_000;
+
+    private Cancellation cancellation;
+
+    @Before
+    public void setUp() {
+        cancellation = new Cancellation();
+    }
+
+    @Test
+    public void inputStreamReadsUntilCancelled() throws IOException {
+        // given
+        InputStream inputStream = new CancellableInputStream(new ByteArrayInputStream(new byte[SIZE]), cancellation);
+        byte[] buffer = new byte[SIZE / 2];
+
+        // when
+        int count = inputStream.read(buffer);
+        cancellation.cancel();
+        Throwable thrown = catchThrowable(() -> inputStream.read(buffer));
+
+        // then
+        assertThat(count).isEqualTo(SIZE / 2);
+        assertThat(thrown).isInstanceOf(MergeCancelledException.class);
+    }
+
+    @Test
+    public void inputStreamChecksSingleByteReadsPeriodically() throws IOException {
+        // given
+        InputStream inputStream = new CancellableInputStream(new ByteArrayInputStream(new byte[SIZE]), cancellation);
+        cancellation.cancel();
+
+        // when
+        Throwable thrown = catchThrowable(() -> {
+            while (inputStream.read() >= 0) {
+                // keep reading
+            }
+        });
+
+        // then
+        assertThat(thrown).isInstanceOf(MergeCancelledException.class);
+    }
+
+    @Test
+    public void outputStreamWritesUntilCancelled() throws IOException {
+        // given
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        OutputStream outputStream = new CancellableOutputStream(target, cancellation);
+
+        // when
+        outputStream.write(new byte[SIZE]);
+        cancellation.cancel();
+        Throwable thrown = catchThrowable(() -> outputStream.write(new byte[SIZE]));
+
+        // then
+        assertThat(target.size()).isEqualTo(SIZE);
+        assertThat(thrown).isInstanceOf(MergeCancelledException.class);
+    }
+
+    @Test
+    public void randomAccessReadChecksWhileReading() throws IOException {
+        // given
+        CancellableRandomAccessRead source = new CancellableRandomAccessRead(
+                new RandomAccessBuffer(new byte[SIZE]), cancellation);
+        assertThat(source.read()).isZero();
+        cancellation.cancel();
+
+        // when
+        Throwable thrown = catchThrowable(() -> {
+            while (source.read() >= 0) {
+                // keep reading
+            }
+        });
+
+        // then
+        assertThat(thrown).isInstanceOf(MergeCancelledException.class);
+        assertThat(source.getPosition()).isLessThan(SIZE);
+    }
+}
@@ -0,0 +1,63 @@
+package nemethi.pdfmerge.cancel;
+
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CancellationTest {
+
+    @Test
+    public void isNotCancelledByDefault() throws MergeCancelledException {
+        // given
+        Cancellation cancellation = new Cancellation(Duration.ofHours(1));
+
+        // when
+        cancellation.check();
+
+        // then
+        assertThat(cancellation.isCancelled()).isFalse();
+    }
+
+    @Test
+    public void checkThrowsExceptionAfterCancel() {
+        // given
+        Cancellation cancellation = new Cancellation();
+
+        // when
+        cancellation.cancel();
+        Throwable thrown = catchThrowable(cancellation::check);
+
+        // then
+        assertThat(cancellation.isCancelled()).isTrue();
+        assertThat(thrown)
+                .isExactlyInstanceOf(MergeCancelledException.class)
+                .hasMessage("The merge was cancelled.");
+    }
+
+    @Test
+    public void checkThrowsExceptionAfterTimeout() throws InterruptedException {
+        // given
+        Cancellation cancellation = new Cancellation(Duration.ofMillis(1));
+
+        // when
+        Thread.sleep(10);
+        Throwable thrown = catchThrowable(cancellation::check);
+
+        // then
+        assertThat(cancellation.isCancelled()).isTrue();
+        assertThat(thrown)
+                .isInstanceOf(MergeTimeoutException.class)
+                .hasMessage("The merge did not finish within 1ms.");
+    }
+
+    @Test
+    public void formatUsesLargestWholeUnit() {
+        assertThat(Cancellation.format(Duration.ofHours(2))).isEqualTo("2h");
+        assertThat(Cancellation.format(Duration.ofMinutes(90))).isEqualTo("90m");
+        assertThat(Cancellation.format(Duration.ofSeconds(45))).isEqualTo("45s");
+        assertThat(Cancellation.format(Duration.ofMillis(1500))).isEqualTo("1500ms");
+    }
+}
@@ -0,0 +1,178 @@
+package nemethi.pdfmerge.checkpoint;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CheckpointTest {
+
+    private static final String OPTIONS = "compression=false";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path directory;
+    private Path output;
+    private List<Path> inputs;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temp.getRoot().toPath().resolve("checkpoints");
+        output = temp.getRoot().toPath().resolve("out.pdf");
+        inputs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            inputs.add(Files.write(temp.getRoot().toPath().resolve("input-" + i + ".pdf"),
+                    ("input " + i).getBytes(UTF_8)));
+        }
+    }
+
+    @Test
+    public void reopenedCheckpointResumesAfterCommittedChunks() throws IOException {
+        // given
+        Checkpoint checkpoint = Checkpoint.open(directory, inputs, output, OPTIONS);
+        writeChunk(checkpoint, 2);
+        writeChunk(checkpoint, 4);
+        Files.write(checkpoint.getPartPath(), "unfinished".getBytes(UTF_8));
+
+        // when
+        Checkpoint resumed = Checkpoint.open(directory, inputs, output, OPTIONS);
+
+        // then
+        assertThat(resumed.getResumeIndex()).isEqualTo(4);
+        assertThat(resumed.getChunkPaths()).containsExactly(directory.resolve("chunk-00000.pdf"),
+                directory.resolve("chunk-00001.pdf"));
+        assertThat(new String(Files.readAllBytes(directory.resolve("chunk-00001.pdf")), UTF_8)).isEqualTo("up to 4");
+        assertThat(resumed.getPartPath()).doesNotExist();
+    }
+
+    @Test
+    public void changedInputDropsItsChunkAndLaterOnes() throws IOException {
+        // given
+        Checkpoint checkpoint = Checkpoint.open(directory, inputs, output, OPTIONS);
+        writeChunk(checkpoint, 2);
+        writeChunk(checkpoint, 4);
+        writeChunk(checkpoint, 5);
+        Files.write(inputs.get(3), "edited".getBytes(UTF_8));
+
+        // when
+        Checkpoint resumed = Checkpoint.open(directory, inputs, output, OPTIONS);
+
+        // then
+        assertThat(resumed.getResumeIndex()).isEqualTo(2);
+        assertThat(directory.resolve("chunk-00000.pdf")).exists();
+        assertThat(directory.resolve("chunk-00001.pdf")).doesNotExist();
+        assertThat(directory.resolve("chunk-00002.pdf")).doesNotExist();
+    }
+
+    @Test
+    public void reorderedInputsAreNotResumed() throws IOException {
+        // given
+        Checkpoint checkpoint = Checkpoint.open(directory, inputs, output, OPTIONS);
+        writeChunk(checkpoint, 2);
+        List<Path> reordered = new ArrayList<>(inputs);
+        reordered.set(0, inputs.get(1));
+        reordered.set(1, inputs.get(0));
+
+        // when
+        Checkpoint resumed = Checkpoint.open(directory, reordered, output, OPTIONS);
+
+        // then
+        assertThat(resumed.getResumeIndex()).isZero();
+        assertThat(resumed.getChunkPaths()).isEmpty();
+    }
+
+    @Test
+    public void chunksOfOtherOutputAreDiscardedAndOtherFilesKept() throws IOException {
+        // given
+        Checkpoint checkpoint = Checkpoint.open(directory, inputs, output, OPTIONS);
+        writeChunk(checkpoint, 2);
+        Path notes = Files.write(directory.resolve("notes.txt"), "keep".getBytes(UTF_8));
+
+        // when
+        Checkpoint other = Checkpoint.open(directory, inputs, temp.getRoot().toPath().resolve("other.pdf"), OPTIONS);
+
+        // then
+        assertThat(other.getResumeIndex()).isZero();
+        assertThat(directory.resolve("chunk-00000.pdf")).doesNotExist();
+        assertThat(notes).exists();
+    }
+
+    @Test
+    public void chunksMergedWithOtherOptionsAreDiscarded() throws IOException {
+        // given
+        Checkpoint checkpoint = Checkpoint.open(directory, inputs, output, OPTIONS);
+        writeChunk(checkpoint, 2);
+
+        // when
+        Checkpoint other = Checkpoint.open(directory, inputs, output, "compression=true");
+
+        // then
+        assertThat(other.getResumeIndex()).isZero();
+        assertThat(directory.resolve("chunk-00000.pdf")).doesNotExist();
+    }
+
+    @Test
+    public void inputChangedAfterItWasReadDropsItsChunk() throws IOException {
+        // given
+        Checkpoint checkpoint = Checkpoint.open(directory, inputs, output, OPTIONS);
+        for (int i = 0; i < 2; i++) {
+            try (InputStream inputStream = checkpoint.track(Files.newInputStream(inputs.get(i)))) {
+                while (inputStream.read() != -1) {
+                    // read to the end, as the merge does
+                }
+            }
+        }
+        Files.write(inputs.get(1), "edited while the chunk was written".getBytes(UTF_8));
+        writeChunk(checkpoint, 2);
+
+        // when
+        Checkpoint resumed = Checkpoint.open(directory, inputs, output, OPTIONS);
+
+        // then
+        assertThat(resumed.getResumeIndex()).isZero();
+    }
+
+    @Test
+    public void deleteRemovesChunksAndManifest() throws IOException {
+        // given
+        Checkpoint checkpoint = Checkpoint.open(directory, inputs, output, OPTIONS);
+        writeChunk(checkpoint, 5);
+
+        // when
+        checkpoint.delete();
+
+        // then
+        assertThat(directory.toFile().list()).isEmpty();
+        assertThat(Checkpoint.open(directory, inputs, output, OPTIONS).getResumeIndex()).isZero();
+    }
+
+    @Test
+    public void commitThrowsExceptionIfChunkDoesNotFollowPreviousOne() throws IOException {
+        // given
+        Checkpoint checkpoint = Checkpoint.open(directory, inputs, output, OPTIONS);
+        writeChunk(checkpoint, 2);
+
+        // when
+        Throwable thrown = catchThrowable(() -> checkpoint.commit(2));
+
+        // then
+        assertThat(thrown).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void writeChunk(Checkpoint checkpoint, int end) throws IOException {
+        Files.write(checkpoint.getPartPath(), ("up to " + end).getBytes(UTF_8));
+        checkpoint.commit(end);
+    }
+}
@@ -0,0 +1,39 @@
+package nemethi.pdfmerge.cli;
+
+import nemethi.pdfmerge.archive.ArchiveOrder;
+import org.junit.Before;
+import org.junit.Test;
+import picocli.CommandLine.TypeConversionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ArchiveOrderConverterTest {
+
+    private ArchiveOrderConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = new ArchiveOrderConverter();
+    }
+
+    @Test
+    public void convertIgnoresCase() {
+        // when
+        ArchiveOrder order = converter.convert("Natural");
+
+        // then
+        assertThat(order).isEqualTo(ArchiveOrder.NATURAL);
+    }
+
+    @Test
+    public void convertThrowsExceptionOnUnknownOrder() {
+        // when
+        Throwable thrown = catchThrowable(() -> converter.convert("random"));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(TypeConversionException.class)
+                .hasMessage("'random' is not an archive order.");
+    }
+}
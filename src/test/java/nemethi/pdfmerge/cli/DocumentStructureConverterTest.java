@@ -0,0 +1,39 @@
+package nemethi.pdfmerge.cli;
+
+import nemethi.pdfmerge.structure.DocumentStructure;
+import org.junit.Before;
+import org.junit.Test;
+import picocli.CommandLine.TypeConversionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class DocumentStructureConverterTest {
+
+    private DocumentStructureConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = new DocumentStructureConverter();
+    }
+
+    @Test
+    public void convertIgnoresCase() {
+        // when
+        DocumentStructure structure = converter.convert("Outlines");
+
+        // then
+        assertThat(structure).isEqualTo(DocumentStructure.OUTLINES);
+    }
+
+    @Test
+    public void convertThrowsExceptionOnUnknownStructure() {
+        // when
+        Throwable thrown = catchThrowable(() -> converter.convert("bookmarks"));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(TypeConversionException.class)
+                .hasMessage("'bookmarks' is not a document structure.");
+    }
+}
@@ -0,0 +1,55 @@
+package nemethi.pdfmerge.cli;
+
+import org.junit.Before;
+import org.junit.Test;
+import picocli.CommandLine.TypeConversionException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class DurationConverterTest {
+
+    private DurationConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = new DurationConverter();
+    }
+
+    @Test
+    public void convertPlainSeconds() {
+        assertThat(converter.convert("90")).isEqualTo(Duration.ofSeconds(90));
+    }
+
+    @Test
+    public void convertSuffixedDurations() {
+        assertThat(converter.convert("500ms")).isEqualTo(Duration.ofMillis(500));
+        assertThat(converter.convert("30s")).isEqualTo(Duration.ofSeconds(30));
+        assertThat(converter.convert("15M")).isEqualTo(Duration.ofMinutes(15));
+        assertThat(converter.convert("2 h")).isEqualTo(Duration.ofHours(2));
+    }
+
+    @Test
+    public void convertThrowsExceptionOnInvalidDuration() {
+        // when
+        Throwable thrown = catchThrowable(() -> converter.convert("1 day"));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(TypeConversionException.class)
+                .hasMessage("'1 day' is not a duration.");
+    }
+
+    @Test
+    public void convertThrowsExceptionOnOverflow() {
+        // when
+        Throwable thrown = catchThrowable(() -> converter.convert("9999999999999h"));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(TypeConversionException.class)
+                .hasMessage("'9999999999999h' is too long.");
+    }
+}
@@ -1,5 +1,6 @@
 package nemethi.pdfmerge.cli;
 
+import nemethi.pdfmerge.cancel.MergeTimeoutException;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
@@ -16,6 +17,7 @@ import java.nio.file.FileAlreadyExistsException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -34,6 +36,7 @@ public class ExceptionHandlerTest {
     private static final String EXECUTION_ERROR_MESSAGE_WITH_HINT = String.format(ERROR_MESSAGE_WITH_HINT_FORMAT, COMMAND_NAME, ERROR_MESSAGE, FORCE_HINT);
     private static final int INVALID_PARAMETER_EXIT_CODE = 2;
     private static final int EXECUTION_ERROR_EXIT_CODE = 1;
+    private static final int TIMEOUT_EXIT_CODE = 124;
     private static final String[] STUB_ARRAY = new String[0];
 
     @Mock
@@ -43,6 +46,8 @@ public class ExceptionHandlerTest {
     @Mock
     private Exception exception;
     @Mock
+    private MergeTimeoutException timeoutException;
+    @Mock
     private CommandLine commandLine;
     @Mock
     private CommandSpec commandSpec;
@@ -83,6 +88,7 @@ public class ExceptionHandlerTest {
         verify(commandLine).getOut();
         verify(commandLine).usage(outWriter, colorScheme);
         verify(commandLine, times(2)).getExitCodeExceptionMapper();
+        verify(commandLine).getCommandSpec();
         verify(exitCodeExceptionMapper).getExitCode(parameterException);
         verifyNoMoreInteractions(parameterException, commandLine, colorScheme, errorWriter, exitCodeExceptionMapper);
     }
@@ -105,6 +111,7 @@ public class ExceptionHandlerTest {
         verify(colorScheme).errorText(INVALID_PARAMETER_MESSAGE);
         verify(errorWriter).println(text);
         verify(commandLine, times(2)).getExitCodeExceptionMapper();
+        verify(commandLine).getCommandSpec();
         verify(exitCodeExceptionMapper).getExitCode(parameterException);
         verifyNoMoreInteractions(parameterException, commandLine, colorScheme, errorWriter);
     }
@@ -128,7 +135,7 @@ public class ExceptionHandlerTest {
         verify(colorScheme).errorText(INVALID_PARAMETER_MESSAGE);
         verify(errorWriter).println(text);
         verify(commandLine).getExitCodeExceptionMapper();
-        verify(commandLine).getCommandSpec();
+        verify(commandLine, times(2)).getCommandSpec();
         verify(commandSpec).exitCodeOnInvalidInput();
         verifyNoMoreInteractions(parameterException, commandLine, colorScheme, errorWriter, commandSpec);
     }
@@ -155,7 +162,7 @@ public class ExceptionHandlerTest {
         verify(commandLine).getOut();
         verify(commandLine).usage(outWriter, colorScheme);
         verify(commandLine).getExitCodeExceptionMapper();
-        verify(commandLine).getCommandSpec();
+        verify(commandLine, times(2)).getCommandSpec();
         verify(commandSpec).exitCodeOnInvalidInput();
         verifyNoMoreInteractions(parameterException, commandLine, colorScheme, errorWriter, commandSpec);
     }
@@ -174,6 +181,7 @@ public class ExceptionHandlerTest {
         assertThat(exitCode).isEqualTo(EXECUTION_ERROR_EXIT_CODE);
         verifyHandleFileAlreadyExistsException();
         verify(commandLine, times(2)).getExitCodeExceptionMapper();
+        verify(commandLine).getCommandSpec();
         verify(exitCodeExceptionMapper).getExitCode(fileAlreadyExistsException);
         verifyNoMoreInteractions(fileAlreadyExistsException, commandLine, colorScheme, exitCodeExceptionMapper);
     }
@@ -193,7 +201,7 @@ public class ExceptionHandlerTest {
         assertThat(exitCode).isEqualTo(EXECUTION_ERROR_EXIT_CODE);
         verifyHandleFileAlreadyExistsException();
         verify(commandLine).getExitCodeExceptionMapper();
-        verify(commandLine).getCommandSpec();
+        verify(commandLine, times(2)).getCommandSpec();
         verify(commandSpec).exitCodeOnExecutionException();
         verifyNoMoreInteractions(commandLine, fileAlreadyExistsException, colorScheme, errorWriter, commandSpec);
     }
@@ -213,7 +221,7 @@ public class ExceptionHandlerTest {
         assertThat(exitCode).isEqualTo(EXECUTION_ERROR_EXIT_CODE);
         verifyForHandleExecutionException();
         verify(commandLine).getExitCodeExceptionMapper();
-        verify(commandLine).getCommandSpec();
+        verify(commandLine, times(2)).getCommandSpec();
         verify(commandSpec).exitCodeOnExecutionException();
         verifyNoMoreInteractions(commandLine, exception, colorScheme, errorWriter, commandSpec);
     }
@@ -232,13 +240,35 @@ public class ExceptionHandlerTest {
         assertThat(exitCode).isEqualTo(EXECUTION_ERROR_EXIT_CODE);
         verifyForHandleExecutionException();
         verify(commandLine, times(2)).getExitCodeExceptionMapper();
+        verify(commandLine).getCommandSpec();
         verify(exitCodeExceptionMapper).getExitCode(exception);
         verifyNoMoreInteractions(commandLine, exception, colorScheme, errorWriter, exitCodeExceptionMapper);
     }
 
+    @Test
+    public void handleTimeoutWithoutExceptionMapper() throws Exception {
+        // given
+        when(commandLine.getCommandSpec()).thenReturn(commandSpec);
+        when(commandSpec.qualifiedName()).thenReturn(COMMAND_NAME);
+        when(timeoutException.getMessage()).thenReturn(ERROR_MESSAGE);
+        when(commandLine.getErr()).thenReturn(errorWriter);
+        when(commandLine.getColorScheme()).thenReturn(colorScheme);
+        when(colorScheme.errorText(EXECUTION_ERROR_MESSAGE)).thenReturn(text);
+        when(commandLine.getExitCodeExceptionMapper()).thenReturn(null);
+
+        // when
+        int exitCode = exceptionHandler.handleExecutionException(timeoutException, commandLine, parseResult);
+
+        // then
+        assertThat(exitCode).isEqualTo(TIMEOUT_EXIT_CODE);
+        verify(errorWriter).println(text);
+        verify(commandSpec, never()).exitCodeOnExecutionException();
+    }
+
     private void mockForHandleParseException() {
         when(parameterException.getCommandLine()).thenReturn(commandLine);
-        when(commandLine.getCommandName()).thenReturn(COMMAND_NAME);
+        when(commandLine.getCommandSpec()).thenReturn(commandSpec);
+        when(commandSpec.qualifiedName()).thenReturn(COMMAND_NAME);
         when(parameterException.getMessage()).thenReturn(ERROR_MESSAGE);
         when(commandLine.getErr()).thenReturn(errorWriter);
         when(commandLine.getColorScheme()).thenReturn(colorScheme);
@@ -251,13 +281,14 @@ public class ExceptionHandlerTest {
 
     private void verifyForHandleParseException() {
         verify(parameterException).getCommandLine();
-        verify(commandLine).getCommandName();
+        verify(commandSpec).qualifiedName();
         verify(parameterException).getMessage();
         verify(commandLine, times(2)).getErr();
     }
 
     private void mockForHandleFileAlreadyExistsException() {
-        when(commandLine.getCommandName()).thenReturn(COMMAND_NAME);
+        when(commandLine.getCommandSpec()).thenReturn(commandSpec);
+        when(commandSpec.qualifiedName()).thenReturn(COMMAND_NAME);
         when(fileAlreadyExistsException.getMessage()).thenReturn(ERROR_MESSAGE);
         when(commandLine.getErr()).thenReturn(errorWriter);
         when(commandLine.getColorScheme()).thenReturn(colorScheme);
@@ -265,7 +296,7 @@ public class ExceptionHandlerTest {
     }
 
     private void verifyHandleFileAlreadyExistsException() {
-        verify(commandLine).getCommandName();
+        verify(commandSpec).qualifiedName();
         verify(fileAlreadyExistsException).getMessage();
         verify(commandLine).getErr();
         verify(commandLine).getColorScheme();
@@ -274,7 +305,8 @@ public class ExceptionHandlerTest {
     }
 
     private void mockForHandleExecutionException() {
-        when(commandLine.getCommandName()).thenReturn(COMMAND_NAME);
+        when(commandLine.getCommandSpec()).thenReturn(commandSpec);
+        when(commandSpec.qualifiedName()).thenReturn(COMMAND_NAME);
         when(exception.getMessage()).thenReturn(ERROR_MESSAGE);
         when(commandLine.getErr()).thenReturn(errorWriter);
         when(commandLine.getColorScheme()).thenReturn(colorScheme);
@@ -282,7 +314,7 @@ public class ExceptionHandlerTest {
     }
 
     private void verifyForHandleExecutionException() {
-        verify(commandLine).getCommandName();
+        verify(commandSpec).qualifiedName();
         verify(exception).getMessage();
         verify(commandLine).getErr();
         verify(commandLine).getColorScheme();
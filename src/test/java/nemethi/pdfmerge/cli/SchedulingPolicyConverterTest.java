@@ -0,0 +1,39 @@
+package nemethi.pdfmerge.cli;
+
+import nemethi.pdfmerge.batch.SchedulingPolicy;
+import org.junit.Before;
+import org.junit.Test;
+import picocli.CommandLine.TypeConversionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class SchedulingPolicyConverterTest {
+
+    private SchedulingPolicyConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = new SchedulingPolicyConverter();
+    }
+
+    @Test
+    public void convertIgnoresCase() {
+        // when
+        SchedulingPolicy policy = converter.convert("sjf");
+
+        // then
+        assertThat(policy).isEqualTo(SchedulingPolicy.SJF);
+    }
+
+    @Test
+    public void convertThrowsExceptionOnUnknownPolicy() {
+        // when
+        Throwable thrown = catchThrowable(() -> converter.convert("lifo"));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(TypeConversionException.class)
+                .hasMessage("'lifo' is not a scheduling policy.");
+    }
+}
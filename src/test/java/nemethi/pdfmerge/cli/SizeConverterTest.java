@@ -0,0 +1,52 @@
+package nemethi.pdfmerge.cli;
+
+import org.junit.Before;
+import org.junit.Test;
+import picocli.CommandLine.TypeConversionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class SizeConverterTest {
+
+    private SizeConverter converter;
+
+    @Before
+    public void setUp() {
+        converter = new SizeConverter();
+    }
+
+    @Test
+    public void convertPlainBytes() {
+        assertThat(converter.convert("1500")).isEqualTo(1500L);
+    }
+
+    @Test
+    public void convertSuffixedSizes() {
+        assertThat(converter.convert("512K")).isEqualTo(512L * 1024);
+        assertThat(converter.convert("200MB")).isEqualTo(200L * 1024 * 1024);
+        assertThat(converter.convert("2g")).isEqualTo(2L * 1024 * 1024 * 1024);
+    }
+
+    @Test
+    public void convertThrowsExceptionOnInvalidSize() {
+        // when
+        Throwable thrown = catchThrowable(() -> converter.convert("200 pages"));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(TypeConversionException.class)
+                .hasMessage("'200 pages' is not a size.");
+    }
+
+    @Test
+    public void convertThrowsExceptionOnOverflow() {
+        // when
+        Throwable thrown = catchThrowable(() -> converter.convert("9999999999999G"));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(TypeConversionException.class)
+                .hasMessage("'9999999999999G' is too large.");
+    }
+}
@@ -0,0 +1,53 @@
+package nemethi.pdfmerge.cli;
+
+import nemethi.pdfmerge.CommandLineFactory;
+import nemethi.pdfmerge.PdfMerger;
+import org.junit.Test;
+import picocli.CommandLine.Help.Ansi;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StaticHelpTest {
+
+    private static final String EOL = System.lineSeparator();
+
+    @Test
+    public void helpMatchesUsageRenderedByPicocli() {
+        // given
+        String rendered = CommandLineFactory.create(new PdfMerger()).getUsageMessage(Ansi.OFF);
+
+        // when
+        String shortHelp = StaticHelp.answer("-h");
+        String longHelp = StaticHelp.answer("--help");
+
+        // then
+        assertThat(shortHelp).isEqualTo(rendered);
+        assertThat(longHelp).isEqualTo(rendered);
+    }
+
+    @Test
+    public void versionIsTheBuildVersion() {
+        // when
+        String shortVersion = StaticHelp.answer("-V");
+        String longVersion = StaticHelp.answer("--version");
+
+        // then
+        assertThat(shortVersion).isEqualTo(Version.VERSION + EOL);
+        assertThat(longVersion).isEqualTo(Version.VERSION + EOL);
+    }
+
+    @Test
+    public void leavesOtherCommandLinesToPicocli() {
+        // when
+        String noArguments = StaticHelp.answer();
+        String helpWithOptions = StaticHelp.answer("--help", "-f");
+        String subcommandHelp = StaticHelp.answer("watch");
+        String otherOption = StaticHelp.answer("--force");
+
+        // then
+        assertThat(noArguments).isNull();
+        assertThat(helpWithOptions).isNull();
+        assertThat(subcommandHelp).isNull();
+        assertThat(otherOption).isNull();
+    }
+}
@@ -0,0 +1,197 @@
+package nemethi.pdfmerge.compression;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamCompressorTest {
+
+    private static final int LINES = 500;
+    private static final int RANDOM_BYTES = 4096;
+
+    private StreamCompressor compressor;
+    private PDDocument document;
+    private PDPage page;
+
+    @Before
+    public void setUp() {
+        compressor = new StreamCompressor();
+        document = new PDDocument();
+        page = new PDPage();
+        document.addPage(page);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Test
+    public void isDisabledByDefault() {
+        assertThat(compressor.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void isEnabledWithCompressionOrLevel() {
+        // given
+        StreamCompressor levelCompressor = new StreamCompressor();
+
+        // when
+        compressor.setEnabled(true);
+        levelCompressor.setLevel(9);
+
+        // then
+        assertThat(compressor.isEnabled()).isTrue();
+        assertThat(levelCompressor.isEnabled()).isTrue();
+    }
+
+    @Test
+    public void compressesUncompressedStreams() throws IOException {
+        // given
+        byte[] content = content();
+        COSStream stream = setContents(createStream(content, null));
+        compressor.setEnabled(true);
+        compressor.setThreads(2);
+
+        // when
+        compressor.compress(document);
+
+        // then
+        assertThat(stream.getFilters()).isEqualTo(COSName.FLATE_DECODE);
+        assertThat(stream.getLength()).isLessThan(content.length);
+        assertThat(decode(stream)).isEqualTo(content);
+    }
+
+    @Test
+    public void keepsStreamsThatDoNotShrink() throws IOException {
+        // given
+        byte[] content = new byte[RANDOM_BYTES];
+        new Random(RANDOM_BYTES).nextBytes(content);
+        COSStream stream = setContents(createStream(content, null));
+        compressor.setEnabled(true);
+
+        // when
+        compressor.compress(document);
+
+        // then
+        assertThat(stream.getFilters()).isNull();
+        assertThat(stream.getLength()).isEqualTo(content.length);
+    }
+
+    @Test
+    public void leavesMetadataUncompressed() throws IOException {
+        // given
+        COSStream metadata = createStream(content(), null);
+        metadata.setItem(COSName.TYPE, COSName.METADATA);
+        document.getDocumentCatalog().getCOSObject().setItem(COSName.METADATA, metadata);
+        compressor.setEnabled(true);
+
+        // when
+        compressor.compress(document);
+
+        // then
+        assertThat(metadata.getFilters()).isNull();
+    }
+
+    @Test
+    public void keepsFlateStreamsWithoutLevel() throws IOException {
+        // given
+        COSStream stream = setContents(createStream(content(), Deflater.NO_COMPRESSION));
+        long originalLength = stream.getLength();
+        compressor.setEnabled(true);
+
+        // when
+        compressor.compress(document);
+
+        // then
+        assertThat(stream.getLength()).isEqualTo(originalLength);
+    }
+
+    @Test
+    public void recompressesFlateStreamsAtLevel() throws IOException {
+        // given
+        byte[] content = content();
+        COSStream stream = setContents(createStream(content, Deflater.NO_COMPRESSION));
+        long originalLength = stream.getLength();
+        compressor.setLevel(9);
+
+        // when
+        compressor.compress(document);
+
+        // then
+        assertThat(stream.getFilters()).isEqualTo(COSName.FLATE_DECODE);
+        assertThat(stream.getLength()).isLessThan(originalLength);
+        assertThat(decode(stream)).isEqualTo(content);
+    }
+
+    @Test
+    public void skipsFlateStreamsWithDecodeParameters() throws IOException {
+        // given
+        COSStream stream = setContents(createStream(content(), Deflater.NO_COMPRESSION));
+        COSDictionary decodeParms = new COSDictionary();
+        decodeParms.setInt(COSName.PREDICTOR, 1);
+        stream.setItem(COSName.DECODE_PARMS, decodeParms);
+        long originalLength = stream.getLength();
+        compressor.setLevel(9);
+
+        // when
+        compressor.compress(document);
+
+        // then
+        assertThat(stream.getLength()).isEqualTo(originalLength);
+        assertThat(stream.getItem(COSName.DECODE_PARMS)).isSameAs(decodeParms);
+    }
+
+    private COSStream setContents(COSStream stream) {
+        page.getCOSObject().setItem(COSName.CONTENTS, stream);
+        return stream;
+    }
+
+    private COSStream createStream(byte[] content, Integer level) throws IOException {
+        COSStream stream = document.getDocument().createCOSStream();
+        byte[] raw = content;
+        if (level != null) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            try (DeflaterOutputStream deflater = new DeflaterOutputStream(outputStream, new Deflater(level))) {
+                deflater.write(content);
+            }
+            raw = outputStream.toByteArray();
+            stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+        }
+        try (OutputStream outputStream = stream.createRawOutputStream()) {
+            outputStream.write(raw);
+        }
+        return stream;
+    }
+
+    private static byte[] decode(COSStream stream) throws IOException {
+        try (InputStream inputStream = stream.createInputStream()) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+
+    private static byte[] content() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < LINES; i++) {
+            content.append("BT /F1 12 Tf 72 ").append(i).append(" Td (Line ").append(i).append(") Tj ET\n");
+        }
+        return content.toString().getBytes(US_ASCII);
+    }
+}
@@ -0,0 +1,33 @@
+package nemethi.pdfmerge.dedupe;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdentityIntMapTest {
+
+    @Test
+    public void mapsKeysByIdentityWhileGrowing() {
+        // given
+        IdentityIntMap map = new IdentityIntMap();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            keys.add(new String("key"));
+        }
+
+        // when
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), i);
+        }
+
+        // then
+        assertThat(map.size()).isEqualTo(5000);
+        assertThat(map.get(keys.get(0))).isZero();
+        assertThat(map.get(keys.get(4999))).isEqualTo(4999);
+        assertThat(map.get("key")).isEqualTo(IdentityIntMap.ABSENT);
+        assertThat(map.get(null)).isEqualTo(IdentityIntMap.ABSENT);
+    }
+}
@@ -0,0 +1,74 @@
+package nemethi.pdfmerge.dedupe;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LongIntHashIndexTest {
+
+    @Test
+    public void storesAndFindsValues() {
+        // given
+        LongIntHashIndex index = new LongIntHashIndex(1000);
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            index.putIfAbsent(i * 0x100000000L, i);
+        }
+
+        // then
+        assertThat(index.size()).isEqualTo(1000);
+        assertThat(index.get(0)).isZero();
+        assertThat(index.get(999 * 0x100000000L)).isEqualTo(999);
+        assertThat(index.get(1)).isEqualTo(LongIntHashIndex.ABSENT);
+    }
+
+    @Test
+    public void keepsFirstValueOfKey() {
+        // given
+        LongIntHashIndex index = new LongIntHashIndex(4);
+        index.putIfAbsent(-7, 1);
+
+        // when
+        int existing = index.putIfAbsent(-7, 2);
+
+        // then
+        assertThat(existing).isEqualTo(1);
+        assertThat(index.get(-7)).isEqualTo(1);
+    }
+
+    @Test
+    public void dropsNewKeysWhenFull() {
+        // given
+        LongIntHashIndex index = new LongIntHashIndex(2);
+        index.putIfAbsent(1, 0);
+        index.putIfAbsent(2, 0);
+
+        // when
+        int result = index.putIfAbsent(3, 0);
+
+        // then
+        assertThat(result).isEqualTo(LongIntHashIndex.ABSENT);
+        assertThat(index.isFull()).isTrue();
+        assertThat(index.get(3)).isEqualTo(LongIntHashIndex.ABSENT);
+        assertThat(index.get(2)).isZero();
+    }
+
+    @Test
+    public void growsWithItsEntriesUpToTheCapacityForMaxEntries() {
+        // given
+        LongIntHashIndex index = new LongIntHashIndex(1 << 20);
+        int initialCapacity = index.capacity();
+
+        // when
+        for (int i = 0; i < 10000; i++) {
+            index.putIfAbsent(i, i);
+        }
+
+        // then
+        assertThat(initialCapacity).isLessThan(1 << 12);
+        assertThat(index.capacity()).isLessThan(1 << 15);
+        assertThat(index.get(0)).isZero();
+        assertThat(index.get(9999)).isEqualTo(9999);
+    }
+}
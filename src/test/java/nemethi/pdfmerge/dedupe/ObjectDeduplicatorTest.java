@@ -0,0 +1,213 @@
+package nemethi.pdfmerge.dedupe;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ObjectDeduplicatorTest {
+
+    private static final int FONT_SIZE = 12;
+    private static final float TEXT_OFFSET = 100;
+
+    private ObjectDeduplicator deduplicator;
+    private PDDocument document;
+
+    @Before
+    public void setUp() {
+        deduplicator = new ObjectDeduplicator();
+        document = new PDDocument();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Test
+    public void isDisabledByDefault() {
+        assertThat(deduplicator.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void storesIdenticalContentStreamsOnce() throws IOException {
+        // given
+        addPageWithText("Same text");
+        addPageWithText("Same text");
+        addPageWithText("Other text");
+        String expectedText = new PDFTextStripper().getText(document);
+        int originalSize = save(document).length;
+
+        // when
+        int replaced = deduplicator.deduplicate(document);
+
+        // then
+        // one content stream, plus the resources and font dictionaries of two pages
+        assertThat(replaced).isEqualTo(5);
+        assertThat(contents(0)).isSameAs(contents(1));
+        assertThat(document.getPage(2).getResources().getCOSObject())
+                .isSameAs(document.getPage(0).getResources().getCOSObject());
+        assertThat(contents(2)).isNotSameAs(contents(0));
+        byte[] deduplicated = save(document);
+        assertThat(deduplicated.length).isLessThan(originalSize);
+        try (PDDocument reloaded = PDDocument.load(deduplicated)) {
+            assertThat(reloaded.getNumberOfPages()).isEqualTo(3);
+            assertThat(new PDFTextStripper().getText(reloaded)).isEqualTo(expectedText);
+        }
+    }
+
+    @Test
+    public void mergesEqualDictionariesBottomUp() throws IOException {
+        // given
+        PDPage first = addPageWithText("Text");
+        PDPage second = addPageWithText("Text");
+        first.getResources().getCOSObject().setItem(COSName.EXT_G_STATE, graphicsStates());
+        second.getResources().getCOSObject().setItem(COSName.EXT_G_STATE, graphicsStates());
+
+        // when
+        deduplicator.deduplicate(document);
+
+        // then
+        COSDictionary firstStates = (COSDictionary) first.getResources().getCOSObject().getItem(COSName.EXT_G_STATE);
+        COSDictionary secondStates = (COSDictionary) second.getResources().getCOSObject().getItem(COSName.EXT_G_STATE);
+        assertThat(firstStates).isSameAs(secondStates);
+        assertThat(firstStates.getItem(COSName.getPDFName("GS0")))
+                .isSameAs(secondStates.getItem(COSName.getPDFName("GS0")));
+    }
+
+    @Test
+    public void keepsPagesAndAnnotationsSeparate() throws IOException {
+        // given
+        PDPage first = new PDPage();
+        PDPage second = new PDPage();
+        document.addPage(first);
+        document.addPage(second);
+        first.setAnnotations(Collections.singletonList(link()));
+        second.setAnnotations(Collections.singletonList(link()));
+
+        // when
+        int replaced = deduplicator.deduplicate(document);
+
+        // then
+        assertThat(replaced).isZero();
+        assertThat(document.getPage(0).getCOSObject()).isNotSameAs(document.getPage(1).getCOSObject());
+        assertThat(document.getPage(0).getAnnotations().get(0).getCOSObject())
+                .isNotSameAs(document.getPage(1).getAnnotations().get(0).getCOSObject());
+    }
+
+    @Test
+    public void leavesReferenceCyclesAlone() throws IOException {
+        // given
+        PDPage page = new PDPage();
+        document.addPage(page);
+        COSArray cycles = new COSArray();
+        cycles.add(selfReferencingDictionary());
+        cycles.add(selfReferencingDictionary());
+        page.getCOSObject().setItem(COSName.getPDFName("Cycles"), cycles);
+
+        // when
+        int replaced = deduplicator.deduplicate(document);
+
+        // then
+        assertThat(replaced).isZero();
+        assertThat(cycles.getObject(0)).isNotSameAs(cycles.getObject(1));
+    }
+
+    @Test
+    public void keepsDirectAndIndirectDictionariesApart() throws IOException {
+        // given
+        PDPage page = new PDPage();
+        document.addPage(page);
+        COSDictionary direct = graphicsState();
+        direct.setDirect(true);
+        COSDictionary indirect = graphicsState();
+        page.getCOSObject().setItem(COSName.getPDFName("Direct"), direct);
+        page.getCOSObject().setItem(COSName.getPDFName("Indirect"), indirect);
+
+        // when
+        int replaced = deduplicator.deduplicate(document);
+
+        // then
+        assertThat(replaced).isZero();
+        assertThat(page.getCOSObject().getItem(COSName.getPDFName("Indirect"))).isSameAs(indirect);
+    }
+
+    @Test
+    public void deduplicatesWithFullIndex() throws IOException {
+        // given
+        addPageWithText("Same text");
+        addPageWithText("Same text");
+        deduplicator.setMaxIndexEntries(1);
+
+        // when
+        deduplicator.deduplicate(document);
+
+        // then
+        assertThat(document.getNumberOfPages()).isEqualTo(2);
+        assertThat(new PDFTextStripper().getText(document)).contains("Same text");
+    }
+
+    private PDPage addPageWithText(String text) throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.beginText();
+            contentStream.setFont(PDType1Font.HELVETICA, FONT_SIZE);
+            contentStream.newLineAtOffset(TEXT_OFFSET, TEXT_OFFSET);
+            contentStream.showText(text);
+            contentStream.endText();
+        }
+        return page;
+    }
+
+    private COSBase contents(int pageIndex) {
+        return document.getPage(pageIndex).getCOSObject().getDictionaryObject(COSName.CONTENTS);
+    }
+
+    private static COSDictionary graphicsStates() {
+        COSDictionary states = new COSDictionary();
+        states.setItem(COSName.getPDFName("GS0"), graphicsState());
+        return states;
+    }
+
+    private static COSDictionary graphicsState() {
+        COSDictionary state = new COSDictionary();
+        state.setItem(COSName.TYPE, COSName.EXT_G_STATE);
+        state.setFloat(COSName.CA, 0.5f);
+        return state;
+    }
+
+    private static COSDictionary selfReferencingDictionary() {
+        COSDictionary dictionary = new COSDictionary();
+        dictionary.setItem(COSName.getPDFName("Self"), dictionary);
+        return dictionary;
+    }
+
+    private static PDAnnotationLink link() {
+        PDAnnotationLink link = new PDAnnotationLink();
+        link.setRectangle(new PDRectangle(0, 0, TEXT_OFFSET, TEXT_OFFSET));
+        return link;
+    }
+
+    private static byte[] save(PDDocument document) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        document.save(outputStream);
+        return outputStream.toByteArray();
+    }
+}
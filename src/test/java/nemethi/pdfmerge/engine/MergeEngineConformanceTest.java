@@ -0,0 +1,325 @@
+package nemethi.pdfmerge.engine;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSInteger;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotationLink;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageDestination;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.destination.PDPageFitDestination;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+@RunWith(Parameterized.class)
+public class MergeEngineConformanceTest {
+
+    private static final int FONT_SIZE = 24;
+    private static final int TEXT_X_OFFSET = 72;
+    private static final int TEXT_Y_OFFSET = 500;
+    private static final int IMAGE_SIZE = 64;
+    private static final int LINKED_DOCUMENT = 3;
+
+    private static List<byte[]> corpus;
+
+    @Parameter
+    public String name;
+    @Parameter(1)
+    public Supplier<MergeEngine> engineSupplier;
+
+    @Parameters(name = "{0}")
+    public static Collection<Object[]> engines() {
+        Supplier<MergeEngine> pdfBox = () -> new PdfBoxMergeEngine();
+        Supplier<MergeEngine> rawCopy = RawCopyMergeEngine::new;
+        return Arrays.asList(new Object[]{"pdfbox", pdfBox}, new Object[]{"raw-copy", rawCopy});
+    }
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        corpus = Arrays.asList(
+                textDocument("First page", "Second page", "Third page"),
+                inheritedAttributesDocument("Inherited one", "Inherited two"),
+                imageDocument(),
+                linkedDocument("Table of contents", "Chapter"),
+                mixedPageSizesDocument());
+    }
+
+    @Test
+    public void appendedDocumentKeepsEveryPage() throws IOException {
+        // when
+        byte[] merged = appendAll(corpus);
+
+        // then
+        assertThat(describePages(merged)).containsExactlyElementsOf(describeCorpusPages());
+    }
+
+    @Test
+    public void mergedDocumentKeepsEveryPage() throws IOException {
+        // given
+        List<InputStream> inputStreams = new ArrayList<>();
+        for (byte[] pdf : corpus) {
+            inputStreams.add(new ByteArrayInputStream(pdf));
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // when
+        engineSupplier.get().mergeDocuments(inputStreams, outputStream);
+
+        // then
+        assertThat(describePages(outputStream.toByteArray())).containsExactlyElementsOf(describeCorpusPages());
+    }
+
+    @Test
+    public void sameInputCanBeAppendedTwice() throws IOException {
+        // given
+        byte[] pdf = corpus.get(0);
+
+        // when
+        byte[] merged = appendAll(Arrays.asList(pdf, pdf));
+
+        // then
+        List<String> expected = new ArrayList<>(describePages(pdf));
+        expected.addAll(describePages(pdf));
+        assertThat(describePages(merged)).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void linksPointToPagesOfMergedDocument() throws IOException {
+        // given
+        int linkedDocumentOffset = pageCount(corpus.subList(0, LINKED_DOCUMENT));
+
+        // when
+        byte[] merged = appendAll(corpus);
+
+        // then
+        try (PDDocument document = PDDocument.load(merged)) {
+            PDAnnotation annotation = document.getPage(linkedDocumentOffset).getAnnotations().get(0);
+            PDPageDestination destination = (PDPageDestination) ((PDAnnotationLink) annotation).getDestination();
+            assertThat(destination.retrievePageNumber()).isEqualTo(linkedDocumentOffset + 1);
+        }
+    }
+
+    @Test
+    public void destinationVersionIsRaisedToSourceVersion() throws IOException {
+        // given
+        MergeEngine engine = engineSupplier.get();
+
+        try (PDDocument destination = new PDDocument();
+             PDDocument source = PDDocument.load(corpus.get(0))) {
+            destination.setVersion(1.4f);
+            source.setVersion(1.7f);
+
+            // when
+            engine.appendDocument(destination, source);
+
+            // then
+            assertThat(destination.getVersion()).isEqualTo(1.7f);
+        }
+    }
+
+    @Test
+    public void appendingClosedSourceThrowsException() throws IOException {
+        // given
+        MergeEngine engine = engineSupplier.get();
+        PDDocument source = PDDocument.load(corpus.get(0));
+        source.close();
+
+        try (PDDocument destination = new PDDocument()) {
+            // when
+            Throwable thrown = catchThrowable(() -> engine.appendDocument(destination, source));
+
+            // then
+            assertThat(thrown).isInstanceOf(IOException.class);
+        }
+    }
+
+    private byte[] appendAll(List<byte[]> pdfs) throws IOException {
+        MergeEngine engine = engineSupplier.get();
+        List<PDDocument> sources = new ArrayList<>();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (PDDocument destination = new PDDocument(MemoryUsageSetting.setupMainMemoryOnly())) {
+            for (byte[] pdf : pdfs) {
+                PDDocument source = PDDocument.load(pdf);
+                sources.add(source);
+                engine.appendDocument(destination, source);
+            }
+            destination.save(outputStream);
+        } finally {
+            for (PDDocument source : sources) {
+                source.close();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static List<String> describeCorpusPages() throws IOException {
+        List<String> pages = new ArrayList<>();
+        for (byte[] pdf : corpus) {
+            pages.addAll(describePages(pdf));
+        }
+        return pages;
+    }
+
+    private static List<String> describePages(byte[] pdf) throws IOException {
+        List<String> pages = new ArrayList<>();
+        try (PDDocument document = PDDocument.load(pdf)) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int i = 1; i <= document.getNumberOfPages(); i++) {
+                PDPage page = document.getPage(i - 1);
+                stripper.setStartPage(i);
+                stripper.setEndPage(i);
+                pages.add(String.format("text=%s mediaBox=%s rotation=%d images=%s",
+                        stripper.getText(document).trim(), page.getMediaBox(), page.getRotation(),
+                        describeImages(page.getResources())));
+            }
+        }
+        return pages;
+    }
+
+    private static List<String> describeImages(PDResources resources) throws IOException {
+        List<String> images = new ArrayList<>();
+        for (COSName name : resources.getXObjectNames()) {
+            PDImageXObject image = (PDImageXObject) resources.getXObject(name);
+            images.add(image.getWidth() + "x" + image.getHeight() + ":" + image.getCOSObject().getLength());
+        }
+        return images;
+    }
+
+    private static int pageCount(List<byte[]> pdfs) throws IOException {
+        int count = 0;
+        for (byte[] pdf : pdfs) {
+            try (PDDocument document = PDDocument.load(pdf)) {
+                count += document.getNumberOfPages();
+            }
+        }
+        return count;
+    }
+
+    private static byte[] textDocument(String... pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (String content : pages) {
+                addTextPage(document, new PDPage(), content);
+            }
+            return save(document);
+        }
+    }
+
+    private static byte[] inheritedAttributesDocument(String... pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (String content : pages) {
+                addTextPage(document, new PDPage(), content);
+            }
+            COSDictionary root = document.getPages().getCOSObject();
+            COSArray pageDictionaries = (COSArray) root.getDictionaryObject(COSName.KIDS);
+            COSDictionary intermediate = new COSDictionary();
+            intermediate.setItem(COSName.TYPE, COSName.PAGES);
+            intermediate.setItem(COSName.PARENT, root);
+            intermediate.setItem(COSName.KIDS, pageDictionaries);
+            intermediate.setInt(COSName.COUNT, pages.length);
+            intermediate.setItem(COSName.MEDIA_BOX, PDRectangle.A5.getCOSArray());
+            intermediate.setItem(COSName.ROTATE, COSInteger.get(90));
+            COSDictionary sharedResources = null;
+            for (int i = 0; i < pageDictionaries.size(); i++) {
+                COSDictionary page = (COSDictionary) pageDictionaries.getObject(i);
+                page.setItem(COSName.PARENT, intermediate);
+                page.removeItem(COSName.MEDIA_BOX);
+                sharedResources = (COSDictionary) page.getDictionaryObject(COSName.RESOURCES);
+                page.removeItem(COSName.RESOURCES);
+            }
+            intermediate.setItem(COSName.RESOURCES, sharedResources);
+            COSArray rootKids = new COSArray();
+            rootKids.add(intermediate);
+            root.setItem(COSName.KIDS, rootKids);
+            return save(document);
+        }
+    }
+
+    private static byte[] imageDocument() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            BufferedImage bufferedImage = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_RGB);
+            for (int i = 0; i < IMAGE_SIZE; i++) {
+                bufferedImage.setRGB(i, i, 0xFF0000);
+            }
+            PDImageXObject image = LosslessFactory.createFromImage(document, bufferedImage);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.drawImage(image, TEXT_X_OFFSET, TEXT_Y_OFFSET);
+            }
+            return save(document);
+        }
+    }
+
+    private static byte[] linkedDocument(String tableOfContents, String chapter) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            PDPage tableOfContentsPage = new PDPage();
+            PDPage chapterPage = new PDPage();
+            addTextPage(document, tableOfContentsPage, tableOfContents);
+            addTextPage(document, chapterPage, chapter);
+            PDPageFitDestination destination = new PDPageFitDestination();
+            destination.setPage(chapterPage);
+            PDAnnotationLink link = new PDAnnotationLink();
+            link.setRectangle(new PDRectangle(TEXT_X_OFFSET, TEXT_Y_OFFSET, TEXT_X_OFFSET, FONT_SIZE));
+            link.setDestination(destination);
+            tableOfContentsPage.getAnnotations().add(link);
+            return save(document);
+        }
+    }
+
+    private static byte[] mixedPageSizesDocument() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            addTextPage(document, new PDPage(PDRectangle.A4), "Portrait");
+            PDPage landscape = new PDPage(new PDRectangle(PDRectangle.A4.getHeight(), PDRectangle.A4.getWidth()));
+            addTextPage(document, landscape, "Landscape");
+            PDPage rotated = new PDPage(PDRectangle.LETTER);
+            rotated.setRotation(270);
+            addTextPage(document, rotated, "Rotated");
+            return save(document);
+        }
+    }
+
+    private static void addTextPage(PDDocument document, PDPage page, String content) throws IOException {
+        document.addPage(page);
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.beginText();
+            contentStream.setFont(PDType1Font.HELVETICA, FONT_SIZE);
+            contentStream.newLineAtOffset(TEXT_X_OFFSET, TEXT_Y_OFFSET);
+            contentStream.showText(content);
+            contentStream.endText();
+        }
+    }
+
+    private static byte[] save(PDDocument document) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        document.save(outputStream);
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,82 @@
+package nemethi.pdfmerge.engine;
+
+import nemethi.pdfmerge.util.DocumentLoader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.util.Lists.list;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RawCopyMergeEngineTest {
+
+    @Mock
+    private DocumentLoader documentLoader;
+    @Mock
+    private InputStream inputStream1;
+    @Mock
+    private InputStream inputStream2;
+    @Mock
+    private OutputStream outputStream;
+
+    private RawCopyMergeEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = new RawCopyMergeEngine();
+        engine.setDocumentLoader(documentLoader);
+    }
+
+    @Test
+    public void appendDocumentSharesPageObjectsWithSource() throws IOException {
+        // given
+        try (PDDocument destination = new PDDocument();
+             PDDocument source = new PDDocument()) {
+            PDPage page = new PDPage();
+            source.addPage(page);
+
+            // when
+            engine.appendDocument(destination, source);
+
+            // then
+            assertThat(destination.getNumberOfPages()).isEqualTo(1);
+            assertThat(destination.getPage(0).getCOSObject()).isSameAs(page.getCOSObject());
+            assertThat(page.getCOSObject().getDictionaryObject(COSName.PARENT))
+                    .isSameAs(destination.getPages().getCOSObject());
+        }
+    }
+
+    @Test
+    public void mergeDocumentsClosesSourcesOnFailure() throws IOException {
+        // given
+        IOException expectedException = new IOException("message");
+        PDDocument document = new PDDocument();
+        when(documentLoader.load(same(inputStream1), any(MemoryUsageSetting.class))).thenReturn(document);
+        when(documentLoader.load(same(inputStream2), any(MemoryUsageSetting.class))).thenThrow(expectedException);
+
+        // when
+        Throwable thrown = catchThrowable(() -> engine.mergeDocuments(list(inputStream1, inputStream2), outputStream));
+
+        // then
+        assertThat(thrown).isEqualTo(expectedException);
+        assertThat(document.getDocument().isClosed()).isTrue();
+        verify(inputStream1).close();
+        verify(inputStream2).close();
+    }
+}
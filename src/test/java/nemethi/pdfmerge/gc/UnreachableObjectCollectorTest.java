@@ -0,0 +1,123 @@
+package nemethi.pdfmerge.gc;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class UnreachableObjectCollectorTest {
+
+    private static final COSName ATTACHMENT = COSName.getPDFName("Attachment");
+    private static final int ATTACHMENT_SIZE = 10_000;
+
+    private UnreachableObjectCollector collector;
+
+    @Before
+    public void setUp() {
+        collector = new UnreachableObjectCollector();
+    }
+
+    @Test
+    public void isDisabledByDefault() {
+        assertThat(collector.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void findsNothingInCleanInput() throws IOException {
+        // given
+        try (PDDocument document = PDDocument.load(createPdf(2, false))) {
+
+            // when
+            CollectionReport report = collector.collect(document);
+
+            // then
+            assertThat(report.getObjects()).isZero();
+            assertThat(report.getBytes()).isZero();
+        }
+    }
+
+    @Test
+    public void findsObjectsOrphanedByIncrementalUpdate() throws IOException {
+        // given
+        byte[] edited;
+        try (PDDocument document = PDDocument.load(createPdf(1, true))) {
+            document.getDocumentCatalog().getCOSObject().removeItem(ATTACHMENT);
+            document.getDocumentCatalog().getCOSObject().setNeedToBeUpdated(true);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            document.saveIncremental(outputStream);
+            edited = outputStream.toByteArray();
+        }
+
+        try (PDDocument document = PDDocument.load(edited)) {
+            // when
+            CollectionReport report = collector.collect(document);
+
+            // then
+            assertThat(report.getObjects()).isEqualTo(1);
+            assertThat(report.getBytes()).isGreaterThan(ATTACHMENT_SIZE);
+        }
+    }
+
+    @Test
+    public void releasesObjectsCutOffAfterLoading() throws IOException {
+        // given
+        try (PDDocument document = PDDocument.load(createPdf(2, false))) {
+            COSStream removedContents = (COSStream) document.getPage(1).getCOSObject()
+                    .getDictionaryObject(COSName.CONTENTS);
+            document.removePage(1);
+
+            // when
+            CollectionReport report = collector.collect(document);
+
+            // then
+            // at least the page and its content stream
+            assertThat(report.getObjects()).isGreaterThanOrEqualTo(2);
+            assertThat(report.getBytes()).isPositive();
+            assertThat(catchThrowable(removedContents::createRawInputStream)).isInstanceOf(IOException.class);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            document.save(outputStream);
+            try (PDDocument saved = PDDocument.load(outputStream.toByteArray())) {
+                assertThat(saved.getNumberOfPages()).isEqualTo(1);
+            }
+        }
+    }
+
+    private static byte[] createPdf(int pages, boolean withAttachment) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(PDType1Font.HELVETICA, 12);
+                    contentStream.showText("Page " + i);
+                    contentStream.endText();
+                }
+            }
+            if (withAttachment) {
+                COSStream attachment = document.getDocument().createCOSStream();
+                byte[] data = new byte[ATTACHMENT_SIZE];
+                new Random(ATTACHMENT_SIZE).nextBytes(data);
+                try (OutputStream outputStream = attachment.createRawOutputStream()) {
+                    outputStream.write(data);
+                }
+                document.getDocumentCatalog().getCOSObject().setItem(ATTACHMENT, attachment);
+            }
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            document.save(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package nemethi.pdfmerge.image;
+
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ImageOptimizerTest {
+
+    private static final float ONE_INCH = 72;
+    private static final int HIGH_RESOLUTION = 600;
+    private static final int LOW_RESOLUTION = 100;
+    private static final int MAX_DPI = 150;
+    private static final int JPEG_QUALITY = 50;
+
+    private ImageOptimizer optimizer;
+    private PDDocument document;
+
+    @Before
+    public void setUp() {
+        optimizer = new ImageOptimizer();
+        document = new PDDocument();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Test
+    public void isDisabledByDefault() {
+        assertThat(optimizer.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void isEnabledWithMaxDpiOrJpegQuality() {
+        // given
+        ImageOptimizer jpegOptimizer = new ImageOptimizer();
+
+        // when
+        optimizer.setMaxDpi(MAX_DPI);
+        jpegOptimizer.setJpegQuality(JPEG_QUALITY);
+
+        // then
+        assertThat(optimizer.isEnabled()).isTrue();
+        assertThat(jpegOptimizer.isEnabled()).isTrue();
+    }
+
+    @Test
+    public void downsamplesImagesAboveMaxDpi() throws IOException {
+        // given
+        addPageWithImage(noise(HIGH_RESOLUTION));
+        optimizer.setMaxDpi(MAX_DPI);
+
+        // when
+        optimizer.optimize(document);
+
+        // then
+        PDImageXObject image = firstImage();
+        assertThat(image.getWidth()).isEqualTo(MAX_DPI);
+        assertThat(image.getHeight()).isEqualTo(MAX_DPI);
+        assertThat(image.getCOSObject().getFilters()).isEqualTo(COSName.FLATE_DECODE);
+        assertThat(image.getImage().getWidth()).isEqualTo(MAX_DPI);
+    }
+
+    @Test
+    public void skipsImagesBelowMaxDpi() throws IOException {
+        // given
+        addPageWithImage(noise(LOW_RESOLUTION));
+        long originalLength = firstImage().getCOSObject().getLength();
+        optimizer.setMaxDpi(MAX_DPI);
+
+        // when
+        optimizer.optimize(document);
+
+        // then
+        PDImageXObject image = firstImage();
+        assertThat(image.getWidth()).isEqualTo(LOW_RESOLUTION);
+        assertThat(image.getCOSObject().getLength()).isEqualTo(originalLength);
+    }
+
+    @Test
+    public void recompressesLosslessImagesAsJpeg() throws IOException {
+        // given
+        addPageWithImage(noise(LOW_RESOLUTION));
+        long originalLength = firstImage().getCOSObject().getLength();
+        optimizer.setJpegQuality(JPEG_QUALITY);
+        optimizer.setThreads(2);
+
+        // when
+        optimizer.optimize(document);
+
+        // then
+        PDImageXObject image = firstImage();
+        assertThat(image.getCOSObject().getFilters()).isEqualTo(COSName.DCT_DECODE);
+        assertThat(image.getCOSObject().getLength()).isLessThan(originalLength);
+        assertThat(image.getWidth()).isEqualTo(LOW_RESOLUTION);
+    }
+
+    @Test
+    public void keepsOriginalWhenRecompressionDoesNotShrinkImage() throws IOException {
+        // given
+        addPageWithImage(new BufferedImage(LOW_RESOLUTION, LOW_RESOLUTION, BufferedImage.TYPE_INT_RGB));
+        long originalLength = firstImage().getCOSObject().getLength();
+        optimizer.setJpegQuality(JPEG_QUALITY);
+
+        // when
+        optimizer.optimize(document);
+
+        // then
+        PDImageXObject image = firstImage();
+        assertThat(image.getCOSObject().getFilters()).isEqualTo(COSName.FLATE_DECODE);
+        assertThat(image.getCOSObject().getLength()).isEqualTo(originalLength);
+    }
+
+    @Test
+    public void keepsImagesThatCannotBeDecoded() throws IOException {
+        // given
+        addPageWithImage(noise(HIGH_RESOLUTION));
+        try (OutputStream outputStream = firstImage().getCOSObject().createRawOutputStream()) {
+            outputStream.write(new byte[]{1, 2, 3});
+        }
+        firstImage().getCOSObject().setItem(COSName.FILTER, COSName.DCT_DECODE);
+        optimizer.setMaxDpi(MAX_DPI);
+
+        // when
+        optimizer.optimize(document);
+
+        // then
+        PDImageXObject image = firstImage();
+        assertThat(image.getWidth()).isEqualTo(HIGH_RESOLUTION);
+        assertThat(image.getCOSObject().getLength()).isEqualTo(3);
+    }
+
+    private void addPageWithImage(BufferedImage bufferedImage) throws IOException {
+        PDPage page = new PDPage();
+        document.addPage(page);
+        PDImageXObject image = LosslessFactory.createFromImage(document, bufferedImage);
+        try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+            contentStream.drawImage(image, 0, 0, ONE_INCH, ONE_INCH);
+        }
+    }
+
+    private PDImageXObject firstImage() throws IOException {
+        PDResources resources = document.getPage(0).getResources();
+        COSName name = resources.getXObjectNames().iterator().next();
+        return (PDImageXObject) resources.getXObject(name);
+    }
+
+    private static BufferedImage noise(int size) {
+        Random random = new Random(size);
+        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+}
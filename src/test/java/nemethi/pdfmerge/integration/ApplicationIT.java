@@ -1,6 +1,7 @@
 package nemethi.pdfmerge.integration;
 
 import nemethi.pdfmerge.Application;
+import nemethi.pdfmerge.PdfMerger;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
@@ -13,14 +14,23 @@ import org.junit.Test;
 import org.junit.contrib.java.lang.system.Assertion;
 import org.junit.contrib.java.lang.system.ExpectedSystemExit;
 import org.junit.contrib.java.lang.system.SystemErrRule;
+import org.junit.contrib.java.lang.system.SystemOutRule;
+import picocli.CommandLine;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -37,6 +47,8 @@ public class ApplicationIT {
     public ExpectedSystemExit exit = ExpectedSystemExit.none();
     @Rule
     public SystemErrRule stderr = new SystemErrRule().enableLog();
+    @Rule
+    public SystemOutRule stdout = new SystemOutRule().enableLog();
 
     private static Path testTempDir;
     private static Path pdf1;
@@ -142,6 +154,263 @@ public class ApplicationIT {
         Application.main(args("-f", "-o", outputFile.toString(), pdf1.toString(), outputFile.toString()));
     }
 
+    @Test
+    public void mergeLinearized() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf1, pdf2));
+        exit.checkAssertionAfterwards(assertThatPdfIsLinearized(outputFile));
+        Application.main(args("--linearize", "-o", outputFile.toString(), pdf1.toString(), pdf2.toString()));
+    }
+
+    @Test
+    public void mergeWithImageOptimization() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf1, pdf2));
+        Application.main(args("--max-dpi", "150", "--jpeg-quality", "80", "--image-threads", "2",
+                "-o", outputFile.toString(), pdf1.toString(), pdf2.toString()));
+    }
+
+    @Test
+    public void mergeWithStreamCompression() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf1, pdf2));
+        Application.main(args("--compression-level", "9", "--compress-threads", "2",
+                "-o", outputFile.toString(), pdf1.toString(), pdf2.toString()));
+    }
+
+    @Test
+    public void mergeWithDedupe() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf1, pdf2, pdf1));
+        Application.main(args("--dedupe", "-o", outputFile.toString(), pdf1.toString(), pdf2.toString(),
+                pdf1.toString()));
+    }
+
+    @Test
+    public void mergeWithGcReportsUnreachableObjects() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(() -> {
+            assertThatPdfsAreMerged(outputFile, pdf1, pdf2).checkAssertion();
+            assertThat(stdout.getLogWithNormalizedLineSeparator())
+                    .isEqualTo("Found 0 unreachable objects in the inputs (0 bytes).\n");
+        });
+        Application.main(args("--gc", "-o", outputFile.toString(), pdf1.toString(), pdf2.toString()));
+    }
+
+    @Test
+    public void mergeWithMetricsFileWritesExposition() {
+        // given
+        Path outputFile = newOutputFilePath();
+        Path metricsFile = Paths.get(testTempDir.toString(), randomFilename() + ".prom");
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(() -> {
+            assertThatPdfsAreMerged(outputFile, pdf1, pdf2).checkAssertion();
+            assertThat(new String(Files.readAllBytes(metricsFile), StandardCharsets.UTF_8))
+                    .contains("# TYPE pdfmerge_merges_total counter\n", "pdfmerge_merges_total 1\n",
+                            "pdfmerge_input_bytes_total " + (Files.size(pdf1) + Files.size(pdf2)) + "\n",
+                            "pdfmerge_output_bytes_total " + Files.size(outputFile) + "\n",
+                            "pdfmerge_phase_duration_seconds_count{phase=\"save\"} 1\n");
+        });
+        Application.main(args("--metrics-file", metricsFile.toString(), "-o", outputFile.toString(),
+                pdf1.toString(), pdf2.toString()));
+    }
+
+    @Test
+    public void mergeWithMemoryBudgetSmallerThanInputs() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf1, pdf2));
+        Application.main(args("--memory-budget", "1K", "-o", outputFile.toString(), pdf1.toString(),
+                pdf2.toString()));
+    }
+
+    @Test
+    public void mergeWithPrefetch() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf1, pdf2, pdf1));
+        Application.main(args("--prefetch", "2", "--prefetch-buffer", "1M",
+                "-o", outputFile.toString(), pdf1.toString(), pdf2.toString(), pdf1.toString()));
+    }
+
+    @Test
+    public void mergeEntriesOfZipArchiveInNaturalOrder() throws IOException {
+        // given
+        Path outputFile = newOutputFilePath();
+        Path archive = testTempDir.resolve("bundle.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            for (String name : new String[]{"scans/10.pdf", "scans/9.pdf", "readme.txt"}) {
+                zip.putNextEntry(new ZipEntry(name));
+                Files.copy(name.startsWith("scans/1") ? pdf2 : pdf1, zip);
+                zip.closeEntry();
+            }
+        }
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf1, pdf2));
+        Application.main(args("--archive-order=natural", "-o", outputFile.toString(), archive + "!/scans/*.pdf"));
+    }
+
+    @Test
+    public void mergeStoredEntriesOfZipArchive() throws IOException {
+        // given
+        Path outputFile = newOutputFilePath();
+        Path archive = testTempDir.resolve("stored.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.setMethod(ZipOutputStream.STORED);
+            for (Path pdf : new Path[]{pdf2, pdf1}) {
+                byte[] content = Files.readAllBytes(pdf);
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                ZipEntry entry = new ZipEntry(pdf.getFileName().toString());
+                entry.setSize(content.length);
+                entry.setCrc(crc.getValue());
+                zip.putNextEntry(entry);
+                zip.write(content);
+                zip.closeEntry();
+            }
+        }
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf2, pdf1));
+        Application.main(args("--timeout", "1m", "-o", outputFile.toString(), archive.toString()));
+    }
+
+    @Test
+    public void deterministicMergesAreByteIdentical() throws IOException {
+        // given
+        Path firstOutput = newOutputFilePath();
+        Path secondOutput = newOutputFilePath();
+        String[] options = {"--deterministic", "--dedupe", "--compress", "--compress-threads=4"};
+        assertThat(execute(options, firstOutput, pdf1, pdf2)).isZero();
+
+        // when
+        int exitCode = execute(options, secondOutput, pdf1, pdf2);
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(Files.readAllBytes(secondOutput)).isEqualTo(Files.readAllBytes(firstOutput));
+    }
+
+    @Test
+    public void mergeWithOffHeapScratchMatchesHeapMerge() throws IOException {
+        // given
+        Path heapOutput = newOutputFilePath();
+        Path offHeapOutput = newOutputFilePath();
+        assertThat(execute(new String[]{"--deterministic"}, heapOutput, pdf1, pdf2)).isZero();
+
+        // when
+        int exitCode = execute(new String[]{"--deterministic", "--off-heap-scratch=8K"}, offHeapOutput, pdf1, pdf2);
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(Files.readAllBytes(offHeapOutput)).isEqualTo(Files.readAllBytes(heapOutput));
+    }
+
+    @Test
+    public void mergeReportsProgressAsJsonOnStderr() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when
+        int exitCode = execute(new String[]{"--progress=json"}, outputFile, pdf1, pdf2);
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(stderr.getLogWithNormalizedLineSeparator())
+                .startsWith("{\"inputs\":2,\"totalInputs\":2,\"pages\":3,")
+                .endsWith("\"etaSeconds\":0,\"done\":true}\n");
+    }
+
+    @Test
+    public void mergeReportsProgressAsTextBeforeFiles() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when
+        int exitCode = new CommandLine(new Application(new PdfMerger()))
+                .execute("-o", outputFile.toString(), "--progress", pdf1.toString(), pdf2.toString());
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(stderr.getLogWithNormalizedLineSeparator()).matches("(?s).*\r2/2 inputs, 3 pages, .*, ETA 0:00\n");
+    }
+
+    @Test
+    public void mergeFailsWithTimeoutExitCode() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(124);
+        exit.checkAssertionAfterwards(() -> {
+            assertThat(stderr.getLogWithNormalizedLineSeparator())
+                    .isEqualTo("pdfmerge: The merge did not finish within 1ms.\n");
+            assertThat(outputFile).doesNotExist();
+        });
+        Application.main(args("--timeout", "1ms", "-o", outputFile.toString(), pdf1.toString(), pdf2.toString()));
+    }
+
+    @Test
+    public void mergeWithRawCopy() {
+        // given
+        Path outputFile = newOutputFilePath();
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(assertThatPdfsAreMerged(outputFile, pdf1, pdf2));
+        Application.main(args("--raw-copy", "-o", outputFile.toString(), pdf1.toString(), pdf2.toString()));
+    }
+
+    @Test
+    public void mergeIntoVolumes() {
+        // given
+        Path outputFile = newOutputFilePath();
+        String baseName = outputFile.getFileName().toString().replace(TEST_FILE_NAME_SUFFIX, "");
+        Path volume1 = outputFile.resolveSibling(baseName + "-001" + TEST_FILE_NAME_SUFFIX);
+        Path volume2 = outputFile.resolveSibling(baseName + "-002" + TEST_FILE_NAME_SUFFIX);
+
+        // when + then
+        exit.expectSystemExitWithStatus(0);
+        exit.checkAssertionAfterwards(() -> {
+            assertThat(outputFile).doesNotExist();
+            assertThat(pageCount(volume1)).isEqualTo(2);
+            assertThat(pageCount(volume2)).isEqualTo(1);
+            assertThat(contentOf(volume1, volume2)).isEqualTo(contentOf(pdf1, pdf2));
+        });
+        Application.main(args("--max-output-pages", "2", "-o", outputFile.toString(), pdf1.toString(), pdf2.toString()));
+    }
+
     private static Path newTempFilePath() throws IOException {
         return Files.createTempFile(testTempDir, TEST_FILE_NAME_PREFIX, TEST_FILE_NAME_SUFFIX);
     }
@@ -150,6 +419,17 @@ public class ApplicationIT {
         return Paths.get(testTempDir.toString(), randomFilename());
     }
 
+    // Runs the command without exiting, so a test can merge more than once.
+    private static int execute(String[] options, Path outputFile, Path... inputFiles) {
+        List<String> args = new ArrayList<>(Arrays.asList(options));
+        args.add("-o");
+        args.add(outputFile.toString());
+        for (Path inputFile : inputFiles) {
+            args.add(inputFile.toString());
+        }
+        return new CommandLine(new Application(new PdfMerger())).execute(args.toArray(new String[0]));
+    }
+
     private String[] args(String... args) {
         return args;
     }
@@ -166,6 +446,11 @@ public class ApplicationIT {
         return () -> assertThat(contentOf(outputFile)).isEqualTo(contentOf(inputFiles));
     }
 
+    private Assertion assertThatPdfIsLinearized(Path outputFile) {
+        return () -> assertThat(new String(Files.readAllBytes(outputFile), StandardCharsets.ISO_8859_1))
+                .containsPattern("^%PDF-1\\.\\d\n%[^\n]*\n\\d+ 0 obj\n<</Linearized 1/L " + Files.size(outputFile) + " ");
+    }
+
     private String contentOf(Path... inputFiles) throws IOException {
         StringBuilder builder = new StringBuilder();
         for (Path inputFile : inputFiles) {
@@ -174,6 +459,12 @@ public class ApplicationIT {
         return builder.toString();
     }
 
+    private int pageCount(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return document.getNumberOfPages();
+        }
+    }
+
     private String getTextFromPdf(Path pdf) throws IOException {
         try (PDDocument document = PDDocument.load(pdf.toFile())) {
             PDFTextStripper stripper = new PDFTextStripper();
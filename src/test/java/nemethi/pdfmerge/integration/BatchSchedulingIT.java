@@ -0,0 +1,157 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.BatchCommand;
+import nemethi.pdfmerge.PdfMerger;
+import nemethi.pdfmerge.batch.BatchReport;
+import nemethi.pdfmerge.batch.JobFile;
+import nemethi.pdfmerge.batch.JobResult;
+import nemethi.pdfmerge.batch.JobScheduler;
+import nemethi.pdfmerge.batch.MergeJob;
+import nemethi.pdfmerge.batch.SchedulingPolicy;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BatchSchedulingIT {
+
+    private static final Path REPORT = Paths.get("target", "batch-scheduling-benchmark.txt");
+    private static final int GIANT_JOBS = 4;
+    private static final int GIANT_PAGES = 300;
+    private static final int TINY_JOBS = 60;
+    private static final int WORKERS = 2;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path directory;
+    private Path jobFile;
+
+    // The giant jobs come first, which is the worst case for FIFO; the tiny ones carry a higher priority.
+    @Before
+    public void setUp() throws IOException {
+        directory = temp.getRoot().toPath();
+        createPdf(directory.resolve("giant.pdf"), GIANT_PAGES);
+        createPdf(directory.resolve("tiny.pdf"), 1);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < GIANT_JOBS; i++) {
+            lines.add(String.format("giant-%d.pdf giant.pdf giant.pdf", i));
+        }
+        for (int i = 0; i < TINY_JOBS; i++) {
+            lines.add(String.format("priority=1 tiny-%d.pdf tiny.pdf tiny.pdf", i));
+        }
+        jobFile = Files.write(directory.resolve("jobs.txt"), lines, UTF_8);
+    }
+
+    @Test
+    public void batchCommandMergesEveryJob() throws IOException {
+        // given
+        StringWriter out = new StringWriter();
+        CommandLine cli = new CommandLine(new BatchCommand(new PdfMerger())).setOut(new PrintWriter(out));
+
+        // when
+        int exitCode = cli.execute("--jobs", jobFile.toString(), "--policy", "sjf", "--workers",
+                Integer.toString(WORKERS));
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(out.toString()).startsWith(String.format("Merged %1$d of %1$d jobs;", GIANT_JOBS + TINY_JOBS));
+        assertThat(pageCount(directory.resolve("giant-3.pdf"))).isEqualTo(2 * GIANT_PAGES);
+        assertThat(pageCount(directory.resolve("tiny-59.pdf"))).isEqualTo(2);
+    }
+
+    @Test
+    public void benchmarkLatencyPerPolicy() throws IOException {
+        // given
+        List<MergeJob> jobs = new JobFile().read(jobFile);
+        PdfMerger merger = new PdfMerger();
+        runBatch(SchedulingPolicy.FIFO, jobs, merger);
+        Map<SchedulingPolicy, BatchReport> reports = new EnumMap<>(SchedulingPolicy.class);
+
+        // when
+        for (SchedulingPolicy policy : SchedulingPolicy.values()) {
+            reports.put(policy, runBatch(policy, jobs, merger));
+        }
+
+        // then
+        List<String> report = new ArrayList<>();
+        report.add(String.format("giant jobs=%d (%d pages) tiny jobs=%d workers=%d",
+                GIANT_JOBS, 2 * GIANT_PAGES, TINY_JOBS, WORKERS));
+        for (Map.Entry<SchedulingPolicy, BatchReport> entry : reports.entrySet()) {
+            report.add(String.format("%s: p50 %d ms, p99 %d ms", entry.getKey().name().toLowerCase(Locale.ROOT),
+                    millis(entry.getValue().percentileNanos(50)), millis(entry.getValue().percentileNanos(99))));
+        }
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, report, UTF_8);
+        long fifoMedian = reports.get(SchedulingPolicy.FIFO).percentileNanos(50);
+        assertThat(reports.get(SchedulingPolicy.SJF).percentileNanos(50)).isLessThan(fifoMedian);
+        assertThat(reports.get(SchedulingPolicy.PRIORITY).percentileNanos(50)).isLessThan(fifoMedian);
+        assertThat(reports.values()).allMatch(batch -> batch.getFailures() == 0);
+    }
+
+    private static BatchReport runBatch(SchedulingPolicy policy, List<MergeJob> jobs, PdfMerger merger)
+            throws IOException {
+        JobScheduler scheduler = new JobScheduler();
+        scheduler.setPolicy(policy);
+        scheduler.setWorkers(WORKERS);
+        List<JobResult> results = scheduler.run(jobs,
+                job -> merger.forceMerge(job.getInputPaths(), job.getOutputPath()));
+        return new BatchReport(results);
+    }
+
+    private static long millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static int pageCount(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    private static void createPdf(Path target, int pages) throws IOException {
+        final int fontSize = 10;
+        final int left = 50;
+        final int top = 750;
+        final int lineHeight = 12;
+        final int lines = 50;
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(PDType1Font.HELVETICA, fontSize);
+                    contentStream.newLineAtOffset(left, top);
+                    for (int line = 0; line < lines; line++) {
+                        contentStream.showText(String.format("Page %d, line %d", i, line));
+                        contentStream.newLineAtOffset(0, -lineHeight);
+                    }
+                    contentStream.endText();
+                }
+            }
+            document.save(target.toFile());
+        }
+    }
+}
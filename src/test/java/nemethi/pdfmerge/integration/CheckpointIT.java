@@ -0,0 +1,128 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.PdfMerger;
+import nemethi.pdfmerge.util.DocumentLoader;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class CheckpointIT {
+
+    private static final int INPUTS = 5;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path checkpointDirectory;
+    private Path output;
+    private List<Path> inputs;
+    private AtomicInteger loads;
+    private PdfMerger merger;
+
+    @Before
+    public void setUp() throws IOException {
+        checkpointDirectory = temp.getRoot().toPath().resolve("checkpoints");
+        output = temp.getRoot().toPath().resolve("out.pdf");
+        inputs = new ArrayList<>();
+        for (int i = 0; i < INPUTS; i++) {
+            Path input = temp.getRoot().toPath().resolve("input-" + i + ".pdf");
+            createPdf(input, i);
+            inputs.add(input);
+        }
+        loads = new AtomicInteger();
+        merger = new PdfMerger();
+        merger.setCheckpointDirectory(checkpointDirectory);
+        merger.setCheckpointInterval(2);
+        merger.setDocumentLoader(new DocumentLoader() {
+            @Override
+            public PDDocument load(InputStream inputStream, MemoryUsageSetting memoryUsageSetting)
+                    throws IOException {
+                loads.incrementAndGet();
+                return super.load(inputStream, memoryUsageSetting);
+            }
+        });
+    }
+
+    @Test
+    public void mergeResumesFromChunksOfInterruptedRun() throws IOException {
+        // given
+        byte[] validInput = Files.readAllBytes(inputs.get(3));
+        Files.write(inputs.get(3), "%PDF-1.4 broken".getBytes());
+        Throwable interrupted = catchThrowable(() -> merger.merge(inputs, output));
+        Files.write(inputs.get(3), validInput);
+        loads.set(0);
+
+        // when
+        merger.merge(inputs, output);
+
+        // then
+        assertThat(interrupted).isInstanceOf(IOException.class);
+        assertThat(loads).hasValue(INPUTS - 2);
+        assertThat(textOf(output)).isEqualTo(expectedText());
+        assertThat(checkpointDirectory.toFile().list()).isEmpty();
+    }
+
+    @Test
+    public void mergeWithCheckpointsProducesSameTextAsPlainMerge() throws IOException {
+        // given
+        Path plainOutput = temp.getRoot().toPath().resolve("plain.pdf");
+        new PdfMerger().merge(inputs, plainOutput);
+
+        // when
+        merger.merge(inputs, output);
+
+        // then
+        assertThat(loads).hasValue(INPUTS);
+        assertThat(textOf(output)).isEqualTo(textOf(plainOutput));
+    }
+
+    private String expectedText() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (Path input : inputs) {
+            text.append(textOf(input));
+        }
+        return text.toString();
+    }
+
+    private static String textOf(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+
+    private static void createPdf(Path target, int index) throws IOException {
+        final int fontSize = 24;
+        final int textXOffset = 100;
+        final int textYOffset = 700;
+        try (PDDocument document = new PDDocument()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.beginText();
+                contentStream.setFont(PDType1Font.HELVETICA, fontSize);
+                contentStream.newLineAtOffset(textXOffset, textYOffset);
+                contentStream.showText("Input " + index);
+                contentStream.endText();
+            }
+            document.save(target.toFile());
+        }
+    }
+}
@@ -1,9 +1,8 @@
 package nemethi.pdfmerge.integration;
 
-import nemethi.pdfmerge.Application;
+import nemethi.pdfmerge.CommandLineFactory;
 import nemethi.pdfmerge.PdfMerger;
-import nemethi.pdfmerge.cli.ExceptionHandler;
-import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import nemethi.pdfmerge.cli.Version;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -16,23 +15,18 @@ import java.io.StringWriter;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
-/**
- * Version options are intentionally not tested.
- * From the IDE it cannot resolve the version; from Maven it can. (because the JAR is already built)
- * Also the version fetching is dynamic, and I do not want to adjust this test every time the version changes.
- * Dynamic version fetching was implemented to be able to change the version from one place: the POM.
- */
 public class CommandLineIT {
 
     private static final String EOL = System.lineSeparator();
-    private static final String NO_INPUT_FILE_ERROR_MESSAGE = "pdfmerge: positional parameter at index 0..* (FILE) requires at least 2 values, but none were specified." + EOL;
+    private static final String NO_INPUT_FILE_ERROR_MESSAGE = "pdfmerge: Missing required parameter: 'FILE'" + EOL;
     private static final String INVALID_OUTPUT_FILE_ERROR_MESSAGE = "pdfmerge: Invalid path: OUTFILE must point to a file." + EOL;
     private static final String INVALID_INPUT_FILE_ERROR_MESSAGE = "pdfmerge: Invalid path: FILE must point to a file." + EOL;
     private static final String NOT_EXISTING_FILE_ERROR_MESSAGE_FORMAT = "pdfmerge: Invalid path: %s does not exist.%n";
-    private static final String NOT_ENOUGH_INPUT_FILES_ERROR_MESSAGE_FORMAT = "pdfmerge: positional parameter at index 0..* (FILE) requires at least 2 values, but only 1 were specified: [%s]%n";
+    private static final String NOT_ENOUGH_INPUT_FILES_ERROR_MESSAGE = "pdfmerge: Invalid value: FILE must name at least two PDF files." + EOL;
     private static final String OUTPUT_FILE_ALREADY_EXISTS_ERROR_MESSAGE = "pdfmerge: The output file already exists. Use -f or --force to overwrite it." + EOL;
+    private static final String INVALID_JPEG_QUALITY_ERROR_MESSAGE = "pdfmerge: Invalid value: QUALITY must be between 1 and 100." + EOL;
     private static final String DESCRIPTION = "Merge multiple PDF FILEs into OUTFILE.";
-    private static final String USAGE = "Usage: pdfmerge [-fhV] -o=OUTFILE FILE FILE...";
+    private static final String USAGE = "Usage: pdfmerge [OPTIONS] FILE...";
 
     @Rule
     public TemporaryFolder temp = new TemporaryFolder();
@@ -45,11 +39,7 @@ public class CommandLineIT {
     public void setUp() {
         stdout = new StringWriter();
         stderr = new StringWriter();
-        Application application = new Application(new PdfMerger(new PDFMergerUtility()));
-        ExceptionHandler exceptionHandler = new ExceptionHandler();
-        cli = new CommandLine(application)
-                .setParameterExceptionHandler(exceptionHandler)
-                .setExecutionExceptionHandler(exceptionHandler)
+        cli = CommandLineFactory.create(new PdfMerger())
                 .setOut(new PrintWriter(stdout))
                 .setErr(new PrintWriter(stderr));
 
@@ -102,14 +92,13 @@ public class CommandLineIT {
         // given
         String output = temp.newFile().getCanonicalPath();
         String input = temp.newFile().getCanonicalPath();
-        String expectedErrorMessage = String.format(NOT_ENOUGH_INPUT_FILES_ERROR_MESSAGE_FORMAT, input);
 
         // when
         int exitCode = cli.execute("-o", output, input);
 
         // then
         assertThat(exitCode).isEqualTo(2);
-        assertThat(stderr).hasToString(expectedErrorMessage);
+        assertThat(stderr).hasToString(NOT_ENOUGH_INPUT_FILES_ERROR_MESSAGE);
         assertHelpMessage();
     }
 
@@ -161,6 +150,22 @@ public class CommandLineIT {
         assertThat(stdout.toString()).isEmpty();
     }
 
+    @Test
+    public void invalidJpegQuality() throws IOException {
+        // given
+        String output = temp.newFile().getCanonicalPath();
+        String input1 = temp.newFile().getCanonicalPath();
+        String input2 = temp.newFile().getCanonicalPath();
+
+        // when
+        int exitCode = cli.execute("--jpeg-quality", "0", "-o", output, input1, input2);
+
+        // then
+        assertThat(exitCode).isEqualTo(2);
+        assertThat(stderr).hasToString(INVALID_JPEG_QUALITY_ERROR_MESSAGE);
+        assertHelpMessage();
+    }
+
     @Test
     public void helpShortOptionWorks() {
         // when
@@ -181,9 +186,47 @@ public class CommandLineIT {
         assertHelpMessage();
     }
 
+    @Test
+    public void versionShortOptionWorks() {
+        // when
+        int exitCode = cli.execute("-V");
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(stdout).hasToString(Version.VERSION + EOL);
+    }
+
+    @Test
+    public void versionLongOptionWorks() {
+        // when
+        int exitCode = cli.execute("--version");
+
+        // then
+        assertThat(exitCode).isZero();
+        assertThat(stdout).hasToString(Version.VERSION + EOL);
+    }
+
+    @Test
+    public void commandErrorsNameTheCommand() {
+        // when
+        int exitCode = cli.execute("watch");
+
+        // then
+        assertThat(exitCode).isEqualTo(2);
+        assertThat(stderr.toString()).startsWith("pdfmerge watch: Missing required options: ");
+        assertThat(stdout.toString()).startsWith("Usage: pdfmerge watch [OPTIONS]");
+    }
+
     private void assertHelpMessage() {
         assertThat(stdout.toString()).contains(USAGE, DESCRIPTION, "-f, --force", "-h, --help", "-o, --output=OUTFILE",
-                "-V, --version");
+                "-V, --version", "--lean", "--keep=STRUCTURE", "--timeout=DURATION", "--raw-copy", "--prefetch=N",
+                "--prefetch-buffer=SIZE", "--linearize", "--max-dpi=DPI",
+                "--jpeg-quality=QUALITY", "--image-threads=N", "--compress",
+                "--compression-level=LEVEL", "--compress-threads=N", "--dedupe", "--gc",
+                "--metrics-file=METRICSFILE", "--memory-budget=SIZE", "--off-heap-scratch=SIZE",
+                "--checkpoint-dir=DIR", "--checkpoint-every=N", "--archive-order=ORDER",
+                "--deterministic", "--drop-timestamps", "--progress[=FORMAT]",
+                "--max-output-pages=N", "--max-output-size=SIZE", "Commands:", "watch", "batch", "server");
     }
 
 }
@@ -0,0 +1,137 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.PdfMerger;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConcurrentMergeIT {
+
+    private static final int INPUTS = 12;
+    private static final int MERGES = 200;
+    private static final int THREADS = 8;
+    private static final int MAX_INPUTS_PER_MERGE = 4;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private List<Path> inputs;
+    private List<String> texts;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws IOException {
+        inputs = new ArrayList<>();
+        texts = new ArrayList<>();
+        for (int i = 0; i < INPUTS; i++) {
+            Path input = temp.getRoot().toPath().resolve("input-" + i + ".pdf");
+            createPdf(input, i, i % 3 + 1);
+            inputs.add(input);
+            texts.add(textOf(input));
+        }
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Test
+    public void sameInstanceCanBeReused() throws IOException {
+        // given
+        PdfMerger merger = new PdfMerger();
+        Path first = temp.getRoot().toPath().resolve("first.pdf");
+        Path second = temp.getRoot().toPath().resolve("second.pdf");
+
+        // when
+        merger.merge(inputs.subList(0, 2), first);
+        merger.merge(inputs.subList(2, 4), second);
+
+        // then
+        assertThat(textOf(first)).isEqualTo(texts.get(0) + texts.get(1));
+        assertThat(textOf(second)).isEqualTo(texts.get(2) + texts.get(3));
+    }
+
+    @Test
+    public void concurrentMergesOnSharedInstancesDoNotInterfere() throws Exception {
+        // given
+        PdfMerger defaultMerger = new PdfMerger();
+        defaultMerger.setExecutor(executor);
+        PdfMerger appendingMerger = new PdfMerger();
+        appendingMerger.setExecutor(executor);
+        appendingMerger.setLinearized(true);
+        Random random = new Random(MERGES);
+        List<CompletableFuture<Void>> results = new ArrayList<>();
+        List<Path> outputs = new ArrayList<>();
+        List<String> expectedTexts = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < MERGES; i++) {
+            List<Path> mergeInputs = new ArrayList<>();
+            StringBuilder expectedText = new StringBuilder();
+            for (int j = 2 + random.nextInt(MAX_INPUTS_PER_MERGE - 1); j > 0; j--) {
+                int input = random.nextInt(INPUTS);
+                mergeInputs.add(inputs.get(input));
+                expectedText.append(texts.get(input));
+            }
+            Path output = temp.getRoot().toPath().resolve("output-" + i + ".pdf");
+            PdfMerger merger = i % 2 == 0 ? defaultMerger : appendingMerger;
+            results.add(merger.mergeAsync(mergeInputs, output));
+            outputs.add(output);
+            expectedTexts.add(expectedText.toString());
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(5, TimeUnit.MINUTES);
+
+        // then
+        for (int i = 0; i < MERGES; i++) {
+            assertThat(textOf(outputs.get(i))).as(outputs.get(i).toString()).isEqualTo(expectedTexts.get(i));
+        }
+    }
+
+    private static String textOf(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+
+    private static void createPdf(Path target, int index, int pages) throws IOException {
+        final int fontSize = 24;
+        final int textXOffset = 100;
+        final int textYOffset = 700;
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(PDType1Font.HELVETICA, fontSize);
+                    contentStream.newLineAtOffset(textXOffset, textYOffset);
+                    contentStream.showText(String.format("Input %d, page %d", index, i));
+                    contentStream.endText();
+                }
+            }
+            document.save(target.toFile());
+        }
+    }
+}
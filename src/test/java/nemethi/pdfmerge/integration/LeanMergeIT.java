@@ -0,0 +1,215 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.PdfMerger;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDNumberTreeNode;
+import org.apache.pdfbox.pdmodel.documentinterchange.logicalstructure.PDMarkInfo;
+import org.apache.pdfbox.pdmodel.documentinterchange.logicalstructure.PDMarkedContentReference;
+import org.apache.pdfbox.pdmodel.documentinterchange.logicalstructure.PDParentTreeValue;
+import org.apache.pdfbox.pdmodel.documentinterchange.logicalstructure.PDStructureElement;
+import org.apache.pdfbox.pdmodel.documentinterchange.logicalstructure.PDStructureTreeRoot;
+import org.apache.pdfbox.pdmodel.documentinterchange.markedcontent.PDPropertyList;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDOutlineItem;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static nemethi.pdfmerge.structure.DocumentStructure.OUTLINES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeanMergeIT {
+
+    private static final String TEST_FILE_NAME_PREFIX = "pdfmerge-lean-";
+    private static final Path REPORT = Paths.get("target", "lean-merge-benchmark.txt");
+    private static final int INPUTS = 8;
+    private static final int PAGES_PER_INPUT = 20;
+    private static final int PARAGRAPHS_PER_PAGE = 30;
+    private static final int ROUNDS = 3;
+
+    private static Path testTempDir;
+    private static List<Path> inputs;
+
+    @BeforeClass
+    public static void beforeClass() throws IOException {
+        testTempDir = Files.createTempDirectory(TEST_FILE_NAME_PREFIX);
+        inputs = new ArrayList<>();
+        for (int i = 0; i < INPUTS; i++) {
+            Path input = testTempDir.resolve("tagged-" + i + ".pdf");
+            createTaggedPdf(input.toFile(), i);
+            inputs.add(input);
+        }
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        File[] files = testTempDir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        testTempDir.toFile().delete();
+    }
+
+    @Test
+    public void leanMergeDropsStructuresAndKeepsPages() throws IOException {
+        // given
+        Path full = testTempDir.resolve("full.pdf");
+        Path lean = testTempDir.resolve("lean.pdf");
+
+        // when
+        merge(false, full);
+        merge(true, lean);
+
+        // then
+        try (PDDocument fullDocument = PDDocument.load(full.toFile());
+             PDDocument leanDocument = PDDocument.load(lean.toFile())) {
+            PDDocumentCatalog leanCatalog = leanDocument.getDocumentCatalog();
+            assertThat(fullDocument.getDocumentCatalog().getStructureTreeRoot()).isNotNull();
+            assertThat(leanCatalog.getStructureTreeRoot()).isNull();
+            assertThat(leanCatalog.getDocumentOutline()).isNull();
+            assertThat(leanDocument.getNumberOfPages()).isEqualTo(INPUTS * PAGES_PER_INPUT);
+            assertThat(new PDFTextStripper().getText(leanDocument))
+                    .isEqualTo(new PDFTextStripper().getText(fullDocument));
+        }
+        assertThat(Files.size(lean)).isLessThan(Files.size(full));
+    }
+
+    @Test
+    public void leanMergeKeepsRequestedStructures() throws IOException {
+        // given
+        Path output = testTempDir.resolve("lean-outlines.pdf");
+        PdfMerger merger = new PdfMerger();
+        merger.setLean(true);
+        merger.setKeptStructures(EnumSet.of(OUTLINES));
+
+        // when
+        merger.forceMerge(inputs, output);
+
+        // then
+        try (PDDocument document = PDDocument.load(output.toFile())) {
+            assertThat(document.getDocumentCatalog().getDocumentOutline()).isNotNull();
+            assertThat(document.getDocumentCatalog().getStructureTreeRoot()).isNull();
+        }
+    }
+
+    @Test
+    public void benchmarkLeanAgainstFullMerge() throws IOException {
+        // given
+        Map<String, Long> timings = new LinkedHashMap<>();
+        Map<String, Long> sizes = new HashMap<>();
+        merge(false, testTempDir.resolve("warmup.pdf"));
+
+        // when
+        for (String mode : new String[]{"full", "lean"}) {
+            List<Long> rounds = new ArrayList<>();
+            Path output = testTempDir.resolve("benchmark-" + mode + ".pdf");
+            for (int i = 0; i < ROUNDS; i++) {
+                long start = System.nanoTime();
+                merge("lean".equals(mode), output);
+                rounds.add(System.nanoTime() - start);
+            }
+            timings.put(mode, Collections.min(rounds) / 1_000_000);
+            sizes.put(mode, Files.size(output));
+        }
+
+        // then
+        List<String> report = new ArrayList<>();
+        report.add(String.format("inputs=%d pages=%d tagged paragraphs=%d rounds=%d",
+                INPUTS, INPUTS * PAGES_PER_INPUT, INPUTS * PAGES_PER_INPUT * PARAGRAPHS_PER_PAGE, ROUNDS));
+        for (String mode : timings.keySet()) {
+            report.add(String.format("%s: best %d ms, %d bytes", mode, timings.get(mode), sizes.get(mode)));
+        }
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, report, UTF_8);
+        assertThat(sizes.get("lean")).isLessThan(sizes.get("full"));
+    }
+
+    private static void merge(boolean lean, Path output) throws IOException {
+        PdfMerger merger = new PdfMerger();
+        merger.setLean(lean);
+        merger.forceMerge(inputs, output);
+    }
+
+    private static void createTaggedPdf(File file, int index) throws IOException {
+        final int fontSize = 10;
+        final int left = 50;
+        final int top = 750;
+        final int lineHeight = 12;
+        try (PDDocument document = new PDDocument()) {
+            PDStructureTreeRoot treeRoot = new PDStructureTreeRoot();
+            PDStructureElement documentElement = new PDStructureElement("Document", treeRoot);
+            treeRoot.appendKid(documentElement);
+            PDNumberTreeNode parentTree = new PDNumberTreeNode(PDParentTreeValue.class);
+            Map<Integer, COSArray> parentTreeEntries = new HashMap<>();
+            PDDocumentOutline outline = new PDDocumentOutline();
+            for (int p = 0; p < PAGES_PER_INPUT; p++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                page.setStructParents(p);
+                COSArray pageParents = new COSArray();
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    for (int mcid = 0; mcid < PARAGRAPHS_PER_PAGE; mcid++) {
+                        PDStructureElement paragraph = new PDStructureElement("P", documentElement);
+                        paragraph.setPage(page);
+                        PDMarkedContentReference reference = new PDMarkedContentReference();
+                        reference.setMCID(mcid);
+                        reference.setPage(page);
+                        paragraph.appendKid(reference);
+                        documentElement.appendKid(paragraph);
+                        pageParents.add(paragraph);
+                        COSDictionary properties = new COSDictionary();
+                        properties.setInt(COSName.MCID, mcid);
+                        contentStream.beginMarkedContent(COSName.P, PDPropertyList.create(properties));
+                        contentStream.beginText();
+                        contentStream.setFont(PDType1Font.HELVETICA, fontSize);
+                        contentStream.newLineAtOffset(left, top - mcid * lineHeight);
+                        contentStream.showText(String.format("Input %d, page %d, paragraph %d", index, p, mcid));
+                        contentStream.endText();
+                        contentStream.endMarkedContent();
+                    }
+                }
+                parentTreeEntries.put(p, pageParents);
+                PDOutlineItem item = new PDOutlineItem();
+                item.setTitle("Page " + p);
+                item.setDestination(page);
+                outline.addLast(item);
+            }
+            parentTree.setNumbers(new HashMap<>(parentTreeEntries));
+            treeRoot.setParentTree(parentTree);
+            treeRoot.setParentTreeNextKey(PAGES_PER_INPUT);
+            PDDocumentCatalog catalog = document.getDocumentCatalog();
+            catalog.setStructureTreeRoot(treeRoot);
+            PDMarkInfo markInfo = new PDMarkInfo();
+            markInfo.setMarked(true);
+            catalog.setMarkInfo(markInfo);
+            catalog.setLanguage("en-US");
+            catalog.setDocumentOutline(outline);
+            document.getDocumentInformation().setTitle("Tagged input " + index);
+            document.save(file);
+        }
+    }
+}
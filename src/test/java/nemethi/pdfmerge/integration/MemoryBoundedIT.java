@@ -0,0 +1,210 @@
+package nemethi.pdfmerge.integration;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.AfterClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Merges inputs several times larger than the heap in a JVM forked with a small -Xmx, so that buffering whole
+ * inputs or streams in memory fails the build with an OutOfMemoryError. The peak resident set size has to stay
+ * below half of the input size, which also catches buffering in direct memory. Every run is added to a report.
+ */
+public class MemoryBoundedIT {
+
+    private static final Path REPORT = Paths.get("target", "memory-bounded-report.txt");
+    private static final String MAX_HEAP = "-Xmx48m";
+    private static final String MEMORY_BUDGET = "--memory-budget=16M";
+    private static final long MEGABYTE = 1 << 20;
+    private static final long INPUT_BYTES = 256 * MEGABYTE;
+    private static final List<String> RESULTS = new ArrayList<>();
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final Random random = new Random(INPUT_BYTES);
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        Files.createDirectories(REPORT.getParent());
+        List<String> report = new ArrayList<>();
+        report.add(String.format("heap=%s input=%d MB", MAX_HEAP, INPUT_BYTES / MEGABYTE));
+        report.addAll(RESULTS);
+        Files.write(REPORT, report, UTF_8);
+    }
+
+    @Test
+    public void mergesManyFiles() throws Exception {
+        // given
+        int files = 128;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            inputs.add(writePdf("many-" + i, 1, (int) (INPUT_BYTES / files)));
+        }
+
+        // when + then
+        assertMergesWithinBounds("many files", inputs, files);
+    }
+
+    @Test
+    public void mergesHugeFile() throws Exception {
+        // given
+        int pages = 256;
+        List<Path> inputs = new ArrayList<>();
+        inputs.add(writePdf("huge", pages, (int) (INPUT_BYTES / pages)));
+        inputs.add(writePdf("small", 1, 1024));
+
+        // when + then
+        assertMergesWithinBounds("huge file", inputs, pages + 1);
+    }
+
+    @Test
+    public void mergesImagesLargerThanTheHeap() throws Exception {
+        // given
+        int files = 4;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < files; i++) {
+            inputs.add(writePdf("image-" + i, 1, (int) (INPUT_BYTES / files)));
+        }
+
+        // when + then
+        assertMergesWithinBounds("image heavy", inputs, files);
+    }
+
+    private void assertMergesWithinBounds(String name, List<Path> inputs, int pages) throws Exception {
+        Path output = temp.getRoot().toPath().resolve("output.pdf");
+        Path probe = temp.getRoot().toPath().resolve("probe.txt");
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add(MAX_HEAP);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(MemoryProbe.class.getName());
+        command.add(probe.toString());
+        command.add(MEMORY_BUDGET);
+        command.add("-o");
+        command.add(output.toString());
+        for (Path input : inputs) {
+            command.add(input.toString());
+        }
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String log = read(process.getInputStream());
+        int exitCode = process.waitFor();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        List<String> measured = Files.readAllLines(probe, UTF_8);
+        long peakRss = Long.parseLong(measured.get(0));
+        long peakHeap = Long.parseLong(measured.get(1));
+        RESULTS.add(String.format("%s: %d inputs, peak RSS %d MB, peak heap %d MB, %d ms", name, inputs.size(),
+                peakRss / MEGABYTE, peakHeap / MEGABYTE, millis));
+        assertThat(exitCode).as(log).isZero();
+        try (PDDocument merged = PDDocument.load(output.toFile(), MemoryUsageSetting.setupTempFileOnly())) {
+            assertThat(merged.getNumberOfPages()).isEqualTo(pages);
+        }
+        if (peakRss >= 0) {
+            assertThat(peakRss).as("peak RSS").isLessThan(INPUT_BYTES / 2);
+        }
+    }
+
+    // Pages show one uncompressed grayscale image of random pixels, so the bytes cannot be compressed away.
+    private Path writePdf(String name, int pages, int pageBytes) throws IOException {
+        Path target = temp.getRoot().toPath().resolve(name + ".pdf");
+        int width = 1024;
+        int height = Math.max(1, pageBytes / width);
+        byte[] row = new byte[width];
+        List<Long> offsets = new ArrayList<>();
+        try (CountingWriter out = new CountingWriter(Files.newOutputStream(target))) {
+            out.print("%PDF-1.4\n");
+            offsets.add(out.count);
+            out.print("1 0 obj\n<< /Type /Catalog /Pages 2 0 R >>\nendobj\n");
+            offsets.add(out.count);
+            StringBuilder kids = new StringBuilder();
+            for (int i = 0; i < pages; i++) {
+                kids.append(3 + 3 * i).append(" 0 R ");
+            }
+            out.print("2 0 obj\n<< /Type /Pages /Kids [" + kids + "] /Count " + pages + " >>\nendobj\n");
+            for (int i = 0; i < pages; i++) {
+                int page = 3 + 3 * i;
+                String content = "q 612 0 0 792 0 0 cm /Im0 Do Q";
+                offsets.add(out.count);
+                out.print(page + " 0 obj\n<< /Type /Page /Parent 2 0 R /MediaBox [0 0 612 792] /Contents "
+                        + (page + 1) + " 0 R /Resources << /XObject << /Im0 " + (page + 2) + " 0 R >> >> >>\nendobj\n");
+                offsets.add(out.count);
+                out.print((page + 1) + " 0 obj\n<< /Length " + content.length() + " >>\nstream\n" + content
+                        + "\nendstream\nendobj\n");
+                offsets.add(out.count);
+                out.print((page + 2) + " 0 obj\n<< /Type /XObject /Subtype /Image /Width " + width + " /Height "
+                        + height + " /ColorSpace /DeviceGray /BitsPerComponent 8 /Length " + (long) width * height
+                        + " >>\nstream\n");
+                for (int y = 0; y < height; y++) {
+                    random.nextBytes(row);
+                    out.write(row);
+                }
+                out.print("\nendstream\nendobj\n");
+            }
+            long xref = out.count;
+            out.print("xref\n0 " + (offsets.size() + 1) + "\n0000000000 65535 f \n");
+            for (long offset : offsets) {
+                out.print(String.format("%010d 00000 n \n", offset));
+            }
+            out.print("trailer\n<< /Size " + (offsets.size() + 1) + " /Root 1 0 R >>\nstartxref\n" + xref
+                    + "\n%%EOF\n");
+        }
+        return target;
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return new String(output.toByteArray(), UTF_8);
+    }
+
+    // Keeps the offsets the cross-reference table needs.
+    private static class CountingWriter implements AutoCloseable {
+
+        private final OutputStream out;
+        private long count;
+
+        CountingWriter(OutputStream out) {
+            this.out = new BufferedOutputStream(out, 1 << 16);
+        }
+
+        void print(String text) throws IOException {
+            write(text.getBytes(US_ASCII));
+        }
+
+        void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            count += bytes.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.Application;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Runs the command line and, when it exits, writes the peak resident set size and the peak heap use of the JVM
+ * to the file given as first argument. Forked by {@link MemoryBoundedIT}; Java 8 cannot watch another process.
+ */
+public final class MemoryProbe {
+
+    private static final Path PROC_STATUS = Paths.get("/proc/self/status");
+    private static final String PEAK_RSS = "VmHWM:";
+
+    private MemoryProbe() {
+    }
+
+    public static void main(String[] args) {
+        Path report = Paths.get(args[0]);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.write(report, Arrays.asList(Long.toString(peakRss()), Long.toString(peakHeap())), UTF_8);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+        Application.main(Arrays.copyOfRange(args, 1, args.length));
+    }
+
+    // Linux only; -1 elsewhere.
+    private static long peakRss() throws IOException {
+        if (!Files.isReadable(PROC_STATUS)) {
+            return -1;
+        }
+        List<String> lines = Files.readAllLines(PROC_STATUS, UTF_8);
+        for (String line : lines) {
+            if (line.startsWith(PEAK_RSS)) {
+                String kilobytes = line.substring(PEAK_RSS.length()).trim().split("\\s+")[0];
+                return Long.parseLong(kilobytes) * 1024;
+            }
+        }
+        return -1;
+    }
+
+    // The pools peak at different times, so the sum is an upper bound of the peak of the whole heap.
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
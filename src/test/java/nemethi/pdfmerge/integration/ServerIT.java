@@ -0,0 +1,247 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.Application;
+import nemethi.pdfmerge.server.MergeClient;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the same command lines in forked JVMs with and without a merge server, which has to make no difference to
+ * what the caller sees, only to how long it waits.
+ */
+public class ServerIT {
+
+    private static final Path REPORT = Paths.get("target", "server-benchmark.txt");
+    private static final long STARTUP_TIMEOUT_MILLIS = 30_000;
+    private static final int RUNS = 5;
+    private static final String PDFBOX_LOADED = "org.apache.pdfbox.";
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path workingDirectory;
+    private Path endpoint;
+    private Process server;
+
+    @Before
+    public void setUp() throws IOException {
+        workingDirectory = temp.newFolder("work").toPath();
+        endpoint = temp.getRoot().toPath().resolve("socket").resolve("server");
+        createPdf(workingDirectory.resolve("a.pdf"), 1);
+        createPdf(workingDirectory.resolve("b.pdf"), 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        run(false, "server", "--stop", "--socket=" + endpoint);
+        if (server != null) {
+            assertThat(server.waitFor(STARTUP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    public void forwardedCallsLookLikeLocalOnes() throws Exception {
+        // given
+        startServer();
+        List<String[]> commandLines = Arrays.asList(
+                new String[]{"-f", "-o", "merged.pdf", "a.pdf", "b.pdf"},
+                new String[]{"-o", "merged.pdf", "a.pdf", "b.pdf"},
+                new String[]{"-o", "other.pdf", "a.pdf", "missing.pdf"},
+                new String[]{"-o", "other.pdf", "--no-such-option", "a.pdf"},
+                new String[]{"--timeout=0", "-o", "other.pdf", "a.pdf"});
+
+        for (String[] commandLine : commandLines) {
+            // when
+            Result local = run(false, commandLine);
+            Result forwarded = run(true, commandLine);
+
+            // then
+            assertThat(forwarded.exitCode).as(String.join(" ", commandLine)).isEqualTo(local.exitCode);
+            assertThat(forwarded.out).isEqualTo(local.out);
+            assertThat(forwarded.err).isEqualTo(local.err);
+        }
+        assertThat(pageCount(workingDirectory.resolve("merged.pdf"))).isEqualTo(3);
+    }
+
+    @Test
+    public void forwardedCallsLoadNoPdfBox() throws Exception {
+        // given
+        startServer();
+
+        // when
+        Result local = run(false, "-verbose:class", "-o", "local.pdf", "a.pdf", "b.pdf");
+        Result forwarded = run(true, "-verbose:class", "-o", "forwarded.pdf", "a.pdf", "b.pdf");
+
+        // then
+        assertThat(local.exitCode).isZero();
+        assertThat(forwarded.exitCode).isZero();
+        assertThat(local.out).contains(PDFBOX_LOADED);
+        assertThat(forwarded.out).doesNotContain(PDFBOX_LOADED);
+        assertThat(pageCount(workingDirectory.resolve("forwarded.pdf"))).isEqualTo(3);
+    }
+
+    @Test
+    public void firstForwardedCallMergesItselfAndStartsTheServer() throws Exception {
+        // when
+        Result first = run(true, "-o", "first.pdf", "a.pdf", "b.pdf");
+
+        // then
+        assertThat(first.exitCode).isZero();
+        assertThat(pageCount(workingDirectory.resolve("first.pdf"))).isEqualTo(3);
+        awaitEndpoint();
+        Result second = run(true, "-verbose:class", "-o", "second.pdf", "a.pdf", "b.pdf");
+        assertThat(second.exitCode).isZero();
+        assertThat(second.out).doesNotContain(PDFBOX_LOADED);
+        assertThat(pageCount(workingDirectory.resolve("second.pdf"))).isEqualTo(3);
+    }
+
+    @Test
+    public void benchmarkForwardedAgainstLocalCalls() throws Exception {
+        // given
+        startServer();
+        run(true, "-o", "warmup.pdf", "a.pdf", "b.pdf");
+
+        // when
+        long localMillis = medianMillis(false);
+        long forwardedMillis = medianMillis(true);
+
+        // then
+        List<String> report = new ArrayList<>();
+        report.add(String.format("runs=%d java=%s", RUNS, System.getProperty("java.version")));
+        report.add(String.format("local: median %d ms", localMillis));
+        report.add(String.format("forwarded: median %d ms", forwardedMillis));
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, report, UTF_8);
+        assertThat(forwardedMillis).isLessThan(localMillis);
+    }
+
+    private long medianMillis(boolean isForwarded) throws Exception {
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            Result result = run(isForwarded, "-f", "-o", "benchmark.pdf", "a.pdf", "b.pdf");
+            millis[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            assertThat(result.exitCode).as(result.err).isZero();
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    private void startServer() throws Exception {
+        List<String> command = java();
+        command.addAll(Arrays.asList(Application.class.getName(), "server", "--socket=" + endpoint));
+        server = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(temp.newFile("server.log"))
+                .start();
+        awaitEndpoint();
+    }
+
+    private void awaitEndpoint() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (!Files.exists(endpoint) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(endpoint).exists();
+    }
+
+    // JVM options such as -verbose:class lead the arguments.
+    private Result run(boolean isForwarded, String... arguments) throws Exception {
+        List<String> command = java();
+        int options = 0;
+        while (options < arguments.length && arguments[options].startsWith("-verbose")) {
+            command.add(arguments[options++]);
+        }
+        command.add(Application.class.getName());
+        command.addAll(Arrays.asList(arguments).subList(options, arguments.length));
+        ProcessBuilder builder = new ProcessBuilder(command).directory(workingDirectory.toFile());
+        Map<String, String> environment = builder.environment();
+        environment.remove(MergeClient.MODE_VARIABLE);
+        environment.put(MergeClient.SOCKET_VARIABLE, endpoint.toString());
+        if (isForwarded) {
+            environment.put(MergeClient.MODE_VARIABLE, "auto");
+        }
+        Process process = builder.start();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Thread errReader = new Thread(() -> copy(process.getErrorStream(), err));
+        errReader.start();
+        String out = read(process.getInputStream());
+        int exitCode = process.waitFor();
+        errReader.join();
+        return new Result(exitCode, out, new String(err.toByteArray(), UTF_8));
+    }
+
+    private static List<String> java() {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        return command;
+    }
+
+    private static String read(InputStream inputStream) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        copy(inputStream, output);
+        return new String(output.toByteArray(), UTF_8);
+    }
+
+    private static void copy(InputStream inputStream, ByteArrayOutputStream output) {
+        byte[] buffer = new byte[8192];
+        int read;
+        try {
+            while ((read = inputStream.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int pageCount(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    private static void createPdf(Path target, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            document.save(target.toFile());
+        }
+    }
+
+    private static final class Result {
+
+        private final int exitCode;
+        private final String out;
+        private final String err;
+
+        private Result(int exitCode, String out, String err) {
+            this.exitCode = exitCode;
+            this.err = err;
+            this.out = out;
+        }
+    }
+}
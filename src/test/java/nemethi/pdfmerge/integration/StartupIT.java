@@ -0,0 +1,116 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.Application;
+import nemethi.pdfmerge.cli.Version;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Forks a fresh JVM per run, since startup is exactly what a warm test JVM hides.
+public class StartupIT {
+
+    private static final Path REPORT = Paths.get("target", "startup-benchmark.txt");
+    private static final long TARGET_MILLIS = 500;
+    private static final int RUNS = 5;
+    private static final String EOL = System.lineSeparator();
+    // "[Loaded X from" up to Java 8, "[class,load] X source:" from Java 9 on.
+    private static final Pattern CLASS_LOADED = Pattern.compile("\\[(?:Loaded|class,load\\]) (\\S+) (?:from|source:)");
+    // Application links against a few picocli types, but the command line itself, which reflects on it, stays out.
+    private static final String COMMAND_LINE = "picocli.CommandLine";
+    private static final String PDFBOX_PACKAGE = "org.apache.pdfbox.";
+
+    @Test
+    public void helpAndVersionBuildNoCommandLineAndLoadNoPdfBox() throws Exception {
+        // when
+        String help = run("-verbose:class", "--help");
+        String version = run("-verbose:class", "--version");
+
+        // then
+        assertThat(help).contains("Usage: pdfmerge [OPTIONS] FILE...");
+        assertThat(version).contains(EOL + Version.VERSION + EOL);
+        for (List<String> loaded : Arrays.asList(loadedClasses(help), loadedClasses(version))) {
+            // Fails rather than passes if the log format changes and no class is recognized.
+            assertThat(loaded).contains(Application.class.getName())
+                    .doesNotContain(COMMAND_LINE)
+                    .noneMatch(name -> name.startsWith(PDFBOX_PACKAGE));
+        }
+    }
+
+    @Test
+    public void benchmarkHelpAndVersionLatency() throws Exception {
+        // given
+        run("--help");
+
+        // when
+        long helpMillis = medianMillis("--help");
+        long versionMillis = medianMillis("--version");
+
+        // then
+        List<String> report = new ArrayList<>();
+        report.add(String.format("runs=%d target=%d ms", RUNS, TARGET_MILLIS));
+        report.add(String.format("--help: median %d ms", helpMillis));
+        report.add(String.format("--version: median %d ms", versionMillis));
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, report, UTF_8);
+        assertThat(helpMillis).isLessThan(TARGET_MILLIS);
+        assertThat(versionMillis).isLessThan(TARGET_MILLIS);
+    }
+
+    private static long medianMillis(String option) throws Exception {
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            run(option);
+            millis[i] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    private static String run(String... arguments) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.addAll(Arrays.asList(arguments).subList(0, arguments.length - 1));
+        command.add(Application.class.getName());
+        command.add(arguments[arguments.length - 1]);
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = read(process.getInputStream());
+        assertThat(process.waitFor()).as(output).isZero();
+        return output;
+    }
+
+    private static List<String> loadedClasses(String output) {
+        List<String> loaded = new ArrayList<>();
+        Matcher matcher = CLASS_LOADED.matcher(output);
+        while (matcher.find()) {
+            loaded.add(matcher.group(1));
+        }
+        return loaded;
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return new String(output.toByteArray(), UTF_8);
+    }
+}
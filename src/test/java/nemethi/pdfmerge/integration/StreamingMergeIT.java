@@ -0,0 +1,137 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.PdfMerger;
+import nemethi.pdfmerge.streaming.MergeListener;
+import nemethi.pdfmerge.streaming.MergeSource;
+import nemethi.pdfmerge.streaming.SourceQueue;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StreamingMergeIT {
+
+    private static final int INPUTS = 20;
+    private static final int QUEUE_CAPACITY = 2;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    @Test
+    public void mergesSourcesProducedWhileTheMergeRuns() throws Exception {
+        // given
+        List<Path> inputs = new ArrayList<>();
+        StringBuilder expectedText = new StringBuilder();
+        for (int i = 0; i < INPUTS; i++) {
+            Path input = temp.getRoot().toPath().resolve("input-" + i + ".pdf");
+            createPdf(input, i, i % 3 + 1);
+            inputs.add(input);
+            expectedText.append(textOf(input));
+        }
+        SourceQueue queue = new SourceQueue(QUEUE_CAPACITY);
+        ProgressListener listener = new ProgressListener();
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < INPUTS; i++) {
+                    // Every other input comes from memory, the rest from disk.
+                    queue.put(i % 2 == 0 ? MergeSource.of(inputs.get(i))
+                            : MergeSource.of(ByteBuffer.wrap(Files.readAllBytes(inputs.get(i)))));
+                    listener.produced.incrementAndGet();
+                }
+                queue.close();
+            } catch (IOException e) {
+                queue.fail(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Path output = temp.getRoot().toPath().resolve("output.pdf");
+
+        // when
+        producer.start();
+        try (FileChannel channel = FileChannel.open(output, CREATE_NEW, WRITE)) {
+            new PdfMerger().merge(queue, channel, listener);
+        }
+        producer.join();
+
+        // then
+        assertThat(textOf(output)).isEqualTo(expectedText.toString());
+        assertThat(listener.inputs).isEqualTo(INPUTS);
+        assertThat(listener.pages).isEqualTo(pageCount(output));
+        assertThat(listener.maxAhead).isLessThanOrEqualTo(QUEUE_CAPACITY + 1);
+    }
+
+    private static class ProgressListener implements MergeListener {
+
+        private final AtomicInteger produced = new AtomicInteger();
+        private int inputs;
+        private int pages;
+        private int maxAhead;
+
+        @Override
+        public void inputStarted(int input) {
+            // The merge has taken input + 1 sources; the producer can only be a full queue ahead of that.
+            maxAhead = Math.max(maxAhead, produced.get() - input);
+        }
+
+        @Override
+        public void pageMerged(int input, int page, int outputPage) {
+            assertThat(outputPage).isEqualTo(pages);
+            pages++;
+        }
+
+        @Override
+        public void inputMerged(int input, int pages) {
+            inputs++;
+        }
+    }
+
+    private static int pageCount(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return document.getNumberOfPages();
+        }
+    }
+
+    private static String textOf(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return new PDFTextStripper().getText(document);
+        }
+    }
+
+    private static void createPdf(Path target, int index, int pages) throws IOException {
+        final int fontSize = 24;
+        final int textXOffset = 100;
+        final int textYOffset = 700;
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(PDType1Font.HELVETICA, fontSize);
+                    contentStream.newLineAtOffset(textXOffset, textYOffset);
+                    contentStream.showText(String.format("Input %d, page %d", index, i));
+                    contentStream.endText();
+                }
+            }
+            document.save(target.toFile());
+        }
+    }
+}
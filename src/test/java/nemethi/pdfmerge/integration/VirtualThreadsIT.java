@@ -0,0 +1,131 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.PdfMerger;
+import nemethi.pdfmerge.batch.BatchReport;
+import nemethi.pdfmerge.batch.JobResult;
+import nemethi.pdfmerge.batch.JobScheduler;
+import nemethi.pdfmerge.batch.JobThreads;
+import nemethi.pdfmerge.batch.MergeJob;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The jobs sleep before merging to stand in for network storage; that wait is what virtual workers make cheap.
+public class VirtualThreadsIT {
+
+    private static final Path REPORT = Paths.get("target", "virtual-threads-benchmark.txt");
+    private static final int JOBS = 400;
+    private static final int WORKERS = 400;
+    private static final long STORAGE_LATENCY_MILLIS = 50;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private List<MergeJob> jobs;
+
+    @Before
+    public void setUp() throws IOException {
+        Path directory = temp.getRoot().toPath();
+        Path input = directory.resolve("input.pdf");
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            document.save(input.toFile());
+        }
+        jobs = new ArrayList<>();
+        for (int i = 0; i < JOBS; i++) {
+            jobs.add(new MergeJob(i, directory.resolve("output-" + i + ".pdf"), Arrays.asList(input, input), 0, 0));
+        }
+    }
+
+    @Test
+    public void benchmarkPlatformAndVirtualWorkers() throws IOException {
+        // when
+        Run platform = runBatch(false);
+        Run virtual = JobThreads.isVirtualAvailable() ? runBatch(true) : null;
+
+        // then
+        List<String> report = new ArrayList<>();
+        report.add(String.format("jobs=%d workers=%d storage latency=%d ms java=%s", JOBS, WORKERS,
+                STORAGE_LATENCY_MILLIS, System.getProperty("java.specification.version")));
+        report.add(platform.describe("platform"));
+        report.add(virtual == null ? "virtual: not available before Java 21" : virtual.describe("virtual"));
+        Files.createDirectories(REPORT.getParent());
+        Files.write(REPORT, report, UTF_8);
+        assertThat(platform.report.getFailures()).isZero();
+        if (virtual != null) {
+            assertThat(virtual.report.getFailures()).isZero();
+            assertThat(virtual.peakThreads).isLessThan(platform.peakThreads);
+        }
+    }
+
+    private Run runBatch(boolean virtualThreads) throws IOException {
+        JobScheduler scheduler = new JobScheduler();
+        scheduler.setWorkers(WORKERS);
+        scheduler.setVirtualThreads(virtualThreads);
+        PdfMerger merger = new PdfMerger();
+        ExecutorService parsers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        if (virtualThreads) {
+            merger.setParseExecutor(parsers);
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        try {
+            List<JobResult> results = scheduler.run(jobs, job -> {
+                awaitStorage();
+                merger.forceMerge(job.getInputPaths(), job.getOutputPath());
+            });
+            return new Run(new BatchReport(results), System.nanoTime() - start, threads.getPeakThreadCount());
+        } finally {
+            parsers.shutdown();
+        }
+    }
+
+    private static void awaitStorage() throws InterruptedIOException {
+        try {
+            Thread.sleep(STORAGE_LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+
+    private static final class Run {
+
+        private final BatchReport report;
+        private final long nanos;
+        private final int peakThreads;
+
+        private Run(BatchReport report, long nanos, int peakThreads) {
+            this.report = report;
+            this.nanos = nanos;
+            this.peakThreads = peakThreads;
+        }
+
+        private String describe(String mode) {
+            return String.format("%s: %d ms total, p50 %d ms, p99 %d ms, peak platform threads %d", mode,
+                    TimeUnit.NANOSECONDS.toMillis(nanos), TimeUnit.NANOSECONDS.toMillis(report.percentileNanos(50)),
+                    TimeUnit.NANOSECONDS.toMillis(report.percentileNanos(99)), peakThreads);
+        }
+    }
+}
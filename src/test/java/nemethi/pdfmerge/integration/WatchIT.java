@@ -0,0 +1,123 @@
+package nemethi.pdfmerge.integration;
+
+import nemethi.pdfmerge.PdfMerger;
+import nemethi.pdfmerge.WatchCommand;
+import nemethi.pdfmerge.cli.ExceptionHandler;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WatchIT {
+
+    private static final long TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(20);
+    private static final long POLL_MILLIS = 50;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path directory;
+    private Path outputPath;
+    private StringWriter stdout;
+    private Thread watcher;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = temp.newFolder().toPath();
+        outputPath = temp.getRoot().toPath().resolve("out.pdf");
+        stdout = new StringWriter();
+        createPdf(directory.resolve("1.pdf"), 1);
+        CommandLine cli = new CommandLine(new WatchCommand(new PdfMerger()))
+                .setExecutionExceptionHandler(new ExceptionHandler())
+                .setOut(new PrintWriter(stdout, true));
+        watcher = new Thread(() -> cli.execute("--dir", directory.toString(), "-o", outputPath.toString(),
+                "--debounce", "200"));
+        watcher.start();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        watcher.interrupt();
+        watcher.join(TIMEOUT_MILLIS);
+    }
+
+    @Test
+    public void rebuildsOutputWhenInputsChange() throws Exception {
+        // initial build
+        awaitPageCount(1);
+
+        // added files
+        createPdf(directory.resolve("2.pdf"), 2);
+        createPdf(directory.resolve("3.pdf"), 3);
+        awaitPageCount(6);
+
+        // removed file
+        Files.delete(directory.resolve("1.pdf"));
+        awaitPageCount(5);
+
+        // changed file
+        createPdf(directory.resolve("3.pdf"), 1);
+        awaitPageCount(3);
+
+        assertThat(stdout.toString()).contains("Merged 2 files (0 changed)");
+    }
+
+    @Test
+    public void stopsWhenInterrupted() throws Exception {
+        // given
+        awaitPageCount(1);
+
+        // when
+        watcher.interrupt();
+        watcher.join(TIMEOUT_MILLIS);
+
+        // then
+        assertThat(watcher.isAlive()).isFalse();
+    }
+
+    private void awaitPageCount(int expected) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        int pageCount = -1;
+        while (System.currentTimeMillis() < deadline) {
+            pageCount = pageCount();
+            if (pageCount == expected) {
+                return;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        assertThat(pageCount).isEqualTo(expected);
+    }
+
+    private int pageCount() {
+        if (!Files.exists(outputPath)) {
+            return -1;
+        }
+        try (PDDocument document = PDDocument.load(outputPath.toFile())) {
+            return document.getNumberOfPages();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static void createPdf(Path path, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            document.save(path.toFile());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package nemethi.pdfmerge.metrics;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class MetricsRegistryTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MetricsRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    public void writesLabelledCountersAsOneFamily() throws IOException {
+        // given
+        registry.counter("failures_total", "Failures.", "type", "io").add(2);
+        registry.counter("failures_total", "Failures.", "type", "say \"hi\"").increment();
+
+        // when + then
+        assertThat(exposition()).isEqualTo("# HELP failures_total Failures.\n"
+                + "# TYPE failures_total counter\n"
+                + "failures_total{type=\"io\"} 2\n"
+                + "failures_total{type=\"say \\\"hi\\\"\"} 1\n");
+    }
+
+    @Test
+    public void writesCumulativeHistogramBuckets() throws IOException {
+        // given
+        Histogram histogram = registry.histogram("duration_seconds", "Durations.", "phase", "load", 0.1, 1);
+        histogram.observeNanos(50_000_000);
+        histogram.observeNanos(500_000_000);
+        histogram.observeNanos(2_000_000_000);
+
+        // when + then
+        assertThat(histogram.getCount()).isEqualTo(3);
+        assertThat(exposition()).isEqualTo("# HELP duration_seconds Durations.\n"
+                + "# TYPE duration_seconds histogram\n"
+                + "duration_seconds_bucket{phase=\"load\",le=\"0.1\"} 1\n"
+                + "duration_seconds_bucket{phase=\"load\",le=\"1.0\"} 2\n"
+                + "duration_seconds_bucket{phase=\"load\",le=\"+Inf\"} 3\n"
+                + "duration_seconds_sum{phase=\"load\"} 2.55\n"
+                + "duration_seconds_count{phase=\"load\"} 3\n");
+    }
+
+    @Test
+    public void gaugeSupplierIsAskedOnWrite() throws IOException {
+        // given
+        long[] value = {1};
+        registry.gauge("scratch_bytes", "Scratch.", () -> value[0]);
+        value[0] = 42;
+
+        // when + then
+        assertThat(exposition()).endsWith("scratch_bytes 42\n");
+    }
+
+    @Test
+    public void writeToPathReplacesFile() throws IOException {
+        // given
+        Path file = temp.getRoot().toPath().resolve("metrics.prom");
+        Files.write(file, "stale".getBytes(UTF_8));
+        registry.gauge("active", "Active.").set(3);
+
+        // when
+        registry.writeTo(file);
+
+        // then
+        assertThat(new String(Files.readAllBytes(file), UTF_8)).endsWith("active 3\n");
+        assertThat(temp.getRoot().list()).containsExactly("metrics.prom");
+    }
+
+    @Test
+    public void registeringNameWithOtherTypeThrowsException() {
+        // given
+        registry.counter("merges", "Merges.");
+
+        // when
+        Throwable thrown = catchThrowable(() -> registry.gauge("merges", "Merges."));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("merges is already registered as a counter.");
+    }
+
+    private String exposition() throws IOException {
+        StringWriter writer = new StringWriter();
+        registry.writeTo(writer);
+        return writer.toString();
+    }
+}
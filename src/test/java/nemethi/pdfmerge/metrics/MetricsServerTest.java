@@ -0,0 +1,69 @@
+package nemethi.pdfmerge.metrics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsServerTest {
+
+    private MetricsServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("merges_total", "Merges.").add(5);
+        server = new MetricsServer(registry, 0);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void getReturnsExposition() throws IOException {
+        // when
+        HttpURLConnection connection = open("GET");
+
+        // then
+        assertThat(connection.getResponseCode()).isEqualTo(200);
+        assertThat(connection.getContentType()).isEqualTo(MetricsRegistry.CONTENT_TYPE);
+        assertThat(read(connection.getInputStream())).endsWith("merges_total 5\n");
+    }
+
+    @Test
+    public void otherMethodsAreRejected() throws IOException {
+        // when
+        HttpURLConnection connection = open("POST");
+
+        // then
+        assertThat(connection.getResponseCode()).isEqualTo(405);
+    }
+
+    private HttpURLConnection open(String method) throws IOException {
+        URL url = new URL("http://127.0.0.1:" + server.getPort() + MetricsServer.PATH);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        return connection;
+    }
+
+    private static String read(InputStream inputStream) throws IOException {
+        try (InputStream in = inputStream) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+            return new String(bytes.toByteArray(), UTF_8);
+        }
+    }
+}
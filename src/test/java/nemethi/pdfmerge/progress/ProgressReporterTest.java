@@ -0,0 +1,118 @@
+package nemethi.pdfmerge.progress;
+
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Lists.list;
+
+public class ProgressReporterTest {
+
+    private static final List<Long> INPUT_SIZES = list(1L << 20, 1L << 20, 2L << 20);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final StringWriter out = new StringWriter();
+
+    @Test
+    public void jsonLineHasThroughputAndEta() {
+        // given
+        ProgressReporter reporter = reporter(ProgressFormat.JSON);
+        reporter.inputStarted(0);
+        reporter.inputMerged(0, 10);
+        reporter.inputStarted(1);
+        reporter.inputMerged(1, 30);
+        clock.set(TimeUnit.SECONDS.toNanos(2));
+
+        // when
+        reporter.report(false);
+
+        // then
+        assertThat(out.toString()).isEqualTo(String.format("{\"inputs\":2,\"totalInputs\":3,\"pages\":40,"
+                + "\"bytes\":2097152,\"totalBytes\":4194304,\"elapsedSeconds\":2.000,\"pagesPerSecond\":20.0,"
+                + "\"bytesPerSecond\":1048576,\"etaSeconds\":2,\"done\":false}%n"));
+    }
+
+    @Test
+    public void etaIsUnknownBeforeTheFirstInputIsMerged() {
+        // given
+        ProgressReporter reporter = reporter(ProgressFormat.JSON);
+        clock.set(TimeUnit.SECONDS.toNanos(1));
+
+        // when
+        reporter.report(false);
+
+        // then
+        assertThat(out.toString()).contains("\"inputs\":0,", "\"etaSeconds\":null,");
+    }
+
+    @Test
+    public void inputsSkippedOnResumeDoNotCountTowardsThroughput() {
+        // given
+        ProgressReporter reporter = reporter(ProgressFormat.JSON);
+        reporter.inputStarted(2);
+        clock.set(TimeUnit.SECONDS.toNanos(4));
+        reporter.inputMerged(2, 5);
+
+        // when
+        reporter.report(true);
+
+        // then
+        assertThat(out.toString()).contains("\"inputs\":3,", "\"bytesPerSecond\":524288,", "\"done\":true}");
+    }
+
+    @Test
+    public void textLineIsRewrittenInPlace() {
+        // given
+        ProgressReporter reporter = reporter(ProgressFormat.TEXT);
+        clock.set(TimeUnit.SECONDS.toNanos(1));
+        reporter.report(false);
+        reporter.inputStarted(0);
+        reporter.inputMerged(0, 4);
+        clock.set(TimeUnit.SECONDS.toNanos(2));
+
+        // when
+        reporter.report(false);
+        reporter.report(true);
+
+        // then
+        String first = "0/3 inputs, 0 pages, 0.0 pages/s, 0.0 MB/s, ETA --:--";
+        String second = "1/3 inputs, 4 pages, 2.0 pages/s, 0.5 MB/s, ETA 0:06";
+        // The shorter second line blanks out the end of the first one.
+        assertThat(out.toString()).isEqualTo("\r" + first + "\r" + second + " \r" + second
+                + System.lineSeparator());
+    }
+
+    @Test
+    public void finishCountsEveryInputAsDone() {
+        // given
+        ProgressReporter reporter = reporter(ProgressFormat.JSON);
+
+        // when
+        reporter.finish();
+
+        // then
+        assertThat(out.toString()).contains("\"inputs\":3,", "\"bytes\":4194304,", "\"done\":true}");
+    }
+
+    @Test
+    public void closeWithoutFinishEndsTheTextLine() {
+        // given
+        ProgressReporter reporter = reporter(ProgressFormat.TEXT);
+        reporter.report(false);
+
+        // when
+        reporter.close();
+
+        // then
+        assertThat(out.toString()).endsWith("ETA --:--" + System.lineSeparator());
+    }
+
+    private ProgressReporter reporter(ProgressFormat format) {
+        return new ProgressReporter(INPUT_SIZES, format, new PrintWriter(out), clock::get);
+    }
+}
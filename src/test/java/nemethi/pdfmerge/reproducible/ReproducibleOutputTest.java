@@ -0,0 +1,144 @@
+package nemethi.pdfmerge.reproducible;
+
+import nemethi.pdfmerge.volume.Segment;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDMetadata;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Lists.list;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReproducibleOutputTest {
+
+    private static final String XMP = "<x:xmpmeta xmlns:x=\"adobe:ns:meta/\"><rdf:RDF>"
+            + "<rdf:Description xmp:CreatorTool=\"scanner\" xmp:CreateDate=\"2021-03-01T10:00:00Z\">"
+            + "<xmp:ModifyDate>2021-03-02T10:00:00Z</xmp:ModifyDate>"
+            + "</rdf:Description></rdf:RDF></x:xmpmeta>";
+
+    private ReproducibleOutput reproducibleOutput;
+
+    @Before
+    public void setUp() {
+        reproducibleOutput = new ReproducibleOutput();
+    }
+
+    @Test
+    public void documentIdIsDerivedFromInputContent() throws IOException {
+        // given
+        reproducibleOutput.setDeterministic(true);
+
+        // when
+        COSArray id = documentId(Collections.emptyList(), "first", "second");
+        COSArray sameId = documentId(Collections.emptyList(), "first", "second");
+        COSArray otherId = documentId(Collections.emptyList(), "first", "changed");
+
+        // then
+        assertThat(id.size()).isEqualTo(2);
+        assertThat(id.get(0)).isEqualTo(id.get(1));
+        assertThat(id.get(0)).isEqualTo(sameId.get(0));
+        assertThat(id.get(0)).isNotEqualTo(otherId.get(0));
+    }
+
+    @Test
+    public void volumesOfSameInputGetDifferentIds() throws IOException {
+        // given
+        reproducibleOutput.setDeterministic(true);
+        Segment firstHalf = segment(0, 2);
+        Segment secondHalf = segment(2, 2);
+
+        // when
+        COSArray firstId = documentId(list(firstHalf), "input");
+        COSArray secondId = documentId(list(secondHalf), "input");
+
+        // then
+        assertThat(firstId.get(0)).isNotEqualTo(secondId.get(0));
+    }
+
+    @Test
+    public void inputsAreNotTrackedUnlessDeterministic() throws IOException {
+        // given
+        InputStream inputStream = stream("first");
+        reproducibleOutput.setDroppingTimestamps(true);
+
+        // when
+        TrackedInputs inputs = reproducibleOutput.track();
+        InputStream tracked = inputs.add(inputStream);
+        try (PDDocument destination = new PDDocument()) {
+            reproducibleOutput.apply(destination, inputs, Collections.emptyList());
+
+            // then
+            assertThat(tracked).isSameAs(inputStream);
+            assertThat(destination.getDocument().getTrailer().getItem(COSName.ID)).isNull();
+        }
+    }
+
+    @Test
+    public void applyDropsTimestamps() throws IOException {
+        // given
+        reproducibleOutput.setDroppingTimestamps(true);
+        try (PDDocument destination = new PDDocument()) {
+            PDPage page = new PDPage();
+            page.getCOSObject().setDate(COSName.LAST_MODIFIED, Calendar.getInstance());
+            destination.addPage(page);
+            PDDocumentInformation info = destination.getDocumentInformation();
+            info.setTitle("Report");
+            info.setCreationDate(Calendar.getInstance());
+            info.setModificationDate(Calendar.getInstance());
+            PDMetadata metadata = new PDMetadata(destination);
+            metadata.importXMPMetadata(XMP.getBytes(UTF_8));
+            destination.getDocumentCatalog().setMetadata(metadata);
+
+            // when
+            reproducibleOutput.apply(destination, reproducibleOutput.track(), Collections.emptyList());
+
+            // then
+            assertThat(info.getTitle()).isEqualTo("Report");
+            assertThat(info.getCreationDate()).isNull();
+            assertThat(info.getModificationDate()).isNull();
+            assertThat(page.getCOSObject().containsKey(COSName.LAST_MODIFIED)).isFalse();
+            try (InputStream xmp = destination.getDocumentCatalog().getMetadata().exportXMPMetadata()) {
+                assertThat(new String(IOUtils.toByteArray(xmp), UTF_8))
+                        .contains("xmp:CreatorTool=\"scanner\"")
+                        .doesNotContain("CreateDate", "ModifyDate");
+            }
+        }
+    }
+
+    private COSArray documentId(List<Segment> segments, String... contents) throws IOException {
+        TrackedInputs inputs = reproducibleOutput.track();
+        for (String content : contents) {
+            IOUtils.toByteArray(inputs.add(stream(content)));
+        }
+        try (PDDocument destination = new PDDocument()) {
+            reproducibleOutput.apply(destination, inputs, segments);
+            return (COSArray) destination.getDocument().getTrailer().getDictionaryObject(COSName.ID);
+        }
+    }
+
+    private static Segment segment(int firstPage, int pageCount) {
+        Segment segment = mock(Segment.class);
+        when(segment.getFirstPage()).thenReturn(firstPage);
+        when(segment.getPageCount()).thenReturn(pageCount);
+        return segment;
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(UTF_8));
+    }
+}
@@ -0,0 +1,136 @@
+package nemethi.pdfmerge.scratch;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static nemethi.pdfmerge.scratch.OffHeapScratch.PAGE_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class OffHeapBufferTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private OffHeapScratch pool;
+    private OffHeapBuffer buffer;
+
+    @Before
+    public void setUp() throws IOException {
+        pool = new OffHeapScratch(2 * PAGE_SIZE);
+        buffer = new OffHeapBuffer(pool, new OffHeapScratchFile(pool, MemoryUsageSetting.setupMainMemoryOnly()));
+    }
+
+    @Test
+    public void readsBackWritesSpanningPages() throws IOException {
+        // given
+        byte[] data = bytes(PAGE_SIZE + 100);
+        buffer.write(data, 0, data.length);
+        buffer.write(42);
+
+        // when
+        buffer.seek(0);
+        byte[] read = buffer.readFully(data.length);
+
+        // then
+        assertThat(read).isEqualTo(data);
+        assertThat(buffer.read()).isEqualTo(42);
+        assertThat(buffer.read()).isEqualTo(-1);
+        assertThat(buffer.length()).isEqualTo(PAGE_SIZE + 101);
+        assertThat(pool.getUsedBytes()).isEqualTo(2 * PAGE_SIZE);
+    }
+
+    @Test
+    public void peekAndRewindDoNotConsume() throws IOException {
+        // given
+        buffer.write(new byte[]{1, 2, 3});
+        buffer.seek(1);
+
+        // when
+        int peeked = buffer.peek();
+        int read = buffer.read();
+        buffer.rewind(2);
+
+        // then
+        assertThat(peeked).isEqualTo(2);
+        assertThat(read).isEqualTo(2);
+        assertThat(buffer.getPosition()).isZero();
+        assertThat(buffer.available()).isEqualTo(3);
+    }
+
+    @Test
+    public void continuesInOverflowScratchFileWhenPoolRunsDry() throws IOException {
+        // given
+        File tempDir = temp.newFolder();
+        OffHeapScratchFile scratchFile = new OffHeapScratchFile(pool,
+                MemoryUsageSetting.setupTempFileOnly().setTempDir(tempDir));
+        OffHeapBuffer spilling = new OffHeapBuffer(pool, scratchFile);
+        byte[] data = bytes(64 * PAGE_SIZE);
+
+        // when
+        spilling.write(data);
+        spilling.seek(PAGE_SIZE - 1);
+        byte[] acrossSpill = spilling.readFully(PAGE_SIZE + 2);
+        spilling.seek(0);
+        byte[] read = spilling.readFully(data.length);
+
+        // then
+        assertThat(read).isEqualTo(data);
+        assertThat(acrossSpill).isEqualTo(Arrays.copyOfRange(data, PAGE_SIZE - 1, 2 * PAGE_SIZE + 1));
+        assertThat(spilling.length()).isEqualTo(data.length);
+        assertThat(pool.getUsedBytes()).isEqualTo(2 * PAGE_SIZE);
+        assertThat(tempDir.listFiles()).isNotEmpty();
+        spilling.close();
+        scratchFile.close();
+        assertThat(pool.getUsedBytes()).isZero();
+    }
+
+    @Test
+    public void clearAndCloseReturnPagesToPool() throws IOException {
+        // given
+        buffer.write(bytes(PAGE_SIZE + 1));
+
+        // when
+        buffer.clear();
+        long usedAfterClear = pool.getUsedBytes();
+        buffer.write(1);
+        buffer.close();
+
+        // then
+        assertThat(usedAfterClear).isZero();
+        assertThat(pool.getUsedBytes()).isZero();
+        assertThat(buffer.isClosed()).isTrue();
+        assertThat(catchThrowable(() -> buffer.read())).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void throwsExceptionWhenReadingOrSeekingPastEnd() throws IOException {
+        // given
+        buffer.write(new byte[]{1, 2});
+
+        // when
+        Throwable seekPastEnd = catchThrowable(() -> buffer.seek(3));
+        buffer.seek(0);
+        Throwable readPastEnd = catchThrowable(() -> buffer.readFully(3));
+
+        // then
+        assertThat(seekPastEnd).isInstanceOf(EOFException.class);
+        assertThat(readPastEnd).isInstanceOf(EOFException.class);
+    }
+
+    private static byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,119 @@
+package nemethi.pdfmerge.scratch;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccess;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static nemethi.pdfmerge.scratch.OffHeapScratch.PAGE_SIZE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class OffHeapScratchTest {
+
+    @Test
+    public void allocatesDirectPagesUpToCapacity() {
+        // given
+        OffHeapScratch scratch = new OffHeapScratch(2 * PAGE_SIZE);
+
+        // when
+        ByteBuffer first = scratch.acquire();
+        ByteBuffer second = scratch.acquire();
+        ByteBuffer third = scratch.acquire();
+
+        // then
+        assertThat(first.isDirect()).isTrue();
+        assertThat(first.capacity()).isEqualTo(PAGE_SIZE);
+        assertThat(second.isDirect()).isTrue();
+        assertThat(third).isNull();
+        assertThat(scratch.getAllocatedBytes()).isEqualTo(2 * PAGE_SIZE);
+        assertThat(scratch.getUsedBytes()).isEqualTo(2 * PAGE_SIZE);
+        assertThat(scratch.hasHeadroom()).isFalse();
+    }
+
+    @Test
+    public void reusesReleasedPages() {
+        // given
+        OffHeapScratch scratch = new OffHeapScratch(PAGE_SIZE);
+        ByteBuffer page = scratch.acquire();
+
+        // when
+        scratch.release(page);
+        ByteBuffer reused = scratch.acquire();
+
+        // then
+        assertThat(reused).isSameAs(page);
+        assertThat(scratch.getAllocatedBytes()).isEqualTo(PAGE_SIZE);
+    }
+
+    @Test
+    public void throwsExceptionIfCapacityIsSmallerThanPage() {
+        // when
+        Throwable thrown = catchThrowable(() -> new OffHeapScratch(PAGE_SIZE - 1));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("The capacity must be at least 4096 bytes.");
+    }
+
+    @Test
+    public void scratchFileFallsBackToOverflowWhenPoolIsExhausted() throws IOException {
+        // given
+        OffHeapScratch scratch = new OffHeapScratch(PAGE_SIZE);
+        try (ScratchFile scratchFile = scratch.createScratchFile(MemoryUsageSetting.setupMainMemoryOnly())) {
+            RandomAccess offHeap = scratchFile.createBuffer();
+            offHeap.write(1);
+
+            // when
+            RandomAccess overflow = scratchFile.createBuffer();
+
+            // then
+            assertThat(offHeap).isInstanceOf(OffHeapBuffer.class);
+            assertThat(overflow).isNotInstanceOf(OffHeapBuffer.class);
+        }
+    }
+
+    @Test
+    public void closingScratchFileReturnsPagesOfOpenBuffers() throws IOException {
+        // given
+        OffHeapScratch scratch = new OffHeapScratch(1 << 20);
+        ScratchFile scratchFile = scratch.createScratchFile(MemoryUsageSetting.setupMainMemoryOnly());
+        RandomAccess buffer = scratchFile.createBuffer(new ByteArrayInputStream(new byte[3 * PAGE_SIZE]));
+
+        // when
+        scratchFile.close();
+
+        // then
+        assertThat(buffer.isClosed()).isTrue();
+        assertThat(scratch.getUsedBytes()).isZero();
+    }
+
+    @Test
+    public void documentsRoundTripThroughOffHeapScratch() throws IOException {
+        // given
+        OffHeapScratch scratch = new OffHeapScratch(1 << 20);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // when
+        try (PDDocument document = scratch.createDocument(MemoryUsageSetting.setupMainMemoryOnly())) {
+            document.addPage(new PDPage());
+            document.addPage(new PDPage());
+            document.save(output);
+        }
+
+        // then
+        try (PDDocument document = PDDocument.load(output.toByteArray())) {
+            assertThat(document.getNumberOfPages()).isEqualTo(2);
+            assertThat(document.getVersion()).isEqualTo(1.4f);
+        }
+        assertThat(scratch.getUsedBytes()).isZero();
+    }
+}
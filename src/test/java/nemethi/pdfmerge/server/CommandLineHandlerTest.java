@@ -0,0 +1,52 @@
+package nemethi.pdfmerge.server;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CommandLineHandlerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final CommandLineHandler handler = new CommandLineHandler();
+
+    @Test
+    public void relativePathsAreResolvedAgainstTheWorkingDirectory() throws Exception {
+        // given
+        Path workingDirectory = temp.getRoot().toPath();
+        Files.createDirectory(workingDirectory.resolve("folder"));
+        StringWriter err = new StringWriter();
+
+        // when
+        int exitCode = handler.handle(workingDirectory, new String[]{"-o", "folder", "missing.pdf"}, false,
+                new PrintWriter(new StringWriter()), new PrintWriter(err));
+
+        // then
+        assertThat(exitCode).isEqualTo(2);
+        assertThat(err.toString()).startsWith("pdfmerge: Invalid path: OUTFILE must point to a file.");
+    }
+
+    @Test
+    public void errorMessagesShowPathsAsGiven() {
+        // given
+        Path workingDirectory = temp.getRoot().toPath();
+        StringWriter err = new StringWriter();
+
+        // when
+        int exitCode = handler.handle(workingDirectory, new String[]{"-o", "out.pdf", "missing.pdf"}, false,
+                new PrintWriter(new StringWriter()), new PrintWriter(err));
+
+        // then
+        assertThat(exitCode).isEqualTo(2);
+        assertThat(err.toString()).startsWith("pdfmerge: Invalid path: missing.pdf does not exist.")
+                .doesNotContain(workingDirectory.toString());
+    }
+}
@@ -0,0 +1,241 @@
+package nemethi.pdfmerge.server;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.junit.Assume.assumeTrue;
+
+public class MergeServerTest {
+
+    private static final Duration IDLE_TIMEOUT = Duration.ofMinutes(1);
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private MergeServer server;
+    private CompletableFuture<Void> serving;
+
+    @After
+    public void tearDown() throws Exception {
+        if (server != null) {
+            server.close();
+            serving.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void forwardPassesTheCommandLineAndReturnsTheOutputAndExitCode() throws Exception {
+        // given
+        AtomicReference<Path> workingDirectory = new AtomicReference<>();
+        AtomicReference<String[]> args = new AtomicReference<>();
+        Path endpoint = start((directory, arguments, isColored, out, err) -> {
+            workingDirectory.set(directory);
+            args.set(arguments);
+            out.print("merged");
+            err.print("warned");
+            return 3;
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+        // when
+        Integer exitCode = new MergeClient(endpoint).forward(Paths.get("/work"), new String[]{"-o", "out.pdf", "a.pdf"},
+                out, err);
+
+        // then
+        assertThat(exitCode).isEqualTo(3);
+        assertThat(workingDirectory.get()).isEqualTo(Paths.get("/work"));
+        assertThat(args.get()).containsExactly("-o", "out.pdf", "a.pdf");
+        assertThat(new String(out.toByteArray(), US_ASCII)).isEqualTo("merged");
+        assertThat(new String(err.toByteArray(), US_ASCII)).isEqualTo("warned");
+    }
+
+    @Test
+    public void forwardReturnsNullWithoutServer() throws IOException {
+        // given
+        MergeClient client = new MergeClient(temp.getRoot().toPath().resolve("missing").resolve("server"));
+
+        // when
+        Integer exitCode = client.forward(Paths.get("/work"), new String[0], null, null);
+
+        // then
+        assertThat(exitCode).isNull();
+    }
+
+    @Test
+    public void forwardReturnsNullIfTheTokenDoesNotMatch() throws Exception {
+        // given
+        Path endpoint = start((directory, arguments, isColored, out, err) -> 0);
+        List<String> lines = Files.readAllLines(endpoint, US_ASCII);
+        Files.write(endpoint, Arrays.asList(lines.get(0), lines.get(1), "forged"), US_ASCII);
+
+        // when
+        Integer exitCode = new MergeClient(endpoint).forward(Paths.get("/work"), new String[0], null, null);
+
+        // then
+        assertThat(exitCode).isNull();
+    }
+
+    @Test
+    public void endpointRecordsTheTransport() throws Exception {
+        // when
+        Path endpoint = start((directory, arguments, isColored, out, err) -> 0);
+
+        // then
+        assertThat(Files.readAllLines(endpoint, US_ASCII)).first().isEqualTo(ServerSockets.transport());
+    }
+
+    @Test
+    public void forwardFailsOnAnUnknownTransport() throws IOException {
+        // given
+        Path endpoint = privateEndpoint();
+        Files.write(endpoint, Arrays.asList("pipe", "server.pipe"), US_ASCII);
+
+        // when
+        Throwable thrown = catchThrowable(() -> new MergeClient(endpoint).forward(Paths.get("/work"), new String[0],
+                null, null));
+
+        // then
+        assertThat(thrown).isInstanceOf(TransportMismatchException.class).hasMessageContaining("'pipe'");
+    }
+
+    @Test
+    public void forwardFailsOnAUnixDomainSocketWithoutSupportForIt() throws IOException {
+        // given
+        assumeTrue(Endpoints.TCP.equals(ServerSockets.transport()));
+        Path endpoint = privateEndpoint();
+        Files.write(endpoint, Collections.singletonList(Endpoints.UNIX), US_ASCII);
+
+        // when
+        Throwable thrown = catchThrowable(() -> new MergeClient(endpoint).stop());
+
+        // then
+        assertThat(thrown).isInstanceOf(TransportMismatchException.class).hasMessageContaining("Java 16");
+    }
+
+    @Test
+    public void bindRefusesADirectoryOthersCanAccess() throws IOException {
+        // given
+        Path endpoint = sharedEndpoint();
+        server = new MergeServer(endpoint, IDLE_TIMEOUT, (directory, arguments, isColored, out, err) -> 0);
+
+        // when
+        Throwable thrown = catchThrowable(server::bind);
+
+        // then
+        assertThat(thrown).isInstanceOf(AccessDeniedException.class).hasMessageContaining("chmod 700");
+        assertThat(endpoint).doesNotExist();
+        server = null;
+    }
+
+    @Test
+    public void forwardRefusesADirectoryOthersCanAccess() throws IOException {
+        // given
+        Path endpoint = sharedEndpoint();
+        Files.write(endpoint, Arrays.asList(Endpoints.TCP, "1", "token"), US_ASCII);
+
+        // when
+        Throwable thrown = catchThrowable(() -> new MergeClient(endpoint).forward(Paths.get("/work"), new String[0],
+                null, null));
+
+        // then
+        assertThat(thrown).isInstanceOf(AccessDeniedException.class);
+    }
+
+    @Test
+    public void bindReturnsFalseWhileAnotherServerRuns() throws Exception {
+        // given
+        Path endpoint = start((directory, arguments, isColored, out, err) -> 0);
+
+        // when
+        boolean isBound = new MergeServer(endpoint, IDLE_TIMEOUT, (directory, arguments, isColored, out, err) -> 0)
+                .bind();
+
+        // then
+        assertThat(isBound).isFalse();
+        assertThat(new MergeClient(endpoint).startServer()).isFalse();
+    }
+
+    @Test
+    public void stopEndsServingAndRemovesTheEndpoint() throws Exception {
+        // given
+        Path endpoint = start((directory, arguments, isColored, out, err) -> 0);
+
+        // when
+        boolean isStopped = new MergeClient(endpoint).stop();
+
+        // then
+        assertThat(isStopped).isTrue();
+        serving.get(10, TimeUnit.SECONDS);
+        assertThat(endpoint).doesNotExist();
+        assertThat(new MergeClient(endpoint).stop()).isFalse();
+    }
+
+    @Test
+    public void serveReturnsOnceIdleForTheIdleTimeout() throws Exception {
+        // given
+        Path endpoint = temp.getRoot().toPath().resolve("idle").resolve("server");
+        server = new MergeServer(endpoint, Duration.ofMillis(100), (directory, arguments, isColored, out, err) -> 0);
+        assertThat(server.bind()).isTrue();
+
+        // when
+        server.serve();
+
+        // then
+        assertThat(endpoint).doesNotExist();
+        try (FileChannel lock = FileChannel.open(Endpoints.lockFileOf(endpoint), WRITE)) {
+            assertThat(MergeServer.tryLock(lock)).isTrue();
+        }
+        server = null;
+    }
+
+    private Path privateEndpoint() throws IOException {
+        Path endpoint = temp.getRoot().toPath().resolve("private").resolve("server");
+        Endpoints.createPrivateDirectory(endpoint);
+        return endpoint;
+    }
+
+    private Path sharedEndpoint() throws IOException {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        Path directory = temp.newFolder("shared").toPath();
+        Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return directory.resolve("server");
+    }
+
+    private Path start(RequestHandler handler) throws IOException {
+        Path endpoint = temp.getRoot().toPath().resolve("endpoint").resolve("server");
+        server = new MergeServer(endpoint, IDLE_TIMEOUT, handler);
+        assertThat(server.bind()).isTrue();
+        serving = CompletableFuture.runAsync(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        return endpoint;
+    }
+}
@@ -0,0 +1,54 @@
+package nemethi.pdfmerge.streaming;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ChannelOutputStreamTest {
+
+    private static final byte[] CONTENT = "%PDF-1.4".getBytes(US_ASCII);
+
+    @Test
+    public void writesAllBytesAndLeavesChannelOpen() throws IOException {
+        // given
+        Pipe pipe = Pipe.open();
+
+        // when
+        try (OutputStream outputStream = new ChannelOutputStream(pipe.sink())) {
+            outputStream.write(CONTENT);
+        }
+
+        // then
+        assertThat(pipe.sink().isOpen()).isTrue();
+        ByteBuffer read = ByteBuffer.allocate(CONTENT.length);
+        while (read.hasRemaining()) {
+            pipe.source().read(read);
+        }
+        assertThat(read.array()).isEqualTo(CONTENT);
+        pipe.sink().close();
+        pipe.source().close();
+    }
+
+    @Test
+    public void rejectsNonBlockingChannel() throws IOException {
+        // given
+        Pipe pipe = Pipe.open();
+        pipe.sink().configureBlocking(false);
+
+        // when
+        Throwable thrown = catchThrowable(() -> new ChannelOutputStream(pipe.sink()));
+
+        // then
+        assertThat(thrown).isInstanceOf(IllegalBlockingModeException.class);
+        pipe.sink().close();
+        pipe.source().close();
+    }
+}
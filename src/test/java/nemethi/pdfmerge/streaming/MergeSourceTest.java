@@ -0,0 +1,74 @@
+package nemethi.pdfmerge.streaming;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MergeSourceTest {
+
+    private static final byte[] CONTENT = "%PDF-1.4".getBytes(US_ASCII);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void pathSourceReadsTheFile() throws IOException {
+        // given
+        Path path = folder.newFile("input.pdf").toPath();
+        Files.write(path, CONTENT);
+
+        // when
+        byte[] read = read(MergeSource.of(path));
+
+        // then
+        assertThat(read).isEqualTo(CONTENT);
+    }
+
+    @Test
+    public void channelSourceClosesTheChannelWithTheStream() throws IOException {
+        // given
+        ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(CONTENT));
+
+        // when
+        byte[] read = read(MergeSource.of(channel));
+
+        // then
+        assertThat(read).isEqualTo(CONTENT);
+        assertThat(channel.isOpen()).isFalse();
+    }
+
+    @Test
+    public void bufferSourceCanBeReadAgain() throws IOException {
+        // given
+        ByteBuffer buffer = ByteBuffer.wrap(CONTENT);
+        MergeSource source = MergeSource.of(buffer);
+
+        // when
+        byte[] first = read(source);
+        byte[] second = read(source);
+
+        // then
+        assertThat(first).isEqualTo(CONTENT);
+        assertThat(second).isEqualTo(CONTENT);
+        assertThat(buffer.position()).isZero();
+    }
+
+    private static byte[] read(MergeSource source) throws IOException {
+        try (InputStream inputStream = source.open()) {
+            return IOUtils.toByteArray(inputStream);
+        }
+    }
+}
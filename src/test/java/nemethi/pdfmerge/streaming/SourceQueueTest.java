@@ -0,0 +1,126 @@
+package nemethi.pdfmerge.streaming;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.mockito.Mockito.mock;
+
+public class SourceQueueTest {
+
+    private final SourceQueue queue = new SourceQueue(1);
+
+    @Test
+    public void sourcesAreTakenInOrderUntilClosed() throws InterruptedException {
+        // given
+        SourceQueue queue = new SourceQueue(2);
+        MergeSource first = mock(MergeSource.class);
+        MergeSource second = mock(MergeSource.class);
+        queue.put(first);
+        queue.put(second);
+        queue.close();
+
+        // when
+        Throwable thrown = catchThrowable(() -> {
+            assertThat(queue.next()).isSameAs(first);
+            assertThat(queue.next()).isSameAs(second);
+            assertThat(queue.hasNext()).isFalse();
+            queue.next();
+        });
+
+        // then
+        assertThat(thrown).isInstanceOf(NoSuchElementException.class);
+    }
+
+    @Test
+    public void producerWaitsUntilTheMergeTakesASource() throws InterruptedException {
+        // given
+        queue.put(mock(MergeSource.class));
+        AtomicBoolean added = new AtomicBoolean();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            started.countDown();
+            try {
+                queue.put(mock(MergeSource.class));
+                added.set(true);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        started.await();
+
+        // when
+        producer.join(200);
+        boolean addedBeforeTake = added.get();
+        queue.next();
+        producer.join(5000);
+
+        // then
+        assertThat(addedBeforeTake).isFalse();
+        assertThat(added).isTrue();
+    }
+
+    @Test
+    public void offerGivesUpWhenTheQueueStaysFull() throws InterruptedException {
+        // given
+        queue.put(mock(MergeSource.class));
+
+        // when
+        boolean offered = queue.offer(mock(MergeSource.class), 10, TimeUnit.MILLISECONDS);
+
+        // then
+        assertThat(offered).isFalse();
+    }
+
+    @Test
+    public void failureIsThrownAfterTheQueuedSources() throws InterruptedException {
+        // given
+        IOException failure = new IOException("listing failed");
+        queue.put(mock(MergeSource.class));
+        queue.fail(failure);
+
+        // when
+        boolean hasQueuedSource = queue.hasNext();
+        queue.next();
+        Throwable thrown = catchThrowable(queue::hasNext);
+
+        // then
+        assertThat(hasQueuedSource).isTrue();
+        assertThat(thrown).isInstanceOf(UncheckedIOException.class).hasCause(failure);
+    }
+
+    @Test
+    public void interruptedWaitIsThrownAsIoFailure() {
+        // given
+        Thread.currentThread().interrupt();
+
+        // when
+        Throwable thrown = catchThrowable(queue::hasNext);
+
+        // then
+        assertThat(Thread.interrupted()).isTrue();
+        assertThat(thrown).isInstanceOf(UncheckedIOException.class)
+                .hasCauseInstanceOf(InterruptedIOException.class);
+    }
+
+    @Test
+    public void puttingAfterCloseFails() {
+        // given
+        queue.close();
+
+        // when
+        Throwable thrown = catchThrowable(() -> queue.put(mock(MergeSource.class)));
+
+        // then
+        assertThat(thrown).isInstanceOf(IllegalStateException.class).hasMessage("The queue is closed.");
+    }
+}
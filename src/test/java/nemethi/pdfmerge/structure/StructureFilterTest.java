@@ -0,0 +1,115 @@
+package nemethi.pdfmerge.structure;
+
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentCatalog;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PageMode;
+import org.apache.pdfbox.pdmodel.common.PDMetadata;
+import org.apache.pdfbox.pdmodel.common.PDPageLabels;
+import org.apache.pdfbox.pdmodel.documentinterchange.logicalstructure.PDMarkInfo;
+import org.apache.pdfbox.pdmodel.documentinterchange.logicalstructure.PDStructureTreeRoot;
+import org.apache.pdfbox.pdmodel.interactive.documentnavigation.outline.PDDocumentOutline;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.EnumSet;
+
+import static nemethi.pdfmerge.structure.DocumentStructure.FORMS;
+import static nemethi.pdfmerge.structure.DocumentStructure.OUTLINES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StructureFilterTest {
+
+    private static final String TITLE = "title";
+
+    private StructureFilter filter;
+    private PDDocument document;
+    private PDDocumentCatalog catalog;
+    private PDPage page;
+
+    @Before
+    public void setUp() throws IOException {
+        filter = new StructureFilter();
+        document = new PDDocument();
+        page = new PDPage();
+        document.addPage(page);
+        catalog = document.getDocumentCatalog();
+        catalog.setDocumentOutline(new PDDocumentOutline());
+        catalog.setPageMode(PageMode.USE_OUTLINES);
+        catalog.setAcroForm(new PDAcroForm(document));
+        catalog.setStructureTreeRoot(new PDStructureTreeRoot());
+        catalog.setMarkInfo(new PDMarkInfo());
+        catalog.setLanguage("en");
+        catalog.setPageLabels(new PDPageLabels(document));
+        catalog.setMetadata(new PDMetadata(document, new ByteArrayInputStream(new byte[0])));
+        catalog.getCOSObject().setItem(COSName.DESTS, new COSDictionary());
+        catalog.getCOSObject().setItem(COSName.OPEN_ACTION, new COSDictionary());
+        document.getDocumentInformation().setTitle(TITLE);
+        page.setStructParents(0);
+        page.getCOSObject().setItem(COSName.THUMB, new COSDictionary());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        document.close();
+    }
+
+    @Test
+    public void isDisabledByDefault() {
+        assertThat(filter.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void stripsDocumentLevelStructures() {
+        // when
+        filter.strip(document);
+
+        // then
+        COSDictionary catalogDictionary = catalog.getCOSObject();
+        assertThat(catalogDictionary.keySet()).containsOnly(COSName.TYPE, COSName.VERSION, COSName.PAGES);
+        assertThat(document.getDocumentInformation().getTitle()).isNull();
+        assertThat(page.getCOSObject().containsKey(COSName.STRUCT_PARENTS)).isFalse();
+        assertThat(page.getCOSObject().containsKey(COSName.THUMB)).isFalse();
+        assertThat(document.getNumberOfPages()).isEqualTo(1);
+    }
+
+    @Test
+    public void keepsRequestedStructures() throws IOException {
+        // given
+        filter.setKeptStructures(EnumSet.of(OUTLINES, FORMS));
+
+        // when
+        filter.strip(document);
+
+        // then
+        assertThat(catalog.getDocumentOutline()).isNotNull();
+        assertThat(catalog.getPageMode()).isEqualTo(PageMode.USE_OUTLINES);
+        assertThat(catalog.getAcroForm()).isNotNull();
+        assertThat(catalog.getStructureTreeRoot()).isNull();
+        assertThat(catalog.getPageLabels()).isNull();
+        assertThat(catalog.getCOSObject().containsKey(COSName.OPEN_ACTION)).isFalse();
+    }
+
+    @Test
+    public void keepsMetadataAndTags() {
+        // given
+        filter.setKeptStructures(EnumSet.of(DocumentStructure.METADATA, DocumentStructure.TAGS));
+
+        // when
+        filter.strip(document);
+
+        // then
+        assertThat(catalog.getMetadata()).isNotNull();
+        assertThat(document.getDocumentInformation().getTitle()).isEqualTo(TITLE);
+        assertThat(catalog.getStructureTreeRoot()).isNotNull();
+        assertThat(catalog.getMarkInfo()).isNotNull();
+        assertThat(page.getStructParents()).isZero();
+        assertThat(catalog.getDocumentOutline()).isNull();
+    }
+}
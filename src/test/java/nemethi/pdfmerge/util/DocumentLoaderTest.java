@@ -0,0 +1,175 @@
+package nemethi.pdfmerge.util;
+
+import nemethi.pdfmerge.archive.RandomAccessSource;
+import nemethi.pdfmerge.cancel.Cancellation;
+import nemethi.pdfmerge.cancel.MergeCancelledException;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessBuffer;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.ScratchFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class DocumentLoaderTest {
+
+    private DocumentLoader loader;
+
+    @Before
+    public void setUp() {
+        loader = new DocumentLoader();
+    }
+
+    @Test
+    public void loadsDocumentFromStream() throws IOException {
+        // given
+        InputStream inputStream = new ByteArrayInputStream(createPdf());
+
+        // when
+        try (PDDocument document = loader.load(inputStream, MemoryUsageSetting.setupMainMemoryOnly())) {
+            // then
+            assertThat(document.getNumberOfPages()).isOne();
+        }
+    }
+
+    @Test
+    public void loadsRandomAccessSourceInPlace() throws IOException {
+        // given
+        byte[] pdf = createPdf();
+        InputStream inputStream = new InPlaceSource(pdf);
+
+        // when
+        try (PDDocument document = loader.load(inputStream, MemoryUsageSetting.setupMainMemoryOnly())) {
+            // then
+            assertThat(document.getNumberOfPages()).isOne();
+        }
+    }
+
+    @Test
+    public void throwsExceptionOnInvalidStream() {
+        // given
+        InputStream inputStream = new ByteArrayInputStream(new byte[0]);
+
+        // when
+        Throwable thrown = catchThrowable(() -> loader.load(inputStream, MemoryUsageSetting.setupMainMemoryOnly()));
+
+        // then
+        assertThat(thrown).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void loadsDocumentWithCancellation() throws IOException {
+        // given
+        InputStream inputStream = new ByteArrayInputStream(createPdf());
+
+        // when
+        try (PDDocument document = loader.load(inputStream, MemoryUsageSetting.setupMainMemoryOnly(),
+                new Cancellation())) {
+            // then
+            assertThat(document.getNumberOfPages()).isOne();
+        }
+    }
+
+    @Test
+    public void cancelledLoadThrowsException() throws IOException {
+        // given
+        InputStream inputStream = new ByteArrayInputStream(createPdf());
+        Cancellation cancellation = new Cancellation();
+        cancellation.cancel();
+
+        // when
+        Throwable thrown = catchThrowable(() -> loader.load(inputStream, MemoryUsageSetting.setupMainMemoryOnly(),
+                cancellation));
+
+        // then
+        assertThat(thrown).isInstanceOf(MergeCancelledException.class);
+    }
+
+    @Test
+    public void loadsDocumentIntoGivenScratchFile() throws IOException {
+        // given
+        InputStream inputStream = new ByteArrayInputStream(createPdf());
+        ScratchFile scratchFile = new ScratchFile(MemoryUsageSetting.setupMainMemoryOnly());
+
+        // when
+        try (PDDocument document = loader.load(inputStream, scratchFile, null)) {
+            // then
+            assertThat(document.getNumberOfPages()).isOne();
+        }
+    }
+
+    @Test
+    public void parsesOnGivenExecutor() throws IOException {
+        // given
+        InputStream inputStream = new ByteArrayInputStream(createPdf());
+        ScratchFile scratchFile = new ScratchFile(MemoryUsageSetting.setupMainMemoryOnly());
+        List<Thread> parsers = new ArrayList<>();
+        Executor executor = task -> {
+            Thread parser = new Thread(task);
+            parsers.add(parser);
+            parser.start();
+        };
+
+        // when
+        try (PDDocument document = loader.load(inputStream, scratchFile, null, executor)) {
+            // then
+            assertThat(document.getNumberOfPages()).isOne();
+            assertThat(parsers).hasSize(1);
+        }
+    }
+
+    @Test
+    public void parseFailureOnExecutorIsRethrown() throws IOException {
+        // given
+        InputStream inputStream = new ByteArrayInputStream("%PDF-1.4 garbage".getBytes(StandardCharsets.US_ASCII));
+        ScratchFile scratchFile = new ScratchFile(MemoryUsageSetting.setupMainMemoryOnly());
+
+        // when
+        Throwable thrown = catchThrowable(() -> loader.load(inputStream, scratchFile, null, Runnable::run));
+
+        // then
+        assertThat(thrown).isInstanceOf(IOException.class);
+    }
+
+    private byte[] createPdf() throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            document.save(outputStream);
+            return outputStream.toByteArray();
+        }
+    }
+
+    // Parsed through its RandomAccessRead only; reading it as a stream fails.
+    private static final class InPlaceSource extends InputStream implements RandomAccessSource {
+
+        private final byte[] content;
+
+        private InPlaceSource(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public int read() throws IOException {
+            throw new IOException("Read as a stream.");
+        }
+
+        @Override
+        public RandomAccessRead openRandomAccess() {
+            return new RandomAccessBuffer(content);
+        }
+    }
+}
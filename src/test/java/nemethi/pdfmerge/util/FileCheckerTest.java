@@ -6,6 +6,7 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
@@ -75,4 +76,14 @@ public class FileCheckerTest {
         // when + then
         assertThat(fileChecker.isDirectory(existingPath)).isTrue();
     }
+
+    @Test
+    public void sizeReturnsFileSize() throws IOException {
+        // given
+        Path file = temp.newFile().toPath();
+        Files.write(file, new byte[]{1, 2, 3});
+
+        // when + then
+        assertThat(fileChecker.size(file)).isEqualTo(3);
+    }
 }
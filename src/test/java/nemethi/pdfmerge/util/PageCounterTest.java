@@ -0,0 +1,82 @@
+package nemethi.pdfmerge.util;
+
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PageCounterTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private final PageCounter pageCounter = new PageCounter();
+
+    @Test
+    public void countReadsThePageTree() throws IOException {
+        // given
+        Path pdf = createPdf(temp.getRoot().toPath().resolve("three.pdf"), 3);
+
+        // when
+        int pages = pageCounter.count(pdf, MemoryUsageSetting.setupMainMemoryOnly(), null);
+
+        // then
+        assertThat(pages).isEqualTo(3);
+    }
+
+    @Test
+    public void countReadsArchiveEntries() throws IOException {
+        // given
+        Path pdf = createPdf(temp.getRoot().toPath().resolve("two.pdf"), 2);
+        Path archive = temp.getRoot().toPath().resolve("inputs.zip");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive))) {
+            zip.putNextEntry(new ZipEntry("two.pdf"));
+            Files.copy(pdf, zip);
+            zip.closeEntry();
+        }
+
+        // when
+        int pages = pageCounter.count(archive.resolveSibling("inputs.zip!/two.pdf"),
+                MemoryUsageSetting.setupMainMemoryOnly(), null);
+
+        // then
+        assertThat(pages).isEqualTo(2);
+    }
+
+    @Test
+    public void countReturnsMinusOneForFilesThatAreNoPdf() throws IOException {
+        // given
+        Path file = temp.getRoot().toPath().resolve("text.pdf");
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            outputStream.write("not a PDF".getBytes(US_ASCII));
+        }
+
+        // when
+        int pages = pageCounter.count(file, MemoryUsageSetting.setupMainMemoryOnly(), null);
+
+        // then
+        assertThat(pages).isEqualTo(-1);
+    }
+
+    private static Path createPdf(Path path, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            document.save(path.toFile());
+        }
+        return path;
+    }
+}
@@ -1,5 +1,6 @@
 package nemethi.pdfmerge.util;
 
+import nemethi.pdfmerge.archive.Archives;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -9,10 +10,15 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import static org.apache.pdfbox.io.IOUtils.toByteArray;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.util.Lists.emptyList;
@@ -21,6 +27,7 @@ import static org.assertj.core.util.Lists.list;
 public class PathToStreamConverterTest {
 
     private static final String EMPTY_PATH_NAME = "";
+    private static final int FILE_SIZE = 10_000;
 
     @Rule
     public TemporaryFolder temp = new TemporaryFolder();
@@ -33,7 +40,7 @@ public class PathToStreamConverterTest {
     }
 
     @Test
-    public void returnEmptyListOnEmptyInputList() throws FileNotFoundException {
+    public void returnEmptyListOnEmptyInputList() throws IOException {
         assertThat(converter.convertPathsToStreams(emptyList())).isEmpty();
     }
 
@@ -49,6 +56,26 @@ public class PathToStreamConverterTest {
         assertThat(streams).hasSameSizeAs(paths).hasOnlyElementsOfType(FileInputStream.class);
     }
 
+    @Test
+    public void returnStreamsReadingArchiveEntries() throws IOException {
+        // given
+        Path zip = temp.getRoot().toPath().resolve("bundle.zip");
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(zip))) {
+            outputStream.putNextEntry(new ZipEntry("sub/a.pdf"));
+            outputStream.write(new byte[FILE_SIZE]);
+        }
+
+        // when
+        List<InputStream> streams = converter.convertPathsToStreams(list(Archives.entryPath(zip, "sub/a.pdf")));
+
+        // then
+        try (InputStream inputStream = streams.get(0)) {
+            assertThat(inputStream.skip(FILE_SIZE - 1)).isEqualTo(FILE_SIZE - 1);
+            assertThat(inputStream.read()).isZero();
+            assertThat(inputStream.read()).isEqualTo(-1);
+        }
+    }
+
     @Test
     public void throwsExceptionOnInvalidPath() throws IOException {
         // given
@@ -60,4 +87,111 @@ public class PathToStreamConverterTest {
         // then
         assertThat(thrown).isInstanceOf(FileNotFoundException.class);
     }
+
+    @Test
+    public void prefetchingStreamsReturnFileContents() throws IOException {
+        // given
+        byte[] content1 = randomBytes(1);
+        byte[] content2 = randomBytes(2);
+        byte[] content3 = randomBytes(3);
+        List<Path> paths = list(newFile(content1), newFile(content2), newFile(content3));
+        converter.setPrefetchCount(1);
+
+        // when
+        List<InputStream> streams = converter.convertPathsToStreams(paths);
+
+        // then
+        assertThat(streams).hasSameSizeAs(paths);
+        assertThat(toByteArray(streams.get(0))).isEqualTo(content1);
+        assertThat(toByteArray(streams.get(1))).isEqualTo(content2);
+        assertThat(toByteArray(streams.get(2))).isEqualTo(content3);
+        for (InputStream stream : streams) {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void prefetchingStreamsReadFilesLargerThanBuffer() throws IOException {
+        // given
+        byte[] content1 = randomBytes(1);
+        byte[] content2 = randomBytes(2);
+        List<Path> paths = list(newFile(content1), newFile(content2));
+        converter.setPrefetchCount(1);
+        converter.setPrefetchBufferSize(FILE_SIZE / 2);
+
+        // when
+        List<InputStream> streams = converter.convertPathsToStreams(paths);
+
+        // then
+        assertThat(toByteArray(streams.get(0))).isEqualTo(content1);
+        assertThat(toByteArray(streams.get(1))).isEqualTo(content2);
+    }
+
+    @Test
+    public void prefetchingThrowsExceptionOnInvalidPath() throws IOException {
+        // given
+        List<Path> paths = list(temp.newFile().toPath(), Paths.get(EMPTY_PATH_NAME));
+        converter.setPrefetchCount(1);
+
+        // when
+        Throwable thrown = catchThrowable(() -> converter.convertPathsToStreams(paths));
+
+        // then
+        assertThat(thrown).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    public void openingInputReadsNextInputsAhead() throws IOException {
+        // given
+        byte[] content2 = randomBytes(2);
+        List<Path> paths = list(newFile(randomBytes(1)), newFile(content2), newFile(randomBytes(3)));
+        InputPrefetcher prefetcher = new InputPrefetcher(paths, 1, FILE_SIZE * 2);
+        List<InputStream> streams = prefetcher.createStreams();
+
+        // when
+        streams.get(0).read();
+        Files.delete(paths.get(1));
+        Files.delete(paths.get(2));
+
+        // then
+        assertThat(toByteArray(streams.get(1))).isEqualTo(content2);
+        assertThat(catchThrowable(() -> streams.get(2).read())).isInstanceOf(FileNotFoundException.class);
+    }
+
+    @Test
+    public void openingInputReadsNextArchiveEntriesAhead() throws IOException {
+        // given
+        byte[] content2 = randomBytes(2);
+        Path zip = temp.getRoot().toPath().resolve("bundle.zip");
+        try (ZipOutputStream outputStream = new ZipOutputStream(Files.newOutputStream(zip))) {
+            outputStream.putNextEntry(new ZipEntry("a.pdf"));
+            outputStream.write(randomBytes(1));
+            outputStream.putNextEntry(new ZipEntry("b.pdf"));
+            outputStream.write(content2);
+        }
+        List<Path> paths = list(Archives.entryPath(zip, "a.pdf"), Archives.entryPath(zip, "b.pdf"));
+        InputPrefetcher prefetcher = new InputPrefetcher(paths, 1, FILE_SIZE * 2);
+        List<InputStream> streams = prefetcher.createStreams();
+
+        // when
+        streams.get(0).read();
+        for (long deadline = System.nanoTime() + 5_000_000_000L; !prefetcher.isPrefetched(1); ) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.yield();
+        }
+        Files.delete(zip);
+
+        // then
+        assertThat(toByteArray(streams.get(1))).isEqualTo(content2);
+    }
+
+    private Path newFile(byte[] content) throws IOException {
+        return Files.write(temp.newFile().toPath(), content);
+    }
+
+    private static byte[] randomBytes(int seed) {
+        byte[] bytes = new byte[FILE_SIZE];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
 }
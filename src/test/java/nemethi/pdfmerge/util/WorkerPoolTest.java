@@ -0,0 +1,112 @@
+package nemethi.pdfmerge.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class WorkerPoolTest {
+
+    private static final int THREADS = 2;
+
+    private final WorkerPool pool = new WorkerPool("test", "Testing", THREADS);
+
+    @Test
+    public void resultsAreHandledInOrder() throws IOException {
+        // given
+        List<Integer> items = IntStream.range(0, 50).boxed().collect(Collectors.toList());
+        List<Integer> handled = new ArrayList<>();
+
+        // when
+        pool.map(items, item -> item * 2, (item, result) -> handled.add(result));
+
+        // then
+        assertThat(handled).isEqualTo(items.stream().map(item -> item * 2).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void slowFirstTaskHoldsBackOnlyTwoTasksPerThread() throws Exception {
+        // given
+        List<Integer> items = IntStream.range(0, 20).boxed().collect(Collectors.toList());
+        CountDownLatch firstReleased = new CountDownLatch(1);
+        AtomicInteger started = new AtomicInteger();
+        AtomicInteger startedBeforeRelease = new AtomicInteger();
+
+        // when
+        Thread release = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            startedBeforeRelease.set(started.get());
+            firstReleased.countDown();
+        });
+        release.start();
+        pool.map(items, item -> {
+            started.incrementAndGet();
+            if (item == 0) {
+                await(firstReleased);
+            }
+            return item;
+        }, (item, result) -> {
+        });
+        release.join();
+
+        // then
+        assertThat(startedBeforeRelease.get()).isEqualTo(THREADS * 2);
+        assertThat(started.get()).isEqualTo(items.size());
+    }
+
+    @Test
+    public void failureOfATaskIsAnIOException() {
+        // given
+        IOException failure = new IOException("broken");
+
+        // when
+        Throwable thrown = catchThrowable(() -> pool.map(Arrays.asList(1, 2), item -> {
+            throw failure;
+        }, (item, result) -> {
+        }));
+
+        // then
+        assertThat(thrown).isInstanceOf(IOException.class).hasMessage("Testing failed.").hasCause(failure);
+    }
+
+    @Test
+    public void executeRunsTasksOnNamedDaemonThreads() throws Exception {
+        // given
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Thread> worker = new AtomicReference<>();
+
+        // when
+        pool.execute(() -> {
+            worker.set(Thread.currentThread());
+            done.countDown();
+        });
+
+        // then
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(worker.get().getName()).startsWith("test-");
+        assertThat(worker.get().isDaemon()).isTrue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package nemethi.pdfmerge.volume;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Lists.list;
+
+public class VolumePlannerTest {
+
+    private static final Path INPUT1 = Paths.get("input1.pdf");
+    private static final Path INPUT2 = Paths.get("input2.pdf");
+    private static final Path INPUT3 = Paths.get("input3.pdf");
+    private static final long PAGE_SIZE = 1000;
+
+    private VolumePlanner planner;
+
+    @Before
+    public void setUp() {
+        planner = new VolumePlanner();
+    }
+
+    @Test
+    public void isDisabledByDefault() {
+        assertThat(planner.isEnabled()).isFalse();
+    }
+
+    @Test
+    public void planKeepsWholeInputsTogetherWithinPageLimit() {
+        // given
+        planner.setMaxPages(5);
+
+        // when
+        List<Volume> volumes = planner.plan(list(input(INPUT1, 2), input(INPUT2, 3), input(INPUT3, 4)));
+
+        // then
+        assertThat(describe(volumes)).containsExactly(
+                "[input1.pdf[1..2], input2.pdf[1..3]]",
+                "[input3.pdf[1..4]]");
+        assertThat(volumes.get(0).getSegments()).allMatch(Segment::isWholeInput);
+    }
+
+    @Test
+    public void planSplitsInputsLargerThanPageLimit() {
+        // given
+        planner.setMaxPages(3);
+
+        // when
+        List<Volume> volumes = planner.plan(list(input(INPUT1, 2), input(INPUT2, 5)));
+
+        // then
+        assertThat(describe(volumes)).containsExactly(
+                "[input1.pdf[1..2], input2.pdf[1..1]]",
+                "[input2.pdf[2..4]]",
+                "[input2.pdf[5..5]]");
+        assertThat(volumes.get(1).getSegments().get(0).isWholeInput()).isFalse();
+    }
+
+    @Test
+    public void planUsesEstimatedPageSizeForSizeLimit() {
+        // given
+        planner.setMaxSize(PAGE_SIZE * 4);
+
+        // when
+        List<Volume> volumes = planner.plan(list(input(INPUT1, 3), input(INPUT2, 3)));
+
+        // then
+        assertThat(describe(volumes)).containsExactly(
+                "[input1.pdf[1..3], input2.pdf[1..1]]",
+                "[input2.pdf[2..3]]");
+    }
+
+    @Test
+    public void planAppliesTheStricterLimit() {
+        // given
+        planner.setMaxPages(2);
+        planner.setMaxSize(PAGE_SIZE * 10);
+
+        // when
+        List<Volume> volumes = planner.plan(list(input(INPUT1, 3)));
+
+        // then
+        assertThat(describe(volumes)).containsExactly("[input1.pdf[1..2]]", "[input1.pdf[3..3]]");
+    }
+
+    @Test
+    public void planPutsPageLargerThanSizeLimitIntoOwnVolume() {
+        // given
+        planner.setMaxSize(PAGE_SIZE / 2);
+
+        // when
+        List<Volume> volumes = planner.plan(list(input(INPUT1, 2)));
+
+        // then
+        assertThat(describe(volumes)).containsExactly("[input1.pdf[1..1]]", "[input1.pdf[2..2]]");
+    }
+
+    @Test
+    public void splitHalvesVolumeByPages() {
+        // given
+        planner.setMaxPages(10);
+        Volume volume = planner.plan(list(input(INPUT1, 3), input(INPUT2, 2))).get(0);
+
+        // when
+        List<Volume> halves = volume.split();
+
+        // then
+        assertThat(describe(halves)).containsExactly(
+                "[input1.pdf[1..2]]",
+                "[input1.pdf[3..3], input2.pdf[1..2]]");
+    }
+
+    private static Segment input(Path path, int pages) {
+        return new Segment(path, pages, pages * PAGE_SIZE);
+    }
+
+    private static List<String> describe(List<Volume> volumes) {
+        return volumes.stream().map(Volume::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,205 @@
+package nemethi.pdfmerge.volume;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.util.Lists.list;
+
+public class VolumeWriterTest {
+
+    private static final int BYTES_PER_PAGE = 100;
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private VolumeWriter writer;
+    private Path outputPath;
+    private List<Volume> assembled;
+
+    @Before
+    public void setUp() {
+        writer = new VolumeWriter();
+        writer.setThreads(2);
+        outputPath = temp.getRoot().toPath().resolve("out.pdf");
+        assembled = new ArrayList<>();
+    }
+
+    @Test
+    public void writeNumbersVolumesInInputOrder() throws IOException {
+        // given
+        List<Volume> volumes = list(volume("a.pdf", 1), volume("b.pdf", 2), volume("c.pdf", 3));
+
+        // when
+        List<Path> paths = writer.write(volumes, outputPath, false, this::assemble);
+
+        // then
+        assertThat(paths).containsExactly(sibling("out-001.pdf"), sibling("out-002.pdf"), sibling("out-003.pdf"));
+        assertThat(contentOf(paths.get(0))).startsWith("[a.pdf[1..1]]");
+        assertThat(contentOf(paths.get(1))).startsWith("[b.pdf[1..2]]");
+        assertThat(contentOf(paths.get(2))).startsWith("[c.pdf[1..3]]");
+        assertThat(temp.getRoot().list()).containsExactlyInAnyOrder("out-001.pdf", "out-002.pdf", "out-003.pdf");
+    }
+
+    @Test
+    public void writeSplitsVolumesLargerThanMaxSize() throws IOException {
+        // given
+        writer.setMaxSize(BYTES_PER_PAGE * 2 + BYTES_PER_PAGE / 2);
+        List<Volume> volumes = list(volume("a.pdf", 4), volume("b.pdf", 1));
+
+        // when
+        List<Path> paths = writer.write(volumes, outputPath, false, this::assemble);
+
+        // then
+        assertThat(paths).hasSize(3);
+        assertThat(contentOf(paths.get(0))).startsWith("[a.pdf[1..2]]");
+        assertThat(contentOf(paths.get(1))).startsWith("[a.pdf[3..4]]");
+        assertThat(contentOf(paths.get(2))).startsWith("[b.pdf[1..1]]");
+        assertThat(temp.getRoot().list()).hasSize(3);
+    }
+
+    @Test
+    public void writeRefusesToOverwriteExistingVolume() throws IOException {
+        // given
+        Files.createFile(sibling("out-002.pdf"));
+
+        // when
+        Throwable thrown = catchThrowable(() ->
+                writer.write(list(volume("a.pdf", 1), volume("b.pdf", 1)), outputPath, false, this::assemble));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(FileAlreadyExistsException.class)
+                .hasMessage("The output file already exists.");
+        assertThat(assembled).isEmpty();
+    }
+
+    @Test
+    public void writeOverwritesExistingVolumeWhenForced() throws IOException {
+        // given
+        Files.createFile(sibling("out-001.pdf"));
+
+        // when
+        writer.write(list(volume("a.pdf", 1)), outputPath, true, this::assemble);
+
+        // then
+        assertThat(contentOf(sibling("out-001.pdf"))).startsWith("[a.pdf[1..1]]");
+    }
+
+    @Test
+    public void writeDeletesVolumesLeftOverFromALongerRunWhenForced() throws IOException {
+        // given
+        Files.createFile(sibling("out-001.pdf"));
+        Files.createFile(sibling("out-002.pdf"));
+        Files.createFile(sibling("out-003.pdf"));
+        Files.createFile(sibling("out-005.pdf"));
+
+        // when
+        writer.write(list(volume("a.pdf", 1)), outputPath, true, this::assemble);
+
+        // then
+        assertThat(temp.getRoot().list()).containsExactlyInAnyOrder("out-001.pdf", "out-005.pdf");
+    }
+
+    @Test
+    public void writeRemovesPartsOnFailure() {
+        // given
+        IOException expectedException = new IOException("message");
+        List<Volume> volumes = list(volume("a.pdf", 1), volume("b.pdf", 1));
+
+        // when
+        Throwable thrown = catchThrowable(() -> writer.write(volumes, outputPath, false, (volume, outputStream) -> {
+            if (volume == volumes.get(1)) {
+                throw expectedException;
+            }
+            assemble(volume, outputStream);
+        }));
+
+        // then
+        assertThat(thrown).isEqualTo(expectedException);
+        assertThat(temp.getRoot().list()).isEmpty();
+    }
+
+    @Test
+    public void writesVolumesCutFromOneInputOneAfterAnother() throws IOException {
+        // given
+        List<Volume> volumes = new ArrayList<>();
+        for (Volume half : volume("a.pdf", 4).split()) {
+            volumes.addAll(half.split());
+        }
+        volumes.add(volume("b.pdf", 1));
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        // when
+        List<Path> paths = writer.write(volumes, outputPath, false, (volume, outputStream) -> {
+            boolean isCutFromA = volume.getSegments().get(0).getPath().equals(Paths.get("a.pdf"));
+            if (isCutFromA) {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (isCutFromA) {
+                active.decrementAndGet();
+            }
+            assemble(volume, outputStream);
+        });
+
+        // then
+        assertThat(VolumeWriter.groupBySharedInput(volumes)).hasSize(2);
+        assertThat(maxActive.get()).isEqualTo(1);
+        assertThat(paths).hasSize(5);
+        assertThat(contentOf(paths.get(3))).startsWith("[a.pdf[4..4]]");
+        assertThat(contentOf(paths.get(4))).startsWith("[b.pdf[1..1]]");
+    }
+
+    @Test
+    public void volumePathsKeepExtensionOfOutputPath() {
+        assertThat(VolumeWriter.volumePaths(Paths.get("dir", "merged.pdf"), 2))
+                .containsExactly(Paths.get("dir", "merged-001.pdf"), Paths.get("dir", "merged-002.pdf"));
+        assertThat(VolumeWriter.volumePaths(Paths.get("merged"), 1)).containsExactly(Paths.get("merged-001"));
+    }
+
+    private void assemble(Volume volume, OutputStream outputStream) throws IOException {
+        synchronized (assembled) {
+            assembled.add(volume);
+        }
+        byte[] content = new byte[volume.getPageCount() * BYTES_PER_PAGE];
+        Arrays.fill(content, (byte) ' ');
+        byte[] description = volume.toString().getBytes(US_ASCII);
+        System.arraycopy(description, 0, content, 0, description.length);
+        outputStream.write(content);
+    }
+
+    private Path sibling(String fileName) {
+        return outputPath.resolveSibling(fileName);
+    }
+
+    private static String contentOf(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), US_ASCII);
+    }
+
+    private static Volume volume(String fileName, int pages) {
+        Volume volume = new Volume();
+        volume.add(new Segment(Paths.get(fileName), pages, (long) pages * BYTES_PER_PAGE));
+        return volume;
+    }
+}
@@ -0,0 +1,187 @@
+package nemethi.pdfmerge.watch;
+
+import nemethi.pdfmerge.PdfMerger;
+import nemethi.pdfmerge.metrics.MergeMetrics;
+import nemethi.pdfmerge.metrics.MetricsRegistry;
+import nemethi.pdfmerge.util.PathToStreamConverter;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class FolderMergerTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private Path directory;
+    private Path outputPath;
+    private PdfMerger pdfMerger;
+    private FolderMerger folderMerger;
+
+    @Before
+    public void setUp() {
+        directory = temp.getRoot().toPath();
+        outputPath = directory.resolve("out.pdf");
+        pdfMerger = new PdfMerger();
+        folderMerger = new FolderMerger(directory, outputPath, pdfMerger);
+    }
+
+    @After
+    public void tearDown() {
+        folderMerger.close();
+    }
+
+    @Test
+    public void listInputsReturnsSortedPdfsExceptOutput() throws IOException {
+        // given
+        createPdf("b.PDF", 1);
+        createPdf("a.pdf", 1);
+        createPdf("out.pdf", 1);
+        Files.createFile(directory.resolve("notes.txt"));
+        Files.createFile(directory.resolve(".out.pdf.part"));
+        Files.createDirectory(directory.resolve("folder.pdf"));
+
+        // when + then
+        assertThat(folderMerger.listInputs()).containsExactly(directory.resolve("a.pdf"), directory.resolve("b.PDF"));
+    }
+
+    @Test
+    public void rebuildMergesInputsIntoOutput() throws IOException {
+        // given
+        createPdf("a.pdf", 1);
+        createPdf("b.pdf", 2);
+
+        // when
+        int inputCount = folderMerger.rebuild();
+        int changedCount = folderMerger.getChangedCount();
+        int secondInputCount = folderMerger.rebuild();
+
+        // then
+        assertThat(inputCount).isEqualTo(2);
+        assertThat(changedCount).isEqualTo(2);
+        assertThat(secondInputCount).isEqualTo(2);
+        assertThat(folderMerger.getChangedCount()).isZero();
+        assertThat(pageCount(outputPath)).isEqualTo(3);
+        assertThat(temp.getRoot().list()).containsExactlyInAnyOrder("a.pdf", "b.pdf", "out.pdf");
+    }
+
+    @Test
+    public void rebuildLoadsOnlyChangedInputs() throws IOException {
+        // given
+        List<Path> openedPaths = new ArrayList<>();
+        pdfMerger.setConverter(new PathToStreamConverter() {
+            @Override
+            public List<InputStream> convertPathsToStreams(List<Path> paths) throws IOException {
+                openedPaths.addAll(paths);
+                return super.convertPathsToStreams(paths);
+            }
+        });
+        createPdf("a.pdf", 1);
+        createPdf("b.pdf", 2);
+        createPdf("c.pdf", 1);
+        folderMerger.rebuild();
+        openedPaths.clear();
+        createPdf("b.pdf", 3);
+
+        // when
+        folderMerger.rebuild();
+
+        // then
+        assertThat(openedPaths).containsExactly(directory.resolve("b.pdf"));
+        assertThat(folderMerger.getChangedCount()).isEqualTo(1);
+        assertThat(pageCount(outputPath)).isEqualTo(5);
+    }
+
+    @Test
+    public void rebuildRecordsMetrics() throws IOException {
+        // given
+        MetricsRegistry registry = new MetricsRegistry();
+        pdfMerger.setMetrics(new MergeMetrics(registry, directory));
+        createPdf("a.pdf", 1);
+        createPdf("b.pdf", 2);
+
+        // when
+        folderMerger.rebuild();
+
+        // then
+        StringWriter exposition = new StringWriter();
+        registry.writeTo(exposition);
+        assertThat(exposition.toString())
+                .contains("pdfmerge_merges_total 1\n")
+                .contains("pdfmerge_pages_total 3\n")
+                .contains("pdfmerge_output_bytes_total " + Files.size(outputPath) + "\n")
+                .contains("pdfmerge_phase_duration_seconds_count{phase=\"save\"} 1\n");
+    }
+
+    @Test
+    public void rebuildAppliesMergerOptions() throws IOException {
+        // given
+        pdfMerger.setLinearized(true);
+        createPdf("a.pdf", 1);
+        createPdf("b.pdf", 2);
+
+        // when
+        folderMerger.rebuild();
+
+        // then
+        assertThat(new String(Files.readAllBytes(outputPath), StandardCharsets.ISO_8859_1).substring(0, 1024))
+                .contains("/Linearized");
+        assertThat(pageCount(outputPath)).isEqualTo(3);
+    }
+
+    @Test
+    public void rebuildSkipsEmptyDirectory() throws IOException {
+        // when
+        int inputCount = folderMerger.rebuild();
+
+        // then
+        assertThat(inputCount).isZero();
+        assertThat(outputPath).doesNotExist();
+    }
+
+    @Test
+    public void rebuildKeepsPreviousOutputWhenInputIsUnreadable() throws IOException {
+        // given
+        createPdf("a.pdf", 1);
+        folderMerger.rebuild();
+        Files.write(directory.resolve("b.pdf"), new byte[]{'%', 'P', 'D', 'F'});
+
+        // when
+        Throwable thrown = catchThrowable(() -> folderMerger.rebuild());
+
+        // then
+        assertThat(thrown).isInstanceOf(IOException.class);
+        assertThat(pageCount(outputPath)).isEqualTo(1);
+    }
+
+    private void createPdf(String fileName, int pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                document.addPage(new PDPage());
+            }
+            document.save(directory.resolve(fileName).toFile());
+        }
+    }
+
+    private static int pageCount(Path pdf) throws IOException {
+        try (PDDocument document = PDDocument.load(pdf.toFile())) {
+            return document.getNumberOfPages();
+        }
+    }
+}
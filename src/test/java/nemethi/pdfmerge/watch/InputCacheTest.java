@@ -0,0 +1,153 @@
+package nemethi.pdfmerge.watch;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.util.Lists.list;
+
+public class InputCacheTest {
+
+    @Rule
+    public TemporaryFolder temp = new TemporaryFolder();
+
+    private InputCache inputCache;
+    private Path pdf1;
+    private Path pdf2;
+
+    @Before
+    public void setUp() throws IOException {
+        inputCache = new InputCache();
+        pdf1 = createFile("1.pdf", 1);
+        pdf2 = createFile("2.pdf", 2);
+    }
+
+    @After
+    public void tearDown() {
+        inputCache.close();
+    }
+
+    @Test
+    public void countChangedCountsInputsNotSeenBefore() throws IOException {
+        // when
+        int firstCount = inputCache.countChanged(list(pdf1, pdf2));
+        inputCache.update(list(pdf1, pdf2));
+        int secondCount = inputCache.countChanged(list(pdf1, pdf2));
+
+        // then
+        assertThat(firstCount).isEqualTo(2);
+        assertThat(secondCount).isZero();
+    }
+
+    @Test
+    public void countChangedCountsModifiedInputs() throws IOException {
+        // given
+        inputCache.update(list(pdf1, pdf2));
+        createFile("2.pdf", 3);
+        Files.setLastModifiedTime(pdf2, FileTime.fromMillis(Files.getLastModifiedTime(pdf2).toMillis() + 1000));
+
+        // when
+        int changedCount = inputCache.countChanged(list(pdf1, pdf2));
+
+        // then
+        assertThat(changedCount).isEqualTo(1);
+    }
+
+    @Test
+    public void updateForgetsRemovedInputs() throws IOException {
+        // given
+        inputCache.update(list(pdf1, pdf2));
+
+        // when
+        inputCache.update(list(pdf2));
+
+        // then
+        assertThat(inputCache.size()).isEqualTo(1);
+        assertThat(inputCache.countChanged(list(pdf1, pdf2))).isEqualTo(1);
+    }
+
+    @Test
+    public void updateSkipsInputsRemovedSinceTheyWereListed() throws IOException {
+        // given
+        Files.delete(pdf1);
+
+        // when
+        inputCache.update(list(pdf1, pdf2));
+
+        // then
+        assertThat(inputCache.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void getReturnsTheDocumentOfAnUnchangedInput() throws IOException {
+        // given
+        PDDocument document = new PDDocument();
+        inputCache.get(pdf1);
+        inputCache.put(pdf1, document, new ByteArrayInputStream(new byte[0]));
+
+        // when + then
+        assertThat(inputCache.get(pdf1)).isSameAs(document);
+        assertThat(inputCache.get(pdf2)).isNull();
+    }
+
+    @Test
+    public void getMissesAnInputChangedSinceItWasLoaded() throws IOException {
+        // given
+        inputCache.get(pdf1);
+        inputCache.put(pdf1, new PDDocument(), new ByteArrayInputStream(new byte[0]));
+        createFile("1.pdf", 3);
+
+        // when + then
+        assertThat(inputCache.get(pdf1)).isNull();
+    }
+
+    @Test
+    public void putClosesTheReplacedDocument() throws IOException {
+        // given
+        PDDocument replaced = new PDDocument();
+        inputCache.get(pdf1);
+        inputCache.put(pdf1, replaced, new ByteArrayInputStream(new byte[0]));
+        createFile("1.pdf", 3);
+        inputCache.get(pdf1);
+
+        // when
+        inputCache.put(pdf1, new PDDocument(), new ByteArrayInputStream(new byte[0]));
+
+        // then
+        assertThat(replaced.getDocument().isClosed()).isTrue();
+        assertThat(inputCache.documentCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void updateClosesTheDocumentsOfRemovedInputs() throws IOException {
+        // given
+        PDDocument removed = new PDDocument();
+        PDDocument kept = new PDDocument();
+        inputCache.get(pdf1);
+        inputCache.put(pdf1, removed, new ByteArrayInputStream(new byte[0]));
+        inputCache.get(pdf2);
+        inputCache.put(pdf2, kept, new ByteArrayInputStream(new byte[0]));
+
+        // when
+        inputCache.update(list(pdf2));
+
+        // then
+        assertThat(removed.getDocument().isClosed()).isTrue();
+        assertThat(kept.getDocument().isClosed()).isFalse();
+        assertThat(inputCache.documentCount()).isEqualTo(1);
+    }
+
+    private Path createFile(String fileName, int size) throws IOException {
+        return Files.write(temp.getRoot().toPath().resolve(fileName), new byte[size]);
+    }
+}
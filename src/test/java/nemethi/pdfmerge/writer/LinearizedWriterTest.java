@@ -0,0 +1,192 @@
+package nemethi.pdfmerge.writer;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class LinearizedWriterTest {
+
+    private static final Pattern LINEARIZATION_DICTIONARY = Pattern.compile(
+            "\\d+ 0 obj\n<</Linearized 1/L (\\d+) */H \\[(\\d+) * (\\d+) *]/O (\\d+)/E (\\d+) */N (\\d+)/T (\\d+) *>>");
+    private static final Pattern STARTXREF = Pattern.compile("startxref\n(\\d+)\n%%EOF\n$");
+    private static final int LINEARIZATION_DICTIONARY_WINDOW = 1024;
+    private static final String[] PAGES = {"First page", "Second page", "Third page"};
+
+    private LinearizedWriter writer;
+
+    @Before
+    public void setUp() {
+        writer = new LinearizedWriter();
+    }
+
+    @Test
+    public void linearizationDictionaryOffsetsAreValid() throws IOException {
+        // given
+        byte[] pdf = linearize(createDocument(PAGES));
+        String content = new String(pdf, ISO_8859_1);
+
+        // when
+        Matcher dictionary = LINEARIZATION_DICTIONARY.matcher(content);
+
+        // then
+        assertThat(dictionary.find()).isTrue();
+        assertThat(dictionary.start()).isLessThan(LINEARIZATION_DICTIONARY_WINDOW);
+        long fileLength = Long.parseLong(dictionary.group(1));
+        int hintOffset = Integer.parseInt(dictionary.group(2));
+        int hintLength = Integer.parseInt(dictionary.group(3));
+        String firstPageObject = dictionary.group(4) + " 0 obj\n";
+        int firstPageEnd = Integer.parseInt(dictionary.group(5));
+        int pageCount = Integer.parseInt(dictionary.group(6));
+        int mainXrefEntries = Integer.parseInt(dictionary.group(7));
+
+        assertThat(fileLength).isEqualTo(pdf.length);
+        assertThat(content.substring(hintOffset)).matches("(?s)\\d+ 0 obj\n<</S \\d+/Length \\d+>>\nstream\r\n.*");
+        assertThat(content.substring(hintOffset + hintLength)).startsWith(firstPageObject);
+        assertThat(content.substring(hintOffset, hintOffset + hintLength)).endsWith("endstream\nendobj\n");
+        assertThat(content.indexOf(firstPageObject)).isEqualTo(hintOffset + hintLength);
+        assertThat(content.substring(firstPageEnd)).matches("(?s)\\d+ 0 obj\n.*");
+        assertThat(content.substring(firstPageEnd)).doesNotContain(firstPageObject);
+        assertThat(pageCount).isEqualTo(PAGES.length);
+        assertThat(content.charAt(mainXrefEntries)).isEqualTo('\n');
+        assertThat(content.substring(mainXrefEntries + 1)).startsWith("0000000000 65535 f\r\n");
+        int mainXref = content.lastIndexOf("xref\n0 ");
+        assertThat(content.indexOf('\n', mainXref + "xref\n".length())).isEqualTo(mainXrefEntries);
+    }
+
+    @Test
+    public void lastStartxrefPointsToFirstPageXref() throws IOException {
+        // given
+        byte[] pdf = linearize(createDocument(PAGES));
+        String content = new String(pdf, ISO_8859_1);
+
+        // when
+        Matcher startxref = STARTXREF.matcher(content);
+
+        // then
+        assertThat(startxref.find()).isTrue();
+        int firstPageXref = Integer.parseInt(startxref.group(1));
+        assertThat(content.substring(firstPageXref)).startsWith("xref\n");
+        assertThat(content.indexOf("xref\n")).isEqualTo(firstPageXref);
+        assertThat(content.substring(firstPageXref, content.indexOf("%%EOF", firstPageXref)))
+                .contains("/Prev " + content.lastIndexOf("xref\n0 "));
+    }
+
+    @Test
+    public void pageOffsetHintTableLocatesFirstPageAsIfHintStreamWasAbsent() throws IOException {
+        // given
+        byte[] pdf = linearize(createDocument(PAGES));
+        String content = new String(pdf, ISO_8859_1);
+        Matcher dictionary = LINEARIZATION_DICTIONARY.matcher(content);
+        assertThat(dictionary.find()).isTrue();
+        int hintOffset = Integer.parseInt(dictionary.group(2));
+        int hintLength = Integer.parseInt(dictionary.group(3));
+        int hintData = content.indexOf("stream\r\n", hintOffset) + "stream\r\n".length();
+
+        // when
+        long leastObjectsInPage = readUnsignedInt(pdf, hintData);
+        long firstPageLocation = readUnsignedInt(pdf, hintData + Integer.BYTES);
+
+        // then
+        assertThat(leastObjectsInPage).isPositive();
+        assertThat(firstPageLocation).isEqualTo(hintOffset);
+        assertThat(firstPageLocation + hintLength).isEqualTo(content.indexOf(dictionary.group(4) + " 0 obj\n"));
+    }
+
+    @Test
+    public void linearizedDocumentKeepsContent() throws IOException {
+        // given
+        PDDocument document = createDocument(PAGES);
+        String expectedText = new PDFTextStripper().getText(document);
+
+        // when
+        byte[] pdf = linearize(document);
+
+        // then
+        try (PDDocument linearized = PDDocument.load(pdf)) {
+            assertThat(linearized.getNumberOfPages()).isEqualTo(PAGES.length);
+            assertThat(new PDFTextStripper().getText(linearized)).isEqualTo(expectedText);
+        }
+    }
+
+    @Test
+    public void linearizesReloadedDocument() throws IOException {
+        // given
+        byte[] pdf = linearize(createDocument(PAGES));
+
+        // when
+        byte[] relinearized;
+        try (PDDocument reloaded = PDDocument.load(pdf)) {
+            relinearized = linearize(reloaded);
+        }
+
+        // then
+        try (PDDocument document = PDDocument.load(relinearized)) {
+            assertThat(document.getNumberOfPages()).isEqualTo(PAGES.length);
+        }
+        assertThat(LINEARIZATION_DICTIONARY.matcher(new String(relinearized, ISO_8859_1)).find()).isTrue();
+    }
+
+    @Test
+    public void throwsExceptionForDocumentWithoutPages() throws IOException {
+        // given
+        PDDocument document = new PDDocument();
+
+        // when
+        Throwable thrown = catchThrowable(() -> linearize(document));
+
+        // then
+        assertThat(thrown)
+                .isInstanceOf(IOException.class)
+                .hasMessage("Cannot linearize a document without pages.");
+    }
+
+    private byte[] linearize(PDDocument document) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writer.write(document, outputStream);
+        } finally {
+            document.close();
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static long readUnsignedInt(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            value = (value << Byte.SIZE) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+
+    private static PDDocument createDocument(String... pages) throws IOException {
+        final int fontSize = 72;
+        final int textXOffset = 100;
+        final int textYOffset = 700;
+        PDDocument document = new PDDocument();
+        for (String content : pages) {
+            PDPage page = new PDPage();
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.beginText();
+                contentStream.setFont(PDType1Font.HELVETICA, fontSize);
+                contentStream.newLineAtOffset(textXOffset, textYOffset);
+                contentStream.showText(content);
+                contentStream.endText();
+            }
+            document.addPage(page);
+        }
+        return document;
+    }
+}